@@ -1,43 +1,60 @@
 package io.confluent.udf;
 
-import org.apache.flink.table.annotation.DataTypeHint;
-import org.apache.flink.table.annotation.FunctionHint;
+import org.apache.flink.table.api.DataTypes;
+import org.apache.flink.table.catalog.DataTypeFactory;
 import org.apache.flink.table.functions.TableFunction;
+import org.apache.flink.table.types.DataType;
+import org.apache.flink.table.types.inference.InputTypeStrategies;
+import org.apache.flink.table.types.inference.TypeInference;
 import org.apache.flink.types.Row;
-import org.apache.logging.log4j.LogManager;
-import org.apache.logging.log4j.Logger;
 
-import java.util.Comparator;
 import java.util.List;
-import java.util.Map;
-import java.util.Set;
-import java.util.Deque;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.ArrayDeque;
+import java.util.Optional;
 
 /**
- * A Table Function that explodes a list of strings into a list of rows
- * Input: list of strings
- * Output: Emits one row per string in the list
+ * A Table Function that explodes an array into rows
+ * Input: ARRAY of any element type, including ROW
+ * Output: Emits one row per element of the array, with the element in the column sub_string for
+ * an array of strings, and in the column item for other element types (a ROW element is a nested
+ * ROW column)
+ *
+ * <p>The function takes an {@code ARRAY<T>} through its type inference, so the output column has
+ * the element type. Null elements emit a row with a null column, and a null array emits nothing.
+ * Arrays with thousands of elements are common: nothing is logged per call, and the elements are
+ * emitted through one reused Row, which Flink converts to its internal format when collected.
  */
-@FunctionHint(output = @DataTypeHint("ROW<sub_string STRING>"))
-public class ExplodeFunction extends TableFunction {
-    private static final Logger logger = LogManager.getLogger();
+public class ExplodeFunction extends TableFunction<Row> {
+    // emitted row, reused for every element
+    private transient Row row;
 
-
-    public void eval(List<String> strList) throws Exception {
-        logger.info("Starting exploding: {}", strList);
-        if (strList == null) {
+    public void eval(List<?> values) {
+        if (values == null) {
             return;
         }
-        
-        for (String subStr : strList) {
-            collect(Row.of(subStr));
+        if (row == null) {
+            row = Row.withPositions(1);
+        }
+        for (Object value : values) {
+            row.setField(0, value);
+            collect(row);
         }
     }
 
+    /**
+     * Accepts an ARRAY of any element type, and returns a ROW with a column of the element type.
+     */
+    @Override
+    public TypeInference getTypeInference(DataTypeFactory typeFactory) {
+        return TypeInference.newBuilder()
+                .inputTypeStrategy(InputTypeStrategies.sequence(ExplodeTypes.ARRAY))
+                .outputTypeStrategy(callContext -> {
+                    DataType element = ExplodeTypes.elementType(callContext, 0);
+                    return Optional.of(DataTypes.ROW(DataTypes.FIELD(ExplodeTypes.columnName(element), element))
+                            .bridgedTo(Row.class));
+                })
+                .build();
+    }
+
     /**
      * Returns a string describing the function.
      */
@@ -47,4 +64,3 @@ public class ExplodeFunction extends TableFunction {
     }
 
 }
-
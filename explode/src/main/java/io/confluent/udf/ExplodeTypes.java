@@ -0,0 +1,63 @@
+package io.confluent.udf;
+
+import org.apache.flink.table.functions.FunctionDefinition;
+import org.apache.flink.table.types.DataType;
+import org.apache.flink.table.types.inference.ArgumentTypeStrategy;
+import org.apache.flink.table.types.inference.CallContext;
+import org.apache.flink.table.types.inference.Signature;
+import org.apache.flink.table.types.logical.ArrayType;
+import org.apache.flink.table.types.logical.LogicalType;
+import org.apache.flink.table.types.logical.LogicalTypeFamily;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Type inference shared by the explode functions, which accept an {@code ARRAY<T>} of any element
+ * type instead of the single element type of a {@code @DataTypeHint}.
+ */
+final class ExplodeTypes {
+    // output column of EXPLODE for string elements, as before the typed EXPLODE
+    static final String STRING_COLUMN = "sub_string";
+    // output column of the other element types; VALUE and ELEMENT are reserved keywords
+    static final String ITEM_COLUMN = "item";
+
+    private ExplodeTypes() {
+    }
+
+    /**
+     * Accepts an {@code ARRAY<T>} argument, converted to a {@code List} of the default conversion
+     * of T, such as {@code String}, {@code Integer} or {@code Row}.
+     */
+    static final ArgumentTypeStrategy ARRAY = new ArgumentTypeStrategy() {
+        @Override
+        public Optional<DataType> inferArgumentType(CallContext callContext, int argumentPos, boolean throwOnFailure) {
+            DataType argumentType = callContext.getArgumentDataTypes().get(argumentPos);
+            if (!(argumentType.getLogicalType() instanceof ArrayType)) {
+                return callContext.fail(throwOnFailure, "Argument %s must be an ARRAY, got %s", argumentPos + 1, argumentType.getLogicalType());
+            }
+            return Optional.of(argumentType.bridgedTo(List.class));
+        }
+
+        @Override
+        public Signature.Argument getExpectedArgument(FunctionDefinition functionDefinition, int argumentPos) {
+            return Signature.Argument.of("ARRAY<T>");
+        }
+    };
+
+    /**
+     * @return the element type of the array argument, nullable
+     */
+    static DataType elementType(CallContext callContext, int argumentPos) {
+        DataType arrayType = callContext.getArgumentDataTypes().get(argumentPos);
+        return arrayType.getChildren().get(0).nullable();
+    }
+
+    /**
+     * @return the name of the output column of the elements
+     */
+    static String columnName(DataType elementType) {
+        LogicalType type = elementType.getLogicalType();
+        return type.is(LogicalTypeFamily.CHARACTER_STRING) ? STRING_COLUMN : ITEM_COLUMN;
+    }
+}
@@ -0,0 +1,94 @@
+package io.confluent.udf;
+
+import org.apache.flink.table.api.DataTypes;
+import org.apache.flink.table.catalog.DataTypeFactory;
+import org.apache.flink.table.functions.TableFunction;
+import org.apache.flink.table.types.DataType;
+import org.apache.flink.table.types.inference.InputTypeStrategies;
+import org.apache.flink.table.types.inference.TypeInference;
+import org.apache.flink.types.Row;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * A Table Function that explodes an array into rows with the position of each element
+ * Input: ARRAY of any element type, including ROW
+ * Output: Emits one row (pos, item) per element of the array, pos being the zero-based position of
+ * the element in the array
+ *
+ * <p>Like EXPLODE, it accepts an {@code ARRAY<T>} of any element type, logs nothing per call, and
+ * emits the elements through one reused Row. The positions of the elements are boxed once per
+ * function instance, for arrays up to {@value #MAX_CACHED_POSITIONS} elements.
+ */
+public class ExplodeWithPosFunction extends TableFunction<Row> {
+    static final String POS_COLUMN = "pos";
+    // positions kept boxed, about 1 MB at most
+    static final int MAX_CACHED_POSITIONS = 1 << 16;
+
+    // emitted row, reused for every element
+    private transient Row row;
+    // boxed positions, grown to the largest array up to MAX_CACHED_POSITIONS
+    private transient Integer[] positions;
+
+    public void eval(List<?> values) {
+        if (values == null) {
+            return;
+        }
+        if (row == null) {
+            row = Row.withPositions(2);
+        }
+        Integer[] cached = positions(values.size());
+        int pos = 0;
+        for (Object value : values) {
+            row.setField(0, pos < cached.length ? cached[pos] : Integer.valueOf(pos));
+            row.setField(1, value);
+            collect(row);
+            pos++;
+        }
+    }
+
+    /**
+     * @return the boxed positions, at least up to the size or MAX_CACHED_POSITIONS
+     */
+    private Integer[] positions(int size) {
+        if (positions == null) {
+            positions = new Integer[0];
+        }
+        int length = Math.min(size, MAX_CACHED_POSITIONS);
+        if (positions.length < length) {
+            int from = positions.length;
+            positions = Arrays.copyOf(positions, length);
+            for (int i = from; i < length; i++) {
+                positions[i] = i;
+            }
+        }
+        return positions;
+    }
+
+    /**
+     * Accepts an ARRAY of any element type, and returns a ROW of an INT position and the element.
+     */
+    @Override
+    public TypeInference getTypeInference(DataTypeFactory typeFactory) {
+        return TypeInference.newBuilder()
+                .inputTypeStrategy(InputTypeStrategies.sequence(ExplodeTypes.ARRAY))
+                .outputTypeStrategy(callContext -> {
+                    DataType element = ExplodeTypes.elementType(callContext, 0);
+                    return Optional.of(DataTypes.ROW(
+                                    DataTypes.FIELD(POS_COLUMN, DataTypes.INT().notNull()),
+                                    DataTypes.FIELD(ExplodeTypes.ITEM_COLUMN, element))
+                            .bridgedTo(Row.class));
+                })
+                .build();
+    }
+
+    /**
+     * Returns a string describing the function.
+     */
+    @Override
+    public String toString() {
+        return "EXPLODE_WITH_POS";
+    }
+}
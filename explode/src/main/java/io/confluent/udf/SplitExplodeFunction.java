@@ -0,0 +1,233 @@
+package io.confluent.udf;
+
+import org.apache.flink.table.api.DataTypes;
+import org.apache.flink.table.catalog.DataTypeFactory;
+import org.apache.flink.table.functions.FunctionDefinition;
+import org.apache.flink.table.functions.TableFunction;
+import org.apache.flink.table.types.DataType;
+import org.apache.flink.table.types.inference.ArgumentTypeStrategy;
+import org.apache.flink.table.types.inference.CallContext;
+import org.apache.flink.table.types.inference.InputTypeStrategies;
+import org.apache.flink.table.types.inference.Signature;
+import org.apache.flink.table.types.inference.TypeInference;
+import org.apache.flink.table.types.inference.TypeStrategies;
+import org.apache.flink.types.Row;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.Locale;
+import java.util.Optional;
+
+/**
+ * A Table Function that splits a delimited string into rows, one row per token
+ * Input: string, delimiter, optional limit and mode
+ * Output: Emits one row per token, in the column sub_string as EXPLODE
+ *
+ * <p>Replaces {@code EXPLODE(SPLIT(str, delimiter))}, which builds an array, a list and a row per
+ * token: the string is scanned with indexOf, without regular expressions, and each token is
+ * emitted as it is found through one reused Row. The delimiter is a plain string; an empty
+ * delimiter emits the whole string.
+ *
+ * <p>A limit above 0 emits at most that many tokens, the last one holding the rest of the string,
+ * as {@link String#split(String, int)}. The mode is NONE (default), TRIM, which removes leading and
+ * trailing whitespace from each token, SKIP_EMPTY, which drops empty tokens, or TRIM_SKIP_EMPTY
+ * (case-insensitive); a null mode is NONE. A literal mode is checked when the query is planned; an
+ * invalid mode from a column is logged once and emits nothing. Trimming and skipping move the
+ * bounds of the token in the same scan, and skipped tokens do not count in the limit: the last
+ * token starts at the first token kept. Empty tokens are kept otherwise, including trailing ones.
+ * A null string or delimiter emits nothing.
+ *
+ * <p>Usage in SQL (register as SPLIT_EXPLODE):
+ * <pre>
+ * SELECT p.product_id, t.tag
+ * FROM products p, LATERAL TABLE(SPLIT_EXPLODE(p.tags, ',', 0, 'TRIM_SKIP_EMPTY')) AS t(tag);
+ * </pre>
+ */
+public class SplitExplodeFunction extends TableFunction<Row> {
+    private static final Logger logger = LogManager.getLogger(SplitExplodeFunction.class);
+
+    static final String NONE = "NONE";
+    static final String TRIM = "TRIM";
+    static final String SKIP_EMPTY = "SKIP_EMPTY";
+    static final String TRIM_SKIP_EMPTY = "TRIM_SKIP_EMPTY";
+
+    // emitted row, reused for every token
+    private transient Row row;
+    // last mode, usually a literal, parsed once
+    private transient String mode;
+    // last invalid mode, logged once
+    private transient String invalidMode;
+    private transient boolean trim;
+    private transient boolean skipEmpty;
+
+    public void eval(String str, String delimiter) {
+        split(str, delimiter, 0, false, false);
+    }
+
+    public void eval(String str, String delimiter, Integer limit) {
+        split(str, delimiter, limit == null ? 0 : limit, false, false);
+    }
+
+    public void eval(String str, String delimiter, Integer limit, String mode) {
+        if (mode == null) {
+            split(str, delimiter, limit == null ? 0 : limit, false, false);
+            return;
+        }
+        if (!parseMode(mode)) {
+            if (!mode.equals(invalidMode)) {
+                logger.error("Invalid mode '{}', expected {}, {}, {} or {}", mode, NONE, TRIM, SKIP_EMPTY, TRIM_SKIP_EMPTY);
+                invalidMode = mode;
+            }
+            return;
+        }
+        split(str, delimiter, limit == null ? 0 : limit, trim, skipEmpty);
+    }
+
+    /**
+     * Sets trim and skipEmpty from the mode, unless it is the last parsed mode.
+     *
+     * @return false if the mode is invalid
+     */
+    private boolean parseMode(String mode) {
+        if (mode.equals(this.mode)) {
+            return true;
+        }
+        int flags = modeFlags(mode);
+        if (flags < 0) {
+            this.mode = null;
+            return false;
+        }
+        trim = (flags & TRIM_FLAG) != 0;
+        skipEmpty = (flags & SKIP_EMPTY_FLAG) != 0;
+        this.mode = mode;
+        return true;
+    }
+
+    private static final int TRIM_FLAG = 1;
+    private static final int SKIP_EMPTY_FLAG = 2;
+
+    /**
+     * @return the TRIM_FLAG and SKIP_EMPTY_FLAG bits of the mode, ignoring case, or -1 if invalid
+     */
+    private static int modeFlags(String mode) {
+        switch (mode.trim().toUpperCase(Locale.ROOT)) {
+            case NONE:
+                return 0;
+            case TRIM:
+                return TRIM_FLAG;
+            case SKIP_EMPTY:
+                return SKIP_EMPTY_FLAG;
+            case TRIM_SKIP_EMPTY:
+                return TRIM_FLAG | SKIP_EMPTY_FLAG;
+            default:
+                return -1;
+        }
+    }
+
+    private void split(String str, String delimiter, int limit, boolean trim, boolean skipEmpty) {
+        if (str == null || delimiter == null) {
+            return;
+        }
+        if (row == null) {
+            row = Row.withPositions(1);
+        }
+        int length = str.length();
+        int delimiterLength = delimiter.length();
+        char delimiterChar = delimiterLength == 1 ? delimiter.charAt(0) : 0;
+        int count = 0;
+        int start = 0;
+        while (true) {
+            int end = length;
+            if (delimiterLength > 0) {
+                end = delimiterLength == 1 ? str.indexOf(delimiterChar, start) : str.indexOf(delimiter, start);
+                if (end < 0) {
+                    end = length;
+                }
+            }
+            int from = start;
+            int to = end;
+            if (trim) {
+                from = trimStart(str, from, to);
+                to = trimEnd(str, from, to);
+            }
+            if (from < to || !skipEmpty) {
+                if (limit > 0 && count == limit - 1 && end < length) {
+                    // the last token holds the rest of the string
+                    end = length;
+                    to = trim ? trimEnd(str, from, length) : length;
+                }
+                row.setField(0, str.substring(from, to));
+                collect(row);
+                count++;
+            }
+            if (end == length) {
+                return;
+            }
+            start = end + delimiterLength;
+        }
+    }
+
+    // whitespace as String.trim
+    private static int trimStart(String str, int from, int to) {
+        while (from < to && str.charAt(from) <= ' ') {
+            from++;
+        }
+        return from;
+    }
+
+    private static int trimEnd(String str, int from, int to) {
+        while (to > from && str.charAt(to - 1) <= ' ') {
+            to--;
+        }
+        return to;
+    }
+
+    /**
+     * Accepts a STRING and a STRING delimiter, then an optional INT limit and STRING mode, and
+     * emits ROW(sub_string STRING). A literal mode is checked when the query is planned.
+     */
+    @Override
+    public TypeInference getTypeInference(DataTypeFactory typeFactory) {
+        ArgumentTypeStrategy string = InputTypeStrategies.explicit(DataTypes.STRING());
+        ArgumentTypeStrategy integer = InputTypeStrategies.explicit(DataTypes.INT());
+        return TypeInference.newBuilder()
+                .inputTypeStrategy(InputTypeStrategies.or(
+                        InputTypeStrategies.sequence(string, string),
+                        InputTypeStrategies.sequence(string, string, integer),
+                        InputTypeStrategies.sequence(string, string, integer, MODE)))
+                .outputTypeStrategy(TypeStrategies.explicit(
+                        DataTypes.ROW(DataTypes.FIELD(ExplodeTypes.STRING_COLUMN, DataTypes.STRING())).bridgedTo(Row.class)))
+                .build();
+    }
+
+    private static final ArgumentTypeStrategy MODE = new ArgumentTypeStrategy() {
+        private final ArgumentTypeStrategy string = InputTypeStrategies.explicit(DataTypes.STRING());
+
+        @Override
+        public Optional<DataType> inferArgumentType(CallContext callContext, int argumentPos, boolean throwOnFailure) {
+            Optional<DataType> type = string.inferArgumentType(callContext, argumentPos, throwOnFailure);
+            if (type.isEmpty() || !callContext.isArgumentLiteral(argumentPos) || callContext.isArgumentNull(argumentPos)) {
+                return type;
+            }
+            String mode = callContext.getArgumentValue(argumentPos, String.class).orElse("");
+            if (modeFlags(mode) < 0) {
+                return callContext.fail(throwOnFailure, "Invalid mode '%s', expected %s, %s, %s or %s",
+                        mode, NONE, TRIM, SKIP_EMPTY, TRIM_SKIP_EMPTY);
+            }
+            return type;
+        }
+
+        @Override
+        public Signature.Argument getExpectedArgument(FunctionDefinition functionDefinition, int argumentPos) {
+            return Signature.Argument.of("STRING");
+        }
+    };
+
+    /**
+     * Returns a string describing the function.
+     */
+    @Override
+    public String toString() {
+        return "SPLIT_EXPLODE";
+    }
+}
@@ -0,0 +1,84 @@
+package io.confluent.udf;
+
+import org.apache.flink.types.Row;
+import org.apache.flink.util.Collector;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH comparison of EXPLODE and EXPLODE_WITH_POS against the loop of the untyped EXPLODE, which
+ * collected a new {@code Row.of} per element ({@code rowPerElement}; its INFO log of the whole
+ * array on every call is left out). Arrays hold {@link #size} strings, and the collector hands
+ * the rows to a Blackhole.
+ *
+ * <p>Run with: {@code mvn -Pbenchmark test-compile exec:exec -Dbenchmark=ExplodeBenchmark}
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExplodeBenchmark {
+
+    @Param({"10", "10000"})
+    public int size;
+
+    private List<String> values;
+    private ExplodeFunction explode;
+    private ExplodeWithPosFunction explodeWithPos;
+    private Collector<Row> collector;
+
+    @Setup
+    public void setUp(Blackhole blackhole) {
+        values = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            values.add("tag" + i);
+        }
+        collector = new Collector<>() {
+            @Override
+            public void collect(Row row) {
+                blackhole.consume(row);
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        explode = new ExplodeFunction();
+        explode.setCollector(collector);
+        explodeWithPos = new ExplodeWithPosFunction();
+        explodeWithPos.setCollector(collector);
+    }
+
+    @Benchmark
+    public void explode() {
+        explode.eval(values);
+    }
+
+    @Benchmark
+    public void explodeWithPos() {
+        explodeWithPos.eval(values);
+    }
+
+    @Benchmark
+    public void rowPerElement() {
+        for (String value : values) {
+            collector.collect(Row.of(value));
+        }
+    }
+}
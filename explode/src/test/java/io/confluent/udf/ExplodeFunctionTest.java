@@ -1,5 +1,8 @@
 package io.confluent.udf;
 
+import org.apache.flink.table.api.DataTypes;
+import org.apache.flink.table.types.DataType;
+import org.apache.flink.table.types.inference.TypeInference;
 import org.apache.flink.types.Row;
 import org.apache.flink.util.Collector;
 import org.junit.jupiter.api.BeforeEach;
@@ -28,7 +31,8 @@ class ExplodeFunctionTest {
 
         @Override
         public void collect(Row row) {
-            rows.add(row);
+            // the function reuses its row, as Flink copies it when collected
+            rows.add(Row.copy(row));
         }
 
         @Override
@@ -57,6 +61,67 @@ class ExplodeFunctionTest {
         collectedRows.forEach(System.out::println);
     }
 
+    @Test
+    void testEmitsElementsInOrder() throws Exception {
+        function.eval(Arrays.asList("a", null, "c"));
+        assertEquals(List.of(Row.of("a"), Row.of((Object) null), Row.of("c")), collectedRows);
+    }
+
+    @Test
+    void testExplodeIntegers() throws Exception {
+        function.eval(List.of(3, 1, 2));
+        assertEquals(List.of(Row.of(3), Row.of(1), Row.of(2)), collectedRows);
+    }
+
+    @Test
+    void testExplodeRows() throws Exception {
+        Row first = Row.of(1, "item1");
+        Row second = Row.of(2, "item2");
+        function.eval(Arrays.asList(first, null, second));
+        assertEquals(3, collectedRows.size());
+        assertSame(first, collectedRows.get(0).getField(0));
+        assertNull(collectedRows.get(1).getField(0));
+        assertSame(second, collectedRows.get(2).getField(0));
+    }
+
+    @Test
+    void testNullAndEmptyArrays() throws Exception {
+        function.eval(null);
+        function.eval(List.of());
+        assertTrue(collectedRows.isEmpty());
+    }
+
+    @Test
+    void testLargeArray() throws Exception {
+        List<Integer> values = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            values.add(i);
+        }
+        function.eval(values);
+        assertEquals(10_000, collectedRows.size());
+        assertEquals(Row.of(9_999), collectedRows.get(9_999));
+    }
+
+    @Test
+    void testTypeInference() {
+        TypeInference inference = function.getTypeInference(null);
+        TestCallContext strings = new TestCallContext(DataTypes.ARRAY(DataTypes.STRING()));
+        assertEquals(DataTypes.ROW(DataTypes.FIELD("sub_string", DataTypes.STRING())).getLogicalType(),
+                inference.getOutputTypeStrategy().inferType(strings).orElseThrow().getLogicalType());
+        assertEquals(List.class, inference.getInputTypeStrategy().inferInputTypes(strings, false).orElseThrow().get(0).getConversionClass());
+
+        DataType row = DataTypes.ROW(DataTypes.FIELD("item_id", DataTypes.INT()), DataTypes.FIELD("item_name", DataTypes.STRING()));
+        TestCallContext rows = new TestCallContext(DataTypes.ARRAY(row.notNull()));
+        assertEquals(DataTypes.ROW(DataTypes.FIELD("item", row)).getLogicalType(),
+                inference.getOutputTypeStrategy().inferType(rows).orElseThrow().getLogicalType());
+        TestCallContext ints = new TestCallContext(DataTypes.ARRAY(DataTypes.INT()));
+        assertEquals(DataTypes.ROW(DataTypes.FIELD("item", DataTypes.INT())).getLogicalType(),
+                inference.getOutputTypeStrategy().inferType(ints).orElseThrow().getLogicalType());
+
+        TestCallContext notArray = new TestCallContext(DataTypes.STRING());
+        assertFalse(inference.getInputTypeStrategy().inferInputTypes(notArray, false).isPresent());
+    }
+
     @Test
     void testToString() {
         assertEquals("EXPLODE", function.toString());
@@ -0,0 +1,101 @@
+package io.confluent.udf;
+
+import org.apache.flink.table.api.DataTypes;
+import org.apache.flink.table.types.inference.TypeInference;
+import org.apache.flink.types.Row;
+import org.apache.flink.util.Collector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExplodeWithPosFunctionTest {
+    private ExplodeWithPosFunction function;
+    private List<Row> collectedRows;
+
+    /**
+     * A simple Collector implementation that stores copies of the collected rows in a list.
+     */
+    private static class ListCollector implements Collector<Row> {
+        private final List<Row> rows;
+
+        ListCollector(List<Row> rows) {
+            this.rows = rows;
+        }
+
+        @Override
+        public void collect(Row row) {
+            rows.add(Row.copy(row));
+        }
+
+        @Override
+        public void close() {
+            // No-op
+        }
+    }
+
+    @BeforeEach
+    void setUp() throws Exception {
+        function = new ExplodeWithPosFunction();
+        collectedRows = new ArrayList<>();
+
+        // Inject the collector using reflection
+        Field collectorField = function.getClass().getSuperclass().getDeclaredField("collector");
+        collectorField.setAccessible(true);
+        collectorField.set(function, new ListCollector(collectedRows));
+    }
+
+    @Test
+    void testEmitsZeroBasedPositions() {
+        function.eval(Arrays.asList("a", null, "c"));
+        assertEquals(List.of(Row.of(0, "a"), Row.of(1, null), Row.of(2, "c")), collectedRows);
+    }
+
+    @Test
+    void testExplodeRows() {
+        Row first = Row.of(1, "item1");
+        Row second = Row.of(2, "item2");
+        function.eval(List.of(first, second));
+        assertEquals(List.of(Row.of(0, first), Row.of(1, second)), collectedRows);
+    }
+
+    @Test
+    void testPositionsOfLargeArrays() {
+        int size = ExplodeWithPosFunction.MAX_CACHED_POSITIONS + 10;
+        function.eval(Arrays.asList(new String[10]));
+        function.eval(Arrays.asList(new String[size]));
+        function.eval(Arrays.asList(new String[20]));
+        assertEquals(30 + size, collectedRows.size());
+        for (int i = 0; i < size; i++) {
+            assertEquals(i, collectedRows.get(10 + i).getField(0));
+        }
+        assertEquals(19, collectedRows.get(collectedRows.size() - 1).getField(0));
+    }
+
+    @Test
+    void testNullAndEmptyArrays() {
+        function.eval(null);
+        function.eval(List.of());
+        assertTrue(collectedRows.isEmpty());
+    }
+
+    @Test
+    void testTypeInference() {
+        TypeInference inference = function.getTypeInference(null);
+        TestCallContext ints = new TestCallContext(DataTypes.ARRAY(DataTypes.BIGINT().notNull()));
+        assertEquals(DataTypes.ROW(DataTypes.FIELD("pos", DataTypes.INT().notNull()), DataTypes.FIELD("item", DataTypes.BIGINT())).getLogicalType(),
+                inference.getOutputTypeStrategy().inferType(ints).orElseThrow().getLogicalType());
+        TestCallContext notArray = new TestCallContext(DataTypes.INT());
+        assertFalse(inference.getInputTypeStrategy().inferInputTypes(notArray, false).isPresent());
+    }
+
+    @Test
+    void testToString() {
+        assertEquals("EXPLODE_WITH_POS", function.toString());
+    }
+}
@@ -0,0 +1,95 @@
+package io.confluent.udf;
+
+import org.apache.flink.types.Row;
+import org.apache.flink.util.Collector;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH comparison of SPLIT_EXPLODE against splitting the string into an array, wrapping it in a
+ * list and collecting a new Row per token, as {@code EXPLODE(SPLIT(tags, ','))} does
+ * ({@code splitThenExplode}), with and without trimming and skipping empty tokens. The string
+ * holds {@link #tokens} comma-separated tags with spaces after the commas, and the collector hands
+ * the rows to a Blackhole.
+ *
+ * <p>Run with: {@code mvn -Pbenchmark test-compile exec:exec -Dbenchmark=SplitExplodeBenchmark}
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SplitExplodeBenchmark {
+
+    @Param({"10", "1000"})
+    public int tokens;
+
+    private String tags;
+    private SplitExplodeFunction function;
+    private Collector<Row> collector;
+
+    @Setup
+    public void setUp(Blackhole blackhole) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < tokens; i++) {
+            builder.append(i == 0 ? "" : ", ").append("tag").append(i);
+        }
+        tags = builder.toString();
+        collector = new Collector<>() {
+            @Override
+            public void collect(Row row) {
+                blackhole.consume(row);
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        function = new SplitExplodeFunction();
+        function.setCollector(collector);
+    }
+
+    @Benchmark
+    public void splitExplode() {
+        function.eval(tags, ",");
+    }
+
+    @Benchmark
+    public void splitExplodeTrimSkipEmpty() {
+        function.eval(tags, ",", 0, "TRIM_SKIP_EMPTY");
+    }
+
+    @Benchmark
+    public void splitThenExplode() {
+        List<String> list = Arrays.asList(tags.split(",", -1));
+        for (String tag : list) {
+            collector.collect(Row.of(tag));
+        }
+    }
+
+    @Benchmark
+    public void splitThenExplodeTrimSkipEmpty() {
+        List<String> list = Arrays.asList(tags.split(",", -1));
+        for (String tag : list) {
+            String trimmed = tag.trim();
+            if (!trimmed.isEmpty()) {
+                collector.collect(Row.of(trimmed));
+            }
+        }
+    }
+}
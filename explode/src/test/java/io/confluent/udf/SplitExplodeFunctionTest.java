@@ -0,0 +1,190 @@
+package io.confluent.udf;
+
+import org.apache.flink.table.api.DataTypes;
+import org.apache.flink.table.types.DataType;
+import org.apache.flink.table.types.inference.TypeInference;
+import org.apache.flink.types.Row;
+import org.apache.flink.util.Collector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SplitExplodeFunctionTest {
+    private SplitExplodeFunction function;
+    private List<Row> collectedRows;
+
+    /**
+     * A simple Collector implementation that stores copies of the collected rows in a list.
+     */
+    private static class ListCollector implements Collector<Row> {
+        private final List<Row> rows;
+
+        ListCollector(List<Row> rows) {
+            this.rows = rows;
+        }
+
+        @Override
+        public void collect(Row row) {
+            rows.add(Row.copy(row));
+        }
+
+        @Override
+        public void close() {
+            // No-op
+        }
+    }
+
+    @BeforeEach
+    void setUp() throws Exception {
+        function = new SplitExplodeFunction();
+        collectedRows = new ArrayList<>();
+
+        // Inject the collector using reflection
+        Field collectorField = function.getClass().getSuperclass().getDeclaredField("collector");
+        collectorField.setAccessible(true);
+        collectorField.set(function, new ListCollector(collectedRows));
+    }
+
+    private List<String> tokens() {
+        List<String> tokens = collectedRows.stream().map(row -> (String) row.getField(0)).collect(Collectors.toList());
+        collectedRows.clear();
+        return tokens;
+    }
+
+    @Test
+    void testSplit() {
+        function.eval("red,green,blue", ",");
+        assertEquals(List.of("red", "green", "blue"), tokens());
+        function.eval("red, green,,blue,", ",");
+        assertEquals(List.of("red", " green", "", "blue", ""), tokens());
+        function.eval("no delimiter", ",");
+        assertEquals(List.of("no delimiter"), tokens());
+        function.eval("", ",");
+        assertEquals(List.of(""), tokens());
+    }
+
+    @Test
+    void testMultiCharacterDelimiter() {
+        function.eval("a::b:c::::d", "::");
+        assertEquals(List.of("a", "b:c", "", "d"), tokens());
+        function.eval("a.b|c", ".");
+        assertEquals(List.of("a", "b|c"), tokens());
+        function.eval("a,b", "");
+        assertEquals(List.of("a,b"), tokens());
+    }
+
+    @Test
+    void testLimit() {
+        function.eval("a,b,c,d", ",", 2);
+        assertEquals(List.of("a", "b,c,d"), tokens());
+        function.eval("a,b,c,d", ",", 1);
+        assertEquals(List.of("a,b,c,d"), tokens());
+        function.eval("a,b,c,d", ",", 0);
+        assertEquals(List.of("a", "b", "c", "d"), tokens());
+        function.eval("a,b", ",", 10);
+        assertEquals(List.of("a", "b"), tokens());
+        function.eval("a,b", ",", (Integer) null);
+        assertEquals(List.of("a", "b"), tokens());
+    }
+
+    @Test
+    void testModes() {
+        function.eval(" red , green,, ,blue ", ",", 0, "TRIM");
+        assertEquals(List.of("red", "green", "", "", "blue"), tokens());
+        function.eval(" red , green,, ,blue ", ",", 0, "SKIP_EMPTY");
+        assertEquals(List.of(" red ", " green", " ", "blue "), tokens());
+        function.eval(" red , green,, ,blue ", ",", 0, "trim_skip_empty");
+        assertEquals(List.of("red", "green", "blue"), tokens());
+        function.eval(" red , green,, ,blue ", ",", 0, "NONE");
+        assertEquals(List.of(" red ", " green", "", " ", "blue "), tokens());
+    }
+
+    @Test
+    void testSkippedTokensDoNotCountInLimit() {
+        function.eval(",,a,,b,c", ",", 2, "SKIP_EMPTY");
+        assertEquals(List.of("a", "b,c"), tokens());
+        function.eval(" , a , b , c ", ",", 2, "TRIM_SKIP_EMPTY");
+        assertEquals(List.of("a", "b , c"), tokens());
+    }
+
+    @Test
+    void testMatchesStringSplit() {
+        Random random = new Random(42);
+        String alphabet = "ab ,;";
+        for (int i = 0; i < 2000; i++) {
+            StringBuilder str = new StringBuilder();
+            for (int c = random.nextInt(20); c > 0; c--) {
+                str.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+            String delimiter = random.nextBoolean() ? "," : ";,";
+            int limit = random.nextInt(4);
+            function.eval(str.toString(), delimiter, limit, "TRIM_SKIP_EMPTY");
+            List<String> expected = Arrays.stream(str.toString().split(Pattern.quote(delimiter), -1))
+                    .map(String::trim).filter(token -> !token.isEmpty()).collect(Collectors.toList());
+            List<String> tokens = tokens();
+            if (limit == 0 || expected.size() < limit) {
+                assertEquals(expected, tokens, str.toString());
+            } else {
+                assertEquals(limit, tokens.size(), str.toString());
+                assertEquals(expected.subList(0, limit - 1), tokens.subList(0, limit - 1), str.toString());
+                assertTrue(tokens.get(limit - 1).startsWith(expected.get(limit - 1)), str.toString());
+                assertTrue(tokens.get(limit - 1).contains(expected.get(expected.size() - 1)), str.toString());
+            }
+        }
+    }
+
+    @Test
+    void testInvalidInputEmitsNothing() {
+        function.eval(null, ",");
+        function.eval("a,b", null);
+        function.eval("a,b", ",", 0, "UPPER");
+        function.eval("a,b", ",", 0, "UPPER");
+        assertTrue(collectedRows.isEmpty());
+        function.eval("a,b", ",", 0, "TRIM");
+        assertEquals(List.of("a", "b"), tokens());
+    }
+
+    @Test
+    void testNullModeIsNone() {
+        function.eval(" a, b", ",", 0, "TRIM");
+        assertEquals(List.of("a", "b"), tokens());
+        function.eval(" a, b", ",", 0, null);
+        assertEquals(List.of(" a", " b"), tokens());
+        function.eval(" a, b", ",", null, null);
+        assertEquals(List.of(" a", " b"), tokens());
+    }
+
+    @Test
+    void testTypeInferenceChecksLiteralMode() {
+        TypeInference inference = function.getTypeInference(null);
+        DataType string = DataTypes.STRING();
+        TestCallContext call = new TestCallContext(string, string, DataTypes.INT(), string);
+        assertTrue(inference.getInputTypeStrategy().inferInputTypes(call, false).isPresent());
+        assertEquals(DataTypes.ROW(DataTypes.FIELD("sub_string", DataTypes.STRING())).getLogicalType(),
+                inference.getOutputTypeStrategy().inferType(call).orElseThrow().getLogicalType());
+        TestCallContext twoArguments = new TestCallContext(string, DataTypes.CHAR(1).notNull());
+        assertTrue(inference.getInputTypeStrategy().inferInputTypes(twoArguments, false).isPresent());
+        TestCallContext valid = new TestCallContext(string, string, DataTypes.INT(), DataTypes.CHAR(4).notNull())
+                .withLiteral(3, "trim");
+        assertTrue(inference.getInputTypeStrategy().inferInputTypes(valid, false).isPresent());
+        TestCallContext invalid = new TestCallContext(string, string, DataTypes.INT(), string)
+                .withLiteral(3, "UPPER");
+        assertFalse(inference.getInputTypeStrategy().inferInputTypes(invalid, false).isPresent());
+        TestCallContext notString = new TestCallContext(DataTypes.INT(), string);
+        assertFalse(inference.getInputTypeStrategy().inferInputTypes(notString, false).isPresent());
+    }
+
+    @Test
+    void testToString() {
+        assertEquals("SPLIT_EXPLODE", function.toString());
+    }
+}
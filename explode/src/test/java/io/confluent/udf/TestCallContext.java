@@ -0,0 +1,77 @@
+package io.confluent.udf;
+
+import org.apache.flink.table.catalog.DataTypeFactory;
+import org.apache.flink.table.functions.FunctionDefinition;
+import org.apache.flink.table.types.DataType;
+import org.apache.flink.table.types.inference.CallContext;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Call context of a function call with the given argument types, to test type inference without a
+ * planner. Arguments are not literals, unless given a literal value. Only the methods read by the
+ * type inference of the functions in this module are implemented.
+ */
+final class TestCallContext implements CallContext {
+    private final List<DataType> argumentTypes;
+    private final Object[] literals;
+
+    TestCallContext(DataType... argumentTypes) {
+        this.argumentTypes = List.of(argumentTypes);
+        this.literals = new Object[argumentTypes.length];
+    }
+
+    /**
+     * @return this context, with a literal value for the argument
+     */
+    TestCallContext withLiteral(int pos, Object value) {
+        literals[pos] = value;
+        return this;
+    }
+
+    @Override
+    public List<DataType> getArgumentDataTypes() {
+        return argumentTypes;
+    }
+
+    @Override
+    public boolean isArgumentLiteral(int pos) {
+        return literals[pos] != null;
+    }
+
+    @Override
+    public boolean isArgumentNull(int pos) {
+        return false;
+    }
+
+    @Override
+    public <T> Optional<T> getArgumentValue(int pos, Class<T> clazz) {
+        return clazz.isInstance(literals[pos]) ? Optional.of(clazz.cast(literals[pos])) : Optional.empty();
+    }
+
+    @Override
+    public DataTypeFactory getDataTypeFactory() {
+        throw new UnsupportedOperationException("getDataTypeFactory");
+    }
+
+    @Override
+    public FunctionDefinition getFunctionDefinition() {
+        throw new UnsupportedOperationException("getFunctionDefinition");
+    }
+
+    @Override
+    public String getName() {
+        throw new UnsupportedOperationException("getName");
+    }
+
+    @Override
+    public Optional<DataType> getOutputDataType() {
+        throw new UnsupportedOperationException("getOutputDataType");
+    }
+
+    @Override
+    public boolean isGroupedAggregation() {
+        throw new UnsupportedOperationException("isGroupedAggregation");
+    }
+}
@@ -0,0 +1,94 @@
+package io.confluent.udf;
+
+import org.apache.flink.table.annotation.DataTypeHint;
+import org.apache.flink.table.functions.ScalarFunction;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * A Flink UDF that calculates the Haversine distance between a reference point and every point
+ * of a pair of latitude/longitude arrays, in one call.
+ * The distances are computed over primitive double buffers by {@link HaversineKernel}, which is
+ * vectorized when the JVM has the {@code jdk.incubator.vector} module and scalar otherwise.
+ *
+ * <p>Usage in SQL (register as GEO_DISTANCE_ARRAY):
+ * <pre>
+ * SELECT GEO_DISTANCE_ARRAY(courier_lats, courier_lons, 48.8566, 2.3522) AS distances_km
+ * FROM courier_positions;
+ * </pre>
+ */
+public class GeoDistanceArrayFunction extends ScalarFunction {
+    private static final Logger logger = LogManager.getLogger(GeoDistanceArrayFunction.class);
+
+    // buffers reused across calls to unbox nullable arrays
+    private transient double[] latBuffer;
+    private transient double[] lonBuffer;
+
+    /**
+     * Calculates the distances between the reference point and each (lats[i], lons[i]) point.
+     *
+     * @param lats   Latitudes of the points in degrees
+     * @param lons   Longitudes of the points in degrees, same length as lats
+     * @param refLat Latitude of the reference point in degrees
+     * @param refLon Longitude of the reference point in degrees
+     * @return The distances in kilometers, -1 for an invalid point, or null if the arrays are
+     *         null or of different lengths
+     */
+    public @DataTypeHint("ARRAY<DOUBLE NOT NULL>") double[] eval(
+            @DataTypeHint("ARRAY<DOUBLE NOT NULL>") double[] lats,
+            @DataTypeHint("ARRAY<DOUBLE NOT NULL>") double[] lons,
+            double refLat, double refLon) {
+        if (!sameLength(lats, lats == null ? 0 : lats.length, lons, lons == null ? 0 : lons.length)) {
+            return null;
+        }
+        double[] distances = new double[lats.length];
+        HaversineKernel.distances(lats, lons, lats.length, refLat, refLon, distances);
+        return distances;
+    }
+
+    /**
+     * Same as {@link #eval(double[], double[], double, double)} for arrays with nullable elements.
+     * A null latitude or longitude gives a -1 distance.
+     */
+    public @DataTypeHint("ARRAY<DOUBLE NOT NULL>") double[] eval(
+            @DataTypeHint("ARRAY<DOUBLE>") Double[] lats,
+            @DataTypeHint("ARRAY<DOUBLE>") Double[] lons,
+            double refLat, double refLon) {
+        if (!sameLength(lats, lats == null ? 0 : lats.length, lons, lons == null ? 0 : lons.length)) {
+            return null;
+        }
+        int length = lats.length;
+        if (latBuffer == null || latBuffer.length < length) {
+            latBuffer = new double[length];
+            lonBuffer = new double[length];
+        }
+        for (int i = 0; i < length; i++) {
+            Double lat = lats[i];
+            Double lon = lons[i];
+            latBuffer[i] = lat == null ? Double.NaN : lat;
+            lonBuffer[i] = lon == null ? Double.NaN : lon;
+        }
+        double[] distances = new double[length];
+        HaversineKernel.distances(latBuffer, lonBuffer, length, refLat, refLon, distances);
+        return distances;
+    }
+
+    private boolean sameLength(Object lats, int latCount, Object lons, int lonCount) {
+        if (lats == null || lons == null) {
+            return false;
+        }
+        if (latCount != lonCount) {
+            logger.error("Latitude and longitude arrays differ in length: {} vs {}", latCount, lonCount);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Returns a string describing the function.
+     */
+    @Override
+    public String toString() {
+        return "GEO_DISTANCE_ARRAY";
+    }
+}
@@ -0,0 +1,339 @@
+package io.confluent.udf;
+
+import org.apache.flink.table.annotation.DataTypeHint;
+import org.apache.flink.table.annotation.FunctionHint;
+import org.apache.flink.table.functions.TableFunction;
+import org.apache.flink.types.Row;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * A Table Function that emits the k candidates nearest to a position, ordered by distance.
+ * Input: latitude and longitude in degrees, an array of candidate ROW(id, lat, lon) and k
+ * Output: Emits up to k rows (id, lat, lon, distance_km, nearest_rank), nearest first
+ *
+ * <p>The candidates are indexed by latitude once, and the index is kept as long as the next calls
+ * pass the same candidate array (same content). Flink passes a new array on every call, so a call
+ * compares the length and {@value #SAMPLED_ROWS} rows spread over the array with the indexed ones,
+ * and rebuilds the index when one differs; the whole array is compared by hash every
+ * {@value #FULL_CHECK_CALLS} calls, so a change to another row is picked up within that many rows.
+ * The search walks outward from the position
+ * latitude, skips candidates outside the bounding box of the current k-th distance, and keeps
+ * the best k in a bounded primitive heap. Only the k emitted rows get a full distance computation.
+ *
+ * <p>Usage in SQL (register as GEO_NEAREST):
+ * <pre>
+ * SELECT c.customer_id, n.id AS depot_id, n.distance_km
+ * FROM customers c, depot_list d,
+ *   LATERAL TABLE(GEO_NEAREST(c.lat, c.lon, d.depots, 3)) AS n;
+ * </pre>
+ */
+@FunctionHint(output = @DataTypeHint("ROW<id STRING, lat DOUBLE, lon DOUBLE, distance_km DOUBLE, nearest_rank INT>"))
+public class GeoNearestFunction extends TableFunction<Row> {
+    private static final Logger logger = LogManager.getLogger(GeoNearestFunction.class);
+    private static final double EARTH_RADIUS_KM = 6371.0;
+    private static final double DEG_TO_RAD = Math.PI / 180.0;
+    private static final double HALF_PI = Math.PI / 2;
+    // slack on the pruning bounds so rounding never drops a candidate at the k-th distance
+    private static final double BOUND_EPSILON = 1e-12;
+    static final int SAMPLED_ROWS = 8;
+    static final int FULL_CHECK_CALLS = 1024;
+
+    // index of the last candidate array, reused while the array content is unchanged
+    private transient Row[] indexedCandidates;
+    private transient long indexedFingerprint;
+    private transient CandidateIndex index;
+    private transient long indexBuilds;
+    // calls since the last fingerprint of the whole candidate array
+    private transient int indexCalls;
+
+    // bounded max-heap on the haversine 'a' term, reused across calls
+    private transient double[] heapKeys;
+    private transient int[] heapSlots;
+
+    /**
+     * Emits the k candidates nearest to (lat, lon).
+     *
+     * @param lat        Latitude of the position in degrees
+     * @param lon        Longitude of the position in degrees
+     * @param candidates Candidate positions; rows with a null field are ignored
+     * @param k          Number of candidates to emit
+     */
+    public void eval(Double lat, Double lon,
+                     @DataTypeHint("ARRAY<ROW<id STRING, lat DOUBLE, lon DOUBLE>>") Row[] candidates,
+                     Integer k) {
+        if (lat == null || lon == null || candidates == null || k == null || k <= 0) {
+            return;
+        }
+        if (lat < -90 || lat > 90 || lon < -180 || lon > 180) {
+            logger.error("Invalid coordinates: ({}, {}). Latitude must be between -90 and 90, Longitude between -180 and 180", lat, lon);
+            return;
+        }
+        CandidateIndex candidateIndex = indexFor(candidates);
+        int count = nearest(candidateIndex, lat * DEG_TO_RAD, lon * DEG_TO_RAD, Math.min(k, candidateIndex.size));
+
+        // pop the max-heap from the back so slots end up nearest first
+        for (int end = count - 1; end > 0; end--) {
+            swap(0, end);
+            siftDown(0, end);
+        }
+        for (int rank = 0; rank < count; rank++) {
+            int slot = heapSlots[rank];
+            double a = heapKeys[rank];
+            Row row = new Row(5);
+            row.setField(0, candidateIndex.ids[slot]);
+            row.setField(1, candidateIndex.lat[slot]);
+            row.setField(2, candidateIndex.lon[slot]);
+            row.setField(3, 2 * EARTH_RADIUS_KM * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a)));
+            row.setField(4, rank + 1);
+            collect(row);
+        }
+    }
+
+    /**
+     * Fills the heap with the k nearest candidates and returns how many were found.
+     */
+    private int nearest(CandidateIndex idx, double latRad, double lonRad, int k) {
+        if (heapKeys == null || heapKeys.length < k) {
+            heapKeys = new double[k];
+            heapSlots = new int[k];
+        }
+        double cosLat = Math.cos(latRad);
+        double latBand = Double.POSITIVE_INFINITY;
+        double lonBand = Double.POSITIVE_INFINITY;
+        int count = 0;
+
+        int up = lowerBound(idx.latRad, idx.size, latRad);
+        int down = up - 1;
+        while (up < idx.size || down >= 0) {
+            // visit the side closest in latitude first
+            int slot;
+            if (down < 0 || (up < idx.size && idx.latRad[up] - latRad <= latRad - idx.latRad[down])) {
+                slot = up++;
+            } else {
+                slot = down--;
+            }
+            double dLat = idx.latRad[slot] - latRad;
+            if (count == k && Math.abs(dLat) > latBand) {
+                break; // every remaining candidate is further in latitude alone
+            }
+            double dLon = idx.lonRad[slot] - lonRad;
+            if (dLon > Math.PI) {
+                dLon -= 2 * Math.PI;
+            } else if (dLon < -Math.PI) {
+                dLon += 2 * Math.PI;
+            }
+            if (count == k && Math.abs(dLon) > lonBand) {
+                continue;
+            }
+            double sinDLat = Math.sin(dLat / 2);
+            double sinDLon = Math.sin(dLon / 2);
+            double a = Math.min(1.0, sinDLat * sinDLat + cosLat * idx.cosLat[slot] * sinDLon * sinDLon);
+            if (count < k) {
+                heapKeys[count] = a;
+                heapSlots[count] = slot;
+                siftUp(count++);
+            } else if (a < heapKeys[0]) {
+                heapKeys[0] = a;
+                heapSlots[0] = slot;
+                siftDown(0, k);
+            } else {
+                continue;
+            }
+            if (count == k) {
+                // bounding box of the circle whose radius is the current k-th distance
+                double angle = 2 * Math.asin(Math.sqrt(heapKeys[0])) + BOUND_EPSILON;
+                latBand = angle;
+                lonBand = latRad + angle < HALF_PI && latRad - angle > -HALF_PI
+                        ? Math.asin(Math.sin(angle) / cosLat) + BOUND_EPSILON
+                        : Double.POSITIVE_INFINITY; // the circle contains a pole
+            }
+        }
+        return count;
+    }
+
+    private CandidateIndex indexFor(Row[] candidates) {
+        if (candidates == indexedCandidates && index != null) {
+            return index;
+        }
+        if (index != null && sameSample(indexedCandidates, candidates)) {
+            if (++indexCalls < FULL_CHECK_CALLS) {
+                indexedCandidates = candidates;
+                return index;
+            }
+            indexCalls = 0;
+            if (fingerprint(candidates) == indexedFingerprint) {
+                indexedCandidates = candidates;
+                return index;
+            }
+        }
+        index = new CandidateIndex(candidates);
+        indexBuilds++;
+        indexCalls = 0;
+        logger.debug("Indexed {} candidates", index.size);
+        indexedCandidates = candidates;
+        indexedFingerprint = fingerprint(candidates);
+        return index;
+    }
+
+    /**
+     * @return true if the arrays have the same length and equal rows at the sampled positions,
+     *         the first and the last included
+     */
+    private static boolean sameSample(Row[] indexed, Row[] candidates) {
+        int length = candidates.length;
+        if (indexed.length != length) {
+            return false;
+        }
+        if (length == 0) {
+            return true;
+        }
+        int step = Math.max(1, length / SAMPLED_ROWS);
+        for (int i = 0; i < length; i += step) {
+            if (!Objects.equals(indexed[i], candidates[i])) {
+                return false;
+            }
+        }
+        return Objects.equals(indexed[length - 1], candidates[length - 1]);
+    }
+
+    /**
+     * @return number of times the candidate index was built, for tests
+     */
+    long indexBuilds() {
+        return indexBuilds;
+    }
+
+    private static long fingerprint(Row[] candidates) {
+        long hash = candidates.length;
+        for (Row row : candidates) {
+            hash *= 0x9E3779B97F4A7C15L;
+            if (row != null && row.getArity() >= 3) {
+                hash += Objects.hashCode(row.getField(0));
+                hash = hash * 31 + Objects.hashCode(row.getField(1));
+                hash = hash * 31 + Objects.hashCode(row.getField(2));
+            }
+        }
+        return hash;
+    }
+
+    private static int lowerBound(double[] sorted, int size, double value) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sorted[mid] < value) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private void siftUp(int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (heapKeys[parent] >= heapKeys[i]) {
+                return;
+            }
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int i, int size) {
+        while (true) {
+            int largest = i;
+            int left = 2 * i + 1;
+            int right = left + 1;
+            if (left < size && heapKeys[left] > heapKeys[largest]) {
+                largest = left;
+            }
+            if (right < size && heapKeys[right] > heapKeys[largest]) {
+                largest = right;
+            }
+            if (largest == i) {
+                return;
+            }
+            swap(i, largest);
+            i = largest;
+        }
+    }
+
+    private void swap(int i, int j) {
+        double key = heapKeys[i];
+        heapKeys[i] = heapKeys[j];
+        heapKeys[j] = key;
+        int slot = heapSlots[i];
+        heapSlots[i] = heapSlots[j];
+        heapSlots[j] = slot;
+    }
+
+    /**
+     * Returns a string describing the function.
+     */
+    @Override
+    public String toString() {
+        return "GEO_NEAREST";
+    }
+
+    /**
+     * Valid candidates sorted by latitude, as primitive arrays with precomputed radians and cosine.
+     */
+    private static final class CandidateIndex {
+        final int size;
+        final String[] ids;
+        final double[] lat;
+        final double[] lon;
+        final double[] latRad;
+        final double[] lonRad;
+        final double[] cosLat;
+
+        CandidateIndex(Row[] candidates) {
+            int valid = 0;
+            double[] keys = new double[candidates.length];
+            int[] positions = new int[candidates.length];
+            for (int i = 0; i < candidates.length; i++) {
+                Row row = candidates[i];
+                if (row == null || row.getArity() < 3
+                        || !(row.getField(1) instanceof Number) || !(row.getField(2) instanceof Number)) {
+                    continue;
+                }
+                double candidateLat = ((Number) row.getField(1)).doubleValue();
+                double candidateLon = ((Number) row.getField(2)).doubleValue();
+                if (candidateLat < -90 || candidateLat > 90 || candidateLon < -180 || candidateLon > 180) {
+                    continue;
+                }
+                keys[valid] = candidateLat;
+                positions[valid++] = i;
+            }
+            Integer[] order = new Integer[valid];
+            for (int i = 0; i < valid; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (x, y) -> Double.compare(keys[x], keys[y]));
+
+            size = valid;
+            ids = new String[valid];
+            lat = new double[valid];
+            lon = new double[valid];
+            latRad = new double[valid];
+            lonRad = new double[valid];
+            cosLat = new double[valid];
+            for (int i = 0; i < valid; i++) {
+                Row row = candidates[positions[order[i]]];
+                Object id = row.getField(0);
+                ids[i] = id == null ? null : id.toString();
+                lat[i] = ((Number) row.getField(1)).doubleValue();
+                lon[i] = ((Number) row.getField(2)).doubleValue();
+                latRad[i] = lat[i] * DEG_TO_RAD;
+                lonRad[i] = lon[i] * DEG_TO_RAD;
+                cosLat[i] = Math.cos(latRad[i]);
+            }
+        }
+    }
+}
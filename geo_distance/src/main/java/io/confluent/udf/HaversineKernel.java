@@ -0,0 +1,79 @@
+package io.confluent.udf;
+
+import java.util.Arrays;
+
+/**
+ * Batch Haversine kernel: computes the distance from one reference point to every point of
+ * primitive latitude/longitude buffers, writing into a caller-provided output buffer.
+ * The kernel does not allocate. When the JVM runs with {@code --add-modules jdk.incubator.vector}
+ * the SIMD implementation in {@link VectorHaversineKernel} is used, otherwise the scalar loop runs.
+ *
+ * <p>Points with an out of range or NaN coordinate get {@link #INVALID_DISTANCE}, the same
+ * error value returned by {@link GeoDistanceFunction}.
+ */
+final class HaversineKernel {
+    static final double EARTH_RADIUS_KM = 6371.0;
+    static final double DEG_TO_RAD = Math.PI / 180.0;
+    static final double INVALID_DISTANCE = -1.0;
+
+    private static final boolean VECTOR_API_AVAILABLE =
+            ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+
+    private HaversineKernel() {
+    }
+
+    /**
+     * @return true if the SIMD implementation is used by {@link #distances}
+     */
+    static boolean isVectorized() {
+        return VECTOR_API_AVAILABLE;
+    }
+
+    /**
+     * Computes the distance in kilometers between (refLat, refLon) and the first {@code length}
+     * points of the given buffers.
+     */
+    static void distances(double[] lats, double[] lons, int length,
+                          double refLat, double refLon, double[] out) {
+        if (!isValid(refLat, refLon)) {
+            Arrays.fill(out, 0, length, INVALID_DISTANCE);
+            return;
+        }
+        double refLatRad = refLat * DEG_TO_RAD;
+        double refLonRad = refLon * DEG_TO_RAD;
+        double cosRefLat = Math.cos(refLatRad);
+        if (VECTOR_API_AVAILABLE) {
+            VectorHaversineKernel.distances(lats, lons, length, refLatRad, refLonRad, cosRefLat, out);
+        } else {
+            distancesScalar(lats, lons, 0, length, refLatRad, refLonRad, cosRefLat, out);
+        }
+    }
+
+    /**
+     * Scalar loop over [from, to). Also used by the SIMD kernel for the tail of the buffers.
+     */
+    static void distancesScalar(double[] lats, double[] lons, int from, int to,
+                                double refLatRad, double refLonRad, double cosRefLat, double[] out) {
+        for (int i = from; i < to; i++) {
+            double lat = lats[i];
+            double lon = lons[i];
+            if (!isValid(lat, lon)) {
+                out[i] = INVALID_DISTANCE;
+                continue;
+            }
+            double latRad = lat * DEG_TO_RAD;
+            double sinDLat = Math.sin((latRad - refLatRad) * 0.5);
+            double sinDLon = Math.sin((lon * DEG_TO_RAD - refLonRad) * 0.5);
+            double a = Math.min(1.0,
+                    sinDLat * sinDLat + cosRefLat * Math.cos(latRad) * sinDLon * sinDLon);
+            out[i] = 2 * EARTH_RADIUS_KM * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+        }
+    }
+
+    /**
+     * Range check written so that NaN coordinates are rejected.
+     */
+    static boolean isValid(double lat, double lon) {
+        return lat >= -90 && lat <= 90 && lon >= -180 && lon <= 180;
+    }
+}
@@ -0,0 +1,50 @@
+package io.confluent.udf;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+import static io.confluent.udf.HaversineKernel.DEG_TO_RAD;
+import static io.confluent.udf.HaversineKernel.EARTH_RADIUS_KM;
+import static io.confluent.udf.HaversineKernel.INVALID_DISTANCE;
+
+/**
+ * SIMD version of the {@link HaversineKernel} loop, built on the {@code jdk.incubator.vector} API.
+ * This class must only be loaded when the incubator module is resolved, which is checked by
+ * {@link HaversineKernel#isVectorized()}.
+ */
+final class VectorHaversineKernel {
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+    private VectorHaversineKernel() {
+    }
+
+    static void distances(double[] lats, double[] lons, int length,
+                          double refLatRad, double refLonRad, double cosRefLat, double[] out) {
+        int upperBound = SPECIES.loopBound(length);
+        int i = 0;
+        for (; i < upperBound; i += SPECIES.length()) {
+            DoubleVector lat = DoubleVector.fromArray(SPECIES, lats, i);
+            DoubleVector lon = DoubleVector.fromArray(SPECIES, lons, i);
+            // comparisons are false for NaN lanes, so they are marked invalid as well
+            VectorMask<Double> valid = lat.compare(VectorOperators.GE, -90.0)
+                    .and(lat.compare(VectorOperators.LE, 90.0))
+                    .and(lon.compare(VectorOperators.GE, -180.0))
+                    .and(lon.compare(VectorOperators.LE, 180.0));
+
+            DoubleVector latRad = lat.mul(DEG_TO_RAD);
+            DoubleVector sinDLat = latRad.sub(refLatRad).mul(0.5).lanewise(VectorOperators.SIN);
+            DoubleVector sinDLon = lon.mul(DEG_TO_RAD).sub(refLonRad).mul(0.5).lanewise(VectorOperators.SIN);
+            DoubleVector a = latRad.lanewise(VectorOperators.COS).mul(cosRefLat)
+                    .mul(sinDLon).mul(sinDLon)
+                    .add(sinDLat.mul(sinDLat))
+                    .min(1.0);
+            DoubleVector c = a.sqrt().lanewise(VectorOperators.ATAN2, a.neg().add(1.0).sqrt());
+            c.mul(2 * EARTH_RADIUS_KM)
+                    .blend(INVALID_DISTANCE, valid.not())
+                    .intoArray(out, i);
+        }
+        HaversineKernel.distancesScalar(lats, lons, i, length, refLatRad, refLonRad, cosRefLat, out);
+    }
+}
@@ -0,0 +1,82 @@
+package io.confluent.udf;
+
+/**
+ * Vincenty's inverse formula on the WGS84 ellipsoid: geodesic distance between two points,
+ * accurate to well under a millimeter when it converges.
+ * The ellipsoid constants are computed once, the iteration count is capped, and no object is
+ * allocated per call.
+ */
+final class Wgs84Geodesic {
+    static final double SEMI_MAJOR_AXIS_M = 6_378_137.0;
+    static final double FLATTENING = 1 / 298.257223563;
+    static final double SEMI_MINOR_AXIS_M = (1 - FLATTENING) * SEMI_MAJOR_AXIS_M;
+    // (a² - b²) / b²
+    private static final double SECOND_ECCENTRICITY_SQ =
+            (SEMI_MAJOR_AXIS_M * SEMI_MAJOR_AXIS_M - SEMI_MINOR_AXIS_M * SEMI_MINOR_AXIS_M)
+                    / (SEMI_MINOR_AXIS_M * SEMI_MINOR_AXIS_M);
+    private static final double ONE_MINUS_F = 1 - FLATTENING;
+    private static final double DEG_TO_RAD = Math.PI / 180.0;
+
+    static final int MAX_ITERATIONS = 20;
+    private static final double CONVERGENCE_THRESHOLD = 1e-12;
+
+    private Wgs84Geodesic() {
+    }
+
+    /**
+     * @return the geodesic distance in kilometers between the two points given in degrees,
+     *         or NaN when the iteration does not converge (nearly antipodal points)
+     */
+    static double distanceKm(double lat1, double lon1, double lat2, double lon2) {
+        double l = (lon2 - lon1) * DEG_TO_RAD;
+        // reduced latitudes
+        double tanU1 = ONE_MINUS_F * Math.tan(lat1 * DEG_TO_RAD);
+        double tanU2 = ONE_MINUS_F * Math.tan(lat2 * DEG_TO_RAD);
+        double cosU1 = 1 / Math.sqrt(1 + tanU1 * tanU1);
+        double sinU1 = tanU1 * cosU1;
+        double cosU2 = 1 / Math.sqrt(1 + tanU2 * tanU2);
+        double sinU2 = tanU2 * cosU2;
+
+        double lambda = l;
+        double sinSigma;
+        double cosSigma;
+        double sigma;
+        double cosSqAlpha;
+        double cos2SigmaM;
+        int iteration = 0;
+        while (true) {
+            double sinLambda = Math.sin(lambda);
+            double cosLambda = Math.cos(lambda);
+            double x = cosU2 * sinLambda;
+            double y = cosU1 * sinU2 - sinU1 * cosU2 * cosLambda;
+            sinSigma = Math.sqrt(x * x + y * y);
+            if (sinSigma == 0) {
+                return 0.0; // coincident points
+            }
+            cosSigma = sinU1 * sinU2 + cosU1 * cosU2 * cosLambda;
+            sigma = Math.atan2(sinSigma, cosSigma);
+            double sinAlpha = cosU1 * cosU2 * sinLambda / sinSigma;
+            cosSqAlpha = 1 - sinAlpha * sinAlpha;
+            // both points on the equator: cosSqAlpha is 0
+            cos2SigmaM = cosSqAlpha != 0 ? cosSigma - 2 * sinU1 * sinU2 / cosSqAlpha : 0;
+            double c = FLATTENING / 16 * cosSqAlpha * (4 + FLATTENING * (4 - 3 * cosSqAlpha));
+            double previousLambda = lambda;
+            lambda = l + (1 - c) * FLATTENING * sinAlpha
+                    * (sigma + c * sinSigma * (cos2SigmaM + c * cosSigma * (-1 + 2 * cos2SigmaM * cos2SigmaM)));
+            if (Math.abs(lambda - previousLambda) <= CONVERGENCE_THRESHOLD) {
+                break;
+            }
+            if (++iteration >= MAX_ITERATIONS || Math.abs(lambda) > Math.PI) {
+                return Double.NaN;
+            }
+        }
+
+        double uSq = cosSqAlpha * SECOND_ECCENTRICITY_SQ;
+        double a = 1 + uSq / 16384 * (4096 + uSq * (-768 + uSq * (320 - 175 * uSq)));
+        double b = uSq / 1024 * (256 + uSq * (-128 + uSq * (74 - 47 * uSq)));
+        double cos2SigmaMSq = cos2SigmaM * cos2SigmaM;
+        double deltaSigma = b * sinSigma * (cos2SigmaM + b / 4 * (cosSigma * (-1 + 2 * cos2SigmaMSq)
+                - b / 6 * cos2SigmaM * (-3 + 4 * sinSigma * sinSigma) * (-3 + 4 * cos2SigmaMSq)));
+        return SEMI_MINOR_AXIS_M * a * (sigma - deltaSigma) / 1000.0;
+    }
+}
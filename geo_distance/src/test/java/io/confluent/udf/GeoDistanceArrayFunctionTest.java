@@ -0,0 +1,109 @@
+package io.confluent.udf;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GeoDistanceArrayFunctionTest {
+    private GeoDistanceArrayFunction geoDistanceArray;
+    private GeoDistanceFunction geoDistance;
+
+    @BeforeEach
+    void setUp() {
+        geoDistanceArray = new GeoDistanceArrayFunction();
+        geoDistance = new GeoDistanceFunction();
+    }
+
+    @Test
+    void testMatchesPerRowEval() {
+        // 37 points so the SIMD loop also leaves a scalar tail
+        Random random = new Random(42);
+        double[] lats = new double[37];
+        double[] lons = new double[37];
+        for (int i = 0; i < lats.length; i++) {
+            lats[i] = random.nextDouble() * 180 - 90;
+            lons[i] = random.nextDouble() * 360 - 180;
+        }
+
+        double[] distances = geoDistanceArray.eval(lats, lons, 48.8566, 2.3522);
+
+        assertEquals(lats.length, distances.length);
+        for (int i = 0; i < lats.length; i++) {
+            assertEquals(geoDistance.eval(48.8566, 2.3522, lats[i], lons[i]), distances[i], 1e-6);
+        }
+    }
+
+    @Test
+    void testScalarKernelMatchesDispatchedKernel() {
+        double[] lats = {51.5074, 40.7128, -33.8688, 35.6762, 0.0, 90.0, -90.0, 48.8566, 1.3521};
+        double[] lons = {-0.1278, -74.0060, 151.2093, 139.6503, 180.0, 0.0, 0.0, 2.3522, 103.8198};
+        double[] dispatched = new double[lats.length];
+        double[] scalar = new double[lats.length];
+        double refLatRad = Math.toRadians(48.8566);
+
+        HaversineKernel.distances(lats, lons, lats.length, 48.8566, 2.3522, dispatched);
+        HaversineKernel.distancesScalar(lats, lons, 0, lats.length,
+                refLatRad, Math.toRadians(2.3522), Math.cos(refLatRad), scalar);
+
+        assertArrayEquals(scalar, dispatched, 1e-6);
+    }
+
+    @Test
+    void testKnownDistance() {
+        // Paris to London
+        double[] distances = geoDistanceArray.eval(new double[]{51.5074}, new double[]{-0.1278}, 48.8566, 2.3522);
+        assertEquals(343.5, distances[0], 1.0);
+    }
+
+    @Test
+    void testInvalidPointsReturnMinusOne() {
+        double[] lats = {91.0, 10.0, Double.NaN, 10.0, 10.0, 10.0, 10.0, 10.0, 10.0};
+        double[] lons = {0.0, 181.0, 0.0, 10.0, 10.0, 10.0, 10.0, 10.0, -180.5};
+
+        double[] distances = geoDistanceArray.eval(lats, lons, 0.0, 0.0);
+
+        assertEquals(-1.0, distances[0]);
+        assertEquals(-1.0, distances[1]);
+        assertEquals(-1.0, distances[2]);
+        assertTrue(distances[3] > 0);
+        assertEquals(-1.0, distances[8]);
+    }
+
+    @Test
+    void testInvalidReferencePoint() {
+        double[] distances = geoDistanceArray.eval(new double[]{10.0, 20.0}, new double[]{10.0, 20.0}, 100.0, 0.0);
+        assertArrayEquals(new double[]{-1.0, -1.0}, distances);
+    }
+
+    @Test
+    void testNullableElements() {
+        Double[] lats = {51.5074, null, 48.8566};
+        Double[] lons = {-0.1278, 2.0, null};
+
+        double[] distances = geoDistanceArray.eval(lats, lons, 48.8566, 2.3522);
+
+        assertEquals(343.5, distances[0], 1.0);
+        assertEquals(-1.0, distances[1]);
+        assertEquals(-1.0, distances[2]);
+    }
+
+    @Test
+    void testNullOrMismatchedArraysReturnNull() {
+        assertNull(geoDistanceArray.eval((double[]) null, new double[]{1.0}, 0.0, 0.0));
+        assertNull(geoDistanceArray.eval(new double[]{1.0, 2.0}, new double[]{1.0}, 0.0, 0.0));
+        assertNull(geoDistanceArray.eval(new Double[]{1.0}, (Double[]) null, 0.0, 0.0));
+    }
+
+    @Test
+    void testEmptyArrays() {
+        assertEquals(0, geoDistanceArray.eval(new double[0], new double[0], 0.0, 0.0).length);
+    }
+
+    @Test
+    void testToString() {
+        assertEquals("GEO_DISTANCE_ARRAY", geoDistanceArray.toString());
+    }
+}
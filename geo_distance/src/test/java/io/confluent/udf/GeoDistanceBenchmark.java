@@ -0,0 +1,106 @@
+package io.confluent.udf;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH comparison of the per-row GEO_DISTANCE eval, in HAVERSINE, FAST and WGS84 modes, with the batch
+ * GEO_DISTANCE_ARRAY kernels.
+ * Each operation computes the distance of {@code size} points to one reference point.
+ *
+ * <p>Run with: {@code mvn -Pbenchmark test-compile exec:exec -Dbenchmark=GeoDistanceBenchmark}
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class GeoDistanceBenchmark {
+    private static final double REF_LAT = 48.8566;
+    private static final double REF_LON = 2.3522;
+
+    @Param({"64", "4096", "65536"})
+    public int size;
+
+    private double[] lats;
+    private double[] lons;
+    private Double[] boxedLats;
+    private Double[] boxedLons;
+    private double[] out;
+    private GeoDistanceFunction geoDistance;
+    private GeoDistanceArrayFunction geoDistanceArray;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(7);
+        lats = new double[size];
+        lons = new double[size];
+        boxedLats = new Double[size];
+        boxedLons = new Double[size];
+        for (int i = 0; i < size; i++) {
+            lats[i] = random.nextDouble() * 180 - 90;
+            lons[i] = random.nextDouble() * 360 - 180;
+            boxedLats[i] = lats[i];
+            boxedLons[i] = lons[i];
+        }
+        out = new double[size];
+        geoDistance = new GeoDistanceFunction();
+        geoDistanceArray = new GeoDistanceArrayFunction();
+    }
+
+    @Benchmark
+    public double[] perRowEval() {
+        for (int i = 0; i < size; i++) {
+            out[i] = geoDistance.eval(boxedLats[i], boxedLons[i], REF_LAT, REF_LON);
+        }
+        return out;
+    }
+
+    @Benchmark
+    public double[] perRowEvalFast() {
+        for (int i = 0; i < size; i++) {
+            out[i] = geoDistance.eval(boxedLats[i], boxedLons[i], REF_LAT, REF_LON, "FAST");
+        }
+        return out;
+    }
+
+    @Benchmark
+    public double[] perRowEvalWgs84() {
+        for (int i = 0; i < size; i++) {
+            out[i] = geoDistance.eval(boxedLats[i], boxedLons[i], REF_LAT, REF_LON, "WGS84");
+        }
+        return out;
+    }
+
+    @Benchmark
+    public double[] arrayFunction() {
+        return geoDistanceArray.eval(boxedLats, boxedLons, REF_LAT, REF_LON);
+    }
+
+    @Benchmark
+    public double[] kernelDispatched() {
+        HaversineKernel.distances(lats, lons, size, REF_LAT, REF_LON, out);
+        return out;
+    }
+
+    @Benchmark
+    public double[] kernelScalar() {
+        double refLatRad = Math.toRadians(REF_LAT);
+        HaversineKernel.distancesScalar(lats, lons, 0, size,
+                refLatRad, Math.toRadians(REF_LON), Math.cos(refLatRad), out);
+        return out;
+    }
+}
@@ -0,0 +1,198 @@
+package io.confluent.udf;
+
+import org.apache.flink.types.Row;
+import org.apache.flink.util.Collector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GeoNearestFunctionTest {
+    private GeoNearestFunction function;
+    private GeoDistanceFunction geoDistance;
+    private List<Row> collectedRows;
+
+    /**
+     * A simple Collector implementation that stores collected rows in a list.
+     */
+    private static class ListCollector implements Collector<Row> {
+        private final List<Row> rows;
+
+        ListCollector(List<Row> rows) {
+            this.rows = rows;
+        }
+
+        @Override
+        public void collect(Row row) {
+            rows.add(row);
+        }
+
+        @Override
+        public void close() {
+            // No-op
+        }
+    }
+
+    @BeforeEach
+    void setUp() throws Exception {
+        function = new GeoNearestFunction();
+        geoDistance = new GeoDistanceFunction();
+        collectedRows = new ArrayList<>();
+
+        // Inject the collector using reflection
+        Field collectorField = function.getClass().getSuperclass().getDeclaredField("collector");
+        collectorField.setAccessible(true);
+        collectorField.set(function, new ListCollector(collectedRows));
+    }
+
+    @Test
+    void testNearestDepots() {
+        Row[] depots = new Row[]{
+            Row.of("london", 51.5074, -0.1278),
+            Row.of("brussels", 50.8503, 4.3517),
+            Row.of("new_york", 40.7128, -74.0060),
+            Row.of("lyon", 45.7640, 4.8357)
+        };
+
+        // from Paris
+        function.eval(48.8566, 2.3522, depots, 2);
+
+        assertEquals(2, collectedRows.size());
+        assertEquals("brussels", collectedRows.get(0).getField(0));
+        assertEquals(1, collectedRows.get(0).getField(4));
+        assertEquals("london", collectedRows.get(1).getField(0));
+        assertEquals(2, collectedRows.get(1).getField(4));
+        assertEquals(343.5, (Double) collectedRows.get(1).getField(3), 1.0);
+        assertEquals(51.5074, collectedRows.get(1).getField(1));
+    }
+
+    @Test
+    void testMatchesBruteForce() {
+        Random random = new Random(3);
+        Row[] candidates = new Row[500];
+        for (int i = 0; i < candidates.length; i++) {
+            candidates[i] = Row.of("c" + i, random.nextDouble() * 180 - 90, random.nextDouble() * 360 - 180);
+        }
+        for (int query = 0; query < 50; query++) {
+            double lat = random.nextDouble() * 180 - 90;
+            double lon = random.nextDouble() * 360 - 180;
+            for (int k : new int[]{1, 5, 20}) {
+                collectedRows.clear();
+                function.eval(lat, lon, candidates, k);
+
+                double[] expected = Arrays.stream(candidates)
+                        .mapToDouble(c -> geoDistance.eval(lat, lon, (Double) c.getField(1), (Double) c.getField(2)))
+                        .sorted()
+                        .limit(k)
+                        .toArray();
+                assertEquals(k, collectedRows.size());
+                for (int i = 0; i < k; i++) {
+                    assertEquals(expected[i], (Double) collectedRows.get(i).getField(3), 1e-6);
+                }
+            }
+        }
+        assertEquals(1, function.indexBuilds(), "Index should be built once for an unchanged array");
+    }
+
+    @Test
+    void testNearPoleAndAntiMeridian() {
+        Row[] candidates = new Row[]{
+            Row.of("east", 89.5, 179.9),
+            Row.of("west", 89.5, -179.9),
+            Row.of("far", 80.0, 0.0),
+            Row.of("other_side", 89.9, 0.0)
+        };
+
+        function.eval(89.8, 180.0, candidates, 3);
+
+        List<String> ids = new ArrayList<>();
+        collectedRows.forEach(row -> ids.add((String) row.getField(0)));
+        List<String> expected = new ArrayList<>(List.of("east", "west", "far", "other_side"));
+        expected.sort(Comparator.comparingDouble(id -> {
+            Row row = Arrays.stream(candidates).filter(c -> c.getField(0).equals(id)).findFirst().get();
+            return geoDistance.eval(89.8, 180.0, (Double) row.getField(1), (Double) row.getField(2));
+        }));
+        assertEquals(expected.subList(0, 3), ids);
+    }
+
+    @Test
+    void testIndexRebuiltWhenContentChanges() {
+        Row[] candidates = new Row[]{Row.of("a", 10.0, 10.0), Row.of("b", 20.0, 20.0)};
+        function.eval(10.0, 10.0, candidates, 1);
+        // same content in a new array: index reused
+        function.eval(10.0, 10.0, new Row[]{Row.of("a", 10.0, 10.0), Row.of("b", 20.0, 20.0)}, 1);
+        assertEquals(1, function.indexBuilds());
+
+        collectedRows.clear();
+        function.eval(10.0, 10.0, new Row[]{Row.of("a", 30.0, 30.0), Row.of("b", 20.0, 20.0)}, 1);
+        assertEquals(2, function.indexBuilds());
+        assertEquals("b", collectedRows.get(0).getField(0));
+    }
+
+    @Test
+    void testUnsampledChangeFoundByFullCheck() {
+        Row[] candidates = new Row[20];
+        for (int i = 0; i < candidates.length; i++) {
+            candidates[i] = Row.of("c" + i, 10.0 * i - 90.0, 0.0);
+        }
+        function.eval(-80.0, 0.0, candidates, 1);
+        // c1 is not a sampled row: the sampled rows are 0, 2, 4, ... and the last one
+        Row[] changed = candidates.clone();
+        changed[1] = Row.of("c1", 50.0, 50.0);
+        function.eval(-80.0, 0.0, changed, 1);
+        assertEquals(1, function.indexBuilds(), "Unsampled rows are not compared on every call");
+        for (int i = 1; i < GeoNearestFunction.FULL_CHECK_CALLS; i++) {
+            function.eval(-80.0, 0.0, changed.clone(), 1);
+        }
+        assertEquals(2, function.indexBuilds());
+        collectedRows.clear();
+        function.eval(-80.0, 0.0, changed.clone(), 1);
+        assertNotEquals("c1", collectedRows.get(0).getField(0));
+        // a sampled row is compared on every call
+        changed[2] = Row.of("c2", 50.0, 50.0);
+        function.eval(-80.0, 0.0, changed.clone(), 1);
+        assertEquals(3, function.indexBuilds());
+    }
+
+    @Test
+    void testKLargerThanCandidatesAndInvalidCandidates() {
+        Row[] candidates = new Row[]{
+            Row.of("a", 10.0, 10.0),
+            null,
+            Row.of("no_lat", null, 10.0),
+            Row.of("bad_lat", 95.0, 10.0),
+            Row.of("b", 11.0, 11.0)
+        };
+
+        function.eval(10.0, 10.0, candidates, 10);
+
+        assertEquals(2, collectedRows.size());
+        assertEquals("a", collectedRows.get(0).getField(0));
+        assertEquals(0.0, (Double) collectedRows.get(0).getField(3), 1e-9);
+        assertEquals("b", collectedRows.get(1).getField(0));
+    }
+
+    @Test
+    void testNullOrInvalidInputsEmitNothing() {
+        Row[] candidates = new Row[]{Row.of("a", 10.0, 10.0)};
+        function.eval(null, 10.0, candidates, 1);
+        function.eval(10.0, 10.0, null, 1);
+        function.eval(10.0, 10.0, candidates, null);
+        function.eval(10.0, 10.0, candidates, 0);
+        function.eval(100.0, 10.0, candidates, 1);
+        function.eval(10.0, 10.0, new Row[0], 1);
+        assertTrue(collectedRows.isEmpty());
+    }
+
+    @Test
+    void testToString() {
+        assertEquals("GEO_NEAREST", function.toString());
+    }
+}
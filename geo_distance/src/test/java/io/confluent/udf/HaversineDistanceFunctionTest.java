@@ -1,10 +1,16 @@
 package io.confluent.udf;
 
+import org.apache.flink.table.api.DataTypes;
+import org.apache.flink.table.types.DataType;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Random;
 import static org.junit.jupiter.api.Assertions.*;
 
 class HaversineDistanceFunctionTest {
+    private static final DataType DOUBLE = DataTypes.DOUBLE();
     private GeoDistanceFunction geoDistance;
 
     @BeforeEach
@@ -34,6 +40,124 @@ class HaversineDistanceFunctionTest {
         assertEquals(20015.0, distance, 10.0); // Approximately half Earth's circumference
     }
 
+    @Test
+    void testModeArgument() {
+        assertEquals(geoDistance.eval(48.8566, 2.3522, 51.5074, -0.1278),
+                geoDistance.eval(48.8566, 2.3522, 51.5074, -0.1278, "haversine"));
+        assertEquals(geoDistance.eval(48.8566, 2.3522, 51.5074, -0.1278),
+                geoDistance.eval(48.8566, 2.3522, 51.5074, -0.1278, null));
+        assertEquals(343.5, geoDistance.eval(48.8566, 2.3522, 51.5074, -0.1278, "FAST"), 1.0);
+        assertEquals(-1.0, geoDistance.eval(48.8566, 2.3522, 51.5074, -0.1278, "UNKNOWN"));
+    }
+
+    @Test
+    void testFastModeAcrossAntiMeridian() {
+        double exact = geoDistance.eval(10.0, 179.9, 10.0, -179.9);
+        assertEquals(exact, geoDistance.eval(10.0, 179.9, 10.0, -179.9, "FAST"), 0.01);
+    }
+
+    @Test
+    void testFastModeErrorBounds() {
+        // documented maximum relative error per distance band, for |lat| <= 70
+        double[] bandsKm = {10, 100, 500, 1000};
+        double[] maxRelativeError = {0.00001, 0.0001, 0.0025, 0.01};
+        Random random = new Random(11);
+        int[] samples = new int[bandsKm.length];
+        for (int i = 0; i < 200_000; i++) {
+            double lat1 = random.nextDouble() * 140 - 70;
+            double lon1 = random.nextDouble() * 360 - 180;
+            // offsets on a log scale, from 0.001 to 9 degrees
+            double scale = Math.pow(10, random.nextDouble() * 4 - 3) * 9;
+            double lat2 = lat1 + (random.nextDouble() * 2 - 1) * scale;
+            double lon2 = lon1 + (random.nextDouble() * 2 - 1) * scale / Math.cos(Math.toRadians(lat1));
+            if (lat2 < -70 || lat2 > 70) {
+                continue;
+            }
+            lon2 = lon2 > 180 ? lon2 - 360 : lon2 < -180 ? lon2 + 360 : lon2;
+            double exact = geoDistance.eval(lat1, lon1, lat2, lon2);
+            if (exact < 0.001) {
+                continue;
+            }
+            double fast = geoDistance.eval(lat1, lon1, lat2, lon2, "FAST");
+            for (int b = 0; b < bandsKm.length; b++) {
+                if (exact <= bandsKm[b]) {
+                    samples[b]++;
+                    assertEquals(exact, fast, exact * maxRelativeError[b],
+                            "(" + lat1 + ", " + lon1 + ") to (" + lat2 + ", " + lon2 + ")");
+                    break;
+                }
+            }
+        }
+        for (int count : samples) {
+            assertTrue(count > 100, "Each distance band should be sampled");
+        }
+    }
+
+    @Test
+    void testWgs84KnownDistances() {
+        // Flinders Peak to Buninyong, the reference example of Vincenty's paper: 54,972.271 m
+        assertEquals(54.972271, geoDistance.eval(-37.95103342, 144.42486789, -37.65282114, 143.92649554, "WGS84"), 1e-6);
+        // one degree along the equator is a * pi / 180
+        assertEquals(111.319491, geoDistance.eval(0.0, 0.0, 0.0, 1.0, "WGS84"), 1e-6);
+        // equator to pole along a meridian: quarter meridian length
+        assertEquals(10001.965729, geoDistance.eval(0.0, 0.0, 90.0, 0.0, "WGS84"), 1e-5);
+        assertEquals(0.0, geoDistance.eval(40.7128, -74.0060, 40.7128, -74.0060, "WGS84"));
+    }
+
+    @Test
+    void testWgs84FallsBackToHaversineWhenNotConverging() {
+        // nearly antipodal points
+        assertTrue(Double.isNaN(Wgs84Geodesic.distanceKm(0.0, 0.0, 0.5, 179.7)));
+        assertEquals(geoDistance.eval(0.0, 0.0, 0.5, 179.7), geoDistance.eval(0.0, 0.0, 0.5, 179.7, "WGS84"));
+    }
+
+    @Test
+    void testWgs84InvalidCoordinates() {
+        assertEquals(-1.0, geoDistance.eval(91.0, 0.0, 0.0, 0.0, "WGS84"));
+        assertEquals(-1.0, geoDistance.eval(Double.NaN, 0.0, 0.0, 0.0, "WGS84"));
+    }
+
+    @Test
+    void testSpecializedOnSecondPoint() {
+        // GEO_DISTANCE(lat, lon, 48.8566, 2.3522): the literals arrive as DECIMAL
+        TestCallContext call = new TestCallContext(DOUBLE, DOUBLE, DataTypes.DECIMAL(6, 4), DataTypes.DECIMAL(5, 4))
+                .withLiteral(2, new BigDecimal("48.8566"))
+                .withLiteral(3, new BigDecimal("2.3522"));
+        GeoDistanceFunction specialized = (GeoDistanceFunction) geoDistance.specialize(call.specializedContext());
+
+        assertNotSame(geoDistance, specialized);
+        assertEquals(geoDistance.eval(51.5074, -0.1278, 48.8566, 2.3522),
+                specialized.eval(51.5074, -0.1278, 48.8566, 2.3522), 1e-9);
+        assertEquals(geoDistance.eval(40.7128, -74.0060, 48.8566, 2.3522),
+                specialized.eval(40.7128, -74.0060, 48.8566, 2.3522, "HAVERSINE"), 1e-9);
+        assertEquals(-1.0, specialized.eval(95.0, -0.1278, 48.8566, 2.3522));
+    }
+
+    @Test
+    void testSpecializedOnFirstPoint() {
+        TestCallContext call = new TestCallContext(DOUBLE, DOUBLE, DOUBLE, DOUBLE)
+                .withLiteral(0, 48.8566)
+                .withLiteral(1, 2.3522);
+        GeoDistanceFunction specialized = (GeoDistanceFunction) geoDistance.specialize(call.specializedContext());
+
+        assertNotSame(geoDistance, specialized);
+        assertEquals(geoDistance.eval(48.8566, 2.3522, 51.5074, -0.1278),
+                specialized.eval(48.8566, 2.3522, 51.5074, -0.1278), 1e-9);
+    }
+
+    @Test
+    void testNotSpecializedWithoutConstantPoint() {
+        TestCallContext mixed = new TestCallContext(DOUBLE, DOUBLE, DOUBLE, DOUBLE)
+                .withLiteral(0, 48.8566)
+                .withLiteral(3, 2.3522);
+        assertSame(geoDistance, geoDistance.specialize(mixed.specializedContext()));
+        // an invalid constant point keeps the validation on every row
+        TestCallContext invalid = new TestCallContext(DOUBLE, DOUBLE, DOUBLE, DOUBLE)
+                .withLiteral(2, 120.0)
+                .withLiteral(3, 2.3522);
+        assertSame(geoDistance, geoDistance.specialize(invalid.specializedContext()));
+    }
+
     @Test
     void testToString() {
         assertEquals("GEO_DISTANCE", geoDistance.toString());
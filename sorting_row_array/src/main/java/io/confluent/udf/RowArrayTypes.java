@@ -0,0 +1,80 @@
+package io.confluent.udf;
+
+import org.apache.flink.table.api.DataTypes;
+import org.apache.flink.table.functions.FunctionDefinition;
+import org.apache.flink.table.types.DataType;
+import org.apache.flink.table.types.inference.ArgumentTypeStrategy;
+import org.apache.flink.table.types.inference.CallContext;
+import org.apache.flink.table.types.inference.Signature;
+import org.apache.flink.table.types.inference.TypeStrategy;
+import org.apache.flink.table.types.logical.ArrayType;
+import org.apache.flink.table.types.logical.LogicalType;
+import org.apache.flink.table.types.logical.LogicalTypeRoot;
+import org.apache.flink.types.Row;
+
+import java.util.Optional;
+
+/**
+ * Type inference shared by the row array functions, which accept an {@code ARRAY<ROW<...>>} or a
+ * {@code ROW<...>} of any row type instead of the single row type of a {@code @DataTypeHint}.
+ */
+final class RowArrayTypes {
+
+    private RowArrayTypes() {
+    }
+
+    /**
+     * Accepts an {@code ARRAY<ROW<...>>} argument, converted to {@code Row[]}.
+     */
+    static final ArgumentTypeStrategy ROW_ARRAY = new ArgumentTypeStrategy() {
+        @Override
+        public Optional<DataType> inferArgumentType(CallContext callContext, int argumentPos, boolean throwOnFailure) {
+            DataType argumentType = callContext.getArgumentDataTypes().get(argumentPos);
+            LogicalType type = argumentType.getLogicalType();
+            if (!(type instanceof ArrayType array) || !array.getElementType().is(LogicalTypeRoot.ROW)) {
+                return callContext.fail(throwOnFailure, "Argument %s must be an ARRAY<ROW<...>>, got %s", argumentPos + 1, type);
+            }
+            return Optional.of(argumentType.bridgedTo(Row[].class));
+        }
+
+        @Override
+        public Signature.Argument getExpectedArgument(FunctionDefinition functionDefinition, int argumentPos) {
+            return Signature.Argument.of("ARRAY<ROW<...>>");
+        }
+    };
+
+    /**
+     * Accepts a {@code ROW<...>} argument, converted to {@code Row}.
+     */
+    static final ArgumentTypeStrategy ROW = new ArgumentTypeStrategy() {
+        @Override
+        public Optional<DataType> inferArgumentType(CallContext callContext, int argumentPos, boolean throwOnFailure) {
+            DataType argumentType = callContext.getArgumentDataTypes().get(argumentPos);
+            if (!argumentType.getLogicalType().is(LogicalTypeRoot.ROW)) {
+                return callContext.fail(throwOnFailure, "Argument %s must be a ROW<...>, got %s", argumentPos + 1, argumentType.getLogicalType());
+            }
+            return Optional.of(argumentType.bridgedTo(Row.class));
+        }
+
+        @Override
+        public Signature.Argument getExpectedArgument(FunctionDefinition functionDefinition, int argumentPos) {
+            return Signature.Argument.of("ROW<...>");
+        }
+    };
+
+    /**
+     * Returns the type of the row array argument, nullable as the functions return null on invalid
+     * input.
+     */
+    static TypeStrategy rowArrayOf(int argumentPos) {
+        return callContext -> Optional.of(callContext.getArgumentDataTypes().get(argumentPos).nullable().bridgedTo(Row[].class));
+    }
+
+    /**
+     * Returns a nullable array of the type of the row argument.
+     */
+    static TypeStrategy arrayOfRow(int argumentPos) {
+        return callContext -> Optional.of(DataTypes.ARRAY(callContext.getArgumentDataTypes().get(argumentPos).bridgedTo(Row.class))
+                .nullable().bridgedTo(Row[].class));
+    }
+}
@@ -0,0 +1,612 @@
+package io.confluent.udf;
+
+import org.apache.flink.types.Row;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Sorts row arrays on one or more {@link SortKey}s, by default in ascending order with null values
+ * last. Rows with equal values keep their input order. Descending keys are sorted on the
+ * complement of their primitive key, so the same sorts apply.
+ *
+ * <p>Numeric, boolean and DATE values are extracted once into a {@code long[]} of sort keys, and
+ * the rows are ordered by sorting these keys with the row index instead of comparing boxed
+ * values. DOUBLE and FLOAT values are mapped to longs with the same order as
+ * {@link Double#compare}. When the keys span less than 2^32 values, which covers any INT column,
+ * the key and the row index are packed into one long, so each sort moves a single array:
+ * <ul>
+ *   <li>up to {@value #INSERTION_SORT_MAX_ROWS} rows, insertion sort;</li>
+ *   <li>below {@value #RADIX_SORT_MIN_ROWS} rows, {@link Arrays#sort(long[])};</li>
+ *   <li>from the parallel threshold on, {@link Arrays#parallelSort(long[])};</li>
+ *   <li>in between, an LSD radix sort on the bytes of the key, one pass per byte of the key range.</li>
+ * </ul>
+ * Wider keys (BIGINT or DOUBLE values spanning more than 2^32) use a merge sort, then from
+ * {@value #RADIX_SORT_MIN_ROWS} rows a radix sort, on separate key and index arrays. Other
+ * comparable values, such as STRING or DECIMAL, are sorted with their natural order.
+ *
+ * <p>Not thread safe: a function instance is only called by its task thread.
+ */
+final class RowSorter {
+    static final int INSERTION_SORT_MAX_ROWS = 32;
+    static final int RADIX_SORT_MIN_ROWS = 256;
+    static final int DEFAULT_PARALLEL_THRESHOLD = 1 << 18;
+    private static final long PACKED_INDEX_MASK = 0xFFFFFFFFL;
+
+    // number of rows from which packed keys are sorted by Arrays.parallelSort
+    private final int parallelThreshold;
+
+    RowSorter(int parallelThreshold) {
+        this.parallelThreshold = parallelThreshold;
+    }
+
+    /**
+     * @return the arity of the first row that is not null, 0 if all rows are null
+     */
+    static int arity(Row[] rows) {
+        for (Row row : rows) {
+            if (row != null) {
+                return row.getArity();
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * @return a new array with the rows sorted on the column, null values (and null rows) last
+     * @throws ClassCastException if the values of the column are not comparable
+     */
+    Row[] sort(Row[] rows, int column) {
+        return sort(rows, SortKey.ascending(column));
+    }
+
+    /**
+     * Sorts the rows on several keys, with one stable sort per key from the least significant one,
+     * so each sort keeps the order of the less significant keys between equal values.
+     *
+     * @param keys the sort keys, most significant first
+     * @return a new array with the sorted rows
+     * @throws ClassCastException if the values of a column are not comparable
+     */
+    Row[] sort(Row[] rows, SortKey[] keys) {
+        Row[] sorted = rows;
+        for (int k = keys.length - 1; k >= 0; k--) {
+            sorted = sort(sorted, keys[k]);
+        }
+        return sorted == rows ? rows.clone() : sorted;
+    }
+
+    /**
+     * @return a new array with the rows sorted on the key, null values (and null rows) placed as
+     *         the key requires
+     * @throws ClassCastException if the values of the column are not comparable
+     */
+    Row[] sort(Row[] rows, SortKey key) {
+        int[] order = primitiveOrder(rows, key, null);
+        if (order == null) {
+            return comparableSort(rows, key);
+        }
+        Row[] sorted = new Row[rows.length];
+        for (int i = 0; i < order.length; i++) {
+            sorted[i] = rows[order[i]];
+        }
+        return sorted;
+    }
+
+    /**
+     * @param rowKeys if not null, receives the sort key of each row with a value, by row index
+     * @return the row indexes in sorted order, or null if the values of the column have no
+     *         primitive sort key
+     */
+    private int[] primitiveOrder(Row[] rows, SortKey key, long[] rowKeys) {
+        int n = rows.length;
+        int column = key.column;
+        int[] order = new int[n];
+        long[] keys = new long[n];
+        int count = 0;
+        KeyKind kind = null;
+        for (int i = 0; i < n; i++) {
+            Object value = rows[i] == null ? null : rows[i].getField(column);
+            if (value == null) {
+                continue;
+            }
+            if (kind == null) {
+                kind = KeyKind.of(value);
+            }
+            if (kind == null || !kind.accepts(value)) {
+                return null;
+            }
+            // the complement reverses the order, and keeps equal values equal
+            keys[count] = key.descending ? ~kind.key(value) : kind.key(value);
+            if (rowKeys != null) {
+                rowKeys[i] = keys[count];
+            }
+            order[count++] = i;
+        }
+        if (count > 1) {
+            sortKeys(keys, order, count);
+        }
+        // null values first or last, in input order
+        int nullPosition = count;
+        if (key.nullsFirst && count < n) {
+            System.arraycopy(order, 0, order, n - count, count);
+            nullPosition = 0;
+        }
+        for (int i = 0, nulls = 0; nulls < n - count; i++) {
+            if (rows[i] == null || rows[i].getField(column) == null) {
+                order[nullPosition + nulls++] = i;
+            }
+        }
+        return order;
+    }
+
+    /**
+     * Sorts the first count keys in ascending order, and the row indexes with them.
+     */
+    private void sortKeys(long[] keys, int[] order, int count) {
+        long min = keys[0];
+        long max = keys[0];
+        for (int i = 1; i < count; i++) {
+            min = Math.min(min, keys[i]);
+            max = Math.max(max, keys[i]);
+        }
+        long range = max - min;
+        if (range >= 0 && range <= PACKED_INDEX_MASK) {
+            // offset key in the high half, row index in the low half: ties keep the input order
+            long[] packed = new long[count];
+            for (int i = 0; i < count; i++) {
+                packed[i] = (keys[i] - min) << 32 | order[i];
+            }
+            if (count <= INSERTION_SORT_MAX_ROWS) {
+                insertionSort(packed, 0, count);
+            } else if (count < RADIX_SORT_MIN_ROWS || count >= parallelThreshold) {
+                // the Arrays sorts compare signed values: flip the sign bit, the index is unchanged
+                for (int i = 0; i < count; i++) {
+                    packed[i] ^= Long.MIN_VALUE;
+                }
+                if (count < RADIX_SORT_MIN_ROWS) {
+                    Arrays.sort(packed);
+                } else {
+                    Arrays.parallelSort(packed);
+                }
+            } else {
+                radixSortPacked(packed, range);
+            }
+            for (int i = 0; i < count; i++) {
+                order[i] = (int) (packed[i] & PACKED_INDEX_MASK);
+            }
+        } else {
+            // a range wider than 2^32 overflows when the keys have different signs: sort unsigned offsets
+            for (int i = 0; i < count; i++) {
+                keys[i] -= min;
+            }
+            if (count < RADIX_SORT_MIN_ROWS) {
+                mergeSort(keys, order, count);
+            } else {
+                radixSort(keys, order, count, range);
+            }
+        }
+    }
+
+    private static void insertionSort(long[] packed, int from, int to) {
+        for (int i = from + 1; i < to; i++) {
+            long value = packed[i];
+            int j = i - 1;
+            while (j >= from && Long.compareUnsigned(packed[j], value) > 0) {
+                packed[j + 1] = packed[j];
+                j--;
+            }
+            packed[j + 1] = value;
+        }
+    }
+
+    private static void insertionSort(long[] keys, int[] order, int from, int to) {
+        for (int i = from + 1; i < to; i++) {
+            long key = keys[i];
+            int index = order[i];
+            int j = i - 1;
+            while (j >= from && Long.compareUnsigned(keys[j], key) > 0) {
+                keys[j + 1] = keys[j];
+                order[j + 1] = order[j];
+                j--;
+            }
+            keys[j + 1] = key;
+            order[j + 1] = index;
+        }
+    }
+
+    /**
+     * Stable bottom-up merge sort of unsigned keys and their row indexes, on runs sorted by
+     * insertion sort.
+     */
+    private static void mergeSort(long[] keys, int[] order, int count) {
+        for (int from = 0; from < count; from += INSERTION_SORT_MAX_ROWS) {
+            insertionSort(keys, order, from, Math.min(from + INSERTION_SORT_MAX_ROWS, count));
+        }
+        long[] keyBuffer = new long[count];
+        int[] orderBuffer = new int[count];
+        for (int width = INSERTION_SORT_MAX_ROWS; width < count; width *= 2) {
+            for (int left = 0; left < count; left += 2 * width) {
+                int middle = Math.min(left + width, count);
+                int right = Math.min(left + 2 * width, count);
+                int i = left;
+                int j = middle;
+                for (int k = left; k < right; k++) {
+                    if (j >= right || i < middle && Long.compareUnsigned(keys[i], keys[j]) <= 0) {
+                        keyBuffer[k] = keys[i];
+                        orderBuffer[k] = order[i++];
+                    } else {
+                        keyBuffer[k] = keys[j];
+                        orderBuffer[k] = order[j++];
+                    }
+                }
+            }
+            System.arraycopy(keyBuffer, 0, keys, 0, count);
+            System.arraycopy(orderBuffer, 0, order, 0, count);
+        }
+    }
+
+    /**
+     * LSD radix sort of packed keys on the bytes of their high half, skipping the bytes that are
+     * the same in every key. The packed values start in index order, and each pass is stable, so
+     * ties keep that order.
+     */
+    private static void radixSortPacked(long[] packed, long range) {
+        int count = packed.length;
+        long[] buffer = new long[count];
+        int[] offsets = new int[257];
+        for (int shift = 32; shift < 64 && (range >>> (shift - 32)) != 0; shift += 8) {
+            Arrays.fill(offsets, 0);
+            for (long value : packed) {
+                offsets[(int) (value >>> shift & 0xFF) + 1]++;
+            }
+            if (offsets[(int) (packed[0] >>> shift & 0xFF) + 1] == count) {
+                continue;
+            }
+            for (int b = 0; b < 256; b++) {
+                offsets[b + 1] += offsets[b];
+            }
+            for (long value : packed) {
+                buffer[offsets[(int) (value >>> shift & 0xFF)]++] = value;
+            }
+            System.arraycopy(buffer, 0, packed, 0, count);
+        }
+    }
+
+    /**
+     * LSD radix sort of unsigned keys, and their row indexes, on the bytes of the key range,
+     * skipping the bytes that are the same in every key.
+     */
+    private static void radixSort(long[] keys, int[] order, int count, long range) {
+        long[] keyBuffer = new long[count];
+        int[] orderBuffer = new int[count];
+        int[] offsets = new int[257];
+        for (int shift = 0; shift < 64 && (range >>> shift) != 0; shift += 8) {
+            Arrays.fill(offsets, 0);
+            for (int i = 0; i < count; i++) {
+                offsets[(int) (keys[i] >>> shift & 0xFF) + 1]++;
+            }
+            if (offsets[(int) (keys[0] >>> shift & 0xFF) + 1] == count) {
+                continue;
+            }
+            for (int b = 0; b < 256; b++) {
+                offsets[b + 1] += offsets[b];
+            }
+            for (int i = 0; i < count; i++) {
+                int target = offsets[(int) (keys[i] >>> shift & 0xFF)]++;
+                keyBuffer[target] = keys[i];
+                orderBuffer[target] = order[i];
+            }
+            System.arraycopy(keyBuffer, 0, keys, 0, count);
+            System.arraycopy(orderBuffer, 0, order, 0, count);
+        }
+    }
+
+    /**
+     * @return the rows sorted by a stable sort on the natural order of their values
+     */
+    private Row[] comparableSort(Row[] rows, SortKey key) {
+        Row[] sorted = rows.clone();
+        if (rows.length >= parallelThreshold) {
+            Arrays.parallelSort(sorted, key.comparator);
+        } else {
+            Arrays.sort(sorted, key.comparator);
+        }
+        return sorted;
+    }
+
+    /**
+     * Selects the first rows of the sort on the key, with a bounded max-heap of the best rows seen
+     * so far: O(n log count) comparisons, and no sorted copy of the input. Ties keep the input
+     * order, as in {@link #sort(Row[], SortKey)}.
+     *
+     * @return a new array with the first count rows (all rows if there are fewer), in sorted order
+     * @throws ClassCastException if the values of the column are not comparable
+     */
+    Row[] top(Row[] rows, SortKey key, int count) {
+        int k = Math.min(count, rows.length);
+        if (k <= 0) {
+            return new Row[0];
+        }
+        if (k == rows.length) {
+            return sort(rows, key);
+        }
+        int[] top = primitiveTop(rows, key, k);
+        if (top == null) {
+            top = comparableTop(rows, key, k);
+        }
+        Row[] result = new Row[k];
+        for (int i = 0; i < k; i++) {
+            result[i] = rows[top[i]];
+        }
+        return result;
+    }
+
+    /**
+     * @return the indexes of the first k rows in sorted order, or null if the values of the column
+     *         have no primitive sort key
+     */
+    private int[] primitiveTop(Row[] rows, SortKey key, int k) {
+        // max-heap on (key, row index) of the best non-null rows
+        long[] heapKeys = new long[k];
+        int[] heapRows = new int[k];
+        int size = 0;
+        int nulls = 0;
+        KeyKind kind = null;
+        for (int i = 0; i < rows.length; i++) {
+            Object value = rows[i] == null ? null : rows[i].getField(key.column);
+            if (value == null) {
+                nulls++;
+                continue;
+            }
+            if (kind == null) {
+                kind = KeyKind.of(value);
+            }
+            if (kind == null || !kind.accepts(value)) {
+                return null;
+            }
+            long sortKey = key.descending ? ~kind.key(value) : kind.key(value);
+            if (size < k) {
+                int child = size++;
+                while (child > 0) {
+                    int parent = (child - 1) >>> 1;
+                    // the row index of a new row is the largest: an equal key goes up
+                    if (heapKeys[parent] > sortKey) {
+                        break;
+                    }
+                    heapKeys[child] = heapKeys[parent];
+                    heapRows[child] = heapRows[parent];
+                    child = parent;
+                }
+                heapKeys[child] = sortKey;
+                heapRows[child] = i;
+            } else if (sortKey < heapKeys[0]) {
+                heapKeys[0] = sortKey;
+                heapRows[0] = i;
+                siftDown(heapKeys, heapRows, 0, size);
+            }
+        }
+        // heap sort: the largest of the remaining rows moves to the end
+        for (int last = size - 1; last > 0; last--) {
+            long lastKey = heapKeys[last];
+            int lastRow = heapRows[last];
+            heapKeys[last] = heapKeys[0];
+            heapRows[last] = heapRows[0];
+            heapKeys[0] = lastKey;
+            heapRows[0] = lastRow;
+            siftDown(heapKeys, heapRows, 0, last);
+        }
+        int[] top = new int[k];
+        int leadingNulls = key.nullsFirst ? Math.min(nulls, k) : 0;
+        System.arraycopy(heapRows, 0, top, leadingNulls, Math.min(size, k - leadingNulls));
+        // null values first or last, in input order
+        int position = key.nullsFirst ? 0 : Math.min(size, k);
+        int end = key.nullsFirst ? leadingNulls : k;
+        for (int i = 0; position < end; i++) {
+            if (rows[i] == null || rows[i].getField(key.column) == null) {
+                top[position++] = i;
+            }
+        }
+        return top;
+    }
+
+    private static void siftDown(long[] heapKeys, int[] heapRows, int parent, int size) {
+        long key = heapKeys[parent];
+        int row = heapRows[parent];
+        while (true) {
+            int child = 2 * parent + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && after(heapKeys[child + 1], heapRows[child + 1], heapKeys[child], heapRows[child])) {
+                child++;
+            }
+            if (!after(heapKeys[child], heapRows[child], key, row)) {
+                break;
+            }
+            heapKeys[parent] = heapKeys[child];
+            heapRows[parent] = heapRows[child];
+            parent = child;
+        }
+        heapKeys[parent] = key;
+        heapRows[parent] = row;
+    }
+
+    private static boolean after(long key, int row, long otherKey, int otherRow) {
+        return key > otherKey || key == otherKey && row > otherRow;
+    }
+
+    /**
+     * @return the indexes of the first k rows in sorted order, selected with the comparator of the key
+     */
+    private static int[] comparableTop(Row[] rows, SortKey key, int k) {
+        Comparator<Integer> order = Comparator.<Integer, Row>comparing(i -> rows[i], key.comparator)
+                .thenComparing(Comparator.naturalOrder());
+        PriorityQueue<Integer> heap = new PriorityQueue<>(k + 1, order.reversed());
+        for (int i = 0; i < rows.length; i++) {
+            if (heap.size() < k) {
+                heap.add(i);
+            } else if (order.compare(i, heap.peek()) < 0) {
+                heap.poll();
+                heap.add(i);
+            }
+        }
+        int[] top = new int[k];
+        for (int i = k - 1; i >= 0; i--) {
+            top[i] = heap.poll();
+        }
+        return top;
+    }
+
+    /**
+     * Sorts the rows on the key, keeping one row per distinct value of the key column: the first or
+     * the last one in input order. The rows are grouped by ordering their indexes on the key
+     * column, with the primitive keys of {@link #sort(Row[], SortKey)} when the column has them,
+     * and one pass over the runs of equal keys picks a row per value; other columns are grouped in
+     * a HashMap. Rows with a null value in
+     * the key column, and null rows, are one group, as in SQL DISTINCT.
+     *
+     * @return a new array with the distinct rows sorted on the key
+     * @throws ClassCastException if the values of a column are not comparable
+     */
+    Row[] sortDistinct(Row[] rows, SortKey key, int keyColumn, boolean keepLast) {
+        long[] rowKeys = new long[rows.length];
+        int[] order = primitiveOrder(rows, SortKey.ascending(keyColumn), rowKeys);
+        if (order == null) {
+            return sort(distinct(rows, keyColumn, keepLast), key);
+        }
+        // the rows with a null value are last
+        int values = order.length;
+        while (values > 0 && (rows[order[values - 1]] == null || rows[order[values - 1]].getField(keyColumn) == null)) {
+            values--;
+        }
+        // rows with equal values are adjacent, in input order
+        boolean sameOrder = key.column == keyColumn && !key.descending && !key.nullsFirst;
+        Row[] distinct = new Row[rows.length];
+        boolean[] kept = sameOrder ? null : new boolean[rows.length];
+        int count = 0;
+        for (int start = 0, end; start < order.length; start = end) {
+            end = start + 1;
+            if (start >= values) {
+                end = order.length;
+            } else {
+                while (end < values && rowKeys[order[end]] == rowKeys[order[start]]) {
+                    end++;
+                }
+            }
+            int row = order[keepLast ? end - 1 : start];
+            if (sameOrder) {
+                distinct[count++] = rows[row];
+            } else {
+                kept[row] = true;
+            }
+        }
+        if (sameOrder) {
+            return Arrays.copyOf(distinct, count);
+        }
+        for (int i = 0; i < rows.length; i++) {
+            if (kept[i]) {
+                distinct[count++] = rows[i];
+            }
+        }
+        return sort(Arrays.copyOf(distinct, count), key);
+    }
+
+    /**
+     * @return the rows with the first or last row of each value of the column, in input order
+     */
+    private static Row[] distinct(Row[] rows, int column, boolean keepLast) {
+        Map<Object, Integer> rowOfValue = new HashMap<>();
+        for (int i = 0; i < rows.length; i++) {
+            Object value = rows[i] == null ? null : rows[i].getField(column);
+            if (keepLast) {
+                rowOfValue.put(value, i);
+            } else {
+                rowOfValue.putIfAbsent(value, i);
+            }
+        }
+        boolean[] kept = new boolean[rows.length];
+        for (int row : rowOfValue.values()) {
+            kept[row] = true;
+        }
+        Row[] distinct = new Row[rowOfValue.size()];
+        for (int i = 0, count = 0; i < rows.length; i++) {
+            if (kept[i]) {
+                distinct[count++] = rows[i];
+            }
+        }
+        return distinct;
+    }
+
+    /**
+     * Column value types with a primitive sort key.
+     */
+    private enum KeyKind {
+        INTEGRAL {
+            @Override
+            boolean accepts(Object value) {
+                return value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte;
+            }
+
+            @Override
+            long key(Object value) {
+                return ((Number) value).longValue();
+            }
+        },
+        FLOATING {
+            @Override
+            boolean accepts(Object value) {
+                return value instanceof Double || value instanceof Float;
+            }
+
+            @Override
+            long key(Object value) {
+                // flips the magnitude bits of negative numbers, so the signed order is Double.compare's
+                long bits = Double.doubleToLongBits(((Number) value).doubleValue());
+                return bits ^ (bits >> 63 & Long.MAX_VALUE);
+            }
+        },
+        BOOLEAN {
+            @Override
+            boolean accepts(Object value) {
+                return value instanceof Boolean;
+            }
+
+            @Override
+            long key(Object value) {
+                return (Boolean) value ? 1 : 0;
+            }
+        },
+        DATE {
+            @Override
+            boolean accepts(Object value) {
+                return value instanceof LocalDate;
+            }
+
+            @Override
+            long key(Object value) {
+                return ((LocalDate) value).toEpochDay();
+            }
+        };
+
+        abstract boolean accepts(Object value);
+
+        abstract long key(Object value);
+
+        /**
+         * @return the kind of the value, or null if it has no primitive sort key
+         */
+        static KeyKind of(Object value) {
+            for (KeyKind kind : values()) {
+                if (kind.accepts(value)) {
+                    return kind;
+                }
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package io.confluent.udf;
+
+import org.apache.flink.table.api.DataTypes;
+import org.apache.flink.table.catalog.DataTypeFactory;
+import org.apache.flink.table.functions.FunctionContext;
+import org.apache.flink.table.functions.FunctionDefinition;
+import org.apache.flink.table.functions.ScalarFunction;
+import org.apache.flink.table.types.DataType;
+import org.apache.flink.table.types.inference.ArgumentTypeStrategy;
+import org.apache.flink.table.types.inference.CallContext;
+import org.apache.flink.table.types.inference.InputTypeStrategies;
+import org.apache.flink.table.types.inference.Signature;
+import org.apache.flink.table.types.inference.TypeInference;
+import org.apache.flink.types.Row;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.Locale;
+import java.util.Optional;
+
+/**
+ * A Flink UDF that returns an array of ROWs sorted on a column, with one row per distinct value of
+ * a key column, such as the item id of an ARRAY_AGG holding several versions of an item.
+ *
+ * The mode 'KEEP_FIRST' keeps the first row of each key in the input array, and 'KEEP_LAST' the
+ * last one (case-insensitive). Rows with a null key, and null rows, count as one key. The kept rows
+ * are sorted as in SORT_ROW_ARRAY_ON_ID: ascending, with null values last, and rows with equal
+ * values keep their input order. Duplicates are found with one pass over the rows ordered on the
+ * primitive keys of the key column; when the sort column is the key column, that order is the
+ * result.
+ *
+ * Example SQL usage:
+ * SORT_DISTINCT_ROW_ARRAY(ARRAY_AGG(ROW(item_id, item_name, item_description, item_display_order)), 3, 0, 'KEEP_LAST')
+ */
+public class SortDistinctRowArrayFunction extends ScalarFunction {
+    private static final Logger logger = LogManager.getLogger(SortDistinctRowArrayFunction.class);
+
+    static final String KEEP_FIRST = "KEEP_FIRST";
+    static final String KEEP_LAST = "KEEP_LAST";
+
+    private transient RowSorter sorter;
+    // key of the last sorted column
+    private transient SortKey key;
+
+    @Override
+    public void open(FunctionContext context) throws Exception {
+        super.open(context);
+        sorter = SortingRowArrayFunction.newSorter(context);
+    }
+
+    /**
+     * Sorts an array of Row objects on a column, keeping one row per value of the key column.
+     *
+     * @param rows The array of Row objects to sort
+     * @param sortColumn The zero-based index of the column to sort by
+     * @param keyColumn The zero-based index of the column identifying duplicate rows
+     * @param mode 'KEEP_FIRST' or 'KEEP_LAST', the row kept among duplicates in input order
+     * @return A sorted array of distinct Row objects, or null if input is invalid
+     */
+    public Row[] eval(Row[] rows, Integer sortColumn, Integer keyColumn, String mode) {
+        if (rows == null || sortColumn == null || keyColumn == null || mode == null) {
+            logger.warn("Null input provided: rows={}, sortColumn={}, keyColumn={}, mode={}", rows, sortColumn, keyColumn, mode);
+            return null;
+        }
+        Boolean keepLast = keepLast(mode);
+        if (keepLast == null) {
+            logger.error("Invalid mode '{}', expected {} or {}", mode, KEEP_FIRST, KEEP_LAST);
+            return null;
+        }
+        if (rows.length == 0) {
+            return rows;
+        }
+        int arity = RowSorter.arity(rows);
+        if (sortColumn < 0 || sortColumn >= arity || keyColumn < 0 || keyColumn >= arity) {
+            logger.error("Invalid column index: sort {}, key {}. Row has {} fields.", sortColumn, keyColumn, arity);
+            return null;
+        }
+        try {
+            if (key == null || key.column != sortColumn) {
+                key = SortKey.ascending(sortColumn);
+            }
+            return sorter().sortDistinct(rows, key, keyColumn, keepLast);
+        } catch (ClassCastException e) {
+            logger.error("Column at index {} or {} is not comparable: {}", sortColumn, keyColumn, e.getMessage());
+            return null;
+        } catch (Exception e) {
+            logger.error("Error sorting rows: {}", e.getMessage(), e);
+            return null;
+        }
+    }
+
+    /**
+     * @return true for KEEP_LAST, false for KEEP_FIRST, null for another mode
+     */
+    static Boolean keepLast(String mode) {
+        switch (mode.trim().toUpperCase(Locale.ROOT)) {
+            case KEEP_LAST:
+                return true;
+            case KEEP_FIRST:
+                return false;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Accepts an ARRAY of any ROW type, two INT column indexes and a STRING mode, and returns the
+     * type of the array. A literal mode is checked when the query is planned.
+     */
+    @Override
+    public TypeInference getTypeInference(DataTypeFactory typeFactory) {
+        return TypeInference.newBuilder()
+                .inputTypeStrategy(InputTypeStrategies.sequence(
+                        RowArrayTypes.ROW_ARRAY,
+                        InputTypeStrategies.explicit(DataTypes.INT()),
+                        InputTypeStrategies.explicit(DataTypes.INT()),
+                        MODE))
+                .outputTypeStrategy(RowArrayTypes.rowArrayOf(0))
+                .build();
+    }
+
+    private static final ArgumentTypeStrategy MODE = new ArgumentTypeStrategy() {
+        private final ArgumentTypeStrategy string = InputTypeStrategies.explicit(DataTypes.STRING());
+
+        @Override
+        public Optional<DataType> inferArgumentType(CallContext callContext, int argumentPos, boolean throwOnFailure) {
+            Optional<DataType> type = string.inferArgumentType(callContext, argumentPos, throwOnFailure);
+            if (type.isEmpty() || !callContext.isArgumentLiteral(argumentPos) || callContext.isArgumentNull(argumentPos)) {
+                return type;
+            }
+            String mode = callContext.getArgumentValue(argumentPos, String.class).orElse("");
+            if (keepLast(mode) == null) {
+                return callContext.fail(throwOnFailure, "Invalid mode '%s', expected %s or %s", mode, KEEP_FIRST, KEEP_LAST);
+            }
+            return type;
+        }
+
+        @Override
+        public Signature.Argument getExpectedArgument(FunctionDefinition functionDefinition, int argumentPos) {
+            return Signature.Argument.of("STRING");
+        }
+    };
+
+    /**
+     * @return the sorter created in open(), or a new one when the function is called without open()
+     */
+    RowSorter sorter() {
+        if (sorter == null) {
+            sorter = new RowSorter(RowSorter.DEFAULT_PARALLEL_THRESHOLD);
+        }
+        return sorter;
+    }
+
+    /**
+     * Returns a string describing the function.
+     */
+    @Override
+    public String toString() {
+        return "SORT_DISTINCT_ROW_ARRAY";
+    }
+}
@@ -0,0 +1,82 @@
+package io.confluent.udf;
+
+import org.apache.flink.types.Row;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A column of a row array sort, with its direction and the position of its null values. Keys are
+ * immutable, and compiled once per sort specification: the comparator used for values without a
+ * primitive sort key is built with the key.
+ */
+final class SortKey {
+    // c3 DESC NULLS FIRST, or 3 ASC
+    private static final Pattern KEY = Pattern.compile(
+            "\\s*[cC]?(\\d+)(?:\\s+(ASC|DESC))?(?:\\s+NULLS\\s+(FIRST|LAST))?\\s*", Pattern.CASE_INSENSITIVE);
+
+    final int column;
+    final boolean descending;
+    final boolean nullsFirst;
+    // natural order of the values, for columns without a primitive sort key
+    final Comparator<Row> comparator;
+
+    @SuppressWarnings("unchecked")
+    SortKey(int column, boolean descending, boolean nullsFirst) {
+        this.column = column;
+        this.descending = descending;
+        this.nullsFirst = nullsFirst;
+        Comparator<Comparable<Object>> values = descending ? Comparator.reverseOrder() : Comparator.naturalOrder();
+        this.comparator = Comparator.comparing(
+                row -> row == null ? null : (Comparable<Object>) row.getField(column),
+                nullsFirst ? Comparator.nullsFirst(values) : Comparator.nullsLast(values));
+    }
+
+    /**
+     * @return the key of an ascending sort with null values last
+     */
+    static SortKey ascending(int column) {
+        return new SortKey(column, false, false);
+    }
+
+    /**
+     * Parses a sort specification: comma-separated keys, most significant first, each a zero-based
+     * column index, optionally prefixed with {@code c}, followed by an optional {@code ASC} or
+     * {@code DESC} and {@code NULLS FIRST} or {@code NULLS LAST}, case-insensitive. The defaults
+     * are {@code ASC} and {@code NULLS LAST}, as in SORT_ROW_ARRAY_ON_ID.
+     *
+     * @return the keys, most significant first
+     * @throws IllegalArgumentException if the specification is blank or a key is invalid
+     */
+    static SortKey[] parse(String spec) {
+        if (spec == null || spec.isBlank()) {
+            throw new IllegalArgumentException("Empty sort specification");
+        }
+        List<SortKey> keys = new ArrayList<>();
+        for (String key : spec.split(",", -1)) {
+            Matcher matcher = KEY.matcher(key);
+            if (!matcher.matches()) {
+                throw new IllegalArgumentException("Invalid sort key '" + key.trim() + "', expected c<index> [ASC|DESC] [NULLS FIRST|LAST]");
+            }
+            int column;
+            try {
+                column = Integer.parseInt(matcher.group(1));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid column index in sort key '" + key.trim() + "'");
+            }
+            boolean descending = matcher.group(2) != null && matcher.group(2).toUpperCase(Locale.ROOT).equals("DESC");
+            boolean nullsFirst = matcher.group(3) != null && matcher.group(3).toUpperCase(Locale.ROOT).equals("FIRST");
+            keys.add(new SortKey(column, descending, nullsFirst));
+        }
+        return keys.toArray(new SortKey[0]);
+    }
+
+    @Override
+    public String toString() {
+        return "c" + column + (descending ? " DESC" : " ASC") + (nullsFirst ? " NULLS FIRST" : " NULLS LAST");
+    }
+}
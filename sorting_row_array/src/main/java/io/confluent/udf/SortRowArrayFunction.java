@@ -0,0 +1,187 @@
+package io.confluent.udf;
+
+import org.apache.flink.table.api.DataTypes;
+import org.apache.flink.table.catalog.DataTypeFactory;
+import org.apache.flink.table.functions.FunctionContext;
+import org.apache.flink.table.functions.FunctionDefinition;
+import org.apache.flink.table.functions.ScalarFunction;
+import org.apache.flink.table.types.DataType;
+import org.apache.flink.table.types.inference.ArgumentTypeStrategy;
+import org.apache.flink.table.types.inference.CallContext;
+import org.apache.flink.table.types.inference.InputTypeStrategies;
+import org.apache.flink.table.types.inference.Signature;
+import org.apache.flink.table.types.inference.TypeInference;
+import org.apache.flink.table.types.logical.ArrayType;
+import org.apache.flink.table.types.logical.LogicalType;
+import org.apache.flink.table.types.logical.utils.LogicalTypeChecks;
+import org.apache.flink.types.Row;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * A Flink UDF that returns an array of ROWs sorted on several columns, as described by a sort
+ * specification such as {@code 'c3 ASC NULLS LAST, c0 DESC'}.
+ *
+ * Each key of the specification is a zero-based column index, optionally prefixed with c, and
+ * optional ASC or DESC (default ASC) and NULLS FIRST or NULLS LAST (default NULLS LAST). Rows
+ * equal on every key keep their input order.
+ *
+ * A specification is parsed once per function instance and kept with its compiled keys, so rows
+ * are sorted without parsing or building comparators. When the specification is a literal, it is
+ * also validated against the ROW type when the query is planned. The rows are sorted with one
+ * stable sort per key, from the least significant, on primitive keys as in SORT_ROW_ARRAY_ON_ID.
+ *
+ * Example SQL usage:
+ * SORT_ROW_ARRAY(ARRAY_AGG(ROW(item_id, item_name, item_description, item_display_order)), 'c3, c0 DESC')
+ */
+public class SortRowArrayFunction extends ScalarFunction {
+    private static final Logger logger = LogManager.getLogger(SortRowArrayFunction.class);
+
+    // distinct specifications kept per function instance
+    static final int MAX_SPECS = 64;
+
+    private transient RowSorter sorter;
+    private transient Map<String, SortKey[]> specs;
+
+    @Override
+    public void open(FunctionContext context) throws Exception {
+        super.open(context);
+        sorter = SortingRowArrayFunction.newSorter(context);
+    }
+
+    /**
+     * Sorts an array of Row objects on the keys of a sort specification.
+     *
+     * @param rows The array of Row objects to sort
+     * @param spec The sort specification, e.g. 'c3 ASC NULLS LAST, c0 DESC'
+     * @return A sorted array of Row objects, or null if input is invalid
+     */
+    public Row[] eval(Row[] rows, String spec) {
+        if (rows == null || spec == null) {
+            logger.warn("Null input provided: rows={}, spec={}", rows, spec);
+            return null;
+        }
+        SortKey[] keys = keys(spec);
+        if (keys == null) {
+            return null;
+        }
+        if (rows.length == 0) {
+            return rows;
+        }
+        int arity = RowSorter.arity(rows);
+        for (SortKey key : keys) {
+            if (key.column >= arity) {
+                logger.error("Invalid column index in sort specification '{}': {}. Row has {} fields.", spec, key.column, arity);
+                return null;
+            }
+        }
+        try {
+            return sorter().sort(rows, keys);
+        } catch (ClassCastException e) {
+            logger.error("Sort specification '{}' has a column that is not comparable: {}", spec, e.getMessage());
+            return null;
+        } catch (Exception e) {
+            logger.error("Error sorting rows: {}", e.getMessage(), e);
+            return null;
+        }
+    }
+
+    /**
+     * @return the compiled keys of the specification, from the cache when it was parsed before,
+     *         or null if it is invalid
+     */
+    SortKey[] keys(String spec) {
+        if (specs == null) {
+            specs = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, SortKey[]> eldest) {
+                    return size() > MAX_SPECS;
+                }
+            };
+        }
+        SortKey[] keys = specs.get(spec);
+        if (keys == null) {
+            try {
+                keys = SortKey.parse(spec);
+            } catch (IllegalArgumentException e) {
+                logger.error("Invalid sort specification '{}': {}", spec, e.getMessage());
+                return null;
+            }
+            specs.put(spec, keys);
+        }
+        return keys;
+    }
+
+    int cachedSpecs() {
+        return specs == null ? 0 : specs.size();
+    }
+
+    /**
+     * Accepts an ARRAY of any ROW type and a STRING specification, and returns the type of the
+     * array. A literal specification is checked against the fields of the ROW type.
+     */
+    @Override
+    public TypeInference getTypeInference(DataTypeFactory typeFactory) {
+        return TypeInference.newBuilder()
+                .inputTypeStrategy(InputTypeStrategies.sequence(RowArrayTypes.ROW_ARRAY, SPEC))
+                .outputTypeStrategy(RowArrayTypes.rowArrayOf(0))
+                .build();
+    }
+
+    private static final ArgumentTypeStrategy SPEC = new ArgumentTypeStrategy() {
+        private final ArgumentTypeStrategy string = InputTypeStrategies.explicit(DataTypes.STRING());
+
+        @Override
+        public Optional<DataType> inferArgumentType(CallContext callContext, int argumentPos, boolean throwOnFailure) {
+            Optional<DataType> type = string.inferArgumentType(callContext, argumentPos, throwOnFailure);
+            if (type.isEmpty() || !callContext.isArgumentLiteral(argumentPos) || callContext.isArgumentNull(argumentPos)) {
+                return type;
+            }
+            String spec = callContext.getArgumentValue(argumentPos, String.class).orElse(null);
+            SortKey[] keys;
+            try {
+                keys = SortKey.parse(spec);
+            } catch (IllegalArgumentException e) {
+                return callContext.fail(throwOnFailure, "Invalid sort specification '%s': %s", spec, e.getMessage());
+            }
+            LogicalType rows = callContext.getArgumentDataTypes().get(0).getLogicalType();
+            if (rows instanceof ArrayType array) {
+                int arity = LogicalTypeChecks.getFieldCount(array.getElementType());
+                for (SortKey key : keys) {
+                    if (key.column >= arity) {
+                        return callContext.fail(throwOnFailure,
+                                "Invalid column index in sort specification '%s': %s. Row has %s fields.", spec, key.column, arity);
+                    }
+                }
+            }
+            return type;
+        }
+
+        @Override
+        public Signature.Argument getExpectedArgument(FunctionDefinition functionDefinition, int argumentPos) {
+            return Signature.Argument.of("STRING");
+        }
+    };
+
+    /**
+     * @return the sorter created in open(), or a new one when the function is called without open()
+     */
+    RowSorter sorter() {
+        if (sorter == null) {
+            sorter = new RowSorter(RowSorter.DEFAULT_PARALLEL_THRESHOLD);
+        }
+        return sorter;
+    }
+
+    /**
+     * Returns a string describing the function.
+     */
+    @Override
+    public String toString() {
+        return "SORT_ROW_ARRAY";
+    }
+}
@@ -0,0 +1,284 @@
+package io.confluent.udf;
+
+import org.apache.flink.table.api.DataTypes;
+import org.apache.flink.table.catalog.DataTypeFactory;
+import org.apache.flink.table.functions.AggregateFunction;
+import org.apache.flink.table.functions.FunctionDefinition;
+import org.apache.flink.table.types.DataType;
+import org.apache.flink.table.types.inference.ArgumentTypeStrategy;
+import org.apache.flink.table.types.inference.CallContext;
+import org.apache.flink.table.types.inference.InputTypeStrategies;
+import org.apache.flink.table.types.inference.Signature;
+import org.apache.flink.table.types.inference.TypeInference;
+import org.apache.flink.table.types.logical.LogicalType;
+import org.apache.flink.table.types.logical.LogicalTypeRoot;
+import org.apache.flink.table.types.logical.utils.LogicalTypeChecks;
+import org.apache.flink.types.Row;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * An aggregate function that collects ROWs into an array sorted on the column referenced by the
+ * given id, replacing {@code SORT_ROW_ARRAY_ON_ID(ARRAY_AGG(row), column)}.
+ *
+ * The accumulator is the array of the group, kept in output order: an accumulated row is inserted
+ * after the rows with a lower or equal value, found by binary search, and a retracted row is
+ * searched among the rows with its value only. getValue returns the array as is, without sorting.
+ * The array is replaced, never modified, so a returned array does not change with later updates.
+ * The order is the one of SORT_ROW_ARRAY_ON_ID: ascending, with null values last, and rows with
+ * equal values in arrival order. Null rows are ignored, and an empty group returns null, as
+ * ARRAY_AGG. The accumulator is a structured type holding an ARRAY of the ROW type, written with
+ * the Flink serializer of the ROW type.
+ *
+ * The column index must be a literal, checked against the fields of the ROW type. The function
+ * supports retraction, so it can aggregate an updating table: a retracted row removes one row
+ * equal to it. Accumulators can be merged, for session window aggregations.
+ *
+ * Example SQL usage:
+ * SELECT asset_id, SORTED_ARRAY_AGG(ROW(item_id, item_name, item_description, item_display_order), 3) AS items
+ * FROM assets_data GROUP BY asset_id
+ */
+public class SortedArrayAggFunction extends AggregateFunction<Row[], SortedArrayAggFunction.SortedRowsAccumulator> {
+    private static final Logger logger = LogManager.getLogger(SortedArrayAggFunction.class);
+    private static final Row[] NO_ROWS = new Row[0];
+
+    /**
+     * Rows of a group, sorted on the column value with null values last, and rows with equal
+     * values in arrival order.
+     */
+    public static class SortedRowsAccumulator {
+        public Row[] rows = NO_ROWS;
+        // sort column, for merge
+        public int column;
+    }
+
+    @Override
+    public SortedRowsAccumulator createAccumulator() {
+        return new SortedRowsAccumulator();
+    }
+
+    /**
+     * Adds a row to the group, after the rows with the same value in the sort column.
+     *
+     * @param acc         Rows of the group
+     * @param row         Row to add; a null row is ignored
+     * @param columnIndex Zero-based index of the column to sort by
+     */
+    public void accumulate(SortedRowsAccumulator acc, Row row, Integer columnIndex) {
+        if (!isValid(row, columnIndex)) {
+            return;
+        }
+        Object value = row.getField(columnIndex);
+        if (value != null && !(value instanceof Comparable)) {
+            logger.error("Column at index {} is not comparable: {}", columnIndex, value.getClass().getName());
+            return;
+        }
+        Row[] rows = acc.rows;
+        int index = upperBound(rows, columnIndex, value);
+        acc.column = columnIndex;
+        Row[] added = new Row[rows.length + 1];
+        System.arraycopy(rows, 0, added, 0, index);
+        added[index] = row;
+        System.arraycopy(rows, index, added, index + 1, rows.length - index);
+        acc.rows = added;
+    }
+
+    /**
+     * Removes a row equal to the given one from the group, if there is one.
+     *
+     * @param acc         Rows of the group
+     * @param row         Row to remove; a null row is ignored
+     * @param columnIndex Zero-based index of the column to sort by
+     */
+    public void retract(SortedRowsAccumulator acc, Row row, Integer columnIndex) {
+        if (!isValid(row, columnIndex)) {
+            return;
+        }
+        Object value = row.getField(columnIndex);
+        if (value != null && !(value instanceof Comparable)) {
+            return;
+        }
+        Row[] rows = acc.rows;
+        int index = lowerBound(rows, columnIndex, value);
+        while (index < rows.length && compare(rows[index].getField(columnIndex), value) == 0 && !rows[index].equals(row)) {
+            index++;
+        }
+        if (index == rows.length || compare(rows[index].getField(columnIndex), value) != 0) {
+            logger.debug("Retracted row not found: {}", row);
+            return;
+        }
+        if (rows.length == 1) {
+            acc.rows = NO_ROWS;
+            return;
+        }
+        Row[] remaining = new Row[rows.length - 1];
+        System.arraycopy(rows, 0, remaining, 0, index);
+        System.arraycopy(rows, index + 1, remaining, index, rows.length - index - 1);
+        acc.rows = remaining;
+    }
+
+    /**
+     * Adds the rows of other groups, after the rows of the group with equal values.
+     *
+     * The arrays are already sorted, so they are merged in one pass, on the column kept by the
+     * accumulators: the column index is not an argument of merge.
+     */
+    public void merge(SortedRowsAccumulator acc, Iterable<SortedRowsAccumulator> others) {
+        for (SortedRowsAccumulator other : others) {
+            Row[] first = acc.rows;
+            Row[] second = other.rows;
+            if (second.length == 0) {
+                continue;
+            }
+            if (first.length == 0) {
+                acc.rows = second;
+                acc.column = other.column;
+                continue;
+            }
+            int column = acc.column;
+            Row[] merged = new Row[first.length + second.length];
+            int i = 0;
+            int j = 0;
+            int count = 0;
+            while (i < first.length && j < second.length) {
+                // equal values keep the rows of the group first
+                if (compare(second[j].getField(column), first[i].getField(column)) < 0) {
+                    merged[count++] = second[j++];
+                } else {
+                    merged[count++] = first[i++];
+                }
+            }
+            System.arraycopy(first, i, merged, count, first.length - i);
+            System.arraycopy(second, j, merged, count + first.length - i, second.length - j);
+            acc.rows = merged;
+        }
+    }
+
+    public void resetAccumulator(SortedRowsAccumulator acc) {
+        acc.rows = NO_ROWS;
+    }
+
+    @Override
+    public Row[] getValue(SortedRowsAccumulator acc) {
+        return acc.rows.length == 0 ? null : acc.rows;
+    }
+
+    /**
+     * @return the index of the first row whose value is not lower than the given one
+     */
+    private static int lowerBound(Row[] rows, int column, Object value) {
+        int low = 0;
+        int high = rows.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (compare(rows[middle].getField(column), value) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @return the index of the first row whose value is higher than the given one
+     */
+    private static int upperBound(Row[] rows, int column, Object value) {
+        int low = 0;
+        int high = rows.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (compare(rows[middle].getField(column), value) <= 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    // ascending, null values last
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static int compare(Object a, Object b) {
+        if (a == null) {
+            return b == null ? 0 : 1;
+        }
+        return b == null ? -1 : ((Comparable) a).compareTo(b);
+    }
+
+    private static boolean isValid(Row row, Integer columnIndex) {
+        if (row == null || columnIndex == null) {
+            return false;
+        }
+        if (columnIndex < 0 || columnIndex >= row.getArity()) {
+            logger.error("Invalid column index: {}. Row has {} fields.", columnIndex, row.getArity());
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Accepts a ROW of any type and a literal INT column index, checked against the fields of the
+     * ROW type, which must be comparable, and returns an array of the ROW type. The accumulator
+     * holds an array of the ROW type.
+     */
+    @Override
+    public TypeInference getTypeInference(DataTypeFactory typeFactory) {
+        return TypeInference.newBuilder()
+                .inputTypeStrategy(InputTypeStrategies.sequence(RowArrayTypes.ROW, COLUMN))
+                .accumulatorTypeStrategy(SortedArrayAggFunction::accumulatorType)
+                .outputTypeStrategy(RowArrayTypes.arrayOfRow(0))
+                .build();
+    }
+
+    private static Optional<DataType> accumulatorType(CallContext callContext) {
+        DataType row = callContext.getArgumentDataTypes().get(0).bridgedTo(Row.class);
+        return Optional.of(DataTypes.STRUCTURED(SortedRowsAccumulator.class,
+                DataTypes.FIELD("rows", DataTypes.ARRAY(row).notNull().bridgedTo(Row[].class)),
+                DataTypes.FIELD("column", DataTypes.INT().notNull().bridgedTo(int.class))));
+    }
+
+    private static final ArgumentTypeStrategy COLUMN = new ArgumentTypeStrategy() {
+        private final ArgumentTypeStrategy integer = InputTypeStrategies.explicit(DataTypes.INT());
+
+        @Override
+        public Optional<DataType> inferArgumentType(CallContext callContext, int argumentPos, boolean throwOnFailure) {
+            Optional<DataType> type = integer.inferArgumentType(callContext, argumentPos, throwOnFailure);
+            if (type.isEmpty()) {
+                return type;
+            }
+            if (!callContext.isArgumentLiteral(argumentPos) || callContext.isArgumentNull(argumentPos)) {
+                return callContext.fail(throwOnFailure, "The column index must be an INT literal.");
+            }
+            Integer column = callContext.getArgumentValue(argumentPos, Integer.class).orElse(null);
+            LogicalType row = callContext.getArgumentDataTypes().get(0).getLogicalType();
+            if (!row.is(LogicalTypeRoot.ROW)) {
+                return type;
+            }
+            List<LogicalType> fields = LogicalTypeChecks.getFieldTypes(row);
+            if (column == null || column < 0 || column >= fields.size()) {
+                return callContext.fail(throwOnFailure, "Invalid column index: %s. Row has %s fields.", column, fields.size());
+            }
+            if (!Comparable.class.isAssignableFrom(fields.get(column).getDefaultConversion())) {
+                return callContext.fail(throwOnFailure, "Column at index %s is not comparable: %s", column, fields.get(column));
+            }
+            return type;
+        }
+
+        @Override
+        public Signature.Argument getExpectedArgument(FunctionDefinition functionDefinition, int argumentPos) {
+            return Signature.Argument.of("INT");
+        }
+    };
+
+    /**
+     * Returns a string describing the function.
+     */
+    @Override
+    public String toString() {
+        return "SORTED_ARRAY_AGG";
+    }
+}
@@ -1,22 +1,31 @@
 package io.confluent.udf;
 
-import org.apache.flink.table.annotation.DataTypeHint;
+import org.apache.flink.table.api.DataTypes;
+import org.apache.flink.table.catalog.DataTypeFactory;
+import org.apache.flink.table.functions.FunctionContext;
 import org.apache.flink.table.functions.ScalarFunction;
+import org.apache.flink.table.types.inference.InputTypeStrategies;
+import org.apache.flink.table.types.inference.TypeInference;
 import org.apache.flink.types.Row;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
-import java.util.Comparator;
-
 /**
  * A Flink UDF that returns a sorted array of ROWs based on the column referenced by the given id.
- * 
+ *
  * This scalar function takes an array of ROW elements as input and generates a new array of ROW
- * elements sorted by the value in the column at the specified index.
- * 
+ * elements sorted by the value in the column at the specified index, in ascending order with null
+ * values last. Rows with equal values keep their input order.
+ *
+ * The function accepts an array of any ROW type: its type inference returns the type of the
+ * input array. Numeric, boolean and DATE columns are sorted on primitive keys extracted once per
+ * row (see {@link RowSorter}). Arrays with at least as many rows as the job parameter
+ * {@value #PARALLEL_THRESHOLD_PARAM} (default {@value RowSorter#DEFAULT_PARALLEL_THRESHOLD}) are
+ * sorted with Arrays.parallelSort, on the common fork-join pool of the task manager.
+ *
  * Example SQL usage:
  * SORT_ROW_ARRAY_ON_ID(ARRAY_AGG(ROW(item_id, item_name, item_description, item_display_order)), 3)
- * 
+ *
  * @param rows List of Row objects to be sorted
  * @param columnIndex Zero-based index of the column to sort by
  * @return Sorted array of Row objects, or null if input is invalid
@@ -24,14 +33,26 @@ import java.util.Comparator;
 public class SortingRowArrayFunction extends ScalarFunction {
     private static final Logger logger = LogManager.getLogger(SortingRowArrayFunction.class);
 
+    static final String PARALLEL_THRESHOLD_PARAM = "sorting_row_array.parallel_threshold";
+
+    private transient RowSorter sorter;
+    // key of the last sorted column
+    private transient SortKey key;
+
+    @Override
+    public void open(FunctionContext context) throws Exception {
+        super.open(context);
+        sorter = newSorter(context);
+    }
+
     /**
      * Sorts an array of Row objects based on a specified column index.
-     * 
+     *
      * @param rows The list of Row objects to sort
      * @param columnIndex The zero-based index of the column to sort by
      * @return A sorted array of Row objects, or null if input is invalid
      */
-    public @DataTypeHint("ARRAY<ROW <item_id INT, item_name STRING, item_description STRING, item_display_order INT>>") Row[] eval(@DataTypeHint("ARRAY<ROW <item_id INT, item_name STRING, item_description STRING, item_display_order INT>>") Row[] rows, Integer columnIndex) {
+    public Row[] eval(Row[] rows, Integer columnIndex) {
         // Validate inputs
         if (rows == null || columnIndex == null) {
             logger.warn("Null input provided: rows={}, columnIndex={}", rows, columnIndex);
@@ -44,25 +65,18 @@ public class SortingRowArrayFunction extends ScalarFunction {
         }
 
         // Validate column index
-        if (columnIndex < 0 || columnIndex >= rows[0].getArity()) {
-            logger.error("Invalid column index: {}. Row has {} fields.", columnIndex, rows[0].getArity());
+        int arity = RowSorter.arity(rows);
+        if (columnIndex < 0 || columnIndex >= arity) {
+            logger.error("Invalid column index: {}. Row has {} fields.", columnIndex, arity);
             return null;
         }
 
         try {
-            // Sort the rows based on the specified column
-            // Using a null-safe comparator to handle null values in the specified column
-            Row[] sortedRows = java.util.Arrays.stream(rows)
-                .sorted(Comparator.comparing(
-                    row -> {
-                        Object field = row.getField(columnIndex);
-                        @SuppressWarnings("unchecked")
-                        Comparable<Object> comparable = field != null ? (Comparable<Object>) field : null;
-                        return comparable;
-                    },
-                    Comparator.nullsLast(Comparator.naturalOrder())
-                ))
-                .toArray(Row[]::new);
+            // Null values and null rows are placed last
+            if (key == null || key.column != columnIndex) {
+                key = SortKey.ascending(columnIndex);
+            }
+            Row[] sortedRows = sorter().sort(rows, key);
 
             logger.debug("Successfully sorted {} rows by column index {}", sortedRows.length, columnIndex);
             return sortedRows;
@@ -76,6 +90,42 @@ public class SortingRowArrayFunction extends ScalarFunction {
         }
     }
 
+    /**
+     * Accepts an ARRAY of any ROW type and an INT column index, and returns the type of the array.
+     */
+    @Override
+    public TypeInference getTypeInference(DataTypeFactory typeFactory) {
+        return TypeInference.newBuilder()
+                .inputTypeStrategy(InputTypeStrategies.sequence(
+                        RowArrayTypes.ROW_ARRAY,
+                        InputTypeStrategies.explicit(DataTypes.INT())))
+                .outputTypeStrategy(RowArrayTypes.rowArrayOf(0))
+                .build();
+    }
+
+    /**
+     * @return the sorter created in open(), or a new one when the function is called without open()
+     */
+    RowSorter sorter() {
+        if (sorter == null) {
+            sorter = new RowSorter(RowSorter.DEFAULT_PARALLEL_THRESHOLD);
+        }
+        return sorter;
+    }
+
+    /**
+     * @return a sorter configured from the job parameters
+     */
+    static RowSorter newSorter(FunctionContext context) {
+        String value = context.getJobParameter(PARALLEL_THRESHOLD_PARAM, String.valueOf(RowSorter.DEFAULT_PARALLEL_THRESHOLD));
+        try {
+            return new RowSorter(Math.max(RowSorter.INSERTION_SORT_MAX_ROWS + 1, Integer.parseInt(value.trim())));
+        } catch (NumberFormatException e) {
+            logger.error("Invalid {} '{}', using {}", PARALLEL_THRESHOLD_PARAM, value, RowSorter.DEFAULT_PARALLEL_THRESHOLD);
+            return new RowSorter(RowSorter.DEFAULT_PARALLEL_THRESHOLD);
+        }
+    }
+
     /**
      * Returns a string describing the function.
      */
@@ -0,0 +1,108 @@
+package io.confluent.udf;
+
+import org.apache.flink.table.api.DataTypes;
+import org.apache.flink.table.catalog.DataTypeFactory;
+import org.apache.flink.table.functions.FunctionContext;
+import org.apache.flink.table.functions.ScalarFunction;
+import org.apache.flink.table.types.inference.InputTypeStrategies;
+import org.apache.flink.table.types.inference.TypeInference;
+import org.apache.flink.types.Row;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * A Flink UDF that returns the first n ROWs of an array sorted on the column referenced by the
+ * given id, without sorting the whole array.
+ *
+ * The rows are ordered as in SORT_ROW_ARRAY_ON_ID: ascending, with null values last, and rows with
+ * equal values keep their input order. They are selected with a bounded heap of the n best rows
+ * seen so far, in O(rows log n): only the n selected rows are copied to the result.
+ *
+ * Example SQL usage:
+ * TOP_N_ROWS(ARRAY_AGG(ROW(item_id, item_name, item_description, item_display_order)), 3, 5)
+ */
+public class TopNRowsFunction extends ScalarFunction {
+    private static final Logger logger = LogManager.getLogger(TopNRowsFunction.class);
+
+    private transient RowSorter sorter;
+    // key of the last selected column
+    private transient SortKey key;
+
+    @Override
+    public void open(FunctionContext context) throws Exception {
+        super.open(context);
+        sorter = SortingRowArrayFunction.newSorter(context);
+    }
+
+    /**
+     * Selects the first rows of an array of Row objects sorted on a specified column index.
+     *
+     * @param rows The array of Row objects to select from
+     * @param columnIndex The zero-based index of the column to sort by
+     * @param n The number of rows to return
+     * @return The first n rows in sorted order, all rows if there are fewer, or null if input is invalid
+     */
+    public Row[] eval(Row[] rows, Integer columnIndex, Integer n) {
+        if (rows == null || columnIndex == null || n == null) {
+            logger.warn("Null input provided: rows={}, columnIndex={}, n={}", rows, columnIndex, n);
+            return null;
+        }
+        if (n < 0) {
+            logger.error("Invalid number of rows: {}", n);
+            return null;
+        }
+        if (rows.length == 0) {
+            return rows;
+        }
+        int arity = RowSorter.arity(rows);
+        if (columnIndex < 0 || columnIndex >= arity) {
+            logger.error("Invalid column index: {}. Row has {} fields.", columnIndex, arity);
+            return null;
+        }
+        try {
+            if (key == null || key.column != columnIndex) {
+                key = SortKey.ascending(columnIndex);
+            }
+            return sorter().top(rows, key, n);
+        } catch (ClassCastException e) {
+            logger.error("Column at index {} is not comparable: {}", columnIndex, e.getMessage());
+            return null;
+        } catch (Exception e) {
+            logger.error("Error selecting rows: {}", e.getMessage(), e);
+            return null;
+        }
+    }
+
+    /**
+     * Accepts an ARRAY of any ROW type, an INT column index and an INT number of rows, and returns
+     * the type of the array.
+     */
+    @Override
+    public TypeInference getTypeInference(DataTypeFactory typeFactory) {
+        return TypeInference.newBuilder()
+                .inputTypeStrategy(InputTypeStrategies.sequence(
+                        RowArrayTypes.ROW_ARRAY,
+                        InputTypeStrategies.explicit(DataTypes.INT()),
+                        InputTypeStrategies.explicit(DataTypes.INT())))
+                .outputTypeStrategy(RowArrayTypes.rowArrayOf(0))
+                .build();
+    }
+
+    /**
+     * @return the sorter created in open(), or a new one when the function is called without open()
+     */
+    RowSorter sorter() {
+        if (sorter == null) {
+            sorter = new RowSorter(RowSorter.DEFAULT_PARALLEL_THRESHOLD);
+        }
+        return sorter;
+    }
+
+    /**
+     * Returns a string describing the function.
+     */
+    @Override
+    public String toString() {
+        return "TOP_N_ROWS";
+    }
+}
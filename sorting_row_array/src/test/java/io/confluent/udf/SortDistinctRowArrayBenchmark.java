@@ -0,0 +1,74 @@
+package io.confluent.udf;
+
+import org.apache.flink.types.Row;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH comparison of SORT_DISTINCT_ROW_ARRAY against keeping the last row of each item id in a
+ * LinkedHashMap and sorting the distinct rows with SORT_ROW_ARRAY_ON_ID ({@code distinctThenSort}).
+ * Rows are {@code ROW(item_id INT, item_name STRING, item_display_order INT)} with each item id
+ * twice on average, as after replays, sorted on the display order ({@code column = 2}) or on the
+ * item id ({@code column = 0}).
+ *
+ * <p>Run with: {@code mvn -Pbenchmark test-compile exec:exec -Dbenchmark=SortDistinctRowArrayBenchmark}
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SortDistinctRowArrayBenchmark {
+
+    @Param({"50", "5000", "50000"})
+    public int size;
+
+    @Param({"2", "0"})
+    public int column;
+
+    private Row[] rows;
+    private SortDistinctRowArrayFunction function;
+    private SortingRowArrayFunction sortFunction;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        rows = new Row[size];
+        for (int i = 0; i < size; i++) {
+            int itemId = random.nextInt(Math.max(1, size / 2));
+            rows[i] = Row.of(itemId, "item" + itemId, random.nextInt(size));
+        }
+        function = new SortDistinctRowArrayFunction();
+        sortFunction = new SortingRowArrayFunction();
+    }
+
+    @Benchmark
+    public Row[] sortDistinct() {
+        return function.eval(rows, column, 0, "KEEP_LAST");
+    }
+
+    @Benchmark
+    public Row[] distinctThenSort() {
+        Map<Object, Row> distinct = new LinkedHashMap<>();
+        for (Row row : rows) {
+            distinct.remove(row.getField(0));
+            distinct.put(row.getField(0), row);
+        }
+        return sortFunction.eval(distinct.values().toArray(new Row[0]), column);
+    }
+}
@@ -0,0 +1,150 @@
+package io.confluent.udf;
+
+import org.apache.flink.table.api.DataTypes;
+import org.apache.flink.table.api.ValidationException;
+import org.apache.flink.table.types.DataType;
+import org.apache.flink.table.types.inference.TypeInference;
+import org.apache.flink.types.Row;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.IntFunction;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SortDistinctRowArrayFunctionTest {
+    private SortDistinctRowArrayFunction function;
+
+    // ROW(item_id INT, version INT, item_display_order INT), item 1 and 3 updated
+    private final Row[] rows = new Row[]{
+            Row.of(1, 1, 5),
+            Row.of(2, 1, 2),
+            Row.of(3, 1, 4),
+            Row.of(1, 2, 1),
+            Row.of(3, 2, null),
+            Row.of(1, 3, 3)
+    };
+
+    @BeforeEach
+    void setUp() {
+        function = new SortDistinctRowArrayFunction();
+    }
+
+    private static String versions(Row[] sorted) {
+        return Arrays.stream(sorted).map(row -> row.getField(0) + "v" + row.getField(1)).reduce((a, b) -> a + " " + b).orElse("");
+    }
+
+    @Test
+    void testKeepLast() {
+        assertEquals("2v1 1v3 3v2", versions(function.eval(rows, 2, 0, "KEEP_LAST")));
+    }
+
+    @Test
+    void testKeepFirst() {
+        assertEquals("2v1 3v1 1v1", versions(function.eval(rows, 2, 0, "keep_first")));
+    }
+
+    @Test
+    void testSortOnKeyColumn() {
+        assertEquals("1v3 2v1 3v2", versions(function.eval(rows, 0, 0, "KEEP_LAST")));
+        assertEquals("1v1 2v1 3v1", versions(function.eval(rows, 0, 0, "KEEP_FIRST")));
+    }
+
+    @Test
+    void testNullKeysAreOneKey() {
+        Row[] withNulls = {Row.of(null, "a", 2), null, Row.of(1, "b", 1), Row.of(null, "c", 0)};
+        assertEquals(2, function.eval(withNulls, 2, 0, "KEEP_LAST").length);
+        assertSame(withNulls[3], function.eval(withNulls, 2, 0, "KEEP_LAST")[0]);
+        assertSame(withNulls[0], function.eval(withNulls, 2, 0, "KEEP_FIRST")[1]);
+        Row[] stringKeys = {Row.of(null, "a", 2), Row.of(1, null, 1), Row.of(2, null, 0), Row.of(3, "a", 3)};
+        assertEquals("2vnull 3va", versions(function.eval(stringKeys, 2, 1, "KEEP_LAST")));
+    }
+
+    @Test
+    void testNullFirstRow() {
+        Row[] withNullFirst = {null, Row.of(1, "a", 2), Row.of(1, "b", 1), Row.of(2, "c", 0)};
+        // the null row has the null key, and is last
+        assertArrayEquals(new Row[]{withNullFirst[3], withNullFirst[2], null}, function.eval(withNullFirst, 2, 0, "KEEP_LAST"));
+        assertNull(function.eval(withNullFirst, 3, 0, "KEEP_LAST"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testMatchesDistinctThenSort() {
+        Random random = new Random(42);
+        IntFunction<Object>[] keys = new IntFunction[]{
+                i -> random.nextInt(40),
+                i -> random.nextInt(10) == 0 ? null : random.nextLong() % 50,
+                i -> random.nextInt(40) / 4.0,
+                i -> "item" + random.nextInt(40)
+        };
+        SortingRowArrayFunction sort = new SortingRowArrayFunction();
+        for (IntFunction<Object> key : keys) {
+            for (int size : new int[]{1, 20, 300, 3000}) {
+                Row[] many = new Row[size];
+                for (int i = 0; i < size; i++) {
+                    many[i] = Row.of(i, key.apply(i), random.nextInt(5) == 0 ? null : random.nextInt(size));
+                }
+                for (boolean keepLast : new boolean[]{false, true}) {
+                    Map<Object, Row> distinct = new LinkedHashMap<>();
+                    for (Row row : many) {
+                        if (keepLast) {
+                            distinct.remove(row.getField(1));
+                        }
+                        distinct.putIfAbsent(row.getField(1), row);
+                    }
+                    String mode = keepLast ? "KEEP_LAST" : "KEEP_FIRST";
+                    for (int sortColumn : new int[]{1, 2}) {
+                        Row[] expected = sort.eval(distinct.values().toArray(new Row[0]), sortColumn);
+                        Row[] sorted = function.eval(many, sortColumn, 1, mode);
+                        assertEquals(expected.length, sorted.length);
+                        for (int i = 0; i < expected.length; i++) {
+                            assertSame(expected[i], sorted[i], mode + ", size " + size + ", column " + sortColumn + ", row " + i);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void testInvalidInputReturnsNull() {
+        assertNull(function.eval(null, 0, 0, "KEEP_LAST"));
+        assertNull(function.eval(rows, null, 0, "KEEP_LAST"));
+        assertNull(function.eval(rows, 0, null, "KEEP_LAST"));
+        assertNull(function.eval(rows, 0, 0, null));
+        assertNull(function.eval(rows, 0, 0, "KEEP_ANY"));
+        assertNull(function.eval(rows, 3, 0, "KEEP_LAST"));
+        assertNull(function.eval(rows, 0, -1, "KEEP_LAST"));
+        assertNull(function.eval(new Row[]{Row.of(1, "a"), Row.of(2, 3)}, 1, 0, "KEEP_LAST"));
+        assertEquals(0, function.eval(new Row[0], 0, 0, "KEEP_LAST").length);
+    }
+
+    @Test
+    void testTypeInferenceChecksLiteralMode() {
+        TypeInference inference = function.getTypeInference(null);
+        DataType rowArray = DataTypes.ARRAY(DataTypes.ROW(
+                DataTypes.FIELD("item_id", DataTypes.INT()),
+                DataTypes.FIELD("item_display_order", DataTypes.INT())));
+        TestCallContext call = new TestCallContext(rowArray, DataTypes.INT(), DataTypes.INT(), DataTypes.STRING());
+        assertTrue(inference.getInputTypeStrategy().inferInputTypes(call, false).isPresent());
+        assertEquals(rowArray.getLogicalType(), inference.getOutputTypeStrategy().inferType(call).orElseThrow().getLogicalType());
+        TestCallContext valid = new TestCallContext(rowArray, DataTypes.INT(), DataTypes.INT(), DataTypes.CHAR(10).notNull())
+                .withLiteral(3, "keep_first");
+        assertTrue(inference.getInputTypeStrategy().inferInputTypes(valid, false).isPresent());
+        TestCallContext invalid = new TestCallContext(rowArray, DataTypes.INT(), DataTypes.INT(), DataTypes.STRING())
+                .withLiteral(3, "KEEP_ALL");
+        ValidationException e = assertThrows(ValidationException.class,
+                () -> inference.getInputTypeStrategy().inferInputTypes(invalid, true));
+        assertTrue(e.getMessage().contains("KEEP_FIRST or KEEP_LAST"), e.getMessage());
+    }
+
+    @Test
+    void testToString() {
+        assertEquals("SORT_DISTINCT_ROW_ARRAY", function.toString());
+    }
+}
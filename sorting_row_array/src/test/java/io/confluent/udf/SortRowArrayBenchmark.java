@@ -0,0 +1,84 @@
+package io.confluent.udf;
+
+import org.apache.flink.types.Row;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH comparison of SORT_ROW_ARRAY against a sort of the rows with a comparator chain on the boxed
+ * column values ({@code comparatorSort}), and against parsing the specification on every call
+ * ({@code uncachedSpecSort}). Rows are
+ * {@code ROW(item_id INT, item_name STRING, price DOUBLE, display_order INT, updated_at BIGINT)}
+ * items with 10 display orders, sorted with {@link #spec}.
+ *
+ * <p>Run with: {@code mvn -Pbenchmark test-compile exec:exec -Dbenchmark=SortRowArrayBenchmark}
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SortRowArrayBenchmark {
+
+    @Param({"50", "5000", "50000"})
+    public int size;
+
+    @Param({"c3, c4 DESC", "c1 NULLS FIRST, c0 DESC"})
+    public String spec;
+
+    private Row[] rows;
+    private SortRowArrayFunction function;
+    private RowSorter sorter;
+    private Comparator<Row> comparator;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        Random random = new Random(42);
+        rows = new Row[size];
+        for (int i = 0; i < size; i++) {
+            rows[i] = Row.of(random.nextInt(1_000_000), "item" + random.nextInt(1_000), random.nextInt(100_000) / 100.0,
+                    random.nextInt(10), 1_700_000_000_000L + random.nextInt(Integer.MAX_VALUE) * 1000L);
+        }
+        function = new SortRowArrayFunction();
+        sorter = new RowSorter(RowSorter.DEFAULT_PARALLEL_THRESHOLD);
+        // the comparator a query would otherwise build once for the specification
+        SortKey[] keys = SortKey.parse(spec);
+        comparator = keys[0].comparator;
+        for (int k = 1; k < keys.length; k++) {
+            comparator = comparator.thenComparing(keys[k].comparator);
+        }
+    }
+
+    @Benchmark
+    public Row[] sort() {
+        return function.eval(rows, spec);
+    }
+
+    @Benchmark
+    public Row[] uncachedSpecSort() {
+        return sorter.sort(rows, SortKey.parse(spec));
+    }
+
+    @Benchmark
+    public Row[] comparatorSort() {
+        Row[] sorted = rows.clone();
+        Arrays.sort(sorted, comparator);
+        return sorted;
+    }
+}
@@ -0,0 +1,177 @@
+package io.confluent.udf;
+
+import org.apache.flink.configuration.Configuration;
+import org.apache.flink.table.api.DataTypes;
+import org.apache.flink.table.api.ValidationException;
+import org.apache.flink.table.functions.FunctionContext;
+import org.apache.flink.table.types.DataType;
+import org.apache.flink.table.types.inference.TypeInference;
+import org.apache.flink.types.Row;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SortRowArrayFunctionTest {
+    private SortRowArrayFunction function;
+
+    // ROW(item_id INT, item_name STRING, price DOUBLE, item_display_order INT)
+    private final Row[] rows = new Row[]{
+            Row.of(1, "b", 9.5, 2),
+            Row.of(2, "a", null, 1),
+            Row.of(3, "c", 1.0, 2),
+            Row.of(4, null, 9.5, 1),
+            Row.of(5, "a", 1.0, null)
+    };
+
+    @BeforeEach
+    void setUp() {
+        function = new SortRowArrayFunction();
+    }
+
+    private static int[] ids(Row[] sorted) {
+        return Arrays.stream(sorted).mapToInt(row -> (Integer) row.getField(0)).toArray();
+    }
+
+    @Test
+    void testSortOnSeveralKeys() {
+        assertArrayEquals(new int[]{4, 2, 3, 1, 5}, ids(function.eval(rows, "c3 ASC NULLS LAST, c0 DESC")));
+        assertArrayEquals(new int[]{5, 2, 4, 1, 3}, ids(function.eval(rows, "c3 NULLS FIRST, c0")));
+        assertArrayEquals(new int[]{1, 4, 3, 5, 2}, ids(function.eval(rows, "c2 DESC, c3 DESC")));
+        assertArrayEquals(new int[]{4, 5, 2, 1, 3}, ids(function.eval(rows, "c1 NULLS FIRST, c2")));
+    }
+
+    @Test
+    void testDefaultsAreAscendingNullsLast() {
+        Row[] sorted = function.eval(rows, "2");
+        assertArrayEquals(new int[]{3, 5, 1, 4, 2}, ids(sorted));
+        assertArrayEquals(ids(new SortingRowArrayFunction().eval(rows, 2)), ids(sorted));
+    }
+
+    @Test
+    void testSpecIsCaseInsensitive() {
+        assertArrayEquals(ids(function.eval(rows, "c3 DESC NULLS FIRST, c0 ASC")),
+                ids(function.eval(rows, " C3 desc  nulls first ,3")));
+    }
+
+    @Test
+    void testDescendingKeepsInputOrderOfEqualValues() {
+        assertArrayEquals(new int[]{1, 3, 2, 4, 5}, ids(function.eval(rows, "c3 DESC")));
+    }
+
+    @Test
+    void testMatchesComparatorSort() {
+        Random random = new Random(42);
+        Row[] many = new Row[3000];
+        for (int i = 0; i < many.length; i++) {
+            many[i] = Row.of(i, random.nextInt(5) == 0 ? null : "item" + random.nextInt(20),
+                    random.nextInt(5) == 0 ? null : random.nextInt(10) / 2.0, (long) random.nextInt(4));
+        }
+        Comparator<Row> comparator = Comparator
+                .comparing((Row row) -> (Long) row.getField(3), Comparator.reverseOrder())
+                .thenComparing(row -> (String) row.getField(1), Comparator.nullsFirst(Comparator.naturalOrder()))
+                .thenComparing(row -> (Double) row.getField(2), Comparator.nullsLast(Comparator.reverseOrder()));
+        Row[] expected = many.clone();
+        Arrays.sort(expected, comparator);
+        Row[] sorted = function.eval(many, "c3 DESC, c1 NULLS FIRST, c2 DESC NULLS LAST");
+        for (int i = 0; i < expected.length; i++) {
+            assertSame(expected[i], sorted[i], "row " + i);
+        }
+    }
+
+    @Test
+    void testSpecIsParsedOnce() {
+        function.eval(rows, "c3, c0 DESC");
+        SortKey[] keys = function.keys("c3, c0 DESC");
+        function.eval(rows, "c3, c0 DESC");
+        assertSame(keys, function.keys("c3, c0 DESC"));
+        assertEquals(1, function.cachedSpecs());
+        for (int i = 0; i < SortRowArrayFunction.MAX_SPECS + 10; i++) {
+            function.eval(rows, "c" + i % 4 + ", c0 DESC " + "NULLS FIRST".substring(0, i % 2 * 11));
+        }
+        assertTrue(function.cachedSpecs() <= SortRowArrayFunction.MAX_SPECS);
+    }
+
+    @Test
+    void testSortKeyParsing() {
+        SortKey[] keys = SortKey.parse("c3 ASC NULLS LAST, 0 desc, c12 NULLS FIRST");
+        assertEquals("[c3 ASC NULLS LAST, c0 DESC NULLS LAST, c12 ASC NULLS FIRST]", Arrays.toString(keys));
+        assertThrows(IllegalArgumentException.class, () -> SortKey.parse(""));
+        assertThrows(IllegalArgumentException.class, () -> SortKey.parse("c3,"));
+        assertThrows(IllegalArgumentException.class, () -> SortKey.parse("item_id"));
+        assertThrows(IllegalArgumentException.class, () -> SortKey.parse("c1 DOWN"));
+        assertThrows(IllegalArgumentException.class, () -> SortKey.parse("c-1"));
+        assertThrows(IllegalArgumentException.class, () -> SortKey.parse("c99999999999"));
+    }
+
+    @Test
+    void testInvalidInputReturnsNull() {
+        assertNull(function.eval(null, "c0"));
+        assertNull(function.eval(rows, null));
+        assertNull(function.eval(rows, "c0 SIDEWAYS"));
+        assertNull(function.eval(rows, "c4"));
+        assertNull(function.eval(new Row[]{Row.of(1, "a"), Row.of(2, 3)}, "c1"));
+        assertEquals(0, function.eval(new Row[0], "c0").length);
+    }
+
+    @Test
+    void testResultIsANewArray() {
+        Row[] sorted = function.eval(rows, "c0");
+        assertNotSame(rows, sorted);
+        assertArrayEquals(rows, sorted);
+    }
+
+    @Test
+    void testParallelSortAboveThreshold() throws Exception {
+        Configuration conf = new Configuration();
+        conf.setString(SortingRowArrayFunction.PARALLEL_THRESHOLD_PARAM, "100");
+        function.open(new FunctionContext(null, null, conf));
+        Random random = new Random(3);
+        Row[] many = new Row[5000];
+        for (int i = 0; i < many.length; i++) {
+            many[i] = Row.of(i, random.nextInt(50), "item" + random.nextInt(50));
+        }
+        Row[] sorted = function.eval(many, "c1 DESC, c2, c0 DESC");
+        for (int i = 1; i < sorted.length; i++) {
+            Row previous = sorted[i - 1];
+            Row current = sorted[i];
+            int order = Integer.compare((Integer) current.getField(1), (Integer) previous.getField(1));
+            if (order == 0) {
+                order = ((String) previous.getField(2)).compareTo((String) current.getField(2));
+            }
+            if (order == 0) {
+                order = Integer.compare((Integer) current.getField(0), (Integer) previous.getField(0));
+            }
+            assertTrue(order < 0, "row " + i);
+        }
+    }
+
+    @Test
+    void testTypeInferenceChecksLiteralSpec() {
+        TypeInference inference = function.getTypeInference(null);
+        DataType rowArray = DataTypes.ARRAY(DataTypes.ROW(
+                DataTypes.FIELD("item_id", DataTypes.INT()),
+                DataTypes.FIELD("item_display_order", DataTypes.INT())));
+        TestCallContext column = new TestCallContext(rowArray, DataTypes.STRING());
+        assertTrue(inference.getInputTypeStrategy().inferInputTypes(column, false).isPresent());
+        TestCallContext valid = new TestCallContext(rowArray, DataTypes.CHAR(9).notNull()).withLiteral(1, "c1, c0 DESC");
+        assertEquals(DataTypes.STRING(), inference.getInputTypeStrategy().inferInputTypes(valid, false).orElseThrow().get(1));
+        assertEquals(rowArray.getLogicalType(), inference.getOutputTypeStrategy().inferType(valid).orElseThrow().getLogicalType());
+
+        TestCallContext outOfRow = new TestCallContext(rowArray, DataTypes.STRING()).withLiteral(1, "c2");
+        ValidationException e = assertThrows(ValidationException.class,
+                () -> inference.getInputTypeStrategy().inferInputTypes(outOfRow, true));
+        assertTrue(e.getMessage().contains("Row has 2 fields"), e.getMessage());
+        TestCallContext invalid = new TestCallContext(rowArray, DataTypes.STRING()).withLiteral(1, "c0 UP");
+        assertFalse(inference.getInputTypeStrategy().inferInputTypes(invalid, false).isPresent());
+    }
+
+    @Test
+    void testToString() {
+        assertEquals("SORT_ROW_ARRAY", function.toString());
+    }
+}
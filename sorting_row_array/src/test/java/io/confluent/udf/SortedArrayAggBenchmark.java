@@ -0,0 +1,154 @@
+package io.confluent.udf;
+
+import org.apache.flink.api.common.serialization.SerializerConfigImpl;
+import org.apache.flink.api.common.typeinfo.Types;
+import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.api.java.typeutils.ObjectArrayTypeInfo;
+import org.apache.flink.core.memory.DataInputDeserializer;
+import org.apache.flink.core.memory.DataOutputSerializer;
+import org.apache.flink.types.Row;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH replay of a changelog of item updates to one asset, as in cc-flink/test_sorting_row_array.sql,
+ * aggregated with SORTED_ARRAY_AGG and with {@code SORT_ROW_ARRAY_ON_ID(ARRAY_AGG(row), 3)}
+ * ({@code arrayAggAndSort}). Each operation is one update: the retraction of the previous version
+ * of an item, the new version, and the sorted array of the asset. The asset holds {@link #size}
+ * items of {@code ROW(item_id INT, item_name STRING, item_description STRING, item_display_order INT)}.
+ *
+ * <p>With {@link #serialized}, the accumulators live in serialized form, as in a RocksDB state
+ * backend: both are deserialized and serialized whole on every update, with the Flink serializer
+ * of {@code ARRAY<ROW>}, as the sorted array of SORTED_ARRAY_AGG and the list of ARRAY_AGG,
+ * rewritten by its retraction, are read and written whole. Otherwise they stay on the heap.
+ *
+ * <p>Run with: {@code mvn -Pbenchmark test-compile exec:exec -Dbenchmark=SortedArrayAggBenchmark}
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SortedArrayAggBenchmark {
+    private static final int UPDATES = 1024;
+    private static final int COLUMN = 3;
+
+    @Param({"10", "100", "1000", "10000"})
+    public int size;
+
+    @Param({"false", "true"})
+    public boolean serialized;
+
+    // retracted and accumulated row of each update; the second half reverts the first one
+    private Row[] retracted;
+    private Row[] accumulated;
+    private int update;
+
+    private SortedArrayAggFunction function;
+    private SortedArrayAggFunction.SortedRowsAccumulator acc;
+    private byte[] sortedArrayAgg;
+    private TypeSerializer<Row[]> rowsSerializer;
+    private DataOutputSerializer out;
+    private byte[] arrayAgg;
+    private Row[] arrayAggRows;
+    private SortingRowArrayFunction sort;
+
+    @Setup
+    public void setUp() throws Exception {
+        Random random = new Random(42);
+        Row[] items = new Row[size];
+        rowsSerializer = ObjectArrayTypeInfo.getInfoFor(Row[].class,
+                Types.ROW(Types.INT, Types.STRING, Types.STRING, Types.INT)).createSerializer(new SerializerConfigImpl());
+        out = new DataOutputSerializer(64 * size);
+        function = new SortedArrayAggFunction();
+        acc = function.createAccumulator();
+        for (int i = 0; i < size; i++) {
+            items[i] = item(i, random.nextInt(size));
+            function.accumulate(acc, items[i], COLUMN);
+        }
+        sortedArrayAgg = serialize(rowsSerializer, out, acc.rows);
+        arrayAgg = serialize(rowsSerializer, out, items);
+        arrayAggRows = items.clone();
+        retracted = new Row[UPDATES];
+        accumulated = new Row[UPDATES];
+        for (int u = 0; u < UPDATES / 2; u++) {
+            int i = random.nextInt(size);
+            Row next = item(i, random.nextInt(size));
+            retracted[u] = items[i];
+            accumulated[u] = next;
+            retracted[UPDATES - 1 - u] = next;
+            accumulated[UPDATES - 1 - u] = items[i];
+            items[i] = next;
+        }
+        sort = new SortingRowArrayFunction();
+    }
+
+    private static Row item(int id, int displayOrder) {
+        return Row.of(id, "item" + id, "description" + id, displayOrder);
+    }
+
+    @Benchmark
+    public Row[] sortedArrayAgg() {
+        int u = update++ & (UPDATES - 1);
+        if (serialized) {
+            acc.rows = deserialize(rowsSerializer, sortedArrayAgg);
+        }
+        function.retract(acc, retracted[u], COLUMN);
+        function.accumulate(acc, accumulated[u], COLUMN);
+        if (serialized) {
+            sortedArrayAgg = serialize(rowsSerializer, out, acc.rows);
+        }
+        return function.getValue(acc);
+    }
+
+    @Benchmark
+    public Row[] arrayAggAndSort() {
+        int u = update++ & (UPDATES - 1);
+        List<Row> rows = new ArrayList<>(Arrays.asList(serialized ? deserialize(rowsSerializer, arrayAgg) : arrayAggRows));
+        rows.remove(retracted[u]);
+        rows.add(accumulated[u]);
+        Row[] array = rows.toArray(new Row[0]);
+        if (serialized) {
+            arrayAgg = serialize(rowsSerializer, out, array);
+        } else {
+            arrayAggRows = array;
+        }
+        return sort.eval(array, COLUMN);
+    }
+
+    private static byte[] serialize(TypeSerializer<Row[]> serializer, DataOutputSerializer out, Row[] rows) {
+        try {
+            out.clear();
+            serializer.serialize(rows, out);
+            return out.getCopyOfBuffer();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static Row[] deserialize(TypeSerializer<Row[]> serializer, byte[] bytes) {
+        try {
+            return serializer.deserialize(new DataInputDeserializer(bytes));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
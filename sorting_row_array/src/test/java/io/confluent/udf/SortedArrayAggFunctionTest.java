@@ -0,0 +1,175 @@
+package io.confluent.udf;
+
+import org.apache.flink.table.api.DataTypes;
+import org.apache.flink.table.api.ValidationException;
+import org.apache.flink.table.types.DataType;
+import org.apache.flink.table.types.inference.TypeInference;
+import org.apache.flink.table.types.logical.LogicalTypeRoot;
+import org.apache.flink.types.Row;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SortedArrayAggFunctionTest {
+    private SortedArrayAggFunction function;
+    private SortedArrayAggFunction.SortedRowsAccumulator acc;
+
+    @BeforeEach
+    void setUp() {
+        function = new SortedArrayAggFunction();
+        acc = function.createAccumulator();
+    }
+
+    private static int[] ids(Row[] sorted) {
+        return Arrays.stream(sorted).mapToInt(row -> (Integer) row.getField(0)).toArray();
+    }
+
+    @Test
+    void testRowsAreSortedOnColumn() {
+        // the rows of cc-flink/test_sorting_row_array.sql for asset 10
+        function.accumulate(acc, Row.of(1, "item1", "description1", 2), 3);
+        function.accumulate(acc, Row.of(3, "item3", "description3", 5), 3);
+        function.accumulate(acc, Row.of(4, "item4", "description4", 3), 3);
+        assertArrayEquals(new int[]{1, 4, 3}, ids(function.getValue(acc)));
+    }
+
+    @Test
+    void testEqualValuesKeepArrivalOrderAndNullsAreLast() {
+        function.accumulate(acc, Row.of(1, null), 1);
+        function.accumulate(acc, Row.of(2, "b"), 1);
+        function.accumulate(acc, Row.of(3, "a"), 1);
+        function.accumulate(acc, Row.of(4, null), 1);
+        function.accumulate(acc, Row.of(5, "b"), 1);
+        function.accumulate(acc, Row.of(6, "a"), 1);
+        assertArrayEquals(new int[]{3, 6, 2, 5, 1, 4}, ids(function.getValue(acc)));
+    }
+
+    @Test
+    void testRetractRemovesOneEqualRow() {
+        function.accumulate(acc, Row.of(1, 10), 1);
+        function.accumulate(acc, Row.of(2, 20), 1);
+        function.accumulate(acc, Row.of(1, 10), 1);
+        function.accumulate(acc, Row.of(3, null), 1);
+        function.retract(acc, Row.of(1, 10), 1);
+        assertArrayEquals(new int[]{1, 2, 3}, ids(function.getValue(acc)));
+        function.retract(acc, Row.of(3, null), 1);
+        function.retract(acc, Row.of(9, 10), 1);
+        function.retract(acc, Row.of(9, 99), 1);
+        assertArrayEquals(new int[]{1, 2}, ids(function.getValue(acc)));
+        function.retract(acc, Row.of(1, 10), 1);
+        function.retract(acc, Row.of(2, 20), 1);
+        assertNull(function.getValue(acc));
+        assertEquals(0, acc.rows.length);
+    }
+
+    @Test
+    void testChangelogMatchesArrayAggAndSort() {
+        Random random = new Random(42);
+        List<Row> arrayAgg = new ArrayList<>();
+        SortingRowArrayFunction sort = new SortingRowArrayFunction();
+        for (int update = 0; update < 5000; update++) {
+            if (!arrayAgg.isEmpty() && random.nextInt(3) > 0) {
+                // ARRAY_AGG retracts the first equal row too
+                Row old = arrayAgg.get(random.nextInt(arrayAgg.size()));
+                arrayAgg.remove(old);
+                function.retract(acc, old, 2);
+            }
+            Row row = Row.of(random.nextInt(100), "item" + random.nextInt(100), random.nextInt(10) == 0 ? null : random.nextInt(30));
+            arrayAgg.add(row);
+            function.accumulate(acc, row, 2);
+            assertArrayEquals(sort.eval(arrayAgg.toArray(new Row[0]), 2), function.getValue(acc), "update " + update);
+        }
+    }
+
+    @Test
+    void testReturnedArrayDoesNotChange() {
+        function.accumulate(acc, Row.of(1, 20), 1);
+        function.accumulate(acc, Row.of(2, 10), 1);
+        Row[] sorted = function.getValue(acc);
+        function.accumulate(acc, Row.of(3, 5), 1);
+        function.retract(acc, Row.of(2, 10), 1);
+        assertArrayEquals(new int[]{2, 1}, ids(sorted));
+        assertArrayEquals(new int[]{3, 1}, ids(function.getValue(acc)));
+    }
+
+    @Test
+    void testMerge() {
+        SortedArrayAggFunction.SortedRowsAccumulator other = function.createAccumulator();
+        SortedArrayAggFunction.SortedRowsAccumulator empty = function.createAccumulator();
+        function.accumulate(acc, Row.of(1, 2L), 1);
+        function.accumulate(acc, Row.of(2, null), 1);
+        function.accumulate(other, Row.of(3, 2L), 1);
+        function.accumulate(other, Row.of(4, 1L), 1);
+        function.accumulate(other, Row.of(5, null), 1);
+        function.merge(acc, List.of(other, empty));
+        assertArrayEquals(new int[]{4, 1, 3, 2, 5}, ids(function.getValue(acc)));
+        function.retract(acc, Row.of(3, 2L), 1);
+        assertArrayEquals(new int[]{4, 1, 2, 5}, ids(function.getValue(acc)));
+        function.resetAccumulator(acc);
+        assertNull(function.getValue(acc));
+    }
+
+    @Test
+    void testInvalidRowsAreIgnored() {
+        function.accumulate(acc, null, 0);
+        function.accumulate(acc, Row.of(1, "a"), null);
+        function.accumulate(acc, Row.of(1, "a"), 2);
+        function.accumulate(acc, Row.of(1, "a"), -1);
+        assertNull(function.getValue(acc));
+        function.accumulate(acc, Row.of(1, "a"), 1);
+        function.accumulate(acc, Row.of(2, new byte[]{3}), 1);
+        function.retract(acc, Row.of(2, new byte[]{3}), 1);
+        assertArrayEquals(new int[]{1}, ids(function.getValue(acc)));
+    }
+
+    @Test
+    void testAccumulatorType() {
+        TypeInference inference = function.getTypeInference(null);
+        DataType row = DataTypes.ROW(
+                DataTypes.FIELD("item_id", DataTypes.INT()),
+                DataTypes.FIELD("item_name", DataTypes.STRING()));
+        TestCallContext call = new TestCallContext(row, DataTypes.INT().notNull()).withLiteral(1, 1);
+        DataType accumulator = inference.getAccumulatorTypeStrategy().orElseThrow().inferType(call).orElseThrow();
+        assertEquals(LogicalTypeRoot.STRUCTURED_TYPE, accumulator.getLogicalType().getTypeRoot());
+        assertEquals(SortedArrayAggFunction.SortedRowsAccumulator.class, accumulator.getConversionClass());
+        // the rows, serialized with the Flink serializer of the ROW type, and the sort column
+        DataType rows = DataType.getFields(accumulator).get(0).getDataType();
+        assertEquals(DataTypes.ARRAY(row).notNull().getLogicalType(), rows.getLogicalType());
+        assertEquals(Row[].class, rows.getConversionClass());
+        assertEquals(int.class, DataType.getFields(accumulator).get(1).getDataType().getConversionClass());
+    }
+
+    @Test
+    void testTypeInference() {
+        TypeInference inference = function.getTypeInference(null);
+        DataType row = DataTypes.ROW(
+                DataTypes.FIELD("item_id", DataTypes.INT()),
+                DataTypes.FIELD("payload", DataTypes.BYTES()));
+        TestCallContext call = new TestCallContext(row, DataTypes.INT().notNull()).withLiteral(1, 0);
+        assertTrue(inference.getInputTypeStrategy().inferInputTypes(call, false).isPresent());
+        assertEquals(DataTypes.ARRAY(row).getLogicalType(),
+                inference.getOutputTypeStrategy().inferType(call).orElseThrow().getLogicalType());
+        TestCallContext column = new TestCallContext(row, DataTypes.INT());
+        assertFalse(inference.getInputTypeStrategy().inferInputTypes(column, false).isPresent(), "column index not a literal");
+
+        TestCallContext outOfRow = new TestCallContext(row, DataTypes.INT()).withLiteral(1, 2);
+        ValidationException e = assertThrows(ValidationException.class,
+                () -> inference.getInputTypeStrategy().inferInputTypes(outOfRow, true));
+        assertTrue(e.getMessage().contains("Row has 2 fields"), e.getMessage());
+        TestCallContext bytes = new TestCallContext(row, DataTypes.INT()).withLiteral(1, 1);
+        assertFalse(inference.getInputTypeStrategy().inferInputTypes(bytes, false).isPresent());
+        TestCallContext notRow = new TestCallContext(DataTypes.INT(), DataTypes.INT()).withLiteral(1, 0);
+        assertFalse(inference.getInputTypeStrategy().inferInputTypes(notRow, false).isPresent());
+    }
+
+    @Test
+    void testToString() {
+        assertEquals("SORTED_ARRAY_AGG", function.toString());
+    }
+}
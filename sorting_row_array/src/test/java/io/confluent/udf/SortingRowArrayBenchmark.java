@@ -0,0 +1,82 @@
+package io.confluent.udf;
+
+import org.apache.flink.types.Row;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH comparison of SORT_ROW_ARRAY_ON_ID against the implementation that sorted a stream of rows
+ * with a comparator on the boxed column values ({@code streamSort}). Rows are
+ * {@code ROW(item_id INT, item_name STRING, price DOUBLE, updated_at BIGINT)} items in random
+ * order, sorted on the column of {@link #column}. {@code parallelSort} uses a parallel threshold
+ * of 1000 rows instead of the default.
+ *
+ * <p>Run with: {@code mvn -Pbenchmark test-compile exec:exec -Dbenchmark=SortingRowArrayBenchmark}
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SortingRowArrayBenchmark {
+
+    // asset arrays hold 5 to 50,000 items
+    @Param({"5", "50", "500", "5000", "50000"})
+    public int size;
+
+    // 0: INT item_id, 1: STRING item_name, 2: DOUBLE price, 3: BIGINT updated_at
+    @Param({"0", "1", "2", "3"})
+    public int column;
+
+    private Row[] rows;
+    private SortingRowArrayFunction function;
+    private RowSorter parallelSorter;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        rows = new Row[size];
+        for (int i = 0; i < size; i++) {
+            rows[i] = Row.of(random.nextInt(1_000_000), "item" + random.nextInt(1_000_000),
+                    random.nextInt(100_000) / 100.0, 1_700_000_000_000L + random.nextInt(Integer.MAX_VALUE) * 1000L);
+        }
+        function = new SortingRowArrayFunction();
+        parallelSorter = new RowSorter(1000);
+    }
+
+    @Benchmark
+    public Row[] sort() {
+        return function.eval(rows, column);
+    }
+
+    @Benchmark
+    public Row[] parallelSort() {
+        return parallelSorter.sort(rows, column);
+    }
+
+    @Benchmark
+    @SuppressWarnings("unchecked")
+    public Row[] streamSort() {
+        // SORT_ROW_ARRAY_ON_ID before the primitive keys
+        return Arrays.stream(rows)
+                .sorted(Comparator.comparing(
+                        row -> (Comparable<Object>) row.getField(column),
+                        Comparator.nullsLast(Comparator.naturalOrder())))
+                .toArray(Row[]::new);
+    }
+}
@@ -1,9 +1,23 @@
 package io.confluent.udf;
 
+import org.apache.flink.configuration.Configuration;
+import org.apache.flink.table.api.DataTypes;
+import org.apache.flink.table.functions.FunctionContext;
+import org.apache.flink.table.types.DataType;
+import org.apache.flink.table.types.inference.CallContext;
+import org.apache.flink.table.types.inference.TypeInference;
 import org.apache.flink.types.Row;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.function.IntFunction;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 class SortingRowArrayFunctionTest {
@@ -255,6 +269,131 @@ class SortingRowArrayFunctionTest {
         }
     }
 
+    @Test
+    void testSortMatchesNaturalOrderForEveryKeyType() {
+        Random random = new Random(42);
+        List<IntFunction<Object>> generators = List.of(
+                i -> random.nextInt(100),
+                i -> random.nextInt(),
+                i -> random.nextBoolean() ? Integer.MIN_VALUE : Integer.MAX_VALUE,
+                i -> random.nextLong(),
+                i -> 1_700_000_000_000L + random.nextInt(1000),
+                i -> (short) random.nextInt(),
+                i -> random.nextGaussian() * 1e6,
+                i -> new double[]{Double.NaN, -0.0, 0.0, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY,
+                        Double.MIN_VALUE, -Double.MAX_VALUE}[random.nextInt(7)],
+                i -> random.nextFloat() - 0.5f,
+                i -> random.nextBoolean(),
+                i -> LocalDate.ofEpochDay(random.nextInt(40000) - 20000),
+                i -> "item" + random.nextInt(500));
+        for (IntFunction<Object> generator : generators) {
+            for (int size : new int[]{2, 5, 32, 33, 200, 255, 256, 5000}) {
+                Row[] rows = new Row[size];
+                for (int i = 0; i < size; i++) {
+                    rows[i] = Row.of(i, random.nextInt(10) == 0 ? null : generator.apply(i));
+                }
+                assertSortedLike(referenceSort(rows, 1), function.eval(rows, 1));
+            }
+        }
+    }
+
+    @Test
+    void testEqualValuesKeepInputOrder() {
+        Row[] rows = new Row[1000];
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = Row.of(i, i % 3 == 0 ? null : (long) (i % 7));
+        }
+        Row[] result = function.eval(rows, 1);
+        for (int i = 1; i < result.length; i++) {
+            Long previous = (Long) result[i - 1].getField(1);
+            Long current = (Long) result[i].getField(1);
+            if (previous != null && previous.equals(current) || previous == null && current == null) {
+                assertTrue((Integer) result[i - 1].getField(0) < (Integer) result[i].getField(0));
+            }
+        }
+    }
+
+    @Test
+    void testParallelSortAboveThreshold() throws Exception {
+        Configuration conf = new Configuration();
+        conf.setString(SortingRowArrayFunction.PARALLEL_THRESHOLD_PARAM, "100");
+        function.open(new FunctionContext(null, null, conf));
+        Random random = new Random(7);
+        Row[] rows = new Row[20000];
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = Row.of(i, random.nextInt(10) == 0 ? null : random.nextInt(5000) - 2500);
+        }
+        assertSortedLike(referenceSort(rows, 1), function.eval(rows, 1));
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = Row.of(i, "item" + random.nextInt(5000));
+        }
+        assertSortedLike(referenceSort(rows, 1), function.eval(rows, 1));
+    }
+
+    @Test
+    void testNullRowsAreLast() {
+        Row[] rows = new Row[]{Row.of(1, 30), null, Row.of(2, 10), Row.of(3, null)};
+        Row[] named = new Row[]{Row.of(1, "c"), null, Row.of(2, "a"), Row.of(3, null)};
+        assertArrayEquals(new Row[]{named[2], named[0], null, named[3]}, function.eval(named, 1));
+        Row[] result = function.eval(rows, 1);
+        assertArrayEquals(new Row[]{rows[2], rows[0], null, rows[3]}, result);
+    }
+
+    @Test
+    void testNullFirstRow() {
+        Row[] rows = new Row[]{null, Row.of(1, 30), Row.of(2, 10)};
+        assertArrayEquals(new Row[]{rows[2], rows[1], null}, function.eval(rows, 1));
+        assertNull(function.eval(rows, 2));
+        // no row to check the column against
+        assertNull(function.eval(new Row[]{null, null}, 0));
+    }
+
+    @Test
+    void testMixedValueTypesReturnNull() {
+        Row[] rows = new Row[]{Row.of(1, 30), Row.of(2, "ten")};
+        assertNull(function.eval(rows, 1));
+        assertNull(function.eval(new Row[]{Row.of(1, new byte[]{1}), Row.of(2, new byte[]{2})}, 1));
+    }
+
+    @Test
+    void testTypeInferenceAcceptsAnyRowArray() {
+        TypeInference inference = function.getTypeInference(null);
+        DataType rowArray = DataTypes.ARRAY(DataTypes.ROW(
+                DataTypes.FIELD("asset_id", DataTypes.BIGINT()),
+                DataTypes.FIELD("price", DataTypes.DOUBLE()))).notNull();
+        CallContext call = new TestCallContext(rowArray, DataTypes.INT().notNull());
+        Optional<List<DataType>> arguments = inference.getInputTypeStrategy().inferInputTypes(call, false);
+        assertTrue(arguments.isPresent());
+        assertEquals(Row[].class, arguments.get().get(0).getConversionClass());
+        assertEquals(DataTypes.INT(), arguments.get().get(1));
+        DataType output = inference.getOutputTypeStrategy().inferType(call).orElseThrow();
+        assertEquals(rowArray.nullable().getLogicalType(), output.getLogicalType());
+        assertEquals(Row[].class, output.getConversionClass());
+
+        CallContext notRows = new TestCallContext(DataTypes.ARRAY(DataTypes.INT()), DataTypes.INT());
+        assertFalse(inference.getInputTypeStrategy().inferInputTypes(notRows, false).isPresent());
+    }
+
+    /**
+     * @return the rows in the order of a stable sort on the natural order, nulls last
+     */
+    @SuppressWarnings("unchecked")
+    private static Row[] referenceSort(Row[] rows, int column) {
+        Row[] sorted = rows.clone();
+        Arrays.sort(sorted, Comparator.comparing(
+                row -> (Comparable<Object>) row.getField(column),
+                Comparator.nullsLast(Comparator.naturalOrder())));
+        return sorted;
+    }
+
+    private static void assertSortedLike(Row[] expected, Row[] actual) {
+        assertNotNull(actual);
+        assertEquals(expected.length, actual.length);
+        for (int i = 0; i < expected.length; i++) {
+            assertSame(expected[i], actual[i], "row " + i + ": " + expected[i] + " != " + actual[i]);
+        }
+    }
+
     @Test
     void testToString() {
         assertEquals("SORT_ROW_ARRAY_ON_ID", function.toString());
@@ -0,0 +1,71 @@
+package io.confluent.udf;
+
+import org.apache.flink.types.Row;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH comparison of TOP_N_ROWS against sorting the whole array with SORT_ROW_ARRAY_ON_ID and
+ * keeping its first rows ({@code sortAndSlice}). Rows are
+ * {@code ROW(item_id INT, item_name STRING, price DOUBLE, updated_at BIGINT)} items in random
+ * order, of which the first {@link #n} on the column of {@link #column} are selected.
+ *
+ * <p>Run with: {@code mvn -Pbenchmark test-compile exec:exec -Dbenchmark=TopNRowsBenchmark}
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TopNRowsBenchmark {
+
+    @Param({"50", "5000", "50000"})
+    public int size;
+
+    // 0: INT item_id, 1: STRING item_name
+    @Param({"0", "1"})
+    public int column;
+
+    @Param({"5"})
+    public int n;
+
+    private Row[] rows;
+    private TopNRowsFunction function;
+    private SortingRowArrayFunction sortFunction;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        rows = new Row[size];
+        for (int i = 0; i < size; i++) {
+            rows[i] = Row.of(random.nextInt(1_000_000), "item" + random.nextInt(1_000_000),
+                    random.nextInt(100_000) / 100.0, 1_700_000_000_000L + random.nextInt(Integer.MAX_VALUE) * 1000L);
+        }
+        function = new TopNRowsFunction();
+        sortFunction = new SortingRowArrayFunction();
+    }
+
+    @Benchmark
+    public Row[] topN() {
+        return function.eval(rows, column, n);
+    }
+
+    @Benchmark
+    public Row[] sortAndSlice() {
+        return Arrays.copyOf(sortFunction.eval(rows, column), Math.min(n, size));
+    }
+}
@@ -0,0 +1,146 @@
+package io.confluent.udf;
+
+import org.apache.flink.table.api.DataTypes;
+import org.apache.flink.table.types.DataType;
+import org.apache.flink.table.types.inference.TypeInference;
+import org.apache.flink.types.Row;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.function.IntFunction;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TopNRowsFunctionTest {
+    private TopNRowsFunction function;
+
+    // ROW(item_id INT, item_name STRING, price DOUBLE, item_display_order INT)
+    private final Row[] rows = new Row[]{
+            Row.of(1, "b", 9.5, 2),
+            Row.of(2, "a", null, 1),
+            Row.of(3, "c", 1.0, 2),
+            Row.of(4, null, 9.5, 1),
+            Row.of(5, "a", 1.0, null)
+    };
+
+    @BeforeEach
+    void setUp() {
+        function = new TopNRowsFunction();
+    }
+
+    private static int[] ids(Row[] selected) {
+        return Arrays.stream(selected).mapToInt(row -> (Integer) row.getField(0)).toArray();
+    }
+
+    @Test
+    void testSelectsFirstRowsInOrder() {
+        assertArrayEquals(new int[]{2, 4}, ids(function.eval(rows, 3, 2)));
+        assertArrayEquals(new int[]{3, 5, 1}, ids(function.eval(rows, 2, 3)));
+        assertArrayEquals(new int[]{2, 5, 1}, ids(function.eval(rows, 1, 3)));
+        assertArrayEquals(new int[]{1}, ids(function.eval(rows, 0, 1)));
+    }
+
+    @Test
+    void testEqualValuesKeepInputOrder() {
+        assertArrayEquals(new int[]{2, 4, 1}, ids(function.eval(rows, 3, 3)));
+        assertArrayEquals(new int[]{2, 4, 1, 3}, ids(function.eval(rows, 3, 4)));
+    }
+
+    @Test
+    void testNullValuesAreLast() {
+        assertArrayEquals(new int[]{3, 5, 1, 4, 2}, ids(function.eval(rows, 2, 5)));
+        assertArrayEquals(new int[]{2, 5, 1, 3, 4}, ids(function.eval(rows, 1, 10)));
+        Row[] withNullRow = {Row.of(1, null), null, Row.of(3, 7), Row.of(4, 2)};
+        Row[] selected = function.eval(withNullRow, 1, 3);
+        assertArrayEquals(new Row[]{withNullRow[3], withNullRow[2], withNullRow[0]}, selected);
+    }
+
+    @Test
+    void testNullFirstRow() {
+        Row[] rows = {null, Row.of(1, 30), Row.of(2, 10)};
+        assertArrayEquals(new Row[]{rows[2], rows[1]}, function.eval(rows, 1, 2));
+        assertNull(function.eval(rows, 2, 2));
+    }
+
+    @Test
+    void testMoreRowsThanArray() {
+        Row[] selected = function.eval(rows, 0, 10);
+        assertNotSame(rows, selected);
+        assertArrayEquals(rows, selected);
+        assertArrayEquals(ids(new SortingRowArrayFunction().eval(rows, 2)), ids(function.eval(rows, 2, 5)));
+    }
+
+    @Test
+    void testZeroRows() {
+        assertEquals(0, function.eval(rows, 0, 0).length);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testMatchesSortedPrefix() {
+        Random random = new Random(42);
+        IntFunction<Object>[] values = new IntFunction[]{
+                i -> random.nextInt(50),
+                i -> random.nextLong(),
+                i -> random.nextInt(4) == 0 ? null : (long) random.nextInt(1000),
+                i -> new double[]{-0.0, 0.0, Double.NaN, -1.5, Double.NEGATIVE_INFINITY, random.nextDouble()}[random.nextInt(6)],
+                i -> random.nextBoolean(),
+                i -> LocalDate.ofEpochDay(random.nextInt(100)),
+                i -> random.nextInt(4) == 0 ? null : "item" + random.nextInt(30)
+        };
+        RowSorter sorter = new RowSorter(RowSorter.DEFAULT_PARALLEL_THRESHOLD);
+        SortKey[] keys = SortKey.parse("c1, c1 DESC, c1 NULLS FIRST, c1 DESC NULLS FIRST");
+        for (IntFunction<Object> value : values) {
+            for (int size : new int[]{1, 7, 300, 3000}) {
+                Row[] many = new Row[size];
+                for (int i = 0; i < size; i++) {
+                    many[i] = random.nextInt(50) == 0 ? null : Row.of(i, value.apply(i));
+                }
+                for (SortKey key : keys) {
+                    Row[] sorted = sorter.sort(many, key);
+                    for (int n : new int[]{1, 5, size / 2, size - 1}) {
+                        Row[] expected = Arrays.copyOf(sorted, Math.min(n, size));
+                        Row[] selected = sorter.top(many, key, n);
+                        assertEquals(expected.length, selected.length);
+                        for (int i = 0; i < expected.length; i++) {
+                            assertSame(expected[i], selected[i], key + ", size " + size + ", n " + n + ", row " + i);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void testInvalidInputReturnsNull() {
+        assertNull(function.eval(null, 0, 5));
+        assertNull(function.eval(rows, null, 5));
+        assertNull(function.eval(rows, 0, null));
+        assertNull(function.eval(rows, 0, -1));
+        assertNull(function.eval(rows, 4, 5));
+        assertNull(function.eval(rows, -1, 5));
+        assertNull(function.eval(new Row[]{Row.of(1, "a"), Row.of(2, 3), Row.of(3, "b")}, 1, 1));
+        assertEquals(0, function.eval(new Row[0], 0, 5).length);
+    }
+
+    @Test
+    void testTypeInferenceReturnsArrayType() {
+        TypeInference inference = function.getTypeInference(null);
+        DataType rowArray = DataTypes.ARRAY(DataTypes.ROW(
+                DataTypes.FIELD("item_id", DataTypes.INT()),
+                DataTypes.FIELD("item_name", DataTypes.STRING())));
+        TestCallContext call = new TestCallContext(rowArray, DataTypes.INT(), DataTypes.INT());
+        assertTrue(inference.getInputTypeStrategy().inferInputTypes(call, false).isPresent());
+        assertEquals(rowArray.getLogicalType(), inference.getOutputTypeStrategy().inferType(call).orElseThrow().getLogicalType());
+        TestCallContext notRows = new TestCallContext(DataTypes.ARRAY(DataTypes.INT()), DataTypes.INT(), DataTypes.INT());
+        assertFalse(inference.getInputTypeStrategy().inferInputTypes(notRows, false).isPresent());
+    }
+
+    @Test
+    void testToString() {
+        assertEquals("TOP_N_ROWS", function.toString());
+    }
+}
@@ -0,0 +1,17 @@
+-- Same result as dml.customers_in_area.sql, with a hash equi-join on geohash cells
+-- instead of a nested-loop join on IS_WITHIN_AREA.
+-- Precision 6 cells are about 1.2 km x 0.6 km: each area covers a few cells.
+insert into `customers_in_area`
+with area_cells as (
+  select a.area_id, a.area_type, a.geo_locations, a.radius, t.cell
+  from areas as a,
+  lateral table(AREA_CELLS(a.area_type, a.geo_locations, a.radius, 6)) as t(cell)
+)
+select
+  ac.area_id,
+  c.customer_name,
+  c.lat,
+  c.lon
+from customers as c
+inner join area_cells ac on GEO_CELL(c.lat, c.lon, 6) = ac.cell
+where IS_WITHIN_AREA(c.lat, c.lon, ac.area_type, ac.geo_locations, ac.radius)
@@ -0,0 +1,101 @@
+package io.confluent.udf;
+
+import org.apache.flink.table.annotation.DataTypeHint;
+import org.apache.flink.table.annotation.FunctionHint;
+import org.apache.flink.table.functions.TableFunction;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.List;
+
+/**
+ * A Table Function that emits the ids of the geohash cells covering an area, as computed by
+ * {@link GeoCellFunction}. Every point inside the area is in one of the emitted cells, so joining
+ * points to areas on GEO_CELL = cell, then checking IS_WITHIN_AREA, finds all the matches with a
+ * hash equi-join instead of a nested loop.
+ *
+ * <p>The cells cover the bounding box of the area. Pick the precision so that an area covers a
+ * few cells: precision 5 cells are about 4.9 x 4.9 km, precision 6 cells 1.2 x 0.6 km.
+ * Areas needing more than {@link #MAX_CELLS_PER_AREA} cells are logged and emit nothing.
+ *
+ * <p>Usage in SQL (register as AREA_CELLS):
+ * <pre>
+ * SELECT a.area_id, t.cell
+ * FROM areas a, LATERAL TABLE(AREA_CELLS(a.area_type, a.geo_locations, a.radius, 6)) AS t(cell);
+ * </pre>
+ */
+@FunctionHint(output = @DataTypeHint("BIGINT"))
+public class AreaCellsFunction extends TableFunction<Long> {
+    private static final Logger logger = LogManager.getLogger(AreaCellsFunction.class);
+    static final long MAX_CELLS_PER_AREA = 100_000;
+
+    /**
+     * Emits the cells covering the area.
+     *
+     * @param areaType     "RECTANGLE" or "CIRCLE" (case‑insensitive)
+     * @param geoLocations list of doubles that encode the area geometry
+     * @param radius       circle radius, in the unit used by IS_WITHIN_AREA
+     * @param precision    geohash length, between 1 and 12
+     */
+    public void eval(String areaType, List<Double> geoLocations, Double radius, Integer precision) {
+        if (precision == null || precision < GeoCellFunction.MIN_PRECISION || precision > GeoCellFunction.MAX_PRECISION) {
+            return;
+        }
+        AreaGeometry geometry = AreaGeometry.of(areaType, geoLocations, radius);
+        if (geometry == null) {
+            return;
+        }
+        long minRow = GeoCellFunction.latIndex(geometry.minLat, precision);
+        long maxRow = GeoCellFunction.latIndex(geometry.maxLat, precision);
+
+        // longitude ranges, split in two when the area crosses the anti-meridian
+        double minLon = geometry.minLon;
+        double maxLon = geometry.maxLon;
+        double wrappedMinLon = Double.NaN;
+        double wrappedMaxLon = Double.NaN;
+        if (maxLon - minLon >= 360) {
+            minLon = -180;
+            maxLon = 180;
+        } else if (minLon < -180) {
+            wrappedMinLon = minLon + 360;
+            wrappedMaxLon = 180;
+            minLon = -180;
+        } else if (maxLon > 180) {
+            wrappedMinLon = -180;
+            wrappedMaxLon = maxLon - 360;
+            maxLon = 180;
+        }
+        long minColumn = GeoCellFunction.lonIndex(minLon, precision);
+        long maxColumn = GeoCellFunction.lonIndex(maxLon, precision);
+        long wrappedMinColumn = 0;
+        long wrappedMaxColumn = -1;
+        if (!Double.isNaN(wrappedMinLon)) {
+            wrappedMinColumn = GeoCellFunction.lonIndex(wrappedMinLon, precision);
+            wrappedMaxColumn = GeoCellFunction.lonIndex(wrappedMaxLon, precision);
+        }
+
+        long columns = (maxColumn - minColumn + 1) + (wrappedMaxColumn - wrappedMinColumn + 1);
+        long cells = (maxRow - minRow + 1) * columns;
+        if (cells > MAX_CELLS_PER_AREA) {
+            logger.error("Area {} {} needs {} cells at precision {}, more than {}. Use a lower precision.",
+                    areaType, geoLocations, cells, precision, MAX_CELLS_PER_AREA);
+            return;
+        }
+        for (long row = minRow; row <= maxRow; row++) {
+            for (long column = minColumn; column <= maxColumn; column++) {
+                collect(GeoCellFunction.cellId(row, column, precision));
+            }
+            for (long column = wrappedMinColumn; column <= wrappedMaxColumn; column++) {
+                collect(GeoCellFunction.cellId(row, column, precision));
+            }
+        }
+    }
+
+    /**
+     * Returns a string describing the function.
+     */
+    @Override
+    public String toString() {
+        return "AREA_CELLS";
+    }
+}
@@ -0,0 +1,375 @@
+package io.confluent.udf;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Area geometry decoded once from the (area_type, geo_locations, radius) columns of the areas
+ * table into primitive fields.
+ * The envelope is the lat/lon bounding box of the area. For a circle crossing the anti-meridian,
+ * minLon is below -180 or maxLon above 180.
+ *
+ * <p>A polygon is decoded into a packed edge table: for every non-horizontal edge, its two
+ * latitudes, its first longitude and its longitude change per degree of latitude, so the ray
+ * casting test needs one multiply per crossed edge. Polygon longitudes are planar: a polygon must
+ * not cross the anti-meridian.
+ *
+ * <p>The circle radius is in kilometers, the unit of {@link WithinAreaFunction#haversineMeters}.
+ */
+final class AreaGeometry {
+    static final String RECTANGLE = "RECTANGLE";
+    static final String CIRCLE = "CIRCLE";
+    static final String POLYGON = "POLYGON";
+    static final int MIN_POLYGON_VERTICES = 3;
+    // results of polygonTest
+    static final int OUTSIDE = 0;
+    static final int INSIDE = 1;
+    static final int SAME_VERTICES = 2;
+
+    private static final double EARTH_RADIUS_KM = 6371.0;
+    // widens circle envelopes so rounding never excludes a point on the circle
+    private static final double ENVELOPE_MARGIN_DEG = 1e-9;
+    // layout of a polygon edge in the edge table
+    private static final int EDGE_STRIDE = 4;
+    private static final int EDGE_LAT1 = 0;
+    private static final int EDGE_LAT2 = 1;
+    private static final int EDGE_LON1 = 2;
+    private static final int EDGE_SLOPE = 3;
+
+    // one of the type constants above, so it can be compared by reference
+    final String type;
+    final double minLat;
+    final double maxLat;
+    final double minLon;
+    final double maxLon;
+
+    // circle only: center in radians, cosine of the center latitude, radius
+    private final double centerLatRad;
+    private final double centerLonRad;
+    private final double cosCenterLat;
+    private final double radius;
+
+    // polygon only: EDGE_STRIDE values per edge
+    private final double[] edges;
+
+    // the geo_locations the geometry was decoded from, to confirm cache hits
+    private final double[] locations;
+
+    private AreaGeometry(String type, double minLat, double maxLat, double minLon, double maxLon,
+                         double centerLat, double centerLon, double radius, double[] locations) {
+        this.type = type;
+        this.minLat = minLat;
+        this.maxLat = maxLat;
+        this.minLon = minLon;
+        this.maxLon = maxLon;
+        this.centerLatRad = Math.toRadians(centerLat);
+        this.centerLonRad = Math.toRadians(centerLon);
+        this.cosCenterLat = Math.cos(centerLatRad);
+        this.radius = radius;
+        this.edges = null;
+        this.locations = locations;
+    }
+
+    private AreaGeometry(double minLat, double maxLat, double minLon, double maxLon,
+                         double[] edges, double[] locations) {
+        this.type = POLYGON;
+        this.minLat = minLat;
+        this.maxLat = maxLat;
+        this.minLon = minLon;
+        this.maxLon = maxLon;
+        this.centerLatRad = 0;
+        this.centerLonRad = 0;
+        this.cosCenterLat = 1;
+        this.radius = 0;
+        this.edges = edges;
+        this.locations = locations;
+    }
+
+    /**
+     * @return the decoded geometry, or null for an unknown type or malformed data, the cases
+     *         where {@link WithinAreaFunction} treats every point as outside
+     */
+    static AreaGeometry of(String areaType, List<Double> geoLocations, Double radius) {
+        if (areaType == null || geoLocations == null || hasNull(geoLocations)) {
+            return null;
+        }
+        switch (typeOf(areaType)) {
+            case RECTANGLE:
+                return geoLocations.size() == 4 ? rectangle(geoLocations) : null;
+            case CIRCLE:
+                return geoLocations.size() == 2 && radius != null ? circle(geoLocations, radius) : null;
+            case POLYGON:
+                return geoLocations.size() % 2 == 0 && geoLocations.size() >= 2 * MIN_POLYGON_VERTICES
+                        ? polygon(geoLocations) : null;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * @return the type constant matching the area type, ignoring case, without allocating, or an
+     *         empty string for an unknown type
+     */
+    static String typeOf(String areaType) {
+        if (RECTANGLE.equalsIgnoreCase(areaType)) {
+            return RECTANGLE;
+        }
+        if (CIRCLE.equalsIgnoreCase(areaType)) {
+            return CIRCLE;
+        }
+        if (POLYGON.equalsIgnoreCase(areaType)) {
+            return POLYGON;
+        }
+        return "";
+    }
+
+    /**
+     * @return true if the point is inside the area, with the same rules as {@link WithinAreaFunction}
+     */
+    boolean contains(double lat, double lon) {
+        if (type == RECTANGLE) {
+            return lat >= minLat && lat <= maxLat && lon >= minLon && lon <= maxLon;
+        }
+        if (type == POLYGON) {
+            return lat >= minLat && lat <= maxLat && lon >= minLon && lon <= maxLon
+                    && insidePolygon(lat, lon);
+        }
+        // circle: the envelope rejects most points before the haversine distance
+        if (lat < minLat || lat > maxLat || !inCircleLonRange(lon)) {
+            return false;
+        }
+        double latRad = Math.toRadians(lat);
+        double sinDLat = Math.sin((latRad - centerLatRad) / 2);
+        double sinDLon = Math.sin((Math.toRadians(lon) - centerLonRad) / 2);
+        double a = sinDLat * sinDLat + cosCenterLat * Math.cos(latRad) * sinDLon * sinDLon;
+        return EARTH_RADIUS_KM * 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a)) <= radius;
+    }
+
+    /**
+     * @return true if the point is inside the envelope of a rectangle or polygon
+     */
+    boolean envelopeContains(double lat, double lon) {
+        return lat >= minLat && lat <= maxLat && lon >= minLon && lon <= maxLon;
+    }
+
+    /**
+     * Longitude test against a circle envelope that may go past the anti-meridian. For a longitude
+     * in [-180, 180], lon - 360 is never above maxLon and lon + 360 never below minLon.
+     */
+    private boolean inCircleLonRange(double lon) {
+        return (lon >= minLon && lon <= maxLon)
+                || (lon - 360 >= minLon) || (lon + 360 <= maxLon);
+    }
+
+    /**
+     * Even-odd ray casting: counts the edges crossed by the ray going east from the point.
+     * Points exactly on an edge may be reported inside or outside.
+     */
+    private boolean insidePolygon(double lat, double lon) {
+        boolean inside = false;
+        for (int i = 0; i < edges.length; i += EDGE_STRIDE) {
+            if ((edges[i + EDGE_LAT1] > lat) != (edges[i + EDGE_LAT2] > lat)
+                    && lon < edges[i + EDGE_LON1] + (lat - edges[i + EDGE_LAT1]) * edges[i + EDGE_SLOPE]) {
+                inside = !inside;
+            }
+        }
+        return inside;
+    }
+
+    /**
+     * Even-odd ray casting on the vertex list itself, reading every value once, with the same
+     * crossing test as the decoded edge table. Used when the polygon comes with each row and the
+     * point is inside the envelope of the cached geometry: confirming the cache hit would read the
+     * whole list too.
+     *
+     * @param loc vertices as lat1, lon1, lat2, lon2, ...; the ring is closed implicitly
+     * @return true if the point is inside, false if outside or the polygon is malformed
+     */
+    static boolean polygonContains(List<Double> loc, double lat, double lon) {
+        int size = loc.size();
+        if (size % 2 != 0 || size < 2 * MIN_POLYGON_VERTICES) {
+            return false;
+        }
+        // the edge to the first vertex starts at the last one
+        Double lastLat = loc.get(size - 2);
+        Double lastLon = loc.get(size - 1);
+        if (lastLat == null || lastLon == null) {
+            return false;
+        }
+        double prevLat = lastLat;
+        double prevLon = lastLon;
+        boolean inside = false;
+        for (int i = 0; i < size; i += 2) {
+            Double vertexLat = loc.get(i);
+            Double vertexLon = loc.get(i + 1);
+            if (vertexLat == null || vertexLon == null) {
+                return false;
+            }
+            double lat2 = vertexLat;
+            double lon2 = vertexLon;
+            if ((prevLat > lat) != (lat2 > lat)
+                    && lon < prevLon + (lat - prevLat) * ((lon2 - prevLon) / (lat2 - prevLat))) {
+                inside = !inside;
+            }
+            prevLat = lat2;
+            prevLon = lon2;
+        }
+        return inside;
+    }
+
+    /**
+     * For a point outside the envelope of this polygon: compares the list with the vertices this
+     * polygon was decoded from, and falls back to {@link #polygonContains} from the first value
+     * that differs.
+     *
+     * @return {@link #SAME_VERTICES} if the list holds the vertices of this polygon, so the point
+     *         is outside, otherwise {@link #INSIDE} or {@link #OUTSIDE} for the polygon of the list
+     */
+    int polygonTest(List<Double> loc, double lat, double lon) {
+        double[] vertices = locations;
+        int size = vertices.length;
+        if (loc.size() == size) {
+            int i = 0;
+            while (i < size) {
+                Double value = loc.get(i);
+                if (value == null || value != vertices[i]) {
+                    break;
+                }
+                i++;
+            }
+            if (i == size) {
+                return SAME_VERTICES;
+            }
+        }
+        return polygonContains(loc, lat, lon) ? INSIDE : OUTSIDE;
+    }
+
+    /**
+     * @return true if this geometry was decoded from the same arguments, reading the list in one pass
+     */
+    boolean matches(String areaType, List<Double> loc, Double radius) {
+        return areaType == type
+                && (type != CIRCLE || (radius != null && radius == this.radius))
+                && hasLocations(loc);
+    }
+
+    private boolean hasLocations(List<Double> loc) {
+        if (loc.size() != locations.length) {
+            return false;
+        }
+        for (int i = 0; i < locations.length; i++) {
+            Double value = loc.get(i);
+            if (value == null || value != locations[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Cheap cache key of a geometry, from the type, radius, list size and a few sampled values.
+     * Different geometries can share a key, so a cache hit must be confirmed with {@link #matches}.
+     *
+     * @param areaType one of the type constants
+     */
+    static long cacheKey(String areaType, List<Double> loc, Double radius) {
+        int size = loc.size();
+        long key = areaType.hashCode() * 31L + size;
+        if (areaType == CIRCLE) {
+            key = key * 31 + Double.hashCode(valueOrZero(radius));
+        }
+        if (size > 0) {
+            key = key * 31 + Double.hashCode(valueOrZero(loc.get(0)));
+            key = key * 31 + Double.hashCode(valueOrZero(loc.get(size / 2)));
+            key = key * 31 + Double.hashCode(valueOrZero(loc.get(size - 1)));
+        }
+        return key;
+    }
+
+    private static double valueOrZero(Double value) {
+        return value == null ? 0 : value;
+    }
+
+    /**
+     * @return the number of edges in the polygon edge table, 0 for other types
+     */
+    int edgeCount() {
+        return edges == null ? 0 : edges.length / EDGE_STRIDE;
+    }
+
+    private static boolean hasNull(List<Double> values) {
+        for (Double value : values) {
+            if (value == null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static AreaGeometry rectangle(List<Double> loc) {
+        double lat1 = loc.get(0);
+        double lon1 = loc.get(1);
+        double lat2 = loc.get(2);
+        double lon2 = loc.get(3);
+        return new AreaGeometry(RECTANGLE,
+                Math.min(lat1, lat2), Math.max(lat1, lat2),
+                Math.min(lon1, lon2), Math.max(lon1, lon2),
+                0, 0, 0, new double[]{lat1, lon1, lat2, lon2});
+    }
+
+    /**
+     * @param loc vertices as lat1, lon1, lat2, lon2, ...; the ring is closed implicitly
+     */
+    private static AreaGeometry polygon(List<Double> loc) {
+        int vertices = loc.size() / 2;
+        double[] locations = new double[loc.size()];
+        double[] lats = new double[vertices];
+        double[] lons = new double[vertices];
+        double minLat = Double.POSITIVE_INFINITY;
+        double maxLat = Double.NEGATIVE_INFINITY;
+        double minLon = Double.POSITIVE_INFINITY;
+        double maxLon = Double.NEGATIVE_INFINITY;
+        for (int v = 0; v < vertices; v++) {
+            lats[v] = loc.get(2 * v);
+            lons[v] = loc.get(2 * v + 1);
+            locations[2 * v] = lats[v];
+            locations[2 * v + 1] = lons[v];
+            minLat = Math.min(minLat, lats[v]);
+            maxLat = Math.max(maxLat, lats[v]);
+            minLon = Math.min(minLon, lons[v]);
+            maxLon = Math.max(maxLon, lons[v]);
+        }
+        // horizontal edges never cross the east ray, so they are left out of the table
+        double[] edges = new double[vertices * EDGE_STRIDE];
+        int length = 0;
+        for (int v = 0, prev = vertices - 1; v < vertices; prev = v++) {
+            if (lats[prev] == lats[v]) {
+                continue;
+            }
+            edges[length + EDGE_LAT1] = lats[prev];
+            edges[length + EDGE_LAT2] = lats[v];
+            edges[length + EDGE_LON1] = lons[prev];
+            edges[length + EDGE_SLOPE] = (lons[v] - lons[prev]) / (lats[v] - lats[prev]);
+            length += EDGE_STRIDE;
+        }
+        return new AreaGeometry(minLat, maxLat, minLon, maxLon, Arrays.copyOf(edges, length), locations);
+    }
+
+    private static AreaGeometry circle(List<Double> loc, double radius) {
+        double centerLat = loc.get(0);
+        double centerLon = loc.get(1);
+        double[] locations = {centerLat, centerLon};
+        double angle = Math.toDegrees(Math.max(0.0, radius) / EARTH_RADIUS_KM) + ENVELOPE_MARGIN_DEG;
+        double minLat = centerLat - angle;
+        double maxLat = centerLat + angle;
+        if (minLat <= -90 || maxLat >= 90) {
+            // the circle contains a pole: every longitude
+            return new AreaGeometry(CIRCLE, Math.max(minLat, -90), Math.min(maxLat, 90), -180, 180,
+                    centerLat, centerLon, radius, locations);
+        }
+        double lonDelta = Math.toDegrees(Math.asin(Math.sin(Math.toRadians(angle)) / Math.cos(Math.toRadians(centerLat))))
+                + ENVELOPE_MARGIN_DEG;
+        return new AreaGeometry(CIRCLE, minLat, maxLat, centerLon - lonDelta, centerLon + lonDelta,
+                centerLat, centerLon, radius, locations);
+    }
+}
@@ -0,0 +1,267 @@
+package io.confluent.udf;
+
+import org.apache.flink.types.Row;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Spatial index over the rows of an areas array, ROW(area_id, area_type, geo_locations, radius).
+ * Areas are decoded once into {@link AreaGeometry} and their envelopes packed into a
+ * {@link StrTree}. Rows that {@link AreaGeometry#of} rejects are left out, as no point is inside them.
+ */
+final class AreaIndex {
+    private static final Logger logger = LogManager.getLogger(AreaIndex.class);
+
+    final int size;
+    private final String[] areaIds;
+    private final long[] areaIdHashes;
+    // area id by id hash, built on first use
+    private Map<Long, String> idsByHash;
+    private final AreaGeometry[] geometries;
+    private final StrTree tree;
+    // true if an envelope goes past the anti-meridian, so queries also look at lon - 360 and lon + 360
+    private final boolean wraps;
+
+    AreaIndex(Row[] areas) {
+        String[] ids = new String[areas.length];
+        AreaGeometry[] decoded = new AreaGeometry[areas.length];
+        int count = 0;
+        for (Row row : areas) {
+            AreaGeometry geometry = decode(row);
+            if (geometry != null) {
+                ids[count] = (String) row.getField(0);
+                decoded[count] = geometry;
+                count++;
+            }
+        }
+        size = count;
+        areaIds = Arrays.copyOf(ids, count);
+        geometries = Arrays.copyOf(decoded, count);
+        areaIdHashes = new long[count];
+        for (int i = 0; i < count; i++) {
+            areaIdHashes[i] = idHash(areaIds[i]);
+        }
+
+        double[] minLat = new double[count];
+        double[] maxLat = new double[count];
+        double[] minLon = new double[count];
+        double[] maxLon = new double[count];
+        boolean anyWrap = false;
+        for (int i = 0; i < count; i++) {
+            minLat[i] = geometries[i].minLat;
+            maxLat[i] = geometries[i].maxLat;
+            minLon[i] = geometries[i].minLon;
+            maxLon[i] = geometries[i].maxLon;
+            anyWrap |= minLon[i] < -180 || maxLon[i] > 180;
+        }
+        wraps = anyWrap;
+        tree = new StrTree(minLat, maxLat, minLon, maxLon);
+    }
+
+    /**
+     * Writes the indexes of the areas containing the point into {@code out}, which must have room
+     * for 3 * {@link #size} entries (the tree is searched up to three times), and returns the
+     * number of matches.
+     */
+    int search(double lat, double lon, int[] out) {
+        int candidates = tree.search(lat, lon, out, 0);
+        if (wraps) {
+            candidates = tree.search(lat, lon - 360, out, candidates);
+            candidates = tree.search(lat, lon + 360, out, candidates);
+        }
+        int matches = 0;
+        for (int i = 0; i < candidates; i++) {
+            int area = out[i];
+            if (geometries[area].contains(lat, lon) && !contains(out, matches, area)) {
+                out[matches++] = area;
+            }
+        }
+        return matches;
+    }
+
+    String areaId(int area) {
+        return areaIds[area];
+    }
+
+    long areaIdHash(int area) {
+        return areaIdHashes[area];
+    }
+
+    /**
+     * @return the id of an area of the index with this id hash, or null if there is none
+     */
+    String areaIdOfHash(long hash) {
+        if (idsByHash == null) {
+            Map<Long, String> ids = new HashMap<>();
+            for (int i = 0; i < size; i++) {
+                ids.put(areaIdHashes[i], areaIds[i]);
+            }
+            idsByHash = ids;
+        }
+        return idsByHash.get(hash);
+    }
+
+    /**
+     * 64-bit FNV-1a hash of an area id, to store sets of areas as primitive longs.
+     */
+    static long idHash(String areaId) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < areaId.length(); i++) {
+            hash ^= areaId.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    /**
+     * @return a hash of the array content, to detect a changed reference table
+     */
+    static long fingerprint(Row[] areas) {
+        long hash = areas.length;
+        for (Row row : areas) {
+            hash *= 0x9E3779B97F4A7C15L;
+            if (row != null && row.getArity() >= 4) {
+                hash += Objects.hashCode(row.getField(0));
+                hash = hash * 31 + Objects.hashCode(row.getField(1));
+                hash = hash * 31 + locationsHash(row.getField(2));
+                hash = hash * 31 + Objects.hashCode(row.getField(3));
+            }
+        }
+        return hash;
+    }
+
+    private static AreaGeometry decode(Row row) {
+        if (row == null || row.getArity() < 4 || row.getField(0) == null) {
+            return null;
+        }
+        return AreaGeometry.of((String) row.getField(1), toList(row.getField(2)), (Double) row.getField(3));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Double> toList(Object geoLocations) {
+        if (geoLocations instanceof Double[]) {
+            return Arrays.asList((Double[]) geoLocations);
+        }
+        if (geoLocations instanceof List) {
+            return (List<Double>) geoLocations;
+        }
+        return null;
+    }
+
+    private static int locationsHash(Object geoLocations) {
+        if (geoLocations instanceof Object[]) {
+            return Arrays.hashCode((Object[]) geoLocations);
+        }
+        return Objects.hashCode(geoLocations);
+    }
+
+    private static boolean contains(int[] values, int length, int value) {
+        for (int i = 0; i < length; i++) {
+            if (values[i] == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Index of the last areas array passed to a function, reused while the next calls pass the same
+     * array or an array with the same content, and rebuilt when the reference table changes. Holds
+     * the search buffer sized for the index.
+     *
+     * <p>Flink passes a new array on every call, so the content is checked without reading every
+     * area: a call compares the length and {@value #SAMPLED_ROWS} rows spread over the array with
+     * the indexed ones, and rebuilds the index when one differs. A change to the other rows is
+     * found by the fingerprint of the whole array, computed every {@value #FULL_CHECK_CALLS} calls,
+     * so such a change is picked up within that many rows.
+     */
+    static final class Cache {
+        static final int SAMPLED_ROWS = 8;
+        static final int FULL_CHECK_CALLS = 1024;
+
+        private Row[] indexedAreas;
+        private long indexedFingerprint;
+        private AreaIndex index;
+        private int[] matches;
+        private long builds;
+        // calls since the last fingerprint of the whole array
+        private int calls;
+
+        /**
+         * @return the index of the areas, the cached one when they are unchanged
+         */
+        AreaIndex indexFor(Row[] areas) {
+            if (areas == indexedAreas && index != null) {
+                return index;
+            }
+            if (index != null && sameSample(indexedAreas, areas)) {
+                if (++calls < FULL_CHECK_CALLS) {
+                    indexedAreas = areas;
+                    return index;
+                }
+                calls = 0;
+                if (fingerprint(areas) == indexedFingerprint) {
+                    indexedAreas = areas;
+                    return index;
+                }
+            }
+            index = new AreaIndex(areas);
+            // each area can show up three times when the anti-meridian copies are searched
+            matches = new int[3 * index.size];
+            builds++;
+            calls = 0;
+            logger.debug("Indexed {} areas", index.size);
+            indexedAreas = areas;
+            indexedFingerprint = fingerprint(areas);
+            return index;
+        }
+
+        /**
+         * @return true if the arrays have the same length and equal rows at the sampled positions,
+         *         the first and the last included
+         */
+        static boolean sameSample(Row[] indexed, Row[] areas) {
+            int length = areas.length;
+            if (indexed.length != length) {
+                return false;
+            }
+            if (length == 0) {
+                return true;
+            }
+            int step = Math.max(1, length / SAMPLED_ROWS);
+            for (int i = 0; i < length; i += step) {
+                if (!Objects.equals(indexed[i], areas[i])) {
+                    return false;
+                }
+            }
+            return Objects.equals(indexed[length - 1], areas[length - 1]);
+        }
+
+        /**
+         * @return the last index returned by {@link #indexFor}, or null before the first call
+         */
+        AreaIndex current() {
+            return index;
+        }
+
+        /**
+         * @return the search buffer of the last index returned by {@link #indexFor}
+         */
+        int[] matches() {
+            return matches;
+        }
+
+        /**
+         * @return number of times the index was built
+         */
+        long builds() {
+            return builds;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package io.confluent.udf;
+
+import org.apache.flink.table.annotation.DataTypeHint;
+import org.apache.flink.table.annotation.FunctionHint;
+import org.apache.flink.table.functions.TableFunction;
+import org.apache.flink.types.Row;
+
+/**
+ * A Table Function that emits the id of every area containing a point, with the same rules as
+ * {@link WithinAreaFunction}.
+ * Input: latitude and longitude in degrees, and the array of areas ROW(area_id, area_type, geo_locations, radius)
+ * Output: Emits one area_id per area containing the point
+ *
+ * <p>The area envelopes are packed into an STR R-tree, so a point is tested only against the areas
+ * whose bounding box contains it, instead of every area. The tree is kept as long as the next calls
+ * pass the same areas array (same content), and rebuilt when the reference table changes.
+ *
+ * <p>Usage in SQL (register as AREAS_CONTAINING):
+ * <pre>
+ * SELECT c.customer_id, t.area_id
+ * FROM customers c, area_list a,
+ *   LATERAL TABLE(AREAS_CONTAINING(c.lat, c.lon, a.areas)) AS t(area_id);
+ * </pre>
+ */
+@FunctionHint(output = @DataTypeHint("STRING"))
+public class AreasContainingFunction extends TableFunction<String> {
+    // index of the last areas array, reused while the array content is unchanged
+    private transient AreaIndex.Cache areaIndex;
+
+    /**
+     * Emits the ids of the areas containing (lat, lon).
+     *
+     * @param lat   Latitude of the point in degrees
+     * @param lon   Longitude of the point in degrees
+     * @param areas Reference areas; malformed rows are ignored
+     */
+    public void eval(Double lat, Double lon,
+                     @DataTypeHint("ARRAY<ROW<area_id STRING, area_type STRING, geo_locations ARRAY<DOUBLE>, radius DOUBLE>>") Row[] areas) {
+        if (lat == null || lon == null || areas == null) {
+            return;
+        }
+        if (areaIndex == null) {
+            areaIndex = new AreaIndex.Cache();
+        }
+        AreaIndex idx = areaIndex.indexFor(areas);
+        int[] matches = areaIndex.matches();
+        int count = idx.search(lat, lon, matches);
+        for (int i = 0; i < count; i++) {
+            collect(idx.areaId(matches[i]));
+        }
+    }
+
+    /**
+     * @return number of times the area index was built, for tests
+     */
+    long indexBuilds() {
+        return areaIndex == null ? 0 : areaIndex.builds();
+    }
+
+    /**
+     * Returns a string describing the function.
+     */
+    @Override
+    public String toString() {
+        return "AREAS_CONTAINING";
+    }
+}
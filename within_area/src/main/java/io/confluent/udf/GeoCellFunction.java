@@ -0,0 +1,111 @@
+package io.confluent.udf;
+
+import org.apache.flink.table.functions.ScalarFunction;
+
+/**
+ * Flink UDF that returns the id of the geohash cell containing a point, as a BIGINT.
+ * The cell id holds the geohash bits (longitude and latitude bits interleaved, 5 bits per geohash
+ * character) in its low 60 bits and the precision in its top 4 bits, so cells of different
+ * precisions never share an id. It is computed with integer bit interleaving, without building
+ * the geohash string.
+ *
+ * <p>With {@link AreaCellsFunction} it turns the areas join into an equi-join on cell:
+ * <pre>
+ * SELECT ...
+ * FROM customers c
+ * JOIN area_cells ac ON GEO_CELL(c.lat, c.lon, 6) = ac.cell
+ * WHERE IS_WITHIN_AREA(c.lat, c.lon, ac.area_type, ac.geo_locations, ac.radius)
+ * </pre>
+ */
+public class GeoCellFunction extends ScalarFunction {
+    static final int MIN_PRECISION = 1;
+    static final int MAX_PRECISION = 12;
+    private static final char[] BASE32 = "0123456789bcdefghjkmnpqrstuvwxyz".toCharArray();
+
+    /**
+     * @param lat       latitude of the point in degrees
+     * @param lon       longitude of the point in degrees
+     * @param precision geohash length, between 1 (5,000 km cells) and 12 (4 cm cells)
+     * @return the cell id, or null if an argument is null or out of range
+     */
+    public Long eval(Double lat, Double lon, Integer precision) {
+        if (lat == null || lon == null || precision == null
+                || precision < MIN_PRECISION || precision > MAX_PRECISION
+                || !(lat >= -90 && lat <= 90 && lon >= -180 && lon <= 180)) {
+            return null;
+        }
+        return cellId(latIndex(lat, precision), lonIndex(lon, precision), precision);
+    }
+
+    static int latBits(int precision) {
+        return 5 * precision / 2;
+    }
+
+    static int lonBits(int precision) {
+        return 5 * precision - latBits(precision);
+    }
+
+    /**
+     * @return the row of the cell containing the latitude, in [0, 2^latBits)
+     */
+    static long latIndex(double lat, int precision) {
+        return index((lat + 90) / 180, latBits(precision));
+    }
+
+    /**
+     * @return the column of the cell containing the longitude, in [0, 2^lonBits)
+     */
+    static long lonIndex(double lon, int precision) {
+        return index((lon + 180) / 360, lonBits(precision));
+    }
+
+    private static long index(double fraction, int bits) {
+        long cells = 1L << bits;
+        long index = (long) (fraction * cells);
+        // the upper bound (90 or 180) belongs to the last cell
+        return Math.max(0, Math.min(cells - 1, index));
+    }
+
+    /**
+     * Interleaves the cell row and column like a geohash: the first bit is a longitude bit.
+     */
+    static long cellId(long latIndex, long lonIndex, int precision) {
+        long bits = (5 * precision) % 2 == 0
+                ? spread(lonIndex) << 1 | spread(latIndex)
+                : spread(lonIndex) | spread(latIndex) << 1;
+        return (long) precision << 60 | bits;
+    }
+
+    /**
+     * Spreads the low 32 bits of the value to the even bit positions.
+     */
+    private static long spread(long value) {
+        long x = value & 0xFFFFFFFFL;
+        x = (x | x << 16) & 0x0000FFFF0000FFFFL;
+        x = (x | x << 8) & 0x00FF00FF00FF00FFL;
+        x = (x | x << 4) & 0x0F0F0F0F0F0F0F0FL;
+        x = (x | x << 2) & 0x3333333333333333L;
+        x = (x | x << 1) & 0x5555555555555555L;
+        return x;
+    }
+
+    /**
+     * @return the base32 geohash of a cell id, for logging and debugging
+     */
+    static String geohash(long cellId) {
+        int precision = (int) (cellId >>> 60);
+        char[] chars = new char[precision];
+        for (int i = 0; i < precision; i++) {
+            chars[i] = BASE32[(int) (cellId >>> (5 * (precision - 1 - i))) & 0x1F];
+        }
+        return new String(chars);
+    }
+
+    /**
+     * Returns a string describing the function.
+     */
+    @Override
+    public String toString() {
+        return "GEO_CELL";
+    }
+}
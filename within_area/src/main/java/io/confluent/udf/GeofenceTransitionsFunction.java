@@ -0,0 +1,161 @@
+package io.confluent.udf;
+
+import org.apache.flink.table.annotation.DataTypeHint;
+import org.apache.flink.table.annotation.FunctionHint;
+import org.apache.flink.table.functions.AggregateFunction;
+import org.apache.flink.types.Row;
+
+import java.util.Arrays;
+
+/**
+ * An aggregate function that turns the positions of a device into geofence transitions: it emits
+ * ENTER when the device enters an area and EXIT when it leaves one, and nothing while the set of
+ * areas containing the device is unchanged.
+ * Input: latitude and longitude in degrees, and the array of areas ROW(area_id, area_type, geo_locations, radius)
+ * Output: ARRAY of ROW(area_id, event) for the last position, EXIT events first, empty when nothing changed
+ *
+ * <p>Call it over an unbounded OVER window partitioned by device: the accumulator is the per-device
+ * state, checkpointed by Flink, and the output is append-only, one array per position. The state
+ * holds the sorted 64-bit hashes of the area ids containing the previous and the last position,
+ * so a device inside a few areas costs a few longs; the transitions are their differences,
+ * computed in getValue. Areas are matched with the same rules as IS_WITHIN_AREA, through the
+ * R-tree used by AREAS_CONTAINING.
+ *
+ * <p>An area removed from the areas array emits no EXIT: its id is no longer known when the device
+ * moves, and it is dropped from the state.
+ *
+ * <p>Usage in SQL (register as GEOFENCE_TRANSITIONS):
+ * <pre>
+ * SELECT device_id, ts, t.area_id, t.event
+ * FROM (
+ *   SELECT p.device_id, p.ts,
+ *     GEOFENCE_TRANSITIONS(p.lat, p.lon, l.areas) OVER (
+ *       PARTITION BY p.device_id ORDER BY p.ts
+ *       ROWS BETWEEN UNBOUNDED PRECEDING AND CURRENT ROW) AS transitions
+ *   FROM positions p JOIN area_list FOR SYSTEM_TIME AS OF p.ts AS l ON l.list_id = 'all'
+ * )
+ * CROSS JOIN UNNEST(transitions) AS t(area_id, event);
+ * </pre>
+ */
+@FunctionHint(output = @DataTypeHint("ARRAY<ROW<area_id STRING, event STRING>>"))
+public class GeofenceTransitionsFunction extends AggregateFunction<Row[], GeofenceTransitionsFunction.GeofenceAccumulator> {
+    static final String ENTER = "ENTER";
+    static final String EXIT = "EXIT";
+    private static final long[] NO_AREAS = new long[0];
+    private static final Row[] NO_TRANSITIONS = new Row[0];
+
+    // index of the last areas array, reused while the array content is unchanged
+    private transient AreaIndex.Cache areaIndex;
+
+    /**
+     * Per-device state: the areas containing the previous and the last position, as sorted hashes
+     * of their ids, see {@link AreaIndex#idHash}. Both are the same array when nothing changed.
+     */
+    public static class GeofenceAccumulator {
+        public long[] previousAreas = NO_AREAS;
+        public long[] areas = NO_AREAS;
+    }
+
+    @Override
+    public GeofenceAccumulator createAccumulator() {
+        return new GeofenceAccumulator();
+    }
+
+    /**
+     * Moves the device to (lat, lon). A null position or areas array keeps the current areas and
+     * emits nothing.
+     *
+     * @param acc   State of the device
+     * @param lat   Latitude of the position in degrees
+     * @param lon   Longitude of the position in degrees
+     * @param areas Reference areas; malformed rows are ignored
+     */
+    public void accumulate(GeofenceAccumulator acc, Double lat, Double lon,
+                           @DataTypeHint("ARRAY<ROW<area_id STRING, area_type STRING, geo_locations ARRAY<DOUBLE>, radius DOUBLE>>") Row[] areas) {
+        acc.previousAreas = acc.areas;
+        if (lat == null || lon == null || areas == null) {
+            return;
+        }
+        if (areaIndex == null) {
+            areaIndex = new AreaIndex.Cache();
+        }
+        long[] current = containingAreas(areaIndex.indexFor(areas), lat, lon);
+        if (!Arrays.equals(current, acc.areas)) {
+            acc.areas = current;
+        }
+    }
+
+    @Override
+    public Row[] getValue(GeofenceAccumulator acc) {
+        if (acc.previousAreas == acc.areas || Arrays.equals(acc.previousAreas, acc.areas)) {
+            return NO_TRANSITIONS;
+        }
+        long[] exited = difference(acc.previousAreas, acc.areas);
+        long[] entered = difference(acc.areas, acc.previousAreas);
+        AreaIndex index = areaIndex == null ? null : areaIndex.current();
+        Row[] transitions = new Row[exited.length + entered.length];
+        int count = 0;
+        for (long area : exited) {
+            String areaId = index == null ? null : index.areaIdOfHash(area);
+            if (areaId != null) {
+                transitions[count++] = Row.of(areaId, EXIT);
+            }
+        }
+        for (long area : entered) {
+            String areaId = index == null ? null : index.areaIdOfHash(area);
+            if (areaId != null) {
+                transitions[count++] = Row.of(areaId, ENTER);
+            }
+        }
+        return count == transitions.length ? transitions : Arrays.copyOf(transitions, count);
+    }
+
+    /**
+     * @return the sorted, distinct id hashes of the areas containing the point
+     */
+    private long[] containingAreas(AreaIndex idx, double lat, double lon) {
+        int[] matches = areaIndex.matches();
+        int count = idx.search(lat, lon, matches);
+        if (count == 0) {
+            return NO_AREAS;
+        }
+        long[] hashes = new long[count];
+        for (int i = 0; i < count; i++) {
+            hashes[i] = idx.areaIdHash(matches[i]);
+        }
+        Arrays.sort(hashes);
+        int distinct = 1;
+        for (int i = 1; i < count; i++) {
+            if (hashes[i] != hashes[distinct - 1]) {
+                hashes[distinct++] = hashes[i];
+            }
+        }
+        return distinct == count ? hashes : Arrays.copyOf(hashes, distinct);
+    }
+
+    /**
+     * @return the values of the sorted array {@code a} that are not in the sorted array {@code b}
+     */
+    static long[] difference(long[] a, long[] b) {
+        long[] result = new long[a.length];
+        int count = 0;
+        int j = 0;
+        for (long value : a) {
+            while (j < b.length && b[j] < value) {
+                j++;
+            }
+            if (j == b.length || b[j] != value) {
+                result[count++] = value;
+            }
+        }
+        return count == 0 ? NO_AREAS : Arrays.copyOf(result, count);
+    }
+
+    /**
+     * Returns a string describing the function.
+     */
+    @Override
+    public String toString() {
+        return "GEOFENCE_TRANSITIONS";
+    }
+}
@@ -0,0 +1,121 @@
+package io.confluent.udf;
+
+/**
+ * Bounded cache of decoded geometries by their {@link AreaGeometry#cacheKey}, an open addressing
+ * table with linear probing on a {@code long[]} of keys, so a lookup does not box the key.
+ *
+ * <p>The table has at least twice as many slots as the cache holds geometries. When it is full,
+ * the geometry to evict is chosen with the CLOCK policy, which approximates least recently used:
+ * a hand goes round the slots, sparing once each geometry used since it last passed.
+ *
+ * <p>Not thread safe: a function instance is only called by its task thread.
+ */
+final class GeometryCache {
+    // keeps the table within the int range
+    static final int MAX_SIZE = 1 << 28;
+
+    private final int maxSize;
+    private final int mask;
+    private final long[] keys;
+    // null for an empty slot
+    private final AreaGeometry[] geometries;
+    // set when a geometry is used, cleared by the clock hand
+    private final boolean[] used;
+    private int size;
+    private int hand;
+
+    GeometryCache(int maxSize) {
+        this.maxSize = Math.max(1, Math.min(maxSize, MAX_SIZE));
+        int slots = Integer.highestOneBit(2 * this.maxSize - 1) << 1;
+        mask = slots - 1;
+        keys = new long[slots];
+        geometries = new AreaGeometry[slots];
+        used = new boolean[slots];
+    }
+
+    /**
+     * @return the geometry cached under the key, not confirmed to match the area, or null
+     */
+    AreaGeometry get(long key) {
+        for (int i = slot(key); geometries[i] != null; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                used[i] = true;
+                return geometries[i];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Caches the geometry, replacing the one cached under the same key, and evicts a geometry if
+     * the cache is full.
+     */
+    void put(long key, AreaGeometry geometry) {
+        int i = slot(key);
+        while (geometries[i] != null) {
+            if (keys[i] == key) {
+                geometries[i] = geometry;
+                used[i] = true;
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        if (size == maxSize) {
+            evict();
+            // the eviction may have moved entries back into the probe sequence
+            i = slot(key);
+            while (geometries[i] != null) {
+                i = (i + 1) & mask;
+            }
+        }
+        keys[i] = key;
+        geometries[i] = geometry;
+        used[i] = false;
+        size++;
+    }
+
+    /**
+     * @return number of cached geometries
+     */
+    int size() {
+        return size;
+    }
+
+    private int slot(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    private void evict() {
+        while (true) {
+            if (geometries[hand] != null) {
+                if (!used[hand]) {
+                    remove(hand);
+                    return;
+                }
+                used[hand] = false;
+            }
+            hand = (hand + 1) & mask;
+        }
+    }
+
+    /**
+     * Empties the slot, and moves back the following entries of the run that can no longer be
+     * reached from their home slot, so lookups need no tombstones.
+     */
+    private void remove(int slot) {
+        int free = slot;
+        for (int i = (slot + 1) & mask; geometries[i] != null; i = (i + 1) & mask) {
+            // the entry can fill the free slot if the free slot is between its home slot and i
+            if (((i - slot(keys[i])) & mask) >= ((i - free) & mask)) {
+                keys[free] = keys[i];
+                geometries[free] = geometries[i];
+                used[free] = used[i];
+                free = i;
+            }
+        }
+        geometries[free] = null;
+        used[free] = false;
+        size--;
+    }
+}
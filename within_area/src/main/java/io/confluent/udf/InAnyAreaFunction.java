@@ -0,0 +1,214 @@
+package io.confluent.udf;
+
+import org.apache.flink.table.functions.FunctionContext;
+import org.apache.flink.table.functions.ScalarFunction;
+import org.apache.flink.types.Row;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Flink UDF that checks whether a point (lat, lon) is inside any of the areas of a local CSV file,
+ * with the same rules as {@link WithinAreaFunction}. The areas are not joined to the stream: each
+ * function instance loads them in open() into the R-tree used by AREAS_CONTAINING, so there is no
+ * join state.
+ *
+ * <p>Job parameters:
+ * <ul>
+ *   <li>{@value #AREAS_FILE_PARAM}: path of the CSV file, on every task manager</li>
+ *   <li>{@value #RELOAD_INTERVAL_PARAM}: how often the file modification time is checked, in
+ *       milliseconds (default {@value #DEFAULT_RELOAD_INTERVAL_MS}, 0 to never reload)</li>
+ * </ul>
+ *
+ * <p>CSV format, one area per line: {@code area_id,area_type,radius,v1,v2,...} where v1, v2, ... are
+ * the geo_locations values and radius is empty for rectangles and polygons. Empty lines, lines
+ * starting with '#' and a header line starting with "area_id" are skipped. Malformed lines are
+ * logged and skipped.
+ *
+ * <p>A background thread rebuilds the index when the file changes and swaps it in atomically;
+ * eval never waits for a reload. If the new file cannot be read, the previous areas are kept.
+ * Replace the file atomically (write a temporary file, then move it) so a reload never reads a
+ * partly written file.
+ *
+ * <p>Usage in SQL (register as IS_IN_ANY_AREA):
+ * <pre>
+ * SELECT * FROM customers WHERE IS_IN_ANY_AREA(lat, lon);
+ * </pre>
+ */
+public class InAnyAreaFunction extends ScalarFunction {
+    private static final Logger logger = LogManager.getLogger(InAnyAreaFunction.class);
+    static final String AREAS_FILE_PARAM = "within_area.areas_file";
+    static final String RELOAD_INTERVAL_PARAM = "within_area.areas_reload_interval_ms";
+    static final long DEFAULT_RELOAD_INTERVAL_MS = 60_000;
+    private static final AreaIndex NO_AREAS = new AreaIndex(new Row[0]);
+
+    private transient Path areasFile;
+    // replaced as a whole by the reload thread, read by eval
+    private transient volatile AreaIndex index;
+    private transient long loadedModifiedTime;
+    private transient ScheduledExecutorService reloader;
+    // search buffer of the task thread, grown with the index
+    private transient int[] matches;
+
+    @Override
+    public void open(FunctionContext context) throws Exception {
+        super.open(context);
+        index = NO_AREAS;
+        matches = new int[0];
+        loadedModifiedTime = Long.MIN_VALUE;
+        String file = context.getJobParameter(AREAS_FILE_PARAM, null);
+        if (file == null || file.isBlank()) {
+            logger.error("Job parameter {} is not set, no point is in any area", AREAS_FILE_PARAM);
+            return;
+        }
+        areasFile = Paths.get(file.trim());
+        reloadIfChanged();
+
+        long interval = parseInterval(context.getJobParameter(RELOAD_INTERVAL_PARAM, String.valueOf(DEFAULT_RELOAD_INTERVAL_MS)));
+        if (interval > 0) {
+            reloader = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "areas-reloader-" + areasFile.getFileName());
+                thread.setDaemon(true);
+                return thread;
+            });
+            reloader.scheduleWithFixedDelay(this::reloadIfChanged, interval, interval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * @param lat latitude of the point in degrees
+     * @param lon longitude of the point in degrees
+     * @return true if the point is inside at least one area of the file
+     */
+    public boolean eval(Double lat, Double lon) {
+        if (lat == null || lon == null) {
+            return false;
+        }
+        AreaIndex idx = index;
+        if (idx == null || idx.size == 0) {
+            return false;
+        }
+        if (matches.length < 3 * idx.size) {
+            // each area can show up three times when the anti-meridian copies are searched
+            matches = new int[3 * idx.size];
+        }
+        return idx.search(lat, lon, matches) > 0;
+    }
+
+    @Override
+    public void close() throws Exception {
+        if (reloader != null) {
+            reloader.shutdownNow();
+            reloader = null;
+        }
+        super.close();
+    }
+
+    /**
+     * Loads the file if its modification time changed since the last load. Errors are logged and
+     * keep the current index.
+     */
+    void reloadIfChanged() {
+        try {
+            long modifiedTime = Files.getLastModifiedTime(areasFile).toMillis();
+            if (modifiedTime == loadedModifiedTime) {
+                return;
+            }
+            AreaIndex loaded = new AreaIndex(readAreas(areasFile));
+            loadedModifiedTime = modifiedTime;
+            index = loaded;
+            logger.info("Loaded {} areas from {}", loaded.size, areasFile);
+        } catch (IOException | RuntimeException e) {
+            logger.error("Cannot load areas from {}, keeping {} areas: {}", areasFile, index.size, e.getMessage());
+        }
+    }
+
+    /**
+     * @return number of areas currently indexed
+     */
+    int areaCount() {
+        return index == null ? 0 : index.size;
+    }
+
+    static Row[] readAreas(Path file) throws IOException {
+        List<Row> areas = new ArrayList<>();
+        int lineNumber = 0;
+        for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+            lineNumber++;
+            String trimmed = line.trim();
+            if (trimmed.isEmpty() || trimmed.startsWith("#") || trimmed.startsWith("area_id")) {
+                continue;
+            }
+            Row area = parseArea(trimmed);
+            if (area == null) {
+                logger.error("Skipping malformed area at {}:{}: {}", file, lineNumber, line);
+            } else {
+                areas.add(area);
+            }
+        }
+        return areas.toArray(new Row[0]);
+    }
+
+    /**
+     * @return ROW(area_id, area_type, geo_locations, radius) as AreaIndex reads it, or null if the
+     *         line is malformed
+     */
+    private static Row parseArea(String line) {
+        String[] fields = line.split(",", -1);
+        if (fields.length < 4) {
+            return null;
+        }
+        try {
+            String areaId = fields[0].trim();
+            String areaType = fields[1].trim();
+            Double radius = fields[2].isBlank() ? null : Double.parseDouble(fields[2].trim());
+            Double[] locations = new Double[fields.length - 3];
+            for (int i = 0; i < locations.length; i++) {
+                locations[i] = Double.parseDouble(fields[i + 3].trim());
+            }
+            if (areaId.isEmpty() || AreaGeometry.of(areaType, Arrays.asList(locations), radius) == null) {
+                return null;
+            }
+            return Row.of(areaId, areaType, locations, radius);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static long parseInterval(String value) {
+        try {
+            return Math.max(0, Long.parseLong(value.trim()));
+        } catch (NumberFormatException e) {
+            logger.error("Invalid {} '{}', using {}", RELOAD_INTERVAL_PARAM, value, DEFAULT_RELOAD_INTERVAL_MS);
+            return DEFAULT_RELOAD_INTERVAL_MS;
+        }
+    }
+
+    /**
+     * The result depends on the areas file, which can change while the job runs: a call with
+     * constant arguments must not be reduced to a constant when the query is planned.
+     */
+    @Override
+    public boolean isDeterministic() {
+        return false;
+    }
+
+    /**
+     * Returns a string describing the function.
+     */
+    @Override
+    public String toString() {
+        return "IS_IN_ANY_AREA";
+    }
+}
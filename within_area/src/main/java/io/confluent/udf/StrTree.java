@@ -0,0 +1,188 @@
+package io.confluent.udf;
+
+import java.util.Arrays;
+
+/**
+ * Static R-tree over lat/lon envelopes, bulk loaded with the Sort-Tile-Recursive (STR) packing.
+ * The tree is stored level by level in primitive arrays: level 0 holds the item envelopes, and
+ * each node of the upper levels covers a contiguous range of entries of the level below.
+ * A point query visits O(log n) nodes for non-overlapping envelopes.
+ *
+ * <p>The tree is immutable once built and can be read by several threads.
+ */
+final class StrTree {
+    static final int NODE_CAPACITY = 16;
+
+    private final int size;
+    // items[i] is the item id of level 0 entry i
+    private final int[] items;
+    private final double[][] minLat;
+    private final double[][] maxLat;
+    private final double[][] minLon;
+    private final double[][] maxLon;
+    // for levels >= 1: children of node i are the entries [childStart[i], childEnd[i]) of the level below
+    private final int[][] childStart;
+    private final int[][] childEnd;
+
+    StrTree(double[] itemMinLat, double[] itemMaxLat, double[] itemMinLon, double[] itemMaxLon) {
+        size = itemMinLat.length;
+        int levels = 1;
+        for (int count = size; count > 1; count = (count + NODE_CAPACITY - 1) / NODE_CAPACITY) {
+            levels++;
+        }
+        minLat = new double[levels][];
+        maxLat = new double[levels][];
+        minLon = new double[levels][];
+        maxLon = new double[levels][];
+        childStart = new int[levels][];
+        childEnd = new int[levels][];
+
+        int[] ids = new int[size];
+        int[] starts = new int[size];
+        int[] ends = new int[size];
+        for (int i = 0; i < size; i++) {
+            ids[i] = i;
+        }
+        double[] lowLat = itemMinLat.clone();
+        double[] highLat = itemMaxLat.clone();
+        double[] lowLon = itemMinLon.clone();
+        double[] highLon = itemMaxLon.clone();
+        int count = size;
+        int[] levelItems = ids;
+        for (int level = 0; level < levels; level++) {
+            // tile the entries of this level, then group runs of NODE_CAPACITY into parents
+            int[] order = strOrder(lowLat, highLat, lowLon, highLon, count);
+            minLat[level] = permute(lowLat, order);
+            maxLat[level] = permute(highLat, order);
+            minLon[level] = permute(lowLon, order);
+            maxLon[level] = permute(highLon, order);
+            if (level == 0) {
+                int[] sortedItems = new int[count];
+                for (int i = 0; i < count; i++) {
+                    sortedItems[i] = levelItems[order[i]];
+                }
+                levelItems = sortedItems;
+            } else {
+                childStart[level] = permute(starts, order);
+                childEnd[level] = permute(ends, order);
+            }
+            if (level == levels - 1) {
+                break;
+            }
+
+            int parents = (count + NODE_CAPACITY - 1) / NODE_CAPACITY;
+            double[] parentMinLat = new double[parents];
+            double[] parentMaxLat = new double[parents];
+            double[] parentMinLon = new double[parents];
+            double[] parentMaxLon = new double[parents];
+            starts = new int[parents];
+            ends = new int[parents];
+            for (int p = 0; p < parents; p++) {
+                int from = p * NODE_CAPACITY;
+                int to = Math.min(count, from + NODE_CAPACITY);
+                starts[p] = from;
+                ends[p] = to;
+                parentMinLat[p] = Double.POSITIVE_INFINITY;
+                parentMaxLat[p] = Double.NEGATIVE_INFINITY;
+                parentMinLon[p] = Double.POSITIVE_INFINITY;
+                parentMaxLon[p] = Double.NEGATIVE_INFINITY;
+                for (int i = from; i < to; i++) {
+                    parentMinLat[p] = Math.min(parentMinLat[p], minLat[level][i]);
+                    parentMaxLat[p] = Math.max(parentMaxLat[p], maxLat[level][i]);
+                    parentMinLon[p] = Math.min(parentMinLon[p], minLon[level][i]);
+                    parentMaxLon[p] = Math.max(parentMaxLon[p], maxLon[level][i]);
+                }
+            }
+            lowLat = parentMinLat;
+            highLat = parentMaxLat;
+            lowLon = parentMinLon;
+            highLon = parentMaxLon;
+            count = parents;
+        }
+        items = levelItems;
+    }
+
+    /**
+     * Writes the ids of the items whose envelope contains the point into {@code out}, from
+     * {@code offset}, and returns the new offset. {@code out} must have room for every item.
+     */
+    int search(double lat, double lon, int[] out, int offset) {
+        if (size == 0) {
+            return offset;
+        }
+        int root = minLat.length - 1;
+        if (root == 0) {
+            return collectItems(0, size, lat, lon, out, offset);
+        }
+        return search(root, 0, lat, lon, out, offset);
+    }
+
+    private int search(int level, int node, double lat, double lon, int[] out, int offset) {
+        if (!contains(level, node, lat, lon)) {
+            return offset;
+        }
+        int from = childStart[level][node];
+        int to = childEnd[level][node];
+        if (level == 1) {
+            return collectItems(from, to, lat, lon, out, offset);
+        }
+        for (int child = from; child < to; child++) {
+            offset = search(level - 1, child, lat, lon, out, offset);
+        }
+        return offset;
+    }
+
+    private int collectItems(int from, int to, double lat, double lon, int[] out, int offset) {
+        for (int i = from; i < to; i++) {
+            if (contains(0, i, lat, lon)) {
+                out[offset++] = items[i];
+            }
+        }
+        return offset;
+    }
+
+    private boolean contains(int level, int i, double lat, double lon) {
+        return lat >= minLat[level][i] && lat <= maxLat[level][i]
+                && lon >= minLon[level][i] && lon <= maxLon[level][i];
+    }
+
+    /**
+     * Sort-Tile-Recursive order: sort by longitude center into vertical slices of about
+     * sqrt(n / capacity) nodes each, then by latitude center inside each slice.
+     */
+    private static int[] strOrder(double[] lowLat, double[] highLat, double[] lowLon, double[] highLon, int count) {
+        Integer[] order = new Integer[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(lowLon[a] + highLon[a], lowLon[b] + highLon[b]));
+        int nodes = (count + NODE_CAPACITY - 1) / NODE_CAPACITY;
+        int slices = (int) Math.ceil(Math.sqrt(nodes));
+        int sliceSize = NODE_CAPACITY * ((nodes + slices - 1) / Math.max(1, slices));
+        for (int from = 0; from < count; from += sliceSize) {
+            Arrays.sort(order, from, Math.min(count, from + sliceSize),
+                    (a, b) -> Double.compare(lowLat[a] + highLat[a], lowLat[b] + highLat[b]));
+        }
+        int[] result = new int[count];
+        for (int i = 0; i < count; i++) {
+            result[i] = order[i];
+        }
+        return result;
+    }
+
+    private static double[] permute(double[] values, int[] order) {
+        double[] result = new double[order.length];
+        for (int i = 0; i < order.length; i++) {
+            result[i] = values[order[i]];
+        }
+        return result;
+    }
+
+    private static int[] permute(int[] values, int[] order) {
+        int[] result = new int[order.length];
+        for (int i = 0; i < order.length; i++) {
+            result[i] = values[order[i]];
+        }
+        return result;
+    }
+}
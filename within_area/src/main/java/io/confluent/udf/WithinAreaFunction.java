@@ -1,35 +1,76 @@
 package io.confluent.udf;
 
+import org.apache.flink.metrics.Gauge;
+import org.apache.flink.table.functions.FunctionContext;
 import org.apache.flink.table.functions.ScalarFunction;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+
 import java.util.List;
 
 /**
  * Flink UDF that checks whether a point (lat, lon) is inside an area.
- * Areas are defined as rectangle or circle
+ * Areas are defined as rectangle, circle or polygon
  * <p>Table schema (example):
  *   area_id    STRING
- *   area_type  STRING  // "RECTANGLE" or "CIRCLE"
- *   geo_locations  ARRAY<DOUBLE>   // 4 values for rectangle, 2 for circle
- *   radius     DOUBLE (nullable, meters, only used for circles)
+ *   area_type  STRING  // "RECTANGLE", "CIRCLE" or "POLYGON"
+ *   geo_locations  ARRAY<DOUBLE>   // 4 values for rectangle, 2 for circle, lat/lon pairs for polygon
+ *   radius     DOUBLE (nullable, kilometers, only used for circles)
  *
  * <p>Usage in SQL:
 
+ *
+ * <p>Rectangle and circle geometries are decoded once into primitive fields ({@link AreaGeometry}):
+ * sorted bounds, center trigonometry and bounding box. They are kept in a bounded
+ * {@link GeometryCache} keyed by a primitive long, so a reference table of areas is decoded once
+ * per task, not once per row. A cache hit costs one pass comparing
+ * geo_locations with the decoded values. The cache size is set with the job parameter
+ * {@value #CACHE_SIZE_PARAM}, and its hit rate is reported as the {@value #CACHE_HIT_RATE_METRIC}
+ * metric.
+ *
+ * <p>Polygons are cached too, for their envelope. The cache key only samples geo_locations, so a
+ * point inside the envelope of the cached geometry is tested with one ray casting pass over
+ * geo_locations, which needs no confirmation of the hit, and a point outside it is rejected after
+ * a pass comparing geo_locations with the decoded vertices, without the ray casting arithmetic.
  */
 public class WithinAreaFunction extends ScalarFunction {
     private static final Logger logger = LogManager.getLogger(WithinAreaFunction.class);
     private static final double EARTH_RADIUS_KM = 6371.0; // Earth's radius in kilometers
     private static final double EARTH_RADIUS_METERS = 6_371_000.0; // mean radius
+    static final String CACHE_SIZE_PARAM = "within_area.geometry_cache_size";
+    static final int DEFAULT_CACHE_SIZE = 1024;
+    static final String CACHE_HIT_RATE_METRIC = "geometryCacheHitRate";
+
+    // decoded geometries by AreaGeometry.cacheKey, created on first use
+    private transient GeometryCache geometryCache;
+    private transient int cacheSize;
+    // last geometry returned, checked first as rows often come with the same area
+    private transient AreaGeometry lastGeometry;
+    private transient long lastKey;
+    private transient long cacheHits;
+    private transient long cacheMisses;
+
+    @Override
+    public void open(FunctionContext context) throws Exception {
+        super.open(context);
+        String size = context.getJobParameter(CACHE_SIZE_PARAM, String.valueOf(DEFAULT_CACHE_SIZE));
+        try {
+            cacheSize = Math.max(1, Integer.parseInt(size.trim()));
+        } catch (NumberFormatException e) {
+            logger.error("Invalid {} '{}', using {}", CACHE_SIZE_PARAM, size, DEFAULT_CACHE_SIZE);
+            cacheSize = DEFAULT_CACHE_SIZE;
+        }
+        context.getMetricGroup().gauge(CACHE_HIT_RATE_METRIC, (Gauge<Double>) this::getCacheHitRate);
+    }
 
     /**
      * Calculates the distance between two points on Earth using the Haversine formula.
      *
      * @param pointLat      latitude of the point you want to test
      * @param pointLon      longitude of the point you want to test
-     * @param areaType      "RECTANGLE" or "CIRCLE" (case‑insensitive)
+     * @param areaType      "RECTANGLE", "CIRCLE" or "POLYGON" (case‑insensitive)
      * @param geoLocations  list of doubles that encode the area geometry
-     * @param radius        radius in meters (only needed for circles)
+     * @param radius        radius in kilometers (only needed for circles)
      * @return true if the point is inside the area, false otherwise
      */
     public boolean eval(Double pointLat, Double pointLon, String areaType,  List<Double> geoLocations, Double radius) {
@@ -37,13 +78,16 @@ public class WithinAreaFunction extends ScalarFunction {
             return false;
         }
 
-        switch (areaType.toUpperCase()) {
+        switch (AreaGeometry.typeOf(areaType)) {
             case "RECTANGLE":
                 return insideRectangle(pointLat, pointLon, geoLocations);
 
             case "CIRCLE":
                 return insideCircle(pointLat, pointLon, geoLocations, radius);
 
+            case "POLYGON":
+                return insidePolygon(pointLat, pointLon, geoLocations);
+
             default:
                 // Unknown area type → treat as outside
                 return false;
@@ -55,18 +99,116 @@ public class WithinAreaFunction extends ScalarFunction {
             return false; // malformed data
         }
 
-        double lat1 = loc.get(0);
-        double lon1 = loc.get(1);
-        double lat2 = loc.get(2);
-        double lon2 = loc.get(3);
+        // bounds sorted once, on the cached geometry
+        return inside(AreaGeometry.RECTANGLE, pLat, pLon, loc, null);
+    }
 
-        double minLat = Math.min(lat1, lat2);
-        double maxLat = Math.max(lat1, lat2);
-        double minLon = Math.min(lon1, lon2);
-        double maxLon = Math.max(lon1, lon2);
+    /* ------------------------------------------------------------ */
+    /*   Geometry cache                                               */
+    /* ------------------------------------------------------------ */
+    private boolean inside(String type, Double pLat, Double pLon, List<Double> loc, Double rad) {
+        AreaGeometry geometry = geometry(type, loc, rad);
+        return geometry != null && geometry.contains(pLat, pLon);
+    }
 
-        return pLat >= minLat && pLat <= maxLat &&
-               pLon >= minLon && pLon <= maxLon;
+    /**
+     * @param type one of the AreaGeometry type constants
+     * @return the decoded geometry, from the cache when the same area was seen before,
+     *         or null if the area is malformed
+     */
+    AreaGeometry geometry(String type, List<Double> loc, Double rad) {
+        long key = AreaGeometry.cacheKey(type, loc, rad);
+        AreaGeometry geometry = cached(key);
+        if (geometry != null && geometry.matches(type, loc, rad)) {
+            cacheHits++;
+            lastGeometry = geometry;
+            lastKey = key;
+            return geometry;
+        }
+        return decode(key, type, loc, rad);
+    }
+
+    /**
+     * @return the geometry cached under the key, not confirmed to match the area, or null
+     */
+    private AreaGeometry cached(long key) {
+        if (lastGeometry != null && lastKey == key) {
+            return lastGeometry;
+        }
+        return geometryCache == null ? null : geometryCache.get(key);
+    }
+
+    private AreaGeometry decode(long key, String type, List<Double> loc, Double rad) {
+        cacheMisses++;
+        AreaGeometry geometry = AreaGeometry.of(type, loc, rad);
+        if (geometry == null) {
+            return null; // malformed data
+        }
+        if (geometryCache == null) {
+            geometryCache = new GeometryCache(cacheSize > 0 ? cacheSize : DEFAULT_CACHE_SIZE);
+        }
+        // on a key collision the newer geometry replaces the cached one
+        geometryCache.put(key, geometry);
+        lastGeometry = geometry;
+        lastKey = key;
+        return geometry;
+    }
+
+    /**
+     * Rejects points outside the envelope of the cached polygon once geo_locations are confirmed
+     * to be its vertices; other points are tested in one pass over geo_locations.
+     */
+    private boolean insidePolygon(double pLat, double pLon, List<Double> loc) {
+        long key = AreaGeometry.cacheKey(AreaGeometry.POLYGON, loc, null);
+        AreaGeometry geometry = cached(key);
+        if (geometry != null && geometry.type == AreaGeometry.POLYGON) {
+            if (geometry.envelopeContains(pLat, pLon)) {
+                // correct whatever the cached polygon: the envelope only chooses the test
+                cacheHits++;
+                return AreaGeometry.polygonContains(loc, pLat, pLon);
+            }
+            int result = geometry.polygonTest(loc, pLat, pLon);
+            if (result == AreaGeometry.SAME_VERTICES) {
+                cacheHits++;
+                lastGeometry = geometry;
+                lastKey = key;
+                return false;
+            }
+            // another polygon with the same key: cache it for the next rows
+            decode(key, AreaGeometry.POLYGON, loc, null);
+            return result == AreaGeometry.INSIDE;
+        }
+        geometry = decode(key, AreaGeometry.POLYGON, loc, null);
+        return geometry != null && geometry.contains(pLat, pLon);
+    }
+
+    /**
+     * @return number of decoded geometries in the cache
+     */
+    public int getCachedGeometries() {
+        return geometryCache == null ? 0 : geometryCache.size();
+    }
+
+    /**
+     * @return number of lookups that found the geometry already decoded
+     */
+    public long getCacheHits() {
+        return cacheHits;
+    }
+
+    /**
+     * @return number of lookups that had to decode the geometry
+     */
+    public long getCacheMisses() {
+        return cacheMisses;
+    }
+
+    /**
+     * @return share of lookups that found the geometry already decoded, 0 before the first lookup
+     */
+    public double getCacheHitRate() {
+        long lookups = cacheHits + cacheMisses;
+        return lookups == 0 ? 0.0 : (double) cacheHits / lookups;
     }
 
     /* ------------------------------------------------------------ */
@@ -77,15 +219,13 @@ public class WithinAreaFunction extends ScalarFunction {
             return false; // malformed data
         }
 
-        double centerLat = loc.get(0);
-        double centerLon = loc.get(1);
-
-        double distanceMeters = haversineMeters(pLat, pLon, centerLat, centerLon);
-        return distanceMeters <= rad;
+        // bounding box rejection, then haversine distance, on the cached geometry
+        return inside(AreaGeometry.CIRCLE, pLat, pLon, loc, rad);
     }
 
     /**
-     * Haversine formula that returns the great‑circle distance in meters.
+     * Haversine formula that returns the great‑circle distance in kilometers, the unit of the
+     * circle radius, despite its name.
      */
     public double haversineMeters(
             double lat1Deg, double lon1Deg,
@@ -115,4 +255,5 @@ public class WithinAreaFunction extends ScalarFunction {
     public String toString() {
         return "IS_WITHIN_DISTANCE";
     }
+
 }
@@ -0,0 +1,125 @@
+package io.confluent.udf;
+
+import org.apache.flink.util.Collector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AreaCellsFunctionTest {
+    private AreaCellsFunction function;
+    private GeoCellFunction geoCell;
+    private WithinAreaFunction withinArea;
+    private List<Long> collectedCells;
+
+    /**
+     * A simple Collector implementation that stores collected cells in a list.
+     */
+    private static class ListCollector implements Collector<Long> {
+        private final List<Long> cells;
+
+        ListCollector(List<Long> cells) {
+            this.cells = cells;
+        }
+
+        @Override
+        public void collect(Long cell) {
+            cells.add(cell);
+        }
+
+        @Override
+        public void close() {
+            // No-op
+        }
+    }
+
+    @BeforeEach
+    void setUp() throws Exception {
+        function = new AreaCellsFunction();
+        geoCell = new GeoCellFunction();
+        withinArea = new WithinAreaFunction();
+        collectedCells = new ArrayList<>();
+
+        // Inject the collector using reflection
+        Field collectorField = function.getClass().getSuperclass().getDeclaredField("collector");
+        collectorField.setAccessible(true);
+        collectorField.set(function, new ListCollector(collectedCells));
+    }
+
+    @Test
+    void testRectangleCells() {
+        // sf_north_beach_rect at precision 5 spans two cells
+        function.eval("RECTANGLE", List.of(37.80800, -122.41700, 37.79800, -122.40500), 0.0, 5);
+        Set<String> geohashes = new HashSet<>();
+        collectedCells.forEach(cell -> geohashes.add(GeoCellFunction.geohash(cell)));
+        assertTrue(geohashes.contains("9q8zn"));
+        assertEquals(collectedCells.size(), new HashSet<>(collectedCells).size(), "Cells should be distinct");
+    }
+
+    @Test
+    void testPointsInsideAreasAreInCoveringCells() {
+        assertCovers("RECTANGLE", List.of(37.80800, -122.41700, 37.79800, -122.40500), 0.0, 6);
+        assertCovers("CIRCLE", List.of(37.78825, -122.40640), 1.0, 6);
+        assertCovers("CIRCLE", List.of(51.5074, -0.1278), 25.0, 4);
+        // crossing the anti-meridian
+        assertCovers("CIRCLE", List.of(-16.5, 179.9), 40.0, 4);
+        // containing the north pole
+        assertCovers("CIRCLE", List.of(89.9, 10.0), 50.0, 3);
+    }
+
+    @Test
+    void testMalformedAreasEmitNothing() {
+        function.eval("RECTANGLE", List.of(50.0, -0.10), 0.0, 5);
+        function.eval("CIRCLE", List.of(50.0, -0.10), null, 5);
+        function.eval("TRIANGLE", List.of(50.0, -0.10), 1.0, 5);
+        function.eval("CIRCLE", List.of(50.0, -0.10), 1.0, null);
+        function.eval("CIRCLE", List.of(50.0, -0.10), 1.0, 13);
+        function.eval(null, List.of(50.0, -0.10), 1.0, 5);
+        assertTrue(collectedCells.isEmpty());
+    }
+
+    @Test
+    void testTooManyCellsEmitNothing() {
+        function.eval("RECTANGLE", List.of(-60.0, -170.0, 60.0, 170.0), 0.0, 8);
+        assertTrue(collectedCells.isEmpty());
+    }
+
+    private void assertCovers(String areaType, List<Double> geoLocations, double radius, int precision) {
+        collectedCells.clear();
+        function.eval(areaType, geoLocations, radius, precision);
+        Set<Long> cells = new HashSet<>(collectedCells);
+        assertFalse(cells.isEmpty());
+
+        // sample around the area envelope
+        AreaGeometry geometry = AreaGeometry.of(areaType, geoLocations, radius);
+        double latMargin = (geometry.maxLat - geometry.minLat) * 0.2;
+        double lonMargin = (geometry.maxLon - geometry.minLon) * 0.2;
+        Random random = new Random(5);
+        int inside = 0;
+        for (int i = 0; i < 20_000; i++) {
+            double lat = Math.max(-90, Math.min(90, geometry.minLat - latMargin
+                    + random.nextDouble() * (geometry.maxLat - geometry.minLat + 2 * latMargin)));
+            double lon = geometry.minLon - lonMargin
+                    + random.nextDouble() * (geometry.maxLon - geometry.minLon + 2 * lonMargin);
+            lon = lon > 180 ? lon - 360 : lon < -180 ? lon + 360 : lon;
+            if (withinArea.eval(lat, lon, areaType, geoLocations, radius)) {
+                inside++;
+                assertTrue(cells.contains(geoCell.eval(lat, lon, precision)),
+                        "Cell of (" + lat + ", " + lon + ") should cover " + areaType + " " + geoLocations);
+            }
+        }
+        assertTrue(inside > 0, "Some sampled points should be inside the area");
+    }
+
+    @Test
+    void testToString() {
+        assertEquals("AREA_CELLS", function.toString());
+    }
+}
@@ -0,0 +1,184 @@
+package io.confluent.udf;
+
+import org.apache.flink.types.Row;
+import org.apache.flink.util.Collector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AreasContainingFunctionTest {
+    private AreasContainingFunction function;
+    private WithinAreaFunction withinArea;
+    private List<String> collected;
+
+    /**
+     * A simple Collector implementation that stores collected area ids in a list.
+     */
+    private static class ListCollector implements Collector<String> {
+        private final List<String> values;
+
+        ListCollector(List<String> values) {
+            this.values = values;
+        }
+
+        @Override
+        public void collect(String value) {
+            values.add(value);
+        }
+
+        @Override
+        public void close() {
+            // No-op
+        }
+    }
+
+    @BeforeEach
+    void setUp() throws Exception {
+        function = new AreasContainingFunction();
+        withinArea = new WithinAreaFunction();
+        collected = new ArrayList<>();
+
+        // Inject the collector using reflection
+        Field collectorField = function.getClass().getSuperclass().getDeclaredField("collector");
+        collectorField.setAccessible(true);
+        collectorField.set(function, new ListCollector(collected));
+    }
+
+    @Test
+    void testPointInRectangleAndCircle() {
+        Row[] areas = new Row[]{
+            Row.of("downtown", "RECTANGLE", new Double[]{37.77, -122.42, 37.80, -122.39}, null),
+            Row.of("union_square", "CIRCLE", new Double[]{37.78825, -122.40640}, 1.0),
+            Row.of("oakland", "RECTANGLE", new Double[]{37.79, -122.28, 37.81, -122.26}, null)
+        };
+
+        function.eval(37.7880, -122.4070, areas);
+
+        collected.sort(null);
+        assertEquals(List.of("downtown", "union_square"), collected);
+    }
+
+    @Test
+    void testMatchesBruteForce() {
+        Random random = new Random(7);
+        Row[] areas = new Row[2000];
+        for (int i = 0; i < areas.length; i++) {
+            double lat = random.nextDouble() * 160 - 80;
+            double lon = random.nextDouble() * 360 - 180;
+            if (random.nextBoolean()) {
+                areas[i] = Row.of("r" + i, "RECTANGLE",
+                        new Double[]{lat, lon, lat + random.nextDouble() * 10, lon + random.nextDouble() * 10}, null);
+            } else {
+                areas[i] = Row.of("c" + i, "CIRCLE", new Double[]{lat, lon}, random.nextDouble() * 800);
+            }
+        }
+        for (int query = 0; query < 2000; query++) {
+            double lat = random.nextDouble() * 180 - 90;
+            double lon = random.nextDouble() * 360 - 180;
+            collected.clear();
+            function.eval(lat, lon, areas);
+
+            List<String> expected = new ArrayList<>();
+            for (Row area : areas) {
+                if (withinArea.eval(lat, lon, (String) area.getField(1),
+                        Arrays.asList((Double[]) area.getField(2)), (Double) area.getField(3))) {
+                    expected.add((String) area.getField(0));
+                }
+            }
+            expected.sort(null);
+            collected.sort(null);
+            assertEquals(expected, collected, "point " + lat + ", " + lon);
+        }
+        assertEquals(1, function.indexBuilds(), "Index should be built once for an unchanged array");
+    }
+
+    @Test
+    void testCircleAcrossAntiMeridian() {
+        Row[] areas = new Row[]{Row.of("fiji", "CIRCLE", new Double[]{-17.0, 179.9}, 100.0)};
+
+        function.eval(-17.0, -179.5, areas);
+        assertEquals(List.of("fiji"), collected);
+
+        collected.clear();
+        function.eval(-17.0, -178.0, areas);
+        assertTrue(collected.isEmpty());
+    }
+
+    @Test
+    void testIndexRebuiltWhenContentChanges() {
+        function.eval(10.0, 10.0, new Row[]{Row.of("a", "CIRCLE", new Double[]{10.0, 10.0}, 5.0)});
+        // same content in a new array: index reused
+        function.eval(10.0, 10.0, new Row[]{Row.of("a", "CIRCLE", new Double[]{10.0, 10.0}, 5.0)});
+        assertEquals(1, function.indexBuilds());
+        assertEquals(List.of("a", "a"), collected);
+
+        collected.clear();
+        function.eval(10.0, 10.0, new Row[]{Row.of("a", "CIRCLE", new Double[]{20.0, 20.0}, 5.0)});
+        assertEquals(2, function.indexBuilds());
+        assertTrue(collected.isEmpty());
+    }
+
+    @Test
+    void testUnsampledChangeFoundByFullCheck() {
+        Row[] areas = new Row[20];
+        for (int i = 0; i < areas.length; i++) {
+            areas[i] = Row.of("a" + i, "CIRCLE", new Double[]{10.0 * i, 0.0}, 5.0);
+        }
+        function.eval(10.0, 0.0, areas);
+        assertEquals(List.of("a1"), collected);
+        // a1 is not a sampled row: the sampled rows are 0, 2, 4, ... and the last one
+        Row[] changed = areas.clone();
+        changed[1] = Row.of("a1", "CIRCLE", new Double[]{50.0, 50.0}, 5.0);
+        function.eval(10.0, 0.0, changed);
+        assertEquals(1, function.indexBuilds(), "Unsampled rows are not compared on every call");
+        for (int i = 1; i < AreaIndex.Cache.FULL_CHECK_CALLS; i++) {
+            function.eval(10.0, 0.0, changed.clone());
+        }
+        assertEquals(2, function.indexBuilds());
+        collected.clear();
+        function.eval(10.0, 0.0, changed.clone());
+        assertTrue(collected.isEmpty());
+        // a sampled row is compared on every call
+        changed[2] = Row.of("a2", "CIRCLE", new Double[]{50.0, 50.0}, 5.0);
+        function.eval(10.0, 0.0, changed.clone());
+        assertEquals(3, function.indexBuilds());
+    }
+
+    @Test
+    void testMalformedAreasAreIgnored() {
+        Row[] areas = new Row[]{
+            null,
+            Row.of("unknown", "TRIANGLE", new Double[]{10.0, 10.0}, 5.0),
+            Row.of("no_radius", "CIRCLE", new Double[]{10.0, 10.0}, null),
+            Row.of("short", "RECTANGLE", new Double[]{9.0, 9.0, 11.0}, null),
+            Row.of("null_value", "RECTANGLE", new Double[]{9.0, null, 11.0, 11.0}, null),
+            Row.of("ok", "rectangle", new Double[]{9.0, 9.0, 11.0, 11.0}, null)
+        };
+
+        function.eval(10.0, 10.0, areas);
+
+        assertEquals(List.of("ok"), collected);
+    }
+
+    @Test
+    void testNullInputsEmitNothing() {
+        Row[] areas = new Row[]{Row.of("a", "CIRCLE", new Double[]{10.0, 10.0}, 5.0)};
+        function.eval(null, 10.0, areas);
+        function.eval(10.0, null, areas);
+        function.eval(10.0, 10.0, null);
+        function.eval(10.0, 10.0, new Row[0]);
+        assertTrue(collected.isEmpty());
+    }
+
+    @Test
+    void testToString() {
+        assertEquals("AREAS_CONTAINING", function.toString());
+    }
+}
@@ -0,0 +1,58 @@
+package io.confluent.udf;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GeoCellFunctionTest {
+    private GeoCellFunction geoCell;
+
+    @BeforeEach
+    void setUp() {
+        geoCell = new GeoCellFunction();
+    }
+
+    @Test
+    void testMatchesKnownGeohashes() {
+        assertEquals("u4pruydqqvj", GeoCellFunction.geohash(geoCell.eval(57.64911, 10.40744, 11)));
+        assertEquals("ezs42", GeoCellFunction.geohash(geoCell.eval(42.605, -5.603, 5)));
+        assertEquals("9q8yy", GeoCellFunction.geohash(geoCell.eval(37.77493, -122.41942, 5)));
+        assertEquals("9q8yyk", GeoCellFunction.geohash(geoCell.eval(37.77493, -122.41942, 6)));
+    }
+
+    @Test
+    void testSameCellForClosePoints() {
+        assertEquals(geoCell.eval(37.77493, -122.41942, 5), geoCell.eval(37.77500, -122.41950, 5));
+        assertNotEquals(geoCell.eval(37.77493, -122.41942, 5), geoCell.eval(37.80855, -122.41015, 6));
+    }
+
+    @Test
+    void testPrecisionIsPartOfTheId() {
+        // "s" at precision 1 and "s0" at precision 2 have the same low bits once shifted
+        assertNotEquals(geoCell.eval(0.0, 0.0, 1), geoCell.eval(0.0, 0.0, 2));
+    }
+
+    @Test
+    void testBoundaries() {
+        assertEquals("zzzzzz", GeoCellFunction.geohash(geoCell.eval(90.0, 180.0, 6)));
+        assertEquals("000000", GeoCellFunction.geohash(geoCell.eval(-90.0, -180.0, 6)));
+        assertNotNull(geoCell.eval(0.0, 0.0, 12));
+    }
+
+    @Test
+    void testInvalidInputsReturnNull() {
+        assertNull(geoCell.eval(null, 0.0, 5));
+        assertNull(geoCell.eval(0.0, null, 5));
+        assertNull(geoCell.eval(0.0, 0.0, null));
+        assertNull(geoCell.eval(0.0, 0.0, 0));
+        assertNull(geoCell.eval(0.0, 0.0, 13));
+        assertNull(geoCell.eval(91.0, 0.0, 5));
+        assertNull(geoCell.eval(Double.NaN, 0.0, 5));
+    }
+
+    @Test
+    void testToString() {
+        assertEquals("GEO_CELL", geoCell.toString());
+    }
+}
@@ -0,0 +1,97 @@
+package io.confluent.udf;
+
+import org.apache.flink.types.Row;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GeofenceTransitionsFunctionTest {
+    private static final Row[] AREAS = new Row[]{
+        Row.of("depot", "RECTANGLE", new Double[]{10.0, 10.0, 11.0, 11.0}, null),
+        Row.of("yard", "CIRCLE", new Double[]{10.9, 10.9}, 30.0),
+        Row.of("port", "POLYGON", new Double[]{20.0, 20.0, 20.0, 21.0, 21.0, 21.0}, null)
+    };
+
+    private GeofenceTransitionsFunction function;
+    private GeofenceTransitionsFunction.GeofenceAccumulator acc;
+
+    @BeforeEach
+    void setUp() {
+        function = new GeofenceTransitionsFunction();
+        acc = function.createAccumulator();
+    }
+
+    private List<String> move(Double lat, Double lon, Row[] areas) {
+        function.accumulate(acc, lat, lon, areas);
+        List<String> events = new ArrayList<>();
+        for (Row row : function.getValue(acc)) {
+            events.add(row.getField(1) + " " + row.getField(0));
+        }
+        return events;
+    }
+
+    @Test
+    void testEnterAndExitOnlyOnChange() {
+        assertEquals(List.of(), move(0.0, 0.0, AREAS));
+        assertEquals(List.of("ENTER depot"), move(10.2, 10.2, AREAS));
+        assertEquals(List.of(), move(10.3, 10.3, AREAS), "still in the depot");
+        assertEquals(List.of("ENTER yard"), move(10.9, 10.85, AREAS));
+        assertEquals(List.of(), move(10.95, 10.95, AREAS));
+        assertEquals(List.of("EXIT depot"), move(11.05, 10.95, AREAS));
+        assertEquals(List.of("EXIT yard", "ENTER port"), move(20.3, 20.8, AREAS));
+        assertEquals(List.of("EXIT port"), move(0.0, 0.0, AREAS));
+    }
+
+    @Test
+    void testFirstPositionInsideEntersAllAreas() {
+        List<String> events = move(10.9, 10.9, AREAS);
+        events.sort(null);
+        assertEquals(List.of("ENTER depot", "ENTER yard"), events);
+        assertEquals(2, acc.areas.length);
+    }
+
+    @Test
+    void testNullPositionKeepsState() {
+        move(10.2, 10.2, AREAS);
+        assertEquals(List.of(), move(null, 10.2, AREAS));
+        assertEquals(List.of(), move(10.2, 10.2, null));
+        assertEquals(List.of(), move(10.2, 10.2, AREAS));
+        assertEquals(List.of("EXIT depot"), move(0.0, 0.0, AREAS));
+    }
+
+    @Test
+    void testRemovedAreaEmitsNoExit() {
+        move(10.2, 10.2, AREAS);
+        Row[] withoutDepot = new Row[]{AREAS[1], AREAS[2]};
+        assertEquals(List.of(), move(10.2, 10.2, withoutDepot));
+        assertEquals(0, acc.areas.length);
+    }
+
+    @Test
+    void testTransitionsAreComputedFromAreaSets() {
+        move(10.2, 10.2, AREAS);
+        assertEquals(0, acc.previousAreas.length);
+        assertEquals(1, acc.areas.length);
+        // getValue derives the transitions from the state, it can be called again
+        assertEquals(1, function.getValue(acc).length);
+        move(10.3, 10.3, AREAS);
+        assertSame(acc.areas, acc.previousAreas, "unchanged areas share one array");
+        assertEquals(0, function.getValue(acc).length);
+    }
+
+    @Test
+    void testDifference() {
+        assertArrayEquals(new long[]{-5, 3}, GeofenceTransitionsFunction.difference(new long[]{-5, 1, 3, 7}, new long[]{1, 2, 7}));
+        assertArrayEquals(new long[0], GeofenceTransitionsFunction.difference(new long[]{1}, new long[]{1}));
+        assertArrayEquals(new long[]{1, 2}, GeofenceTransitionsFunction.difference(new long[]{1, 2}, new long[0]));
+    }
+
+    @Test
+    void testToString() {
+        assertEquals("GEOFENCE_TRANSITIONS", function.toString());
+    }
+}
@@ -0,0 +1,139 @@
+package io.confluent.udf;
+
+import org.apache.flink.configuration.Configuration;
+import org.apache.flink.table.functions.FunctionContext;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InAnyAreaFunctionTest {
+    @TempDir
+    Path tempDir;
+
+    private final InAnyAreaFunction function = new InAnyAreaFunction();
+
+    @AfterEach
+    void tearDown() throws Exception {
+        function.close();
+    }
+
+    private void open(Path file, String reloadIntervalMs) throws Exception {
+        Configuration conf = new Configuration();
+        if (file != null) {
+            conf.setString(InAnyAreaFunction.AREAS_FILE_PARAM, file.toString());
+        }
+        conf.setString(InAnyAreaFunction.RELOAD_INTERVAL_PARAM, reloadIntervalMs);
+        function.open(new FunctionContext(null, null, conf));
+    }
+
+    @Test
+    void testPointInAnyArea() throws Exception {
+        Path file = tempDir.resolve("areas.csv");
+        Files.writeString(file, String.join("\n",
+                "area_id,area_type,radius,geo_locations",
+                "# downtown San Francisco",
+                "downtown,RECTANGLE,,37.77,-122.42,37.80,-122.39",
+                "union_square,CIRCLE,1.0,37.78825,-122.40640",
+                "",
+                "triangle,polygon,,0.0,0.0,0.0,10.0,10.0,10.0"));
+        open(file, "0");
+
+        assertEquals(3, function.areaCount());
+        assertTrue(function.eval(37.7880, -122.4070));
+        assertTrue(function.eval(37.7790, -122.4000));
+        assertTrue(function.eval(2.0, 8.0));
+        assertFalse(function.eval(8.0, 2.0));
+        assertFalse(function.eval(40.0, -100.0));
+        assertFalse(function.eval(null, -100.0));
+    }
+
+    @Test
+    void testMalformedLinesAreSkipped() throws Exception {
+        Path file = tempDir.resolve("areas.csv");
+        Files.writeString(file, String.join("\n",
+                "ok,CIRCLE,5.0,10.0,10.0",
+                "no_radius,CIRCLE,,20.0,20.0",
+                "bad_number,RECTANGLE,,1.0,abc,2.0,3.0",
+                "short,RECTANGLE",
+                ",CIRCLE,5.0,30.0,30.0",
+                "unknown,TRIANGLE,,1.0,1.0,2.0,2.0"));
+        open(file, "0");
+
+        assertEquals(1, function.areaCount());
+        assertTrue(function.eval(10.0, 10.0));
+    }
+
+    @Test
+    void testReloadWhenFileChanges() throws Exception {
+        Path file = tempDir.resolve("areas.csv");
+        Files.writeString(file, "a,CIRCLE,5.0,10.0,10.0\n");
+        open(file, "0");
+        assertTrue(function.eval(10.0, 10.0));
+        assertFalse(function.eval(20.0, 20.0));
+
+        Files.writeString(file, "b,CIRCLE,5.0,20.0,20.0\nc,CIRCLE,5.0,30.0,30.0\n");
+        Files.setLastModifiedTime(file, FileTime.fromMillis(Files.getLastModifiedTime(file).toMillis() + 1000));
+        function.reloadIfChanged();
+
+        assertEquals(2, function.areaCount());
+        assertFalse(function.eval(10.0, 10.0));
+        assertTrue(function.eval(20.0, 20.0));
+    }
+
+    @Test
+    void testBackgroundReload() throws Exception {
+        Path file = tempDir.resolve("areas.csv");
+        Files.writeString(file, "a,CIRCLE,5.0,10.0,10.0\n");
+        open(file, "20");
+
+        Path next = tempDir.resolve("areas.csv.tmp");
+        Files.writeString(next, "b,CIRCLE,5.0,20.0,20.0\n");
+        Files.setLastModifiedTime(next, FileTime.fromMillis(Files.getLastModifiedTime(file).toMillis() + 1000));
+        Files.move(next, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!function.eval(20.0, 20.0) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(function.eval(20.0, 20.0));
+        assertFalse(function.eval(10.0, 10.0));
+    }
+
+    @Test
+    void testMissingOrUnreadableFileKeepsAreas() throws Exception {
+        open(null, "0");
+        assertEquals(0, function.areaCount());
+        assertFalse(function.eval(10.0, 10.0));
+
+        Path file = tempDir.resolve("areas.csv");
+        Files.writeString(file, "a,CIRCLE,5.0,10.0,10.0\n");
+        InAnyAreaFunction reloading = new InAnyAreaFunction();
+        Configuration conf = new Configuration();
+        conf.setString(InAnyAreaFunction.AREAS_FILE_PARAM, file.toString());
+        conf.setString(InAnyAreaFunction.RELOAD_INTERVAL_PARAM, "0");
+        reloading.open(new FunctionContext(null, null, conf));
+        Files.delete(file);
+        reloading.reloadIfChanged();
+        assertEquals(1, reloading.areaCount());
+        assertTrue(reloading.eval(10.0, 10.0));
+        reloading.close();
+    }
+
+    @Test
+    void testIsNotDeterministic() {
+        // the planner must not fold IS_IN_ANY_AREA(48.85, 2.35) into a constant
+        assertFalse(function.isDeterministic());
+    }
+
+    @Test
+    void testToString() {
+        assertEquals("IS_IN_ANY_AREA", function.toString());
+    }
+}
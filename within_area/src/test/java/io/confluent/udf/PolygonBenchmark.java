@@ -0,0 +1,127 @@
+package io.confluent.udf;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH comparison of point-in-polygon evaluations for polygons of 10, 100 and 1,000 vertices.
+ * Each operation tests {@link #POINTS} points spread over twice the polygon envelope, so about
+ * three quarters of them are rejected by the envelope test of the decoded geometry.
+ * <ul>
+ *   <li>{@code naiveRayCasting}: ray casting reading the boxed vertex list on every call, no envelope test</li>
+ *   <li>{@code evalPolygon}: IS_WITHIN_AREA with a new copy of the vertex list per row, as the runtime
+ *       passes it: the envelope of the cached geometry rejects a point once the list is compared
+ *       with its vertices, other points are tested in one pass over the list</li>
+ *   <li>{@code decodedPolygon}: the decoded geometry alone, as used by AREAS_CONTAINING</li>
+ * </ul>
+ *
+ * <p>Run with: {@code mvn -Pbenchmark test-compile exec:exec -Dbenchmark=PolygonBenchmark}
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PolygonBenchmark {
+    private static final int POINTS = 1024;
+    private static final int ROW_COPIES = 16;
+
+    @Param({"10", "100", "1000"})
+    public int vertices;
+
+    private double[] lats;
+    private double[] lons;
+    private List<Double> polygon;
+    // distinct copies of the vertex list, like the lists converted for each row
+    private List<List<Double>> rowPolygons;
+    private WithinAreaFunction withinArea;
+    private AreaGeometry geometry;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(5);
+        // star shaped polygon around (45, 5), radius between 0.5 and 1 degree
+        polygon = new ArrayList<>();
+        for (int v = 0; v < vertices; v++) {
+            double angle = 2 * Math.PI * v / vertices;
+            double radius = 0.5 + random.nextDouble() * 0.5;
+            polygon.add(45 + radius * Math.sin(angle));
+            polygon.add(5 + radius * Math.cos(angle));
+        }
+        rowPolygons = new ArrayList<>();
+        for (int i = 0; i < ROW_COPIES; i++) {
+            rowPolygons.add(new ArrayList<>(polygon));
+        }
+        lats = new double[POINTS];
+        lons = new double[POINTS];
+        for (int i = 0; i < POINTS; i++) {
+            lats[i] = 45 + (random.nextDouble() * 2 - 1) * 2;
+            lons[i] = 5 + (random.nextDouble() * 2 - 1) * 2;
+        }
+        withinArea = new WithinAreaFunction();
+        geometry = AreaGeometry.of("POLYGON", polygon, null);
+    }
+
+    @Benchmark
+    public int naiveRayCasting() {
+        int inside = 0;
+        for (int i = 0; i < POINTS; i++) {
+            if (naiveContains(polygon, lats[i], lons[i])) {
+                inside++;
+            }
+        }
+        return inside;
+    }
+
+    @Benchmark
+    public int evalPolygon() {
+        int inside = 0;
+        for (int i = 0; i < POINTS; i++) {
+            if (withinArea.eval(lats[i], lons[i], "POLYGON", rowPolygons.get(i % ROW_COPIES), null)) {
+                inside++;
+            }
+        }
+        return inside;
+    }
+
+    @Benchmark
+    public int decodedPolygon() {
+        int inside = 0;
+        for (int i = 0; i < POINTS; i++) {
+            if (geometry.contains(lats[i], lons[i])) {
+                inside++;
+            }
+        }
+        return inside;
+    }
+
+    private static boolean naiveContains(List<Double> loc, double lat, double lon) {
+        int n = loc.size() / 2;
+        boolean inside = false;
+        for (int v = 0, prev = n - 1; v < n; prev = v++) {
+            double lat1 = loc.get(2 * prev);
+            double lon1 = loc.get(2 * prev + 1);
+            double lat2 = loc.get(2 * v);
+            double lon2 = loc.get(2 * v + 1);
+            if ((lat1 > lat) != (lat2 > lat) && lon < lon1 + (lat - lat1) * (lon2 - lon1) / (lat2 - lat1)) {
+                inside = !inside;
+            }
+        }
+        return inside;
+    }
+}
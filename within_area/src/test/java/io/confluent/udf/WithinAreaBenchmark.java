@@ -0,0 +1,155 @@
+package io.confluent.udf;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH comparison of IS_WITHIN_AREA for rectangles and circles against the implementation that
+ * decoded geo_locations and upper-cased the area type on every call ({@code uncached*}).
+ * Each operation tests {@link #POINTS} points against every area, in the order of a nested-loop
+ * join, with a new copy of geo_locations per row as the runtime passes it.
+ *
+ * <p>Run with: {@code mvn -Pbenchmark test-compile exec:exec -Dbenchmark=WithinAreaBenchmark}
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WithinAreaBenchmark {
+    private static final int POINTS = 256;
+    private static final double EARTH_RADIUS_KM = 6371.0;
+
+    @Param({"16", "256"})
+    public int areas;
+
+    private double[] lats;
+    private double[] lons;
+    private List<List<Double>> rectangles;
+    private List<List<Double>> circles;
+    private double[] radii;
+    private WithinAreaFunction withinArea;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(9);
+        rectangles = new ArrayList<>();
+        circles = new ArrayList<>();
+        radii = new double[areas];
+        for (int i = 0; i < areas; i++) {
+            double lat = 45 + random.nextDouble() * 4;
+            double lon = 2 + random.nextDouble() * 4;
+            rectangles.add(List.of(lat, lon, lat + random.nextDouble(), lon + random.nextDouble()));
+            circles.add(List.of(lat, lon));
+            radii[i] = 5 + random.nextDouble() * 50;
+        }
+        lats = new double[POINTS];
+        lons = new double[POINTS];
+        for (int i = 0; i < POINTS; i++) {
+            lats[i] = 45 + random.nextDouble() * 5;
+            lons[i] = 2 + random.nextDouble() * 5;
+        }
+        withinArea = new WithinAreaFunction();
+    }
+
+    @Benchmark
+    public int rectangle() {
+        int inside = 0;
+        for (int i = 0; i < POINTS; i++) {
+            for (int a = 0; a < areas; a++) {
+                if (withinArea.eval(lats[i], lons[i], "RECTANGLE", new ArrayList<>(rectangles.get(a)), null)) {
+                    inside++;
+                }
+            }
+        }
+        return inside;
+    }
+
+    @Benchmark
+    public int uncachedRectangle() {
+        int inside = 0;
+        for (int i = 0; i < POINTS; i++) {
+            for (int a = 0; a < areas; a++) {
+                if (uncachedEval(lats[i], lons[i], "RECTANGLE", new ArrayList<>(rectangles.get(a)), null)) {
+                    inside++;
+                }
+            }
+        }
+        return inside;
+    }
+
+    @Benchmark
+    public int circle() {
+        int inside = 0;
+        for (int i = 0; i < POINTS; i++) {
+            for (int a = 0; a < areas; a++) {
+                if (withinArea.eval(lats[i], lons[i], "CIRCLE", new ArrayList<>(circles.get(a)), radii[a])) {
+                    inside++;
+                }
+            }
+        }
+        return inside;
+    }
+
+    @Benchmark
+    public int uncachedCircle() {
+        int inside = 0;
+        for (int i = 0; i < POINTS; i++) {
+            for (int a = 0; a < areas; a++) {
+                if (uncachedEval(lats[i], lons[i], "CIRCLE", new ArrayList<>(circles.get(a)), radii[a])) {
+                    inside++;
+                }
+            }
+        }
+        return inside;
+    }
+
+    /**
+     * IS_WITHIN_AREA before the geometry cache: geo_locations are unboxed and decoded on every call.
+     */
+    private static boolean uncachedEval(Double pLat, Double pLon, String areaType, List<Double> loc, Double radius) {
+        switch (areaType.toUpperCase()) {
+            case "RECTANGLE":
+                if (loc.size() != 4) {
+                    return false;
+                }
+                double minLat = Math.min(loc.get(0), loc.get(2));
+                double maxLat = Math.max(loc.get(0), loc.get(2));
+                double minLon = Math.min(loc.get(1), loc.get(3));
+                double maxLon = Math.max(loc.get(1), loc.get(3));
+                return pLat >= minLat && pLat <= maxLat && pLon >= minLon && pLon <= maxLon;
+            case "CIRCLE":
+                if (loc.size() != 2 || radius == null) {
+                    return false;
+                }
+                return haversineKm(pLat, pLon, loc.get(0), loc.get(1)) <= radius;
+            default:
+                return false;
+        }
+    }
+
+    private static double haversineKm(double lat1, double lon1, double lat2, double lon2) {
+        double lat1Rad = Math.toRadians(lat1);
+        double lon1Rad = Math.toRadians(lon1);
+        double lat2Rad = Math.toRadians(lat2);
+        double lon2Rad = Math.toRadians(lon2);
+        double a = Math.sin((lat2Rad - lat1Rad) / 2) * Math.sin((lat2Rad - lat1Rad) / 2)
+                + Math.cos(lat1Rad) * Math.cos(lat2Rad) * Math.sin((lon2Rad - lon1Rad) / 2) * Math.sin((lon2Rad - lon1Rad) / 2);
+        return EARTH_RADIUS_KM * 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+    }
+}
@@ -1,10 +1,16 @@
 package io.confluent.udf;
 
+import org.apache.flink.configuration.Configuration;
+import org.apache.flink.table.functions.FunctionContext;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import static org.junit.jupiter.api.Assertions.*;
+import java.util.Arrays;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Random;
+import java.util.Set;
+import java.util.HashSet;
 
 class WithinAreaFunctionTest {
     private WithinAreaFunction withinArea;
@@ -80,6 +86,196 @@ class WithinAreaFunctionTest {
         assertFalse(within); 
     }
     
+    @Test
+    void testWithinPolygon() {
+        // L-shaped polygon: the square 0..10 x 0..10 without the quadrant 5..10 x 5..10
+        List<Double> polygon = List.of(0.0, 0.0, 0.0, 10.0, 5.0, 10.0, 5.0, 5.0, 10.0, 5.0, 10.0, 0.0);
+
+        assertTrue(withinArea.eval(2.0, 8.0, "POLYGON", polygon, null));
+        assertTrue(withinArea.eval(8.0, 2.0, "polygon", polygon, null));
+        assertFalse(withinArea.eval(8.0, 8.0, "POLYGON", polygon, null), "inside the envelope, outside the polygon");
+        assertFalse(withinArea.eval(12.0, 2.0, "POLYGON", polygon, null));
+        assertFalse(withinArea.eval(-1.0, 2.0, "POLYGON", polygon, null));
+    }
+
+    @Test
+    void testPolygonMatchesRectangle() {
+        List<Double> rectangle = List.of(50.0, -0.15, 52.0, -0.10);
+        List<Double> polygon = List.of(50.0, -0.15, 52.0, -0.15, 52.0, -0.10, 50.0, -0.10);
+        Random random = new Random(11);
+        for (int i = 0; i < 1000; i++) {
+            double lat = 49.5 + random.nextDouble() * 3;
+            double lon = -0.2 + random.nextDouble() * 0.15;
+            assertEquals(withinArea.eval(lat, lon, "RECTANGLE", rectangle, null),
+                    withinArea.eval(lat, lon, "POLYGON", polygon, null), "point " + lat + ", " + lon);
+        }
+    }
+
+    @Test
+    void testPolygonEnvelopeIsCached() {
+        List<Double> polygon = List.of(0.0, 0.0, 0.0, 10.0, 10.0, 10.0, 10.0, 0.0);
+        assertTrue(withinArea.eval(5.0, 5.0, "POLYGON", polygon, null));
+        assertEquals(1, withinArea.getCacheMisses());
+        assertTrue(withinArea.eval(5.0, 5.0, "POLYGON", new ArrayList<>(polygon), null));
+        // outside the envelope: rejected once the vertices match the cached ones
+        assertFalse(withinArea.eval(20.0, 5.0, "POLYGON", new ArrayList<>(polygon), null));
+        assertEquals(2, withinArea.getCacheHits());
+        assertEquals(1, withinArea.getCachedGeometries());
+
+        // same cache key, as only the first, middle and last values are sampled: the point is
+        // outside the envelope of the cached polygon, but inside this one
+        List<Double> wider = List.of(0.0, 0.0, 0.0, 20.0, 10.0, 10.0, 10.0, 0.0);
+        assertEquals(AreaGeometry.cacheKey(AreaGeometry.POLYGON, polygon, null),
+                AreaGeometry.cacheKey(AreaGeometry.POLYGON, wider, null));
+        assertTrue(withinArea.eval(2.0, 15.0, "POLYGON", wider, null));
+        assertFalse(withinArea.eval(2.0, 15.0, "POLYGON", polygon, null));
+        assertTrue(withinArea.eval(2.0, 5.0, "POLYGON", wider, null));
+
+        // the two horizontal edges are left out of the decoded edge table
+        assertEquals(2, AreaGeometry.of("POLYGON", polygon, null).edgeCount());
+    }
+
+    @Test
+    void testPolygonMatchesDecodedGeometry() {
+        Random random = new Random(17);
+        List<Double> polygon = new ArrayList<>();
+        for (int v = 0; v < 50; v++) {
+            double angle = 2 * Math.PI * v / 50;
+            double radius = 0.5 + random.nextDouble() * 0.5;
+            polygon.add(45 + radius * Math.sin(angle));
+            polygon.add(5 + radius * Math.cos(angle));
+        }
+        AreaGeometry geometry = AreaGeometry.of("POLYGON", polygon, null);
+        for (int i = 0; i < 2000; i++) {
+            double lat = 45 + (random.nextDouble() * 2 - 1) * 1.2;
+            double lon = 5 + (random.nextDouble() * 2 - 1) * 1.2;
+            assertEquals(geometry.contains(lat, lon), withinArea.eval(lat, lon, "POLYGON", polygon, null),
+                    "point " + lat + ", " + lon);
+        }
+    }
+
+    @Test
+    void testWithinPolygonDataError() {
+        assertFalse(withinArea.eval(1.0, 1.0, "POLYGON", List.of(0.0, 0.0, 0.0, 10.0), null), "two vertices");
+        assertFalse(withinArea.eval(1.0, 1.0, "POLYGON", List.of(0.0, 0.0, 0.0, 10.0, 10.0, 10.0, 10.0), null), "odd count");
+        assertFalse(withinArea.eval(1.0, 1.0, "POLYGON", Arrays.asList(0.0, 0.0, 0.0, null, 10.0, 10.0), null), "null value");
+        assertEquals(0, withinArea.getCachedGeometries());
+    }
+
+    @Test
+    void testCircleMatchesHaversine() {
+        Random random = new Random(13);
+        for (int i = 0; i < 200; i++) {
+            List<Double> center = List.of(random.nextDouble() * 178 - 89, random.nextDouble() * 360 - 180);
+            // radius in the unit of haversineMeters, from 1 to 2000
+            double radius = Math.exp(random.nextDouble() * Math.log(2000));
+            for (int j = 0; j < 50; j++) {
+                // points around the center, some across the anti-meridian
+                double lat = Math.max(-90, Math.min(90, center.get(0) + (random.nextDouble() * 2 - 1) * radius / 50));
+                double lon = center.get(1) + (random.nextDouble() * 2 - 1) * radius / 20;
+                lon = lon > 180 ? lon - 360 : lon < -180 ? lon + 360 : lon;
+                boolean expected = withinArea.haversineMeters(lat, lon, center.get(0), center.get(1)) <= radius;
+                assertEquals(expected, withinArea.eval(lat, lon, "CIRCLE", center, radius),
+                        "point " + lat + ", " + lon + " circle " + center + " " + radius);
+            }
+        }
+    }
+
+    @Test
+    void testCircleAroundPole() {
+        List<Double> center = List.of(89.9, 0.0);
+        assertTrue(withinArea.eval(89.95, 180.0, "CIRCLE", center, 50.0));
+        assertTrue(withinArea.eval(89.95, -90.0, "CIRCLE", center, 50.0));
+        assertFalse(withinArea.eval(89.0, 180.0, "CIRCLE", center, 50.0));
+    }
+
+    @Test
+    void testGeometryCacheHitRate() {
+        List<Double> london = List.of(51.5074, -0.1278);
+        List<Double> circle = List.of(37.78825, -122.40640);
+        for (int i = 0; i < 10; i++) {
+            withinArea.eval(51.5, -0.12, "CIRCLE", new ArrayList<>(london), 5.0);
+            withinArea.eval(37.7880, -122.4070, "CIRCLE", new ArrayList<>(circle), 1.0);
+        }
+        assertEquals(2, withinArea.getCacheMisses());
+        assertEquals(18, withinArea.getCacheHits());
+        assertEquals(0.9, withinArea.getCacheHitRate(), 1e-9);
+        assertEquals(2, withinArea.getCachedGeometries());
+
+        // a different radius is a different circle
+        assertFalse(withinArea.eval(37.7880, -122.4070, "CIRCLE", circle, 0.01));
+        assertEquals(3, withinArea.getCacheMisses());
+    }
+
+    @Test
+    void testCacheSizeFromJobParameter() throws Exception {
+        Configuration conf = new Configuration();
+        conf.setString(WithinAreaFunction.CACHE_SIZE_PARAM, "2");
+        withinArea.open(new FunctionContext(null, null, conf));
+        for (int i = 0; i < 5; i++) {
+            withinArea.eval(1.0, 1.0, "CIRCLE", List.of(1.0, (double) i), 1.0);
+        }
+        assertEquals(2, withinArea.getCachedGeometries());
+    }
+
+    @Test
+    void testRectangleIsCached() {
+        List<Double> rectangle = List.of(52.0, -0.10, 50.0, -0.15);
+        for (int i = 0; i < 5; i++) {
+            assertTrue(withinArea.eval(51.5074, -0.1278, "RECTANGLE", new ArrayList<>(rectangle), null));
+        }
+        assertEquals(1, withinArea.getCacheMisses());
+        assertEquals(4, withinArea.getCacheHits());
+        assertFalse(withinArea.eval(51.5074, -0.1278, "RECTANGLE", Arrays.asList(50.0, null, 52.0, -0.15), null));
+    }
+
+    @Test
+    void testCacheKeepsRecentlyUsedGeometries() {
+        GeometryCache cache = new GeometryCache(3);
+        AreaGeometry[] geometries = new AreaGeometry[5];
+        for (int i = 0; i < geometries.length; i++) {
+            geometries[i] = AreaGeometry.of("CIRCLE", List.of(1.0, (double) i), 1.0);
+        }
+        cache.put(0, geometries[0]);
+        cache.put(1, geometries[1]);
+        cache.put(2, geometries[2]);
+        cache.get(0);
+        cache.get(2);
+        // 1 is the only geometry not used since it was cached
+        cache.put(3, geometries[3]);
+        assertNull(cache.get(1));
+        assertSame(geometries[0], cache.get(0));
+        assertSame(geometries[2], cache.get(2));
+        assertSame(geometries[3], cache.get(3));
+        cache.put(3, geometries[4]);
+        assertSame(geometries[4], cache.get(3));
+        assertEquals(3, cache.size());
+    }
+
+    @Test
+    void testCacheFindsEveryKeptKey() {
+        // colliding keys and evictions in the middle of probe runs
+        GeometryCache cache = new GeometryCache(64);
+        AreaGeometry geometry = AreaGeometry.of("CIRCLE", List.of(1.0, 1.0), 1.0);
+        Random random = new Random(19);
+        Set<Long> keys = new HashSet<>();
+        for (int i = 0; i < 10_000; i++) {
+            long key = random.nextInt(200) * (1L << 40);
+            if (cache.get(key) == null) {
+                cache.put(key, geometry);
+                keys.add(key);
+            }
+            assertTrue(cache.size() <= 64);
+        }
+        int found = 0;
+        for (long key : keys) {
+            if (cache.get(key) != null) {
+                found++;
+            }
+        }
+        assertEquals(cache.size(), found);
+    }
+
     @Test
     void testToString() {
         assertEquals("IS_WITHIN_DISTANCE", withinArea.toString());
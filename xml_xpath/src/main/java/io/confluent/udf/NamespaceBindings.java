@@ -0,0 +1,82 @@
+package io.confluent.udf;
+
+import javax.xml.XMLConstants;
+import javax.xml.namespace.NamespaceContext;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Prefix to namespace URI bindings of the namespace-aware mode, used to resolve the prefixes of
+ * XPath expressions such as {@code /pos:POSLog/pos:Transaction}. The prefixes only need to match
+ * the expressions, not the ones used in the documents.
+ */
+final class NamespaceBindings implements NamespaceContext {
+    private final Map<String, String> uris;
+
+    NamespaceBindings(Map<String, String> uris) {
+        this.uris = Collections.unmodifiableMap(new LinkedHashMap<>(uris));
+    }
+
+    /**
+     * Parses bindings written as {@code prefix=uri} pairs separated by commas, such as
+     * {@code pos=http://www.nrf-arts.org/IXRetail/namespace/,acme=urn:acme}.
+     *
+     * @return the bindings, empty if the value is null or blank
+     * @throws IllegalArgumentException if a pair has no '=', or an empty prefix or URI
+     */
+    static Map<String, String> parse(String value) {
+        Map<String, String> uris = new LinkedHashMap<>();
+        if (value == null || value.isBlank()) {
+            return uris;
+        }
+        for (String pair : value.split(",")) {
+            if (pair.isBlank()) {
+                continue;
+            }
+            int equals = pair.indexOf('=');
+            String prefix = equals < 0 ? "" : pair.substring(0, equals).trim();
+            String uri = equals < 0 ? "" : pair.substring(equals + 1).trim();
+            if (prefix.isEmpty() || uri.isEmpty()) {
+                throw new IllegalArgumentException("Invalid namespace binding '" + pair.trim() + "', expected prefix=uri");
+            }
+            uris.put(prefix, uri);
+        }
+        return uris;
+    }
+
+    Map<String, String> uris() {
+        return uris;
+    }
+
+    @Override
+    public String getNamespaceURI(String prefix) {
+        if (XMLConstants.XML_NS_PREFIX.equals(prefix)) {
+            return XMLConstants.XML_NS_URI;
+        }
+        if (XMLConstants.XMLNS_ATTRIBUTE.equals(prefix)) {
+            return XMLConstants.XMLNS_ATTRIBUTE_NS_URI;
+        }
+        return uris.getOrDefault(prefix, XMLConstants.NULL_NS_URI);
+    }
+
+    @Override
+    public String getPrefix(String namespaceURI) {
+        Iterator<String> prefixes = getPrefixes(namespaceURI);
+        return prefixes.hasNext() ? prefixes.next() : null;
+    }
+
+    @Override
+    public Iterator<String> getPrefixes(String namespaceURI) {
+        List<String> prefixes = new ArrayList<>();
+        for (Map.Entry<String, String> binding : uris.entrySet()) {
+            if (binding.getValue().equals(namespaceURI)) {
+                prefixes.add(binding.getKey());
+            }
+        }
+        return prefixes.iterator();
+    }
+}
@@ -0,0 +1,445 @@
+package io.confluent.udf;
+
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+
+import javax.xml.XMLConstants;
+import javax.xml.namespace.NamespaceContext;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Absolute XPath expression of the simple form used in most extractions, evaluated on a StAX
+ * stream instead of a DOM: the document is read until the first match only and never built in
+ * memory.
+ *
+ * <p>Supported expressions are a sequence of child element steps from the root, each one a name
+ * ({@code /POSLog}), a name() predicate ({@code /*[name()="POSLog"]}) or any element ({@code /*}),
+ * optionally ending with an unprefixed attribute step ({@code /@CancelFlag}). In the namespace-aware
+ * mode, names and attributes can also be prefixed ({@code /pos:POSLog/@pos:Flag}) and are matched
+ * by namespace URI. {@link #compile} returns null for any other expression, which is then evaluated
+ * on the DOM.
+ *
+ * <p>Several paths are read in one pass by {@link #firstValues}, which stops once every path has
+ * matched.
+ *
+ * <p>The same steps, compiled relative to a node by {@link #compileRelative}, are walked on the
+ * children of a DOM node without an XPath evaluation.
+ *
+ * <p>The value is the same as with the DOM: the trimmed text content of the first matching element,
+ * or the trimmed value of the first matching attribute, null if blank. As the stream stops at the
+ * first match, a document that is malformed after the match still gives a value.
+ */
+final class StreamingPath {
+    private static final Pattern STEP = Pattern.compile(
+            "/(?:\\*\\[\\s*name\\(\\)\\s*=\\s*(?:\"([^\"]+)\"|'([^']+)')\\s*\\]|(\\*)|((?:[A-Za-z_][\\w.-]*:)?[A-Za-z_][\\w.-]*)|@((?:[A-Za-z_][\\w.-]*:)?[A-Za-z_][\\w.-]*))");
+
+    /**
+     * Thrown when the document has a DTD, which may define entities or default attributes the
+     * stream does not apply as the DOM does.
+     */
+    static final class UnsupportedDocumentException extends Exception {
+        UnsupportedDocumentException() {
+            super("document type declaration", null, false, false);
+        }
+    }
+
+    // element name of each step, null for any element; the local name of a name test
+    private final String[] steps;
+    // true when the step is a name test, false for a name() predicate, matched against the
+    // qualified name. Without namespace awareness, a name test is matched against the part of
+    // the name after the prefix, as the DOM does.
+    private final boolean[] nameTests;
+    // namespace URI of each name test, "" for no namespace; null without namespace awareness
+    private final String[] stepUris;
+    // local name of the attribute of the last element, null to select the element
+    private final String attribute;
+    // namespace URI of the attribute, "" for no namespace; null without namespace awareness
+    private final String attributeUri;
+
+    private StreamingPath(String[] steps, boolean[] nameTests, String[] stepUris, String attribute, String attributeUri) {
+        this.steps = steps;
+        this.nameTests = nameTests;
+        this.stepUris = stepUris;
+        this.attribute = attribute;
+        this.attributeUri = attributeUri;
+    }
+
+    /**
+     * @return the streaming form of the expression, or null if it is not a simple path
+     */
+    static StreamingPath compile(String expression) {
+        return compile(expression.trim(), false, null);
+    }
+
+    /**
+     * @param namespaces prefix bindings of the namespace-aware mode, where name tests can be
+     *                   prefixed ({@code /pos:POSLog}) and are matched by namespace URI
+     * @return the streaming form of the expression, or null if it is not a simple path
+     */
+    static StreamingPath compile(String expression, NamespaceContext namespaces) {
+        return compile(expression.trim(), false, namespaces);
+    }
+
+    /**
+     * @return the simple path relative to a context node, such as {@code Sku}, {@code @Id} or
+     *         {@code Amount/@Currency}, or null if it is not a simple relative path
+     */
+    static StreamingPath compileRelative(String expression) {
+        return compileRelative(expression, null);
+    }
+
+    static StreamingPath compileRelative(String expression, NamespaceContext namespaces) {
+        String path = expression.trim();
+        if (path.isEmpty() || path.startsWith("/")) {
+            return null;
+        }
+        return compile("/" + path, true, namespaces);
+    }
+
+    private static StreamingPath compile(String path, boolean relative, NamespaceContext namespaces) {
+        Matcher matcher = STEP.matcher(path);
+        List<String> steps = new ArrayList<>();
+        List<Boolean> nameTests = new ArrayList<>();
+        List<String> stepUris = new ArrayList<>();
+        String attribute = null;
+        String attributeUri = null;
+        int position = 0;
+        while (position < path.length()) {
+            if (attribute != null || !matcher.find(position) || matcher.start() != position) {
+                return null;
+            }
+            if (matcher.group(1) != null || matcher.group(2) != null) {
+                steps.add(matcher.group(1) != null ? matcher.group(1) : matcher.group(2));
+                nameTests.add(false);
+                stepUris.add(null);
+            } else if (matcher.group(3) != null) {
+                steps.add(null);
+                nameTests.add(false);
+                stepUris.add(null);
+            } else if (matcher.group(4) != null) {
+                String name = matcher.group(4);
+                String uri = namespaceUri(name, namespaces);
+                if (uri == null) {
+                    return null;
+                }
+                steps.add(localPart(name));
+                nameTests.add(true);
+                stepUris.add(uri);
+            } else {
+                String name = matcher.group(5);
+                attributeUri = namespaceUri(name, namespaces);
+                attribute = localPart(name);
+                if (attributeUri == null || name.equals("xmlns")) {
+                    // namespace declarations are not attributes in XPath
+                    return null;
+                }
+            }
+            position = matcher.end();
+        }
+        if (steps.isEmpty() && (!relative || attribute == null)) {
+            return null;
+        }
+        boolean[] tests = new boolean[nameTests.size()];
+        for (int i = 0; i < tests.length; i++) {
+            tests[i] = nameTests.get(i);
+        }
+        return new StreamingPath(steps.toArray(new String[0]), tests,
+                namespaces == null ? null : stepUris.toArray(new String[0]),
+                attribute, namespaces == null ? null : attributeUri);
+    }
+
+    /**
+     * @return the namespace URI of a name test, "" for no namespace, or null if the name cannot be
+     *         streamed: a prefix without namespace awareness, or an unbound prefix
+     */
+    private static String namespaceUri(String name, NamespaceContext namespaces) {
+        int colon = name.indexOf(':');
+        if (colon < 0) {
+            return XMLConstants.NULL_NS_URI;
+        }
+        if (namespaces == null) {
+            return null;
+        }
+        String uri = namespaces.getNamespaceURI(name.substring(0, colon));
+        return uri == null || uri.isEmpty() ? null : uri;
+    }
+
+    private static String localPart(String name) {
+        return name.substring(name.indexOf(':') + 1);
+    }
+
+    /**
+     * Reads the document until the first node matching the path.
+     *
+     * @return the trimmed value of the first matching node, or null if blank or nothing matches
+     * @throws UnsupportedDocumentException if the document has a DTD
+     */
+    String firstValue(XMLStreamReader reader) throws XMLStreamException, UnsupportedDocumentException {
+        int depth = 0;
+        // number of steps matched by the open elements
+        int matched = 0;
+        while (reader.hasNext()) {
+            switch (reader.next()) {
+                case XMLStreamConstants.START_ELEMENT:
+                    depth++;
+                    if (matched == depth - 1 && matched < steps.length && matches(matched, reader)) {
+                        matched++;
+                        if (matched == steps.length) {
+                            if (attribute == null) {
+                                return trimmed(elementText(reader));
+                            }
+                            int index = attributeIndex(reader);
+                            if (index >= 0) {
+                                return trimmed(reader.getAttributeValue(index));
+                            }
+                        }
+                    }
+                    break;
+                case XMLStreamConstants.END_ELEMENT:
+                    if (matched == depth) {
+                        matched--;
+                    }
+                    depth--;
+                    break;
+                case XMLStreamConstants.DTD:
+                    throw new UnsupportedDocumentException();
+                default:
+                    break;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Reads the document once for several paths, until every path has matched, with the values of
+     * {@link #firstValue} for each path. When the stream fails, as on a malformed document, the
+     * values found before the failure are kept, as each path alone would have found them.
+     *
+     * @param paths  paths to read; a null path is skipped
+     * @param values the value of each path, set at the index of the path; values of paths without
+     *               a match are left as is
+     * @throws UnsupportedDocumentException if the document has a DTD
+     */
+    static void firstValues(XMLStreamReader reader, StreamingPath[] paths, String[] values)
+            throws XMLStreamException, UnsupportedDocumentException {
+        int count = paths.length;
+        // number of steps matched by the open elements, per path; -1 once the path has a value
+        int[] matched = new int[count];
+        // depth of the element whose text is read, per path, 0 when none
+        int[] textDepths = new int[count];
+        StringBuilder[] texts = new StringBuilder[count];
+        int remaining = 0;
+        for (int i = 0; i < count; i++) {
+            if (paths[i] == null) {
+                matched[i] = -1;
+            } else {
+                remaining++;
+            }
+        }
+        int depth = 0;
+        while (remaining > 0 && reader.hasNext()) {
+            switch (reader.next()) {
+                case XMLStreamConstants.START_ELEMENT:
+                    depth++;
+                    for (int i = 0; i < count; i++) {
+                        StreamingPath path = paths[i];
+                        int steps = matched[i];
+                        if (steps != depth - 1 || textDepths[i] != 0 || steps >= path.steps.length || !path.matches(steps, reader)) {
+                            continue;
+                        }
+                        matched[i] = ++steps;
+                        if (steps < path.steps.length) {
+                            continue;
+                        }
+                        if (path.attribute == null) {
+                            textDepths[i] = depth;
+                            texts[i] = new StringBuilder();
+                        } else {
+                            int index = path.attributeIndex(reader);
+                            if (index >= 0) {
+                                values[i] = trimmed(reader.getAttributeValue(index));
+                                matched[i] = -1;
+                                remaining--;
+                            }
+                        }
+                    }
+                    break;
+                case XMLStreamConstants.END_ELEMENT:
+                    for (int i = 0; i < count; i++) {
+                        if (textDepths[i] == depth) {
+                            values[i] = trimmed(texts[i].toString());
+                            texts[i] = null;
+                            textDepths[i] = 0;
+                            matched[i] = -1;
+                            remaining--;
+                        } else if (matched[i] == depth) {
+                            matched[i]--;
+                        }
+                    }
+                    depth--;
+                    break;
+                case XMLStreamConstants.CHARACTERS:
+                case XMLStreamConstants.CDATA:
+                case XMLStreamConstants.SPACE:
+                    for (int i = 0; i < count; i++) {
+                        if (textDepths[i] != 0) {
+                            texts[i].append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+                        }
+                    }
+                    break;
+                case XMLStreamConstants.DTD:
+                    throw new UnsupportedDocumentException();
+                default:
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Walks the children of a DOM node, for a path compiled by {@link #compileRelative}.
+     *
+     * @return the first node matching the path from the context node, in document order, or null
+     */
+    Node firstNode(Node context) {
+        return find(context, 0);
+    }
+
+    private Node find(Node node, int step) {
+        if (step == steps.length) {
+            return attribute == null ? node : attributeNode(node);
+        }
+        for (Node child = node.getFirstChild(); child != null; child = child.getNextSibling()) {
+            if (child.getNodeType() == Node.ELEMENT_NODE && matches(step, child)) {
+                Node found = find(child, step + 1);
+                if (found != null) {
+                    return found;
+                }
+            }
+        }
+        return null;
+    }
+
+    private Node attributeNode(Node element) {
+        NamedNodeMap attributes = element.getAttributes();
+        if (attributes == null) {
+            return null;
+        }
+        for (int i = 0; i < attributes.getLength(); i++) {
+            Node node = attributes.item(i);
+            if (attributeUri != null) {
+                if (attribute.equals(node.getLocalName()) && attributeUri.equals(uriOf(node.getNamespaceURI()))) {
+                    return node;
+                }
+                continue;
+            }
+            String name = node.getNodeName();
+            int colon = name.indexOf(':');
+            if (name.equals("xmlns") || (colon >= 0 && name.startsWith("xmlns:"))) {
+                continue;
+            }
+            if (colon < 0 ? attribute.equals(name)
+                    : name.length() - colon - 1 == attribute.length() && name.endsWith(attribute)) {
+                return attributes.item(i);
+            }
+        }
+        return null;
+    }
+
+    private boolean matches(int step, XMLStreamReader reader) {
+        if (steps[step] == null) {
+            return true;
+        }
+        if (stepUris == null) {
+            // without namespace awareness, the local name is the qualified name
+            return matches(step, reader.getLocalName());
+        }
+        if (nameTests[step]) {
+            return steps[step].equals(reader.getLocalName()) && stepUris[step].equals(uriOf(reader.getNamespaceURI()));
+        }
+        String prefix = reader.getPrefix();
+        return matches(step, prefix == null || prefix.isEmpty() ? reader.getLocalName() : prefix + ":" + reader.getLocalName());
+    }
+
+    private boolean matches(int step, Node element) {
+        if (steps[step] == null) {
+            return true;
+        }
+        if (stepUris != null && nameTests[step]) {
+            return steps[step].equals(element.getLocalName()) && stepUris[step].equals(uriOf(element.getNamespaceURI()));
+        }
+        return matches(step, element.getNodeName());
+    }
+
+    /**
+     * @param name qualified element name
+     */
+    private boolean matches(int step, String name) {
+        String expected = steps[step];
+        if (!nameTests[step]) {
+            return expected.equals(name);
+        }
+        int colon = name.indexOf(':');
+        return colon < 0 ? expected.equals(name)
+                : name.length() - colon - 1 == expected.length() && name.endsWith(expected);
+    }
+
+    private static String uriOf(String namespaceUri) {
+        return namespaceUri == null ? XMLConstants.NULL_NS_URI : namespaceUri;
+    }
+
+    private int attributeIndex(XMLStreamReader reader) {
+        if (attributeUri != null) {
+            // namespace declarations are not reported as attributes with namespace awareness
+            for (int i = 0; i < reader.getAttributeCount(); i++) {
+                if (attribute.equals(reader.getAttributeLocalName(i)) && attributeUri.equals(uriOf(reader.getAttributeNamespace(i)))) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+        for (int i = 0; i < reader.getAttributeCount(); i++) {
+            // the stream splits attribute prefixes even without namespace awareness; namespace
+            // declarations are not attributes in XPath
+            if (attribute.equals(reader.getAttributeLocalName(i)) && !"xmlns".equals(reader.getAttributePrefix(i))) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return the text of the current element and its descendants, as Node.getTextContent
+     */
+    private static String elementText(XMLStreamReader reader) throws XMLStreamException {
+        StringBuilder text = new StringBuilder();
+        int depth = 1;
+        while (depth > 0) {
+            switch (reader.next()) {
+                case XMLStreamConstants.START_ELEMENT:
+                    depth++;
+                    break;
+                case XMLStreamConstants.END_ELEMENT:
+                    depth--;
+                    break;
+                case XMLStreamConstants.CHARACTERS:
+                case XMLStreamConstants.CDATA:
+                case XMLStreamConstants.SPACE:
+                    text.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+                    break;
+                default:
+                    break;
+            }
+        }
+        return text.toString();
+    }
+
+    private static String trimmed(String value) {
+        return value == null || value.isBlank() ? null : value.trim();
+    }
+}
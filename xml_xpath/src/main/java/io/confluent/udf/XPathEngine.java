@@ -0,0 +1,471 @@
+package io.confluent.udf;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.xml.sax.InputSource;
+import org.xml.sax.helpers.DefaultHandler;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.xpath.XPath;
+import javax.xml.xpath.XPathConstants;
+import javax.xml.xpath.XPathExpression;
+import javax.xml.xpath.XPathExpressionException;
+import javax.xml.xpath.XPathFactory;
+import javax.xml.xpath.XPathFactoryConfigurationException;
+import java.io.ByteArrayInputStream;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * DOM parser and XPath evaluator shared by the XPath functions. One engine is created per function
+ * instance, in open(): the document builder and the XPath object are reused for every row, and
+ * compiled expressions are kept in a bounded LRU cache keyed by expression string. Simple paths
+ * are also compiled to a {@link StreamingPath}, so a single value is read from a StAX stream
+ * without building the DOM, and a value relative to a node is found by walking its children.
+ *
+ * <p>The last parsed document is memoized, so the XPath calls of one row that need a DOM parse the
+ * payload once: it is reused when the next document is the same string instance, or has the same
+ * length, hash and content. Documents longer than the memo limit are not kept, so a huge payload
+ * is not held between rows. Byte payloads are kept as a copy, and compared by content, as the
+ * caller may reuse its array for the next record.
+ *
+ * <p>The parsers only read the payload: DTDs and entities are never loaded from outside the
+ * document, see {@link #hardenedFactory(boolean)}. Documents can be strings, or bytes in the encoding
+ * of their XML declaration (UTF-8 by default).
+ *
+ * <p>In the namespace-aware mode, the engine is created with prefix bindings: documents are parsed
+ * with namespaces, and expressions use prefixed steps ({@code /pos:POSLog}) resolved with the
+ * bindings. As each engine has its own bindings, its expression cache is keyed by them too.
+ *
+ * <p>Not thread safe: a function instance is only called by its task thread.
+ */
+final class XPathEngine {
+    static final int DEFAULT_MAX_EXPRESSIONS = 256;
+    static final int DEFAULT_MAX_MEMO_CHARS = 256 * 1024;
+    // marker returned by streamedValue, compared by reference
+    private static final String NOT_STREAMED = new String("not streamed");
+
+    private final DocumentBuilder builder;
+    private final XPath xpath;
+    // prefix bindings of the namespace-aware mode, null without namespace awareness
+    private final NamespaceBindings namespaces;
+    private final XMLInputFactory inputFactory;
+    // strict UTF-8 decoder: malformed input fails the call like a parse error
+    private final CharsetDecoder utf8Decoder = StandardCharsets.UTF_8.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPORT)
+            .onUnmappableCharacter(CodingErrorAction.REPORT);
+    private final Map<String, Compiled> expressions;
+    private final int maxExpressions;
+    private final int maxMemoChars;
+    // last parsed document and its source
+    private Object memoXml;
+    private Document memoDocument;
+    // copy of the last decoded UTF-8 payload and its text, within the memo limit
+    private byte[] decodedBytes;
+    private String decodedText;
+    private long streamedEvaluations;
+    private long streamedDocuments;
+    private long memoHits;
+
+    /**
+     * An expression compiled for the DOM, and for the stream when it is a simple path.
+     */
+    private static final class Compiled {
+        final XPathExpression expression;
+        final StreamingPath streaming;
+        final StreamingPath relative;
+
+        Compiled(XPathExpression expression, StreamingPath streaming, StreamingPath relative) {
+            this.expression = expression;
+            this.streaming = streaming;
+            this.relative = relative;
+        }
+    }
+
+    XPathEngine(int maxExpressions, int maxMemoChars) throws ParserConfigurationException {
+        this(maxExpressions, maxMemoChars, null);
+    }
+
+    /**
+     * @param maxExpressions number of compiled expressions kept
+     * @param maxMemoChars   length of the longest document kept for the next call, 0 to parse
+     *                       every document
+     * @param namespaces     prefix bindings of the expressions; null or empty to parse documents
+     *                       without namespace awareness, where expressions match names with
+     *                       {@code name()} predicates or unprefixed name tests
+     */
+    XPathEngine(int maxExpressions, int maxMemoChars, Map<String, String> namespaces) throws ParserConfigurationException {
+        this.namespaces = namespaces == null || namespaces.isEmpty() ? null : new NamespaceBindings(namespaces);
+        boolean namespaceAware = this.namespaces != null;
+        this.builder = hardenedFactory(namespaceAware).newDocumentBuilder();
+        // parse errors are thrown to the caller, which logs them, instead of printed to stderr
+        this.builder.setErrorHandler(new DefaultHandler());
+        // external entities are already refused by the parser; do not try to resolve them either
+        this.builder.setEntityResolver((publicId, systemId) -> new InputSource(new StringReader("")));
+        XPathFactory xpathFactory = XPathFactory.newInstance();
+        try {
+            xpathFactory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+        } catch (XPathFactoryConfigurationException e) {
+            throw new ParserConfigurationException(e.getMessage());
+        }
+        this.xpath = xpathFactory.newXPath();
+        if (namespaceAware) {
+            this.xpath.setNamespaceContext(this.namespaces);
+        }
+        this.inputFactory = XMLInputFactory.newInstance();
+        this.inputFactory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, namespaceAware);
+        this.inputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        // a DTD is reported, and the document then evaluated on the DOM, without reading it
+        this.inputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        this.expressions = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Compiled> eldest) {
+                return size() > maxExpressions;
+            }
+        };
+        this.maxExpressions = maxExpressions;
+        this.maxMemoChars = maxMemoChars;
+    }
+
+    /**
+     * @return a new namespace-aware engine with the same limits, and the bindings of this engine
+     *         overridden by the given ones
+     */
+    XPathEngine withNamespaces(Map<String, String> bindings) throws ParserConfigurationException {
+        Map<String, String> merged = new LinkedHashMap<>(namespaces());
+        merged.putAll(bindings);
+        return new XPathEngine(maxExpressions, maxMemoChars, merged);
+    }
+
+    /**
+     * @return a DOM factory that never reads anything but the payload: external DTDs, external
+     *         entities and XInclude are disabled, and secure processing limits entity expansion.
+     *         Internal DTD subsets are still applied.
+     */
+    static DocumentBuilderFactory hardenedFactory(boolean namespaceAware) throws ParserConfigurationException {
+        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        factory.setNamespaceAware(namespaceAware);
+        factory.setValidating(false);
+        factory.setXIncludeAware(false);
+        factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+        factory.setFeature("http://apache.org/xml/features/nonvalidating/load-external-dtd", false);
+        factory.setFeature("http://xml.org/sax/features/external-general-entities", false);
+        factory.setFeature("http://xml.org/sax/features/external-parameter-entities", false);
+        factory.setAttribute(XMLConstants.ACCESS_EXTERNAL_DTD, "");
+        factory.setAttribute(XMLConstants.ACCESS_EXTERNAL_SCHEMA, "");
+        return factory;
+    }
+
+    /**
+     * @return the DOM of the document, the memoized one when it is the last parsed document
+     */
+    Document parse(String xml) throws Exception {
+        if (memoDocument != null && (xml == memoXml || (memoXml instanceof String memo
+                && xml.length() == memo.length() && xml.hashCode() == memo.hashCode() && xml.equals(memo)))) {
+            return memoHit(xml);
+        }
+        return memoize(xml, xml.length(), builder.parse(new InputSource(new StringReader(xml))));
+    }
+
+    /**
+     * @return the DOM of the encoded document, the memoized one when it is the last parsed document
+     */
+    Document parse(byte[] xml) throws Exception {
+        if (memoDocument != null && memoXml instanceof byte[] memo && Arrays.equals(xml, memo)) {
+            memoHits++;
+            return memoDocument;
+        }
+        // the parser detects the encoding from the byte order mark or the XML declaration
+        Document doc = builder.parse(new InputSource(new ByteArrayInputStream(xml)));
+        return memoize(xml.length <= maxMemoChars ? xml.clone() : null, xml.length, doc);
+    }
+
+    private Document memoHit(String xml) {
+        memoHits++;
+        memoXml = xml;
+        return memoDocument;
+    }
+
+    private Document memoize(Object xml, int length, Document doc) {
+        if (length <= maxMemoChars) {
+            memoXml = xml;
+            memoDocument = doc;
+        } else {
+            memoXml = null;
+            memoDocument = null;
+        }
+        return doc;
+    }
+
+    /**
+     * @return the compiled expression, from the cache when it was compiled before
+     */
+    XPathExpression compile(String expression) throws XPathExpressionException {
+        return compiled(expression).expression;
+    }
+
+    /**
+     * Evaluates the expression against the document and returns the value of the first matching
+     * node. Simple paths are read from a stream that stops at the first match; other expressions,
+     * and documents with a DTD, are evaluated on the DOM.
+     *
+     * @return the trimmed string value of the first matching node, or null if blank or no match
+     */
+    String firstValue(String xml, String expression) throws Exception {
+        Compiled compiled = compiled(expression);
+        if (compiled.streaming != null) {
+            String value = streamedValue(inputFactory.createXMLStreamReader(new StringReader(xml)), compiled.streaming);
+            if (value != NOT_STREAMED) {
+                return value;
+            }
+        }
+        return firstValue(parse(xml), compiled.expression);
+    }
+
+    /**
+     * Same as {@link #firstValue(String, String)} for an encoded document. A UTF-8 document is
+     * decoded with the JDK decoder, which is faster than the parser's own, and once for the calls
+     * of a row when it is within the memo limit; malformed UTF-8 sequences fail the call, as they
+     * fail the parser. A document in another encoding is read by the parser from the bytes.
+     */
+    String firstValue(byte[] xml, String expression) throws Exception {
+        String text = utf8Text(xml);
+        if (text != null) {
+            return firstValue(text, expression);
+        }
+        Compiled compiled = compiled(expression);
+        if (compiled.streaming != null) {
+            String value = streamedValue(inputFactory.createXMLStreamReader(new ByteArrayInputStream(xml)), compiled.streaming);
+            if (value != NOT_STREAMED) {
+                return value;
+            }
+        }
+        return firstValue(parse(xml), compiled.expression);
+    }
+
+    /**
+     * @return the decoded document if it is UTF-8 encoded, the last decoded string when the bytes
+     *         have the same content, or null for another encoding
+     * @throws CharacterCodingException if the document is not valid UTF-8
+     */
+    private String utf8Text(byte[] xml) throws CharacterCodingException {
+        if (decodedBytes != null && Arrays.equals(xml, decodedBytes)) {
+            return decodedText;
+        }
+        if (!isUtf8(xml)) {
+            return null;
+        }
+        boolean byteOrderMark = xml.length >= 3 && xml[0] == (byte) 0xEF && xml[1] == (byte) 0xBB && xml[2] == (byte) 0xBF;
+        int offset = byteOrderMark ? 3 : 0;
+        String text = utf8Decoder.decode(ByteBuffer.wrap(xml, offset, xml.length - offset)).toString();
+        if (xml.length <= maxMemoChars) {
+            decodedBytes = xml.clone();
+            decodedText = text;
+        } else {
+            decodedBytes = null;
+            decodedText = null;
+        }
+        return text;
+    }
+
+    /**
+     * @return true if the document is UTF-8: no UTF-16 or UTF-32 byte order mark or zero byte at
+     *         the start, and no XML declaration naming another encoding
+     */
+    static boolean isUtf8(byte[] xml) {
+        if (xml.length >= 2 && (xml[0] == (byte) 0xFE || xml[0] == (byte) 0xFF || xml[0] == 0 || xml[1] == 0)) {
+            return false;
+        }
+        int start = xml.length >= 3 && xml[0] == (byte) 0xEF ? 3 : 0;
+        if (!startsWith(xml, start, "<?xml")) {
+            return true;
+        }
+        int end = start;
+        while (end < xml.length && xml[end] != '>') {
+            end++;
+        }
+        String declaration = new String(xml, start, end - start, StandardCharsets.ISO_8859_1);
+        int encoding = declaration.indexOf("encoding");
+        if (encoding < 0) {
+            return true;
+        }
+        int quote = encoding + 8;
+        while (quote < declaration.length() && declaration.charAt(quote) != '"' && declaration.charAt(quote) != '\'') {
+            quote++;
+        }
+        if (quote >= declaration.length()) {
+            return true;
+        }
+        int close = declaration.indexOf(declaration.charAt(quote), quote + 1);
+        String name = close < 0 ? "" : declaration.substring(quote + 1, close).trim();
+        return name.equalsIgnoreCase("UTF-8") || name.equalsIgnoreCase("UTF8");
+    }
+
+    private static boolean startsWith(byte[] xml, int offset, String prefix) {
+        if (xml.length - offset < prefix.length()) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length(); i++) {
+            if (xml[offset + i] != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the value read from the stream, or {@link #NOT_STREAMED} if the document must be
+     *         evaluated on the DOM
+     */
+    private String streamedValue(XMLStreamReader reader, StreamingPath path) throws XMLStreamException {
+        try {
+            String value = path.firstValue(reader);
+            streamedEvaluations++;
+            streamedDocuments++;
+            return value;
+        } catch (StreamingPath.UnsupportedDocumentException e) {
+            return NOT_STREAMED;
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * Reads several simple paths from one stream of the document, which stops once every path has
+     * matched. When the stream fails on a malformed document, the values found before the failure
+     * are kept and the exception is thrown.
+     *
+     * @param paths  paths compiled by {@link #streamingPath}; a null path is skipped
+     * @param values the value of each path, set at the index of the path
+     * @return false if the document has a DTD and must be evaluated on the DOM
+     */
+    boolean streamedValues(String xml, StreamingPath[] paths, String[] values) throws XMLStreamException {
+        XMLStreamReader reader = inputFactory.createXMLStreamReader(new StringReader(xml));
+        try {
+            StreamingPath.firstValues(reader, paths, values);
+        } catch (StreamingPath.UnsupportedDocumentException e) {
+            return false;
+        } finally {
+            reader.close();
+        }
+        for (StreamingPath path : paths) {
+            if (path != null) {
+                streamedEvaluations++;
+            }
+        }
+        streamedDocuments++;
+        return true;
+    }
+
+    /**
+     * @return the expression compiled as a simple path read from a stream, or null if it is
+     *         evaluated on the DOM
+     */
+    StreamingPath streamingPath(String expression) throws XPathExpressionException {
+        return compiled(expression).streaming;
+    }
+
+    /**
+     * @return the expression as a simple path relative to a node, walked on the DOM without an
+     *         XPath evaluation, or null if it is not one
+     */
+    StreamingPath relativePath(String expression) throws XPathExpressionException {
+        return compiled(expression).relative;
+    }
+
+    /**
+     * @return true if {@link #firstValue(String, String)} reads the expression from a stream
+     */
+    boolean isStreamable(String expression) throws XPathExpressionException {
+        return compiled(expression).streaming != null;
+    }
+
+    private Compiled compiled(String expression) throws XPathExpressionException {
+        Compiled compiled = expressions.get(expression);
+        if (compiled == null) {
+            compiled = new Compiled(xpath.compile(expression), StreamingPath.compile(expression, namespaces),
+                    StreamingPath.compileRelative(expression, namespaces));
+            expressions.put(expression, compiled);
+        }
+        return compiled;
+    }
+
+    /**
+     * @return the prefix bindings, empty without namespace awareness
+     */
+    Map<String, String> namespaces() {
+        return namespaces == null ? Map.of() : namespaces.uris();
+    }
+
+    int cachedExpressions() {
+        return expressions.size();
+    }
+
+    /**
+     * @return number of parse calls answered with the memoized document
+     */
+    long memoHits() {
+        return memoHits;
+    }
+
+    /**
+     * @return number of evaluations answered from the stream, without a DOM
+     */
+    long streamedEvaluations() {
+        return streamedEvaluations;
+    }
+
+    /**
+     * @return number of documents read from a stream, once for all the paths of a call
+     */
+    long streamedDocuments() {
+        return streamedDocuments;
+    }
+
+    /**
+     * @return the nodes of the document matching the expression, in document order
+     */
+    NodeList nodes(Document doc, String expression) throws XPathExpressionException {
+        return (NodeList) compile(expression).evaluate(doc, XPathConstants.NODESET);
+    }
+
+    /**
+     * @return the trimmed string value of the first node matching the expression (element text
+     *         content or attribute value), or null if nothing matches or the value is blank
+     */
+    static String firstValue(Object context, XPathExpression expression) throws XPathExpressionException {
+        NodeList nodes = (NodeList) expression.evaluate(context, XPathConstants.NODESET);
+        if (nodes == null || nodes.getLength() == 0) {
+            return null;
+        }
+        return value(nodes.item(0));
+    }
+
+    /**
+     * @return the trimmed text content or value of the node, or null if blank
+     */
+    static String value(Node node) {
+        String value = node.getTextContent();
+        if (value == null || value.isBlank()) {
+            value = node.getNodeValue();
+        }
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        return value.trim();
+    }
+}
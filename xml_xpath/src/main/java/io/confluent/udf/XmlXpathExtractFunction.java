@@ -0,0 +1,127 @@
+package io.confluent.udf;
+
+import org.apache.flink.table.annotation.DataTypeHint;
+import org.apache.flink.table.functions.FunctionContext;
+import org.apache.flink.table.functions.ScalarFunction;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.w3c.dom.Document;
+
+/**
+ * Flink scalar UDF that extracts several values from an XML document column in one call.
+ * Each XPath expression of the paths array is evaluated with the rules of XPATH_STRING: the result
+ * holds the string value of the first matching node for each path, in the order of the paths.
+ *
+ * <p>Simple absolute paths are all read from one stream of the document, which stops once every
+ * path has matched (see {@link StreamingPath}), where several XPATH_STRING calls read the stream
+ * once per path. The document is parsed into a DOM at most once, for all the other paths, as the
+ * XPATH_STRING calls of a row share their last parsed DOM. Compiled expressions are cached as in XPATH_STRING (job parameter
+ * {@value XmlXpathFunction#EXPRESSION_CACHE_SIZE_PARAM}), and so is the last parsed document
+ * ({@value XmlXpathFunction#DOCUMENT_MEMO_MAX_CHARS_PARAM}). The paths can use prefixed steps
+ * with the bindings of {@value XmlXpathFunction#NAMESPACES_PARAM}.
+ *
+ * <p>Usage in SQL (register as XPATH_EXTRACT):
+ * <pre>
+ * SELECT v[1] AS cancel_flag, v[2] AS sub_type
+ * FROM (
+ *   SELECT XPATH_EXTRACT(PAYLOAD, ARRAY[
+ *     '/*[name()="POSLog"]/*[name()="Transaction"]/@CancelFlag',
+ *     '/*[name()="POSLog"]/*[name()="Transaction"]/@ABCSubTransactionType']) AS v
+ *   FROM my_table
+ * );
+ * </pre>
+ */
+public class XmlXpathExtractFunction extends ScalarFunction {
+    private static final Logger logger = LogManager.getLogger(XmlXpathExtractFunction.class);
+
+    private transient XPathEngine engine;
+
+    @Override
+    public void open(FunctionContext context) throws Exception {
+        super.open(context);
+        engine = XmlXpathFunction.newEngine(context);
+    }
+
+    /**
+     * Evaluates every XPath expression against the XML document. Simple paths are read from one
+     * stream, until every one has matched; the other paths share a single DOM parse.
+     *
+     * @param xml   the XML document as a string (e.g. a payload column)
+     * @param paths XPath expressions, one per extracted value
+     * @return one value per path: the trimmed string value of the first matching node, or null if
+     *         the path is null/blank, invalid or has no match, or the document cannot be parsed.
+     *         Null if xml or paths is null, or xml is blank.
+     */
+    public @DataTypeHint("ARRAY<STRING>") String[] eval(String xml, @DataTypeHint("ARRAY<STRING>") String[] paths) {
+        if (xml == null || xml.isBlank() || paths == null) {
+            return null;
+        }
+        String[] values = new String[paths.length];
+        XPathEngine xpathEngine;
+        try {
+            xpathEngine = engine();
+        } catch (Exception e) {
+            logger.debug("XPath engine creation failed: {}", e.getMessage());
+            return values;
+        }
+        // paths read from the stream, and paths evaluated on the DOM
+        StreamingPath[] streamed = new StreamingPath[paths.length];
+        boolean[] evaluated = new boolean[paths.length];
+        boolean stream = false;
+        for (int i = 0; i < paths.length; i++) {
+            String path = paths[i];
+            if (path == null || path.isBlank()) {
+                continue;
+            }
+            try {
+                streamed[i] = xpathEngine.streamingPath(path);
+                evaluated[i] = streamed[i] == null;
+                stream |= streamed[i] != null;
+            } catch (Exception e) {
+                logger.debug("XPath compilation failed: xpath={}, error={}", path, e.getMessage());
+            }
+        }
+        if (stream) {
+            try {
+                if (!xpathEngine.streamedValues(xml, streamed, values)) {
+                    for (int i = 0; i < paths.length; i++) {
+                        evaluated[i] |= streamed[i] != null;
+                    }
+                }
+            } catch (Exception e) {
+                logger.debug("XPath stream failed: xml length={}, error={}", xml.length(), e.getMessage());
+            }
+        }
+        Document doc = null;
+        for (int i = 0; i < paths.length; i++) {
+            if (!evaluated[i]) {
+                continue;
+            }
+            try {
+                if (doc == null) {
+                    doc = xpathEngine.parse(xml);
+                }
+                values[i] = XPathEngine.firstValue(doc, xpathEngine.compile(paths[i]));
+            } catch (Exception e) {
+                logger.debug("XPath evaluation failed: xml length={}, xpath={}, error={}",
+                        xml.length(), paths[i], e.getMessage());
+            }
+        }
+        return values;
+    }
+
+    /**
+     * @return the engine created in open(), or a new one when the function is called without open()
+     */
+    XPathEngine engine() throws Exception {
+        if (engine == null) {
+            engine = new XPathEngine(XPathEngine.DEFAULT_MAX_EXPRESSIONS, XPathEngine.DEFAULT_MAX_MEMO_CHARS);
+        }
+        return engine;
+    }
+
+    @Override
+    public String toString() {
+        return "XPATH_EXTRACT";
+    }
+}
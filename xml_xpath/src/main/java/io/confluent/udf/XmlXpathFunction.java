@@ -1,24 +1,39 @@
 package io.confluent.udf;
 
+import org.apache.flink.table.annotation.DataTypeHint;
+import org.apache.flink.table.functions.FunctionContext;
 import org.apache.flink.table.functions.ScalarFunction;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import org.w3c.dom.Document;
-import org.w3c.dom.NodeList;
 
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.xpath.XPath;
-import javax.xml.xpath.XPathConstants;
-import javax.xml.xpath.XPathFactory;
-import java.io.StringReader;
-import org.xml.sax.InputSource;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 /**
  * Flink scalar UDF that extracts content from an XML document column using an XPath expression.
  * Returns the string value of the first matching node (element text or attribute value).
  * Use it multiple times in a SELECT with different XPath expressions to create matching columns.
  *
+ * <p>The document builder and XPath objects are created once per function instance in open(), and
+ * compiled XPath expressions are kept in a bounded LRU cache (job parameter
+ * {@value #EXPRESSION_CACHE_SIZE_PARAM}, default {@value XPathEngine#DEFAULT_MAX_EXPRESSIONS}).
+ * Simple absolute paths, such as the ones below, are evaluated on a StAX stream that stops at the
+ * first match instead of a DOM; see {@link StreamingPath}.
+ *
+ * <p>The calls of one query share the function instance, so when several calls of a row need a DOM,
+ * the payload is parsed once: the last parsed document is memoized up to
+ * {@value #DOCUMENT_MEMO_MAX_CHARS_PARAM} characters (default
+ * {@value XPathEngine#DEFAULT_MAX_MEMO_CHARS}, 0 to disable).
+ *
+ * <p>The payload can be STRING or BYTES. The parser never loads external DTDs or entities and has
+ * XInclude disabled.
+ *
+ * <p>Documents are parsed without namespaces by default, so names are matched with {@code name()}
+ * predicates. Bindings in the job parameter {@value #NAMESPACES_PARAM} (e.g.
+ * {@code pos=http://www.nrf-arts.org/IXRetail/namespace/}), or in a MAP argument, switch to the
+ * namespace-aware mode, where expressions use prefixed steps such as {@code /pos:POSLog}.
+ *
  * <p>Usage in SQL (register as xpath_string):
  * <pre>
  * SELECT
@@ -30,6 +45,22 @@ import org.xml.sax.InputSource;
  */
 public class XmlXpathFunction extends ScalarFunction {
     private static final Logger logger = LogManager.getLogger(XmlXpathFunction.class);
+    static final String EXPRESSION_CACHE_SIZE_PARAM = "xml_xpath.expression_cache_size";
+    static final String DOCUMENT_MEMO_MAX_CHARS_PARAM = "xml_xpath.document_memo_max_chars";
+    static final String NAMESPACES_PARAM = "xml_xpath.namespaces";
+    // engines kept for the distinct namespaces arguments
+    static final int MAX_NAMESPACE_ENGINES = 16;
+
+    private transient XPathEngine engine;
+    // engines by namespaces argument, derived from the engine of the job parameters
+    private transient Map<Map<String, String>, XPathEngine> namespaceEngines;
+
+    @Override
+    public void open(FunctionContext context) throws Exception {
+        super.open(context);
+        engine = newEngine(context);
+        namespaceEngines = null;
+    }
 
     /**
      * Evaluates an XPath expression against an XML document string and returns the string value
@@ -44,26 +75,31 @@ public class XmlXpathFunction extends ScalarFunction {
             return null;
         }
         try {
-            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-            factory.setNamespaceAware(false);
-            DocumentBuilder builder = factory.newDocumentBuilder();
-            Document doc = builder.parse(new InputSource(new StringReader(xml)));
+            return engine().firstValue(xml, xpathExpression);
+        } catch (Exception e) {
+            logger.debug("XPath evaluation failed: xml length={}, xpath={}, error={}",
+                    xml.length(), xpathExpression, e.getMessage());
+            return null;
+        }
+    }
 
-            XPath xpath = XPathFactory.newInstance().newXPath();
-            Object result = xpath.evaluate(xpathExpression, doc, XPathConstants.NODESET);
-            NodeList nodes = (NodeList) result;
-            if (nodes == null || nodes.getLength() == 0) {
-                return null;
-            }
-            org.w3c.dom.Node first = nodes.item(0);
-            String value = first.getTextContent();
-            if (value == null || value.isBlank()) {
-                value = first.getNodeValue();
-            }
-            if (value == null || value.isBlank()) {
-                return null;
-            }
-            return value.trim();
+    /**
+     * Same as {@link #eval(String, String)} in the namespace-aware mode, with prefix bindings given
+     * as argument (e.g. {@code MAP['pos', 'http://www.nrf-arts.org/IXRetail/namespace/']}). They
+     * are added to the bindings of the job parameter {@value #NAMESPACES_PARAM}, if any.
+     *
+     * @param xml             the XML document as a string
+     * @param xpathExpression XPath expression with prefixed steps (e.g. "/pos:POSLog/pos:Transaction/@CancelFlag")
+     * @param namespaces      prefix to namespace URI bindings; null or empty for the bindings of the
+     *                        job parameters only
+     * @return the extracted string, or null if xml/xpath is null/blank, no match, or on parse/eval error
+     */
+    public String eval(String xml, String xpathExpression, @DataTypeHint("MAP<STRING, STRING>") Map<String, String> namespaces) {
+        if (xml == null || xml.isBlank() || xpathExpression == null || xpathExpression.isBlank()) {
+            return null;
+        }
+        try {
+            return engine(namespaces).firstValue(xml, xpathExpression);
         } catch (Exception e) {
             logger.debug("XPath evaluation failed: xml length={}, xpath={}, error={}",
                     xml.length(), xpathExpression, e.getMessage());
@@ -71,6 +107,92 @@ public class XmlXpathFunction extends ScalarFunction {
         }
     }
 
+    /**
+     * Same as {@link #eval(String, String)} for a document in its encoded form, such as the value
+     * bytes of a Kafka record, in the encoding of its XML declaration (UTF-8 by default). A UTF-8
+     * payload within the memo limit is decoded once for all the calls of the row, and a malformed
+     * one returns null; other encodings are read by the parser from the bytes.
+     *
+     * @param xml            the XML document as bytes (e.g. a BYTES payload column)
+     * @param xpathExpression XPath expression
+     * @return the extracted string, or null if xml/xpath is null/empty, no match, or on parse/eval error
+     */
+    public String eval(byte[] xml, String xpathExpression) {
+        if (xml == null || xml.length == 0 || xpathExpression == null || xpathExpression.isBlank()) {
+            return null;
+        }
+        try {
+            return engine().firstValue(xml, xpathExpression);
+        } catch (Exception e) {
+            logger.debug("XPath evaluation failed: xml bytes={}, xpath={}, error={}",
+                    xml.length, xpathExpression, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * @return the engine created in open(), or a new one when the function is called without open()
+     */
+    XPathEngine engine() throws Exception {
+        if (engine == null) {
+            engine = new XPathEngine(XPathEngine.DEFAULT_MAX_EXPRESSIONS, XPathEngine.DEFAULT_MAX_MEMO_CHARS);
+        }
+        return engine;
+    }
+
+    /**
+     * @return the engine with the bindings of the namespaces argument, created on first use
+     */
+    XPathEngine engine(Map<String, String> namespaces) throws Exception {
+        if (namespaces == null || namespaces.isEmpty()) {
+            return engine();
+        }
+        if (namespaceEngines == null) {
+            namespaceEngines = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Map<String, String>, XPathEngine> eldest) {
+                    return size() > MAX_NAMESPACE_ENGINES;
+                }
+            };
+        }
+        XPathEngine namespaceEngine = namespaceEngines.get(namespaces);
+        if (namespaceEngine == null) {
+            namespaceEngine = engine().withNamespaces(namespaces);
+            // copied, as the runtime may reuse the argument map
+            namespaceEngines.put(new HashMap<>(namespaces), namespaceEngine);
+        }
+        return namespaceEngine;
+    }
+
+    /**
+     * @return an engine configured from the job parameters, namespace-aware if
+     *         {@value #NAMESPACES_PARAM} has bindings
+     */
+    static XPathEngine newEngine(FunctionContext context) throws Exception {
+        Map<String, String> namespaces;
+        String bindings = context.getJobParameter(NAMESPACES_PARAM, "");
+        try {
+            namespaces = NamespaceBindings.parse(bindings);
+        } catch (IllegalArgumentException e) {
+            logger.error("Invalid {} '{}', parsing documents without namespaces: {}", NAMESPACES_PARAM, bindings, e.getMessage());
+            namespaces = Map.of();
+        }
+        return new XPathEngine(
+                intParameter(context, EXPRESSION_CACHE_SIZE_PARAM, XPathEngine.DEFAULT_MAX_EXPRESSIONS, 1),
+                intParameter(context, DOCUMENT_MEMO_MAX_CHARS_PARAM, XPathEngine.DEFAULT_MAX_MEMO_CHARS, 0),
+                namespaces);
+    }
+
+    private static int intParameter(FunctionContext context, String name, int defaultValue, int minValue) {
+        String value = context.getJobParameter(name, String.valueOf(defaultValue));
+        try {
+            return Math.max(minValue, Integer.parseInt(value.trim()));
+        } catch (NumberFormatException e) {
+            logger.error("Invalid {} '{}', using {}", name, value, defaultValue);
+            return defaultValue;
+        }
+    }
+
     @Override
     public String toString() {
         return "XPATH_STRING";
@@ -0,0 +1,142 @@
+package io.confluent.udf;
+
+import org.apache.flink.table.annotation.DataTypeHint;
+import org.apache.flink.table.annotation.FunctionHint;
+import org.apache.flink.table.functions.FunctionContext;
+import org.apache.flink.table.functions.TableFunction;
+import org.apache.flink.types.Row;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+import javax.xml.xpath.XPathExpression;
+
+/**
+ * A Table Function that explodes the repeated elements of an XML document, such as the line items
+ * of a POSLog transaction, and extracts values relative to each of them.
+ * Input: the XML document, the XPath expression selecting the nodes, and the relative paths
+ * Output: Emits one row per selected node, in document order: its 1-based position, and the value
+ * of each relative path evaluated against the node, with the rules of XPATH_STRING
+ *
+ * <p>The document is parsed once per row, and shares the memoized document of the XPath functions.
+ * Simple relative paths, such as {@code Sku}, {@code @Id} or {@code *[name()="Sku"]/@Type}, are
+ * found by walking the children of the node. Other paths are evaluated on a copy of the node
+ * detached from the document, so the XPath evaluation only sees the node instead of the whole
+ * document: relative paths cannot reach outside the node ({@code ..} or absolute paths give
+ * null). The output row and its values array are reused, as the runtime converts each collected
+ * row before the next one. The paths can use prefixed steps with the bindings of
+ * {@value XmlXpathFunction#NAMESPACES_PARAM}.
+ *
+ * <p>Usage in SQL (register as XPATH_NODES):
+ * <pre>
+ * SELECT t.node_index, t.node_values[1] AS sku, t.node_values[2] AS amount
+ * FROM my_table,
+ *   LATERAL TABLE(XPATH_NODES(PAYLOAD, '/POSLog/Transaction/LineItem', ARRAY['Sku', 'Amount'])) AS t;
+ * </pre>
+ */
+@FunctionHint(output = @DataTypeHint("ROW<node_index INT, node_values ARRAY<STRING>>"))
+public class XmlXpathNodesFunction extends TableFunction<Row> {
+    private static final Logger logger = LogManager.getLogger(XmlXpathNodesFunction.class);
+
+    private transient XPathEngine engine;
+    private transient Row output;
+    private transient String[] values;
+
+    @Override
+    public void open(FunctionContext context) throws Exception {
+        super.open(context);
+        engine = XmlXpathFunction.newEngine(context);
+    }
+
+    /**
+     * Emits one row per node selected by nodePath.
+     *
+     * @param xml           the XML document as a string (e.g. a payload column)
+     * @param nodePath      XPath expression selecting the repeated nodes
+     * @param relativePaths XPath expressions evaluated against each node; a null, blank, invalid or
+     *                      unmatched path gives a null value
+     */
+    public void eval(String xml, String nodePath, @DataTypeHint("ARRAY<STRING>") String[] relativePaths) {
+        if (xml == null || xml.isBlank() || nodePath == null || nodePath.isBlank()) {
+            return;
+        }
+        int pathCount = relativePaths == null ? 0 : relativePaths.length;
+        NodeList nodes;
+        XPathExpression[] expressions = new XPathExpression[pathCount];
+        StreamingPath[] simplePaths = new StreamingPath[pathCount];
+        boolean copyNodes = false;
+        try {
+            XPathEngine xpathEngine = engine();
+            nodes = xpathEngine.nodes(xpathEngine.parse(xml), nodePath);
+            for (int i = 0; i < pathCount; i++) {
+                String path = relativePaths[i];
+                if (path != null && !path.isBlank()) {
+                    expressions[i] = compileOrNull(xpathEngine, path);
+                    if (expressions[i] != null) {
+                        simplePaths[i] = xpathEngine.relativePath(path);
+                        copyNodes |= simplePaths[i] == null;
+                    }
+                }
+            }
+        } catch (Exception e) {
+            logger.debug("XPath node selection failed: xml length={}, xpath={}, error={}",
+                    xml.length(), nodePath, e.getMessage());
+            return;
+        }
+        if (output == null || values.length != pathCount) {
+            values = new String[pathCount];
+            output = Row.of(0, values);
+        }
+        for (int n = 0; n < nodes.getLength(); n++) {
+            Node node = nodes.item(n);
+            Node copy = copyNodes ? node.cloneNode(true) : null;
+            for (int i = 0; i < pathCount; i++) {
+                if (simplePaths[i] != null) {
+                    Node match = simplePaths[i].firstNode(node);
+                    values[i] = match == null ? null : XPathEngine.value(match);
+                } else {
+                    values[i] = expressions[i] == null ? null : valueOrNull(copy, expressions[i]);
+                }
+            }
+            output.setField(0, n + 1);
+            collect(output);
+        }
+    }
+
+    private static XPathExpression compileOrNull(XPathEngine xpathEngine, String path) {
+        try {
+            return xpathEngine.compile(path);
+        } catch (Exception e) {
+            logger.debug("XPath compilation failed: xpath={}, error={}", path, e.getMessage());
+            return null;
+        }
+    }
+
+    private static String valueOrNull(Node node, XPathExpression expression) {
+        try {
+            return XPathEngine.firstValue(node, expression);
+        } catch (Exception e) {
+            logger.debug("XPath evaluation failed: error={}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * @return the engine created in open(), or a new one when the function is called without open()
+     */
+    XPathEngine engine() throws Exception {
+        if (engine == null) {
+            engine = new XPathEngine(XPathEngine.DEFAULT_MAX_EXPRESSIONS, XPathEngine.DEFAULT_MAX_MEMO_CHARS);
+        }
+        return engine;
+    }
+
+    /**
+     * Returns a string describing the function.
+     */
+    @Override
+    public String toString() {
+        return "XPATH_NODES";
+    }
+}
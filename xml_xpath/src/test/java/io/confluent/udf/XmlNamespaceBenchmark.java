@@ -0,0 +1,138 @@
+package io.confluent.udf;
+
+import org.apache.flink.configuration.Configuration;
+import org.apache.flink.table.functions.FunctionContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.w3c.dom.Document;
+
+import javax.xml.xpath.XPathExpression;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH comparison of the {@code name()} predicates of the default mode against the prefixed steps
+ * of the namespace-aware mode, on a POSLog payload with a namespace prefix. {@code *EvalRow}
+ * extracts the columns of the README query with XPATH_STRING, from the stream. {@code *DomRow}
+ * evaluates descendant expressions, which need a DOM, on an already parsed document, so only the
+ * XPath evaluation is measured.
+ *
+ * <p>Run with: {@code mvn -Pbenchmark test-compile exec:exec -Dbenchmark=XmlNamespaceBenchmark}
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class XmlNamespaceBenchmark {
+    private static final String POS_NS = "http://www.nrf-arts.org/IXRetail/namespace/";
+
+    private static final String[] PREDICATE_XPATHS = {
+            "/*[name()=\"p:POSLog\"]/*[name()=\"p:Transaction\"]/@CancelFlag",
+            "/*[name()=\"p:POSLog\"]/*[name()=\"p:Transaction\"]/@ABCSubTransactionType",
+            "/*[name()=\"p:POSLog\"]/*[name()=\"p:Transaction\"]/*[name()=\"p:BusinessUnit\"]/*[name()=\"p:UnitID\"]",
+            "/*[name()=\"p:POSLog\"]/*[name()=\"p:Transaction\"]/*[name()=\"p:Total\"]"
+    };
+
+    private static final String[] NAMESPACE_XPATHS = {
+            "/pos:POSLog/pos:Transaction/@CancelFlag",
+            "/pos:POSLog/pos:Transaction/@ABCSubTransactionType",
+            "/pos:POSLog/pos:Transaction/pos:BusinessUnit/pos:UnitID",
+            "/pos:POSLog/pos:Transaction/pos:Total"
+    };
+
+    private static final String[] PREDICATE_DOM_XPATHS = {
+            "//*[name()=\"p:Transaction\"]/@CancelFlag",
+            "//*[name()=\"p:LineItem\"][last()]/*[name()=\"p:Amount\"]",
+            "//*[name()=\"p:Total\"]"
+    };
+
+    private static final String[] NAMESPACE_DOM_XPATHS = {
+            "//pos:Transaction/@CancelFlag",
+            "//pos:LineItem[last()]/pos:Amount",
+            "//pos:Total"
+    };
+
+    // 10 line items is about 1 KB of XML, 200 about 25 KB
+    @Param({"10", "200"})
+    public int lineItems;
+
+    private String payload;
+    private XmlXpathFunction predicateXpathString;
+    private XmlXpathFunction namespaceXpathString;
+    private Document predicateDocument;
+    private Document namespaceDocument;
+    private XPathExpression[] predicateExpressions;
+    private XPathExpression[] namespaceExpressions;
+
+    @Setup
+    public void setUp() throws Exception {
+        payload = payload();
+        predicateXpathString = new XmlXpathFunction();
+        Configuration conf = new Configuration();
+        conf.setString(XmlXpathFunction.NAMESPACES_PARAM, "pos=" + POS_NS);
+        namespaceXpathString = new XmlXpathFunction();
+        namespaceXpathString.open(new FunctionContext(null, null, conf));
+
+        XPathEngine predicateEngine = predicateXpathString.engine();
+        XPathEngine namespaceEngine = namespaceXpathString.engine();
+        predicateDocument = predicateEngine.parse(payload);
+        namespaceDocument = namespaceEngine.parse(payload);
+        predicateExpressions = new XPathExpression[PREDICATE_DOM_XPATHS.length];
+        namespaceExpressions = new XPathExpression[NAMESPACE_DOM_XPATHS.length];
+        for (int i = 0; i < PREDICATE_DOM_XPATHS.length; i++) {
+            predicateExpressions[i] = predicateEngine.compile(PREDICATE_DOM_XPATHS[i]);
+            namespaceExpressions[i] = namespaceEngine.compile(NAMESPACE_DOM_XPATHS[i]);
+        }
+    }
+
+    private String payload() {
+        StringBuilder xml = new StringBuilder("<?xml version=\"1.0\"?><p:POSLog xmlns:p=\"").append(POS_NS).append("\">")
+                .append("<p:Transaction CancelFlag=\"false\" ABCSubTransactionType=\"SERVICE_TIP\">")
+                .append("<p:BusinessUnit><p:UnitID>store-1042</p:UnitID></p:BusinessUnit>");
+        for (int i = 0; i < lineItems; i++) {
+            xml.append("<p:LineItem Id=\"").append(i).append("\"><p:Sku>SKU-").append(1000 + i)
+                    .append("</p:Sku><p:Description>Item ").append(i).append("</p:Description>")
+                    .append("<p:Quantity>1</p:Quantity><p:Amount>").append(i % 50).append(".99</p:Amount></p:LineItem>");
+        }
+        return xml.append("<p:Total>1234.56</p:Total></p:Transaction></p:POSLog>").toString();
+    }
+
+    @Benchmark
+    public void predicateEvalRow(Blackhole blackhole) {
+        for (String xpath : PREDICATE_XPATHS) {
+            blackhole.consume(predicateXpathString.eval(payload, xpath));
+        }
+    }
+
+    @Benchmark
+    public void namespaceEvalRow(Blackhole blackhole) {
+        for (String xpath : NAMESPACE_XPATHS) {
+            blackhole.consume(namespaceXpathString.eval(payload, xpath));
+        }
+    }
+
+    @Benchmark
+    public void predicateDomRow(Blackhole blackhole) throws Exception {
+        for (XPathExpression expression : predicateExpressions) {
+            blackhole.consume(XPathEngine.firstValue(predicateDocument, expression));
+        }
+    }
+
+    @Benchmark
+    public void namespaceDomRow(Blackhole blackhole) throws Exception {
+        for (XPathExpression expression : namespaceExpressions) {
+            blackhole.consume(XPathEngine.firstValue(namespaceDocument, expression));
+        }
+    }
+}
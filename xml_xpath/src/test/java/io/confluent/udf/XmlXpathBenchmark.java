@@ -0,0 +1,255 @@
+package io.confluent.udf;
+
+import org.apache.flink.configuration.Configuration;
+import org.apache.flink.table.functions.FunctionContext;
+import org.apache.flink.types.Row;
+import org.apache.flink.util.Collector;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.w3c.dom.Document;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.xml.sax.InputSource;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.xpath.XPath;
+import javax.xml.xpath.XPathConstants;
+import javax.xml.xpath.XPathFactory;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH comparison of XPATH_STRING against the implementation that created the parser factories and
+ * compiled the expression on every call ({@code uncached*}). Each operation extracts the
+ * {@link #XPATHS} columns of the POSLog query in the README from one payload, as a SELECT with
+ * four XPATH_STRING calls does, or with a single XPATH_EXTRACT call ({@code extractRow}).
+ * {@code domEvalRow} evaluates the same simple paths on a DOM, as XPATH_STRING does for expressions
+ * that cannot be streamed. The last path selects an element at the end of the document, where the
+ * stream cannot stop early. {@code domExpressionRow} extracts the same values with expressions that
+ * need a DOM, which the memoized document parses once per row, against {@code unmemoized*}.
+ * {@code bytesEvalRow} reads the payload from its UTF-8 bytes, against {@code decodedBytesEvalRow}
+ * which decodes them to a string first.
+ *
+ * <p>{@code nodesRow} explodes the line items with XPATH_NODES and three relative paths, against
+ * {@code inPlaceNodesRow}, which evaluates them on the nodes of the document instead of detached
+ * copies, and {@code indexedEvalRow}, one XPATH_STRING call per line item and value.
+ *
+ * <p>Run with: {@code mvn -Pbenchmark test-compile exec:exec -Dbenchmark=XmlXpathBenchmark}
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class XmlXpathBenchmark {
+    private static final String[] XPATHS = {
+            "/*[name()=\"POSLog\"]/*[name()=\"Transaction\"]/@CancelFlag",
+            "/*[name()=\"POSLog\"]/*[name()=\"Transaction\"]/@ABCSubTransactionType",
+            "/*[name()=\"POSLog\"]/*[name()=\"Transaction\"]/*[name()=\"BusinessUnit\"]/*[name()=\"UnitID\"]",
+            "/*[name()=\"POSLog\"]/*[name()=\"Transaction\"]/*[name()=\"Total\"]"
+    };
+
+    // the same values with expressions that need a DOM
+    private static final String[] DOM_XPATHS = {
+            "//Transaction/@CancelFlag",
+            "//Transaction/@ABCSubTransactionType",
+            "//BusinessUnit/UnitID",
+            "//Transaction/Total"
+    };
+
+    private static final String LINE_ITEMS = "/POSLog/Transaction/LineItem";
+    private static final String[] LINE_ITEM_PATHS = {"@Id", "Sku", "Amount"};
+
+    // 10 line items is about 1 KB of XML, 200 about 20 KB
+    @Param({"10", "200"})
+    public int lineItems;
+
+    // rows with different contents, so the document memo only hits within a row
+    private static final int ROWS = 8;
+
+    private String payload;
+    private String[] rows;
+    private int nextRow;
+    private byte[] payloadBytes;
+    private XmlXpathFunction xpathString;
+    private XmlXpathExtractFunction xpathExtract;
+    private XPathEngine engine;
+    private XmlXpathNodesFunction xpathNodes;
+    private Blackhole nodesBlackhole;
+    private XmlXpathFunction unmemoizedXpathString;
+
+    @Setup
+    public void setUp() {
+        payload = payload(42);
+        rows = new String[ROWS];
+        for (int i = 0; i < ROWS; i++) {
+            rows[i] = payload(i);
+        }
+        payloadBytes = payload.getBytes(StandardCharsets.UTF_8);
+        xpathString = new XmlXpathFunction();
+        xpathExtract = new XmlXpathExtractFunction();
+        xpathNodes = new XmlXpathNodesFunction();
+        xpathNodes.setCollector(new Collector<>() {
+            @Override
+            public void collect(Row row) {
+                nodesBlackhole.consume(row);
+            }
+
+            @Override
+            public void close() {
+            }
+        });
+        try {
+            engine = new XPathEngine(XPathEngine.DEFAULT_MAX_EXPRESSIONS, 0);
+            Configuration conf = new Configuration();
+            conf.setString(XmlXpathFunction.DOCUMENT_MEMO_MAX_CHARS_PARAM, "0");
+            unmemoizedXpathString = new XmlXpathFunction();
+            unmemoizedXpathString.open(new FunctionContext(null, null, conf));
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private String payload(int store) {
+        StringBuilder xml = new StringBuilder("<?xml version=\"1.0\"?><POSLog>")
+                .append("<Transaction CancelFlag=\"false\" ABCSubTransactionType=\"SERVICE_TIP\">")
+                .append("<BusinessUnit><UnitID>store-").append(1000 + store).append("</UnitID></BusinessUnit>");
+        for (int i = 0; i < lineItems; i++) {
+            xml.append("<LineItem Id=\"").append(i).append("\"><Sku>SKU-").append(1000 + i)
+                    .append("</Sku><Description>Item ").append(i).append("</Description>")
+                    .append("<Quantity>1</Quantity><Amount>").append(i % 50).append(".99</Amount></LineItem>");
+        }
+        return xml.append("<Total>1234.56</Total></Transaction></POSLog>").toString();
+    }
+
+    /**
+     * @return the payload of the next row, a new string with a content different from the last row
+     */
+    private String nextRow() {
+        return new String(rows[nextRow++ % ROWS]);
+    }
+
+    @Benchmark
+    public void evalRow(Blackhole blackhole) {
+        for (String xpath : XPATHS) {
+            blackhole.consume(xpathString.eval(payload, xpath));
+        }
+    }
+
+    @Benchmark
+    public void domEvalRow(Blackhole blackhole) throws Exception {
+        for (String xpath : XPATHS) {
+            blackhole.consume(XPathEngine.firstValue(engine.parse(payload), engine.compile(xpath)));
+        }
+    }
+
+    @Benchmark
+    public void bytesEvalRow(Blackhole blackhole) {
+        for (String xpath : XPATHS) {
+            blackhole.consume(xpathString.eval(payloadBytes, xpath));
+        }
+    }
+
+    @Benchmark
+    public void decodedBytesEvalRow(Blackhole blackhole) {
+        // the Kafka value decoded to a STRING column before the call
+        String row = new String(payloadBytes, StandardCharsets.UTF_8);
+        for (String xpath : XPATHS) {
+            blackhole.consume(xpathString.eval(row, xpath));
+        }
+    }
+
+    @Benchmark
+    public void domExpressionRow(Blackhole blackhole) {
+        String row = nextRow();
+        for (String xpath : DOM_XPATHS) {
+            blackhole.consume(xpathString.eval(row, xpath));
+        }
+    }
+
+    @Benchmark
+    public void unmemoizedDomExpressionRow(Blackhole blackhole) {
+        String row = nextRow();
+        for (String xpath : DOM_XPATHS) {
+            blackhole.consume(unmemoizedXpathString.eval(row, xpath));
+        }
+    }
+
+    @Benchmark
+    public void nodesRow(Blackhole blackhole) {
+        nodesBlackhole = blackhole;
+        xpathNodes.eval(nextRow(), LINE_ITEMS, LINE_ITEM_PATHS);
+    }
+
+    @Benchmark
+    public void inPlaceNodesRow(Blackhole blackhole) throws Exception {
+        // XPATH_NODES evaluating the relative paths on the nodes of the document, not on copies
+        NodeList nodes = engine.nodes(engine.parse(payload), LINE_ITEMS);
+        for (int n = 0; n < nodes.getLength(); n++) {
+            for (String path : LINE_ITEM_PATHS) {
+                blackhole.consume(XPathEngine.firstValue(nodes.item(n), engine.compile(path)));
+            }
+        }
+    }
+
+    @Benchmark
+    public void indexedEvalRow(Blackhole blackhole) {
+        // one XPATH_STRING call per line item and value, as with a generated index and EXPLODE
+        String row = nextRow();
+        for (int n = 1; n <= lineItems; n++) {
+            for (String path : LINE_ITEM_PATHS) {
+                blackhole.consume(xpathString.eval(row, LINE_ITEMS + "[" + n + "]/" + path));
+            }
+        }
+    }
+
+    @Benchmark
+    public String[] extractRow() {
+        return xpathExtract.eval(payload, XPATHS);
+    }
+
+    @Benchmark
+    public void uncachedEvalRow(Blackhole blackhole) {
+        for (String xpath : XPATHS) {
+            blackhole.consume(uncachedEval(payload, xpath));
+        }
+    }
+
+    /**
+     * XPATH_STRING before the parser reuse: factories, builder and expression are created per call.
+     */
+    private static String uncachedEval(String xml, String xpathExpression) {
+        try {
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setNamespaceAware(false);
+            DocumentBuilder builder = factory.newDocumentBuilder();
+            Document doc = builder.parse(new InputSource(new StringReader(xml)));
+            XPath xpath = XPathFactory.newInstance().newXPath();
+            NodeList nodes = (NodeList) xpath.evaluate(xpathExpression, doc, XPathConstants.NODESET);
+            if (nodes == null || nodes.getLength() == 0) {
+                return null;
+            }
+            Node first = nodes.item(0);
+            String value = first.getTextContent();
+            if (value == null || value.isBlank()) {
+                value = first.getNodeValue();
+            }
+            return value == null || value.isBlank() ? null : value.trim();
+        } catch (Exception e) {
+            return null;
+        }
+    }
+}
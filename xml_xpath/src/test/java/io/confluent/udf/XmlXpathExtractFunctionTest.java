@@ -0,0 +1,130 @@
+package io.confluent.udf;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class XmlXpathExtractFunctionTest {
+
+    private XmlXpathExtractFunction xpathExtract;
+
+    private static final String SAMPLE_XML = "<?xml version=\"1.0\"?>"
+            + "<POSLog>"
+            + "  <Transaction CancelFlag=\"false\" ABCSubTransactionType=\"SERVICE_TIP\">"
+            + "    <LineItem Id=\"1\">Widget</LineItem>"
+            + "  </Transaction>"
+            + "</POSLog>";
+
+    private static final String CANCEL_FLAG = "/*[name()=\"POSLog\"]/*[name()=\"Transaction\"]/@CancelFlag";
+    private static final String SUB_TYPE = "/*[name()=\"POSLog\"]/*[name()=\"Transaction\"]/@ABCSubTransactionType";
+    private static final String LINE_ITEM = "/*[name()=\"POSLog\"]/*[name()=\"Transaction\"]/*[name()=\"LineItem\"]";
+
+    @BeforeEach
+    void setUp() {
+        xpathExtract = new XmlXpathExtractFunction();
+    }
+
+    @Test
+    void testExtractsEveryPathInOrder() {
+        String[] result = xpathExtract.eval(SAMPLE_XML, new String[]{LINE_ITEM, CANCEL_FLAG, SUB_TYPE});
+        assertArrayEquals(new String[]{"Widget", "false", "SERVICE_TIP"}, result);
+    }
+
+    @Test
+    void testSameValuesAsXpathString() {
+        XmlXpathFunction xpathString = new XmlXpathFunction();
+        String[] paths = {CANCEL_FLAG, SUB_TYPE, LINE_ITEM, "/*[name()=\"POSLog\"]/*[name()=\"Transaction\"]/*[name()=\"LineItem\"]/@Id"};
+        String[] result = xpathExtract.eval(SAMPLE_XML, paths);
+        for (int i = 0; i < paths.length; i++) {
+            assertEquals(xpathString.eval(SAMPLE_XML, paths[i]), result[i]);
+        }
+    }
+
+    @Test
+    void testNoMatchInvalidOrBlankPathGivesNullElement() {
+        String[] result = xpathExtract.eval(SAMPLE_XML, new String[]{"/*[name()=\"NonExistent\"]", "/POSLog/[", null, " ", CANCEL_FLAG});
+        assertArrayEquals(new String[]{null, null, null, null, "false"}, result);
+    }
+
+    @Test
+    void testEmptyPathsGivesEmptyArray() {
+        assertArrayEquals(new String[0], xpathExtract.eval(SAMPLE_XML, new String[0]));
+    }
+
+    @Test
+    void testNullOrBlankInputReturnsNull() {
+        assertNull(xpathExtract.eval(null, new String[]{CANCEL_FLAG}));
+        assertNull(xpathExtract.eval("  ", new String[]{CANCEL_FLAG}));
+        assertNull(xpathExtract.eval(SAMPLE_XML, null));
+    }
+
+    @Test
+    void testMalformedXmlGivesNullElements() {
+        assertArrayEquals(new String[]{null, null}, xpathExtract.eval("<root><unclosed>", new String[]{"/*", "//unclosed"}));
+        assertArrayEquals(new String[]{null}, xpathExtract.eval("not xml at all", new String[]{"/*"}));
+        assertArrayEquals(new String[]{"false"}, xpathExtract.eval(SAMPLE_XML, new String[]{CANCEL_FLAG}));
+    }
+
+    @Test
+    void testStreamedAndDomPathsMixed() throws Exception {
+        String[] result = xpathExtract.eval(SAMPLE_XML, new String[]{CANCEL_FLAG, "//LineItem/@Id", LINE_ITEM, "count(//LineItem) = 1"});
+        assertEquals("false", result[0]);
+        assertEquals("1", result[1]);
+        assertEquals("Widget", result[2]);
+        // not a node set: no value
+        assertNull(result[3]);
+        assertEquals(2, xpathExtract.engine().streamedEvaluations());
+        assertEquals(1, xpathExtract.engine().streamedDocuments());
+    }
+
+    @Test
+    void testSimplePathsAreReadInOneStream() throws Exception {
+        String xml = "<POSLog><Transaction Id=\"7\"><LineItem Id=\"1\">A<Sku>s1</Sku></LineItem>"
+                + "<LineItem Id=\"2\">B</LineItem><Total>9</Total></Transaction></POSLog>";
+        String[] paths = {"/POSLog/Transaction/Total", "/POSLog/Transaction/LineItem", "/POSLog/Transaction/LineItem/@Id",
+                "/POSLog/Transaction/LineItem/Sku", "/POSLog/Transaction", "/POSLog/Transaction/@Id", "/POSLog/Missing",
+                "/POSLog/Transaction/LineItem/@Missing", "/*/*/*[name()=\"LineItem\"]/Sku"};
+        String[] result = xpathExtract.eval(xml, paths);
+        XmlXpathFunction xpathString = new XmlXpathFunction();
+        for (int i = 0; i < paths.length; i++) {
+            assertEquals(xpathString.eval(xml, paths[i]), result[i], paths[i]);
+        }
+        assertEquals("As1", result[1]);
+        assertEquals(1, xpathExtract.engine().streamedDocuments());
+        assertEquals(paths.length, xpathExtract.engine().streamedEvaluations());
+    }
+
+    @Test
+    void testStreamKeepsValuesBeforeMalformedContent() throws Exception {
+        String xml = "<POSLog><Transaction CancelFlag=\"false\"><LineItem>A</LineItem><broken></POSLog>";
+        String[] result = xpathExtract.eval(xml, new String[]{"/POSLog/Transaction/@CancelFlag",
+                "/POSLog/Transaction/LineItem", "/POSLog/Transaction/Total", "/POSLog/Transaction"});
+        assertArrayEquals(new String[]{"false", "A", null, null}, result);
+        XmlXpathFunction xpathString = new XmlXpathFunction();
+        assertEquals("A", xpathString.eval(xml, "/POSLog/Transaction/LineItem"));
+        assertNull(xpathString.eval(xml, "/POSLog/Transaction"));
+    }
+
+    @Test
+    void testDocumentWithDtdUsesDom() throws Exception {
+        String xml = "<!DOCTYPE POSLog [<!ENTITY flag \"true\">]><POSLog><Transaction CancelFlag=\"&flag;\"/></POSLog>";
+        String[] result = xpathExtract.eval(xml, new String[]{CANCEL_FLAG, "//Transaction/@CancelFlag"});
+        assertArrayEquals(new String[]{"true", "true"}, result);
+        assertEquals(0, xpathExtract.engine().streamedDocuments());
+    }
+
+    @Test
+    void testCompiledExpressionsAreShared() throws Exception {
+        xpathExtract.eval(SAMPLE_XML, new String[]{CANCEL_FLAG, SUB_TYPE});
+        xpathExtract.eval(SAMPLE_XML, new String[]{SUB_TYPE, CANCEL_FLAG});
+        assertEquals(2, xpathExtract.engine().cachedExpressions());
+    }
+
+    @Test
+    void testToString() {
+        assertEquals("XPATH_EXTRACT", xpathExtract.toString());
+    }
+}
@@ -1,10 +1,24 @@
 package io.confluent.udf;
 
+import org.apache.flink.configuration.Configuration;
+import org.apache.flink.table.functions.FunctionContext;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class XmlXpathFunctionTest {
 
@@ -48,7 +62,7 @@ class XmlXpathFunctionTest {
 
     @Test
     void testNullXmlReturnsNull() {
-        assertNull(xpathString.eval(null, "/*"));
+        assertNull(xpathString.eval((String) null, "/*"));
     }
 
     @Test
@@ -74,6 +88,370 @@ class XmlXpathFunctionTest {
         assertNull(xpathString.eval("not xml at all", "/*"));
     }
 
+    @Test
+    void testCompiledExpressionIsReused() throws Exception {
+        String xpath = "/*[name()=\"POSLog\"]/*[name()=\"Transaction\"]/@CancelFlag";
+        assertEquals("false", xpathString.eval(SAMPLE_XML, xpath));
+        assertEquals("false", xpathString.eval(SAMPLE_XML, xpath));
+        assertEquals("SERVICE_TIP", xpathString.eval(SAMPLE_XML, "/*[name()=\"POSLog\"]/*[name()=\"Transaction\"]/@ABCSubTransactionType"));
+        assertEquals(2, xpathString.engine().cachedExpressions());
+    }
+
+    @Test
+    void testExpressionCacheIsBounded() throws Exception {
+        Configuration conf = new Configuration();
+        conf.setString(XmlXpathFunction.EXPRESSION_CACHE_SIZE_PARAM, "2");
+        xpathString.open(new FunctionContext(null, null, conf));
+
+        assertEquals("false", xpathString.eval(SAMPLE_XML, "/POSLog/Transaction/@CancelFlag"));
+        assertEquals("SERVICE_TIP", xpathString.eval(SAMPLE_XML, "/POSLog/Transaction/@ABCSubTransactionType"));
+        assertEquals("Widget", xpathString.eval(SAMPLE_XML, "/POSLog/Transaction/LineItem"));
+        assertEquals(2, xpathString.engine().cachedExpressions());
+        // an evicted expression is compiled again
+        assertEquals("false", xpathString.eval(SAMPLE_XML, "/POSLog/Transaction/@CancelFlag"));
+    }
+
+    @Test
+    void testInvalidXpathReturnsNullAndIsNotCached() throws Exception {
+        assertNull(xpathString.eval(SAMPLE_XML, "/POSLog/["));
+        assertEquals(0, xpathString.engine().cachedExpressions());
+        assertEquals("Widget", xpathString.eval(SAMPLE_XML, "/POSLog/Transaction/LineItem"));
+    }
+
+    @Test
+    void testParserIsReusedAfterMalformedXml() {
+        assertNull(xpathString.eval("<root><unclosed>", "/*"));
+        assertEquals("Widget", xpathString.eval(SAMPLE_XML, "/POSLog/Transaction/LineItem"));
+    }
+
+    @Test
+    void testSimplePathsAreStreamedWithDomValues() throws Exception {
+        String xml = "<?xml version=\"1.0\"?>"
+                + "<p:POSLog xmlns:p=\"urn:pos\" xmlns=\"urn:default\">"
+                + "  <Transaction Empty=\" \" p:Flag=\"x\">"
+                + "    <LineItem Id=\"1\">  Wid<![CDATA[get]]> &amp; <Note>blue</Note><!-- comment --></LineItem>"
+                + "    <LineItem Id=\"2\" Kind=\"gift\">Card</LineItem>"
+                + "    <LineItem> </LineItem>"
+                + "  </Transaction>"
+                + "  <Transaction Kind=\"late\"><LineItem Id=\"3\">Late</LineItem></Transaction>"
+                + "</p:POSLog>";
+        String[] paths = {
+                "/*[name()=\"p:POSLog\"]/*[name()=\"Transaction\"]/*[name()=\"LineItem\"]",
+                "/*[name()='p:POSLog']/*/*[name()=\"LineItem\"]/@Kind",
+                "/*/*/@Kind",
+                "/*/Transaction/LineItem/@Id",
+                "/*/*/*/Note",
+                "/*/*/@Empty",
+                "/*/*/@Missing",
+                "/*/*/@Flag",
+                "/*/POSLog",
+                "/POSLog/Transaction/@Flag",
+                "/*/@p",
+                "/*[name()=\"POSLog\"]",
+                "/*",
+        };
+        XPathEngine engine = xpathString.engine();
+        for (String path : paths) {
+            String dom = XPathEngine.firstValue(engine.parse(xml), engine.compile(path));
+            assertEquals(dom, xpathString.eval(xml, path), path);
+        }
+        assertEquals(paths.length, engine.streamedEvaluations());
+        assertEquals("Widget & blue", xpathString.eval(xml, paths[0]));
+        assertEquals("gift", xpathString.eval(xml, paths[1]));
+    }
+
+    @Test
+    void testOtherExpressionsUseTheDom() throws Exception {
+        assertEquals("Widget", xpathString.eval(SAMPLE_XML, "//LineItem"));
+        assertEquals("1", xpathString.eval(SAMPLE_XML, "/POSLog/Transaction/LineItem[1]/@Id"));
+        assertEquals("Widget", xpathString.eval(SAMPLE_XML, "/POSLog/Transaction/LineItem/text()"));
+        assertEquals(0, xpathString.engine().streamedEvaluations());
+    }
+
+    @Test
+    void testDocumentWithDtdUsesTheDom() throws Exception {
+        String xml = "<?xml version=\"1.0\"?>"
+                + "<!DOCTYPE POSLog [<!ENTITY store \"store-42\"><!ATTLIST Transaction Channel CDATA \"web\">]>"
+                + "<POSLog><Transaction>&store;</Transaction></POSLog>";
+        assertEquals("store-42", xpathString.eval(xml, "/POSLog/Transaction"));
+        assertEquals("web", xpathString.eval(xml, "/POSLog/Transaction/@Channel"));
+        assertEquals(0, xpathString.engine().streamedEvaluations());
+    }
+
+    @Test
+    void testDocumentIsParsedOncePerRow() throws Exception {
+        String row = new String(SAMPLE_XML);
+        assertEquals("false", xpathString.eval(row, "//Transaction/@CancelFlag"));
+        assertEquals("SERVICE_TIP", xpathString.eval(row, "//Transaction/@ABCSubTransactionType"));
+        assertEquals("Widget", xpathString.eval(row, "//LineItem"));
+        assertEquals(2, xpathString.engine().memoHits());
+
+        // an equal payload in another string is found by length, hash and content
+        assertEquals("1", xpathString.eval(new String(SAMPLE_XML), "//LineItem/@Id"));
+        assertEquals(3, xpathString.engine().memoHits());
+
+        String other = SAMPLE_XML.replace("Widget", "Gadget");
+        assertEquals("Gadget", xpathString.eval(other, "//LineItem"));
+        assertEquals(3, xpathString.engine().memoHits());
+        assertEquals("Widget", xpathString.eval(row, "//LineItem"));
+        assertEquals(3, xpathString.engine().memoHits());
+    }
+
+    @Test
+    void testDocumentLongerThanMemoLimitIsNotKept() throws Exception {
+        Configuration conf = new Configuration();
+        conf.setString(XmlXpathFunction.DOCUMENT_MEMO_MAX_CHARS_PARAM, String.valueOf(SAMPLE_XML.length() - 1));
+        xpathString.open(new FunctionContext(null, null, conf));
+
+        assertEquals("false", xpathString.eval(SAMPLE_XML, "//Transaction/@CancelFlag"));
+        assertEquals("Widget", xpathString.eval(SAMPLE_XML, "//LineItem"));
+        assertEquals(0, xpathString.engine().memoHits());
+        assertEquals("a", xpathString.eval("<r>a</r>", "//r"));
+        assertEquals("a", xpathString.eval("<r>a</r>", "//r"));
+        assertEquals(1, xpathString.engine().memoHits());
+    }
+
+    @Test
+    void testExternalEntityIsNotRead(@TempDir Path dir) throws Exception {
+        Path secret = dir.resolve("secret.txt");
+        Files.writeString(secret, "secret");
+        String xml = "<?xml version=\"1.0\"?>"
+                + "<!DOCTYPE r [<!ENTITY x SYSTEM \"" + secret.toUri() + "\">]>"
+                + "<r><v>&x;</v></r>";
+        assertNull(xpathString.eval(xml, "/r/v"));
+        assertNull(xpathString.eval(xml, "//v"));
+        assertNull(xpathString.eval(xml.getBytes(StandardCharsets.UTF_8), "/r/v"));
+    }
+
+    @Test
+    void testExternalDtdIsNotLoaded() {
+        String xml = "<?xml version=\"1.0\"?>"
+                + "<!DOCTYPE POSLog SYSTEM \"http://dtd.invalid/poslog.dtd\">"
+                + "<POSLog><Transaction CancelFlag=\"false\"/></POSLog>";
+        assertEquals("false", xpathString.eval(xml, "/POSLog/Transaction/@CancelFlag"));
+        assertEquals("false", xpathString.eval(xml, "//Transaction/@CancelFlag"));
+    }
+
+    @Test
+    void testEntityExpansionIsLimited() {
+        StringBuilder dtd = new StringBuilder("<!DOCTYPE r [<!ENTITY e0 \"lol\">");
+        for (int i = 1; i < 10; i++) {
+            dtd.append("<!ENTITY e").append(i).append(" \"");
+            for (int j = 0; j < 10; j++) {
+                dtd.append("&e").append(i - 1).append(';');
+            }
+            dtd.append("\">");
+        }
+        String xml = dtd.append("]><r>&e9;</r>").toString();
+        assertNull(xpathString.eval(xml, "/r"));
+    }
+
+    @Test
+    void testBytesPayload() throws Exception {
+        byte[] utf8 = SAMPLE_XML.replace("Widget", "Caf\u00e9").getBytes(StandardCharsets.UTF_8);
+        assertEquals("Caf\u00e9", xpathString.eval(utf8, "/POSLog/Transaction/LineItem"));
+        assertEquals("Caf\u00e9", xpathString.eval(utf8, "//LineItem"));
+        assertEquals("SERVICE_TIP", xpathString.eval(utf8, "//Transaction/@ABCSubTransactionType"));
+        assertEquals(1, xpathString.engine().memoHits());
+
+        String latin1Xml = "<?xml version=\"1.0\" encoding=\"ISO-8859-1\"?><r>Caf\u00e9</r>";
+        byte[] latin1 = latin1Xml.getBytes(StandardCharsets.ISO_8859_1);
+        assertEquals("Caf\u00e9", xpathString.eval(latin1, "/r"));
+        assertEquals("Caf\u00e9", xpathString.eval(latin1, "//r"));
+
+        byte[] utf16 = "<?xml version=\"1.0\" encoding=\"UTF-16\"?><r>Caf\u00e9</r>".getBytes(StandardCharsets.UTF_16);
+        assertEquals("Caf\u00e9", xpathString.eval(utf16, "/r"));
+        assertEquals("Caf\u00e9", xpathString.eval(utf16, "//r"));
+
+        byte[] bom = ("\ufeff" + SAMPLE_XML).getBytes(StandardCharsets.UTF_8);
+        assertEquals("Widget", xpathString.eval(bom, "/POSLog/Transaction/LineItem"));
+    }
+
+    @Test
+    void testMalformedUtf8BytesReturnNull() {
+        byte[] xml = "<r>Caf\u00e9</r>".getBytes(StandardCharsets.UTF_8);
+        // truncate the two-byte sequence of the accented letter
+        byte[] malformed = new byte[xml.length - 1];
+        System.arraycopy(xml, 0, malformed, 0, 7);
+        System.arraycopy(xml, 8, malformed, 7, xml.length - 8);
+        assertNull(xpathString.eval(malformed, "/r"));
+        assertNull(xpathString.eval(malformed, "//r"));
+        assertEquals("Caf\u00e9", xpathString.eval(xml, "/r"));
+    }
+
+    @Test
+    void testReusedBytesArrayIsComparedByContent() {
+        byte[] buffer = "<r>a</r>".getBytes(StandardCharsets.UTF_8);
+        assertEquals("a", xpathString.eval(buffer, "//r"));
+        buffer[3] = 'b';
+        assertEquals("b", xpathString.eval(buffer, "//r"));
+        assertEquals("b", xpathString.eval(buffer, "/r"));
+    }
+
+    @Test
+    void testBytesLongerThanMemoLimitAreNotKept() throws Exception {
+        Configuration conf = new Configuration();
+        conf.setString(XmlXpathFunction.DOCUMENT_MEMO_MAX_CHARS_PARAM, "4");
+        xpathString.open(new FunctionContext(null, null, conf));
+
+        byte[] xml = "<r>a</r>".getBytes(StandardCharsets.UTF_8);
+        assertEquals("a", xpathString.eval(xml, "//r"));
+        assertEquals("a", xpathString.eval(xml, "//r"));
+        assertEquals(0, xpathString.engine().memoHits());
+    }
+
+    @Test
+    void testUtf8Detection() {
+        assertTrue(XPathEngine.isUtf8("<r/>".getBytes(StandardCharsets.UTF_8)));
+        assertTrue(XPathEngine.isUtf8("<?xml version=\"1.0\"?><r/>".getBytes(StandardCharsets.UTF_8)));
+        assertTrue(XPathEngine.isUtf8("<?xml version='1.0' encoding='utf-8'?><r/>".getBytes(StandardCharsets.UTF_8)));
+        assertTrue(XPathEngine.isUtf8(("\ufeff<r/>").getBytes(StandardCharsets.UTF_8)));
+        assertFalse(XPathEngine.isUtf8("<?xml version=\"1.0\" encoding=\"ISO-8859-1\"?><r/>".getBytes(StandardCharsets.ISO_8859_1)));
+        assertFalse(XPathEngine.isUtf8("<r/>".getBytes(StandardCharsets.UTF_16)));
+        assertFalse(XPathEngine.isUtf8("<r/>".getBytes(StandardCharsets.UTF_16LE)));
+    }
+
+    @Test
+    void testNullOrEmptyBytesReturnsNull() {
+        assertNull(xpathString.eval((byte[]) null, "/*"));
+        assertNull(xpathString.eval(new byte[0], "/*"));
+        assertNull(xpathString.eval(SAMPLE_XML.getBytes(StandardCharsets.UTF_8), null));
+        assertNull(xpathString.eval("<root><unclosed>".getBytes(StandardCharsets.UTF_8), "/*"));
+    }
+
+    @Test
+    void testStreamingPathCompilation() {
+        assertNotNull(StreamingPath.compile("/*[name()=\"POSLog\"]/*[name() = 'Transaction']/@CancelFlag"));
+        assertNotNull(StreamingPath.compile("/POSLog/Transaction"));
+        assertNotNull(StreamingPath.compile("/*"));
+        assertNull(StreamingPath.compile("//LineItem"));
+        assertNull(StreamingPath.compile("/POSLog/@Id/Transaction"));
+        assertNull(StreamingPath.compile("/POSLog/LineItem[1]"));
+        assertNull(StreamingPath.compile("/POSLog/text()"));
+        assertNull(StreamingPath.compile("/POSLog/@xmlns"));
+        assertNull(StreamingPath.compile("/@Id"));
+        assertNull(StreamingPath.compile("POSLog"));
+    }
+
+    private static final String POS_NS = "http://www.nrf-arts.org/IXRetail/namespace/";
+
+    private static final String NAMESPACED_XML = "<?xml version=\"1.0\"?>"
+            + "<p:POSLog xmlns:p=\"" + POS_NS + "\" xmlns:x=\"urn:ext\">"
+            + "  <p:Transaction CancelFlag=\"false\" x:Channel=\"web\">"
+            + "    <p:LineItem Id=\"1\"><p:Sku>A-1</p:Sku><x:Sku>ext</x:Sku></p:LineItem>"
+            + "  </p:Transaction>"
+            + "  <Transaction CancelFlag=\"true\"/>"
+            + "</p:POSLog>";
+
+    private static FunctionContext namespacesContext(String bindings) {
+        Configuration conf = new Configuration();
+        conf.setString(XmlXpathFunction.NAMESPACES_PARAM, bindings);
+        return new FunctionContext(null, null, conf);
+    }
+
+    @Test
+    void testNamespaceStepsWithJobParameter() throws Exception {
+        xpathString.open(namespacesContext("pos=" + POS_NS + ", ext=urn:ext"));
+        assertEquals("false", xpathString.eval(NAMESPACED_XML, "/pos:POSLog/pos:Transaction/@CancelFlag"));
+        assertEquals("web", xpathString.eval(NAMESPACED_XML, "/pos:POSLog/pos:Transaction/@ext:Channel"));
+        assertEquals("A-1", xpathString.eval(NAMESPACED_XML, "/pos:POSLog/pos:Transaction/pos:LineItem/pos:Sku"));
+        assertEquals("ext", xpathString.eval(NAMESPACED_XML, "/pos:POSLog/pos:Transaction/pos:LineItem/ext:Sku"));
+        // an unprefixed step is an element without namespace
+        assertEquals("true", xpathString.eval(NAMESPACED_XML, "/pos:POSLog/Transaction/@CancelFlag"));
+        // name() predicates still match the names of the document
+        assertEquals("false", xpathString.eval(NAMESPACED_XML, "/*[name()=\"p:POSLog\"]/*[name()=\"p:Transaction\"]/@CancelFlag"));
+        assertEquals("A-1", xpathString.eval(NAMESPACED_XML, "//pos:Sku"));
+        assertNull(xpathString.eval(NAMESPACED_XML, "/POSLog/Transaction/@CancelFlag"));
+    }
+
+    @Test
+    void testNamespacePathsAreStreamedWithDomValues() throws Exception {
+        xpathString.open(namespacesContext("pos=" + POS_NS + ",ext=urn:ext,none=urn:none"));
+        String[] paths = {
+                "/pos:POSLog/pos:Transaction/@CancelFlag",
+                "/pos:POSLog/pos:Transaction/@ext:Channel",
+                "/pos:POSLog/pos:Transaction/@Channel",
+                "/pos:POSLog/*/pos:LineItem/*",
+                "/pos:POSLog/pos:Transaction/pos:LineItem/ext:Sku",
+                "/pos:POSLog/Transaction/@CancelFlag",
+                "/*/none:Transaction",
+                "/*[name()=\"p:POSLog\"]/*[name()='p:Transaction']/*/*[name()=\"x:Sku\"]",
+                "/*[name()=\"POSLog\"]",
+        };
+        XPathEngine engine = xpathString.engine();
+        for (String path : paths) {
+            String dom = XPathEngine.firstValue(engine.parse(NAMESPACED_XML), engine.compile(path));
+            assertEquals(dom, xpathString.eval(NAMESPACED_XML, path), path);
+        }
+        assertEquals(paths.length, engine.streamedEvaluations());
+    }
+
+    @Test
+    void testNamespacesArgument() throws Exception {
+        Map<String, String> bindings = Map.of("pos", POS_NS);
+        assertEquals("false", xpathString.eval(NAMESPACED_XML, "/pos:POSLog/pos:Transaction/@CancelFlag", bindings));
+        assertEquals("A-1", xpathString.eval(NAMESPACED_XML, "//pos:LineItem/pos:Sku", new HashMap<>(bindings)));
+        assertSame(xpathString.engine(bindings), xpathString.engine(new HashMap<>(bindings)));
+        // without bindings, the default engine parses without namespaces
+        assertNull(xpathString.eval(NAMESPACED_XML, "/pos:POSLog/pos:Transaction/@CancelFlag", Map.of()));
+        assertEquals("false", xpathString.eval(NAMESPACED_XML, "/*[name()=\"p:POSLog\"]/*[name()=\"p:Transaction\"]/@CancelFlag", null));
+        assertNull(xpathString.eval(null, "/*", bindings));
+        assertNull(xpathString.eval(NAMESPACED_XML, " ", bindings));
+    }
+
+    @Test
+    void testNamespacesArgumentExtendsJobParameter() throws Exception {
+        xpathString.open(namespacesContext("pos=urn:other,ext=urn:ext"));
+        assertNull(xpathString.eval(NAMESPACED_XML, "/pos:POSLog/pos:Transaction/@CancelFlag"));
+        Map<String, String> bindings = Map.of("pos", POS_NS);
+        assertEquals("web", xpathString.eval(NAMESPACED_XML, "/pos:POSLog/pos:Transaction/@ext:Channel", bindings));
+        assertEquals(Map.of("pos", POS_NS, "ext", "urn:ext"), xpathString.engine(bindings).namespaces());
+    }
+
+    @Test
+    void testExpressionCacheIsKeyedByBindings() throws Exception {
+        String path = "/ns:POSLog/ns:Transaction/@CancelFlag";
+        assertEquals("false", xpathString.eval(NAMESPACED_XML, path, Map.of("ns", POS_NS)));
+        assertNull(xpathString.eval(NAMESPACED_XML, path, Map.of("ns", "urn:ext")));
+        assertEquals(1, xpathString.engine(Map.of("ns", POS_NS)).cachedExpressions());
+        assertEquals(1, xpathString.engine(Map.of("ns", "urn:ext")).cachedExpressions());
+        assertEquals(0, xpathString.engine().cachedExpressions());
+    }
+
+    @Test
+    void testUnboundPrefixReturnsNull() throws Exception {
+        xpathString.open(namespacesContext("pos=" + POS_NS));
+        assertNull(xpathString.eval(NAMESPACED_XML, "/acme:POSLog/@Id"));
+        assertEquals(0, xpathString.engine().cachedExpressions());
+    }
+
+    @Test
+    void testInvalidNamespacesParameterParsesWithoutNamespaces() throws Exception {
+        xpathString.open(namespacesContext("pos"));
+        assertTrue(xpathString.engine().namespaces().isEmpty());
+        assertEquals("false", xpathString.eval(NAMESPACED_XML, "/*[name()=\"p:POSLog\"]/*[name()=\"p:Transaction\"]/@CancelFlag"));
+    }
+
+    @Test
+    void testNamespaceBindingsParsing() {
+        assertEquals(Map.of("pos", POS_NS, "x", "urn:a=b"), NamespaceBindings.parse(" pos = " + POS_NS + " ,, x=urn:a=b"));
+        assertTrue(NamespaceBindings.parse(null).isEmpty());
+        assertTrue(NamespaceBindings.parse(" ").isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> NamespaceBindings.parse("pos"));
+        assertThrows(IllegalArgumentException.class, () -> NamespaceBindings.parse("=urn:pos"));
+        assertThrows(IllegalArgumentException.class, () -> NamespaceBindings.parse("pos="));
+    }
+
+    @Test
+    void testNamespaceStreamingPathCompilation() {
+        NamespaceBindings bindings = new NamespaceBindings(Map.of("pos", POS_NS));
+        assertNotNull(StreamingPath.compile("/pos:POSLog/pos:Transaction/@pos:Id", bindings));
+        assertNotNull(StreamingPath.compileRelative("pos:Sku", bindings));
+        assertNull(StreamingPath.compile("/acme:POSLog", bindings));
+        assertNull(StreamingPath.compile("/pos:POSLog"));
+        assertNull(StreamingPath.compileRelative("pos:Sku"));
+    }
+
     @Test
     void testToString() {
         assertEquals("XPATH_STRING", xpathString.toString());
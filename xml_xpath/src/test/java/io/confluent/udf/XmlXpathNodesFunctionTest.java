@@ -0,0 +1,169 @@
+package io.confluent.udf;
+
+import org.apache.flink.configuration.Configuration;
+import org.apache.flink.table.functions.FunctionContext;
+import org.apache.flink.types.Row;
+import org.apache.flink.util.Collector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class XmlXpathNodesFunctionTest {
+
+    private static final String SAMPLE_XML = "<?xml version=\"1.0\"?>"
+            + "<POSLog>"
+            + "  <Transaction CancelFlag=\"false\">"
+            + "    <LineItem Id=\"1\"><Sku>SKU-1</Sku><Amount>9.99</Amount></LineItem>"
+            + "    <LineItem Id=\"2\"><Sku>SKU-2</Sku></LineItem>"
+            + "    <LineItem Id=\"3\"><Sku>SKU-3</Sku><Amount>1.50</Amount></LineItem>"
+            + "  </Transaction>"
+            + "</POSLog>";
+
+    private XmlXpathNodesFunction xpathNodes;
+    // snapshot of each collected row: node_index followed by node_values
+    private List<List<Object>> rows;
+    private List<Row> collected;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        xpathNodes = new XmlXpathNodesFunction();
+        rows = new ArrayList<>();
+        collected = new ArrayList<>();
+        Field collectorField = xpathNodes.getClass().getSuperclass().getDeclaredField("collector");
+        collectorField.setAccessible(true);
+        collectorField.set(xpathNodes, new Collector<Row>() {
+            @Override
+            public void collect(Row row) {
+                List<Object> snapshot = new ArrayList<>();
+                snapshot.add(row.getField(0));
+                snapshot.addAll(Arrays.asList((String[]) row.getField(1)));
+                rows.add(snapshot);
+                collected.add(row);
+            }
+
+            @Override
+            public void close() {
+            }
+        });
+    }
+
+    @Test
+    void testOneRowPerNodeWithRelativeValues() {
+        xpathNodes.eval(SAMPLE_XML, "/POSLog/Transaction/LineItem", new String[]{"@Id", "Sku", "Amount"});
+        assertEquals(List.of(
+                Arrays.asList(1, "1", "SKU-1", "9.99"),
+                Arrays.asList(2, "2", "SKU-2", null),
+                Arrays.asList(3, "3", "SKU-3", "1.50")), rows);
+    }
+
+    @Test
+    void testNamePredicatePathsAndDescendants() {
+        xpathNodes.eval(SAMPLE_XML, "/*[name()=\"POSLog\"]//*[name()=\"LineItem\"][Amount]", new String[]{"*[name()=\"Sku\"]", "."});
+        assertEquals(List.of(
+                Arrays.asList(1, "SKU-1", "SKU-19.99"),
+                Arrays.asList(2, "SKU-3", "SKU-31.50")), rows);
+    }
+
+    @Test
+    void testOutputRowIsReused() {
+        xpathNodes.eval(SAMPLE_XML, "//LineItem", new String[]{"@Id"});
+        assertEquals(3, collected.size());
+        assertSame(collected.get(0), collected.get(2));
+    }
+
+    @Test
+    void testPathsOutsideTheNodeGiveNull() {
+        xpathNodes.eval(SAMPLE_XML, "//LineItem", new String[]{"../@CancelFlag", "/POSLog/Transaction/@CancelFlag", "Sku"});
+        assertEquals(3, rows.size());
+        for (List<Object> row : rows) {
+            assertEquals(null, row.get(1));
+            assertEquals(null, row.get(2));
+        }
+        assertEquals("SKU-2", rows.get(1).get(3));
+    }
+
+    @Test
+    void testInvalidOrMissingRelativePathsGiveNull() {
+        xpathNodes.eval(SAMPLE_XML, "//LineItem", new String[]{"Sku[", null, " ", "Missing"});
+        assertEquals(Arrays.asList(1, null, null, null, null), rows.get(0));
+        assertEquals(3, rows.size());
+    }
+
+    @Test
+    void testNoRelativePathsEmitsNodePositions() {
+        xpathNodes.eval(SAMPLE_XML, "//LineItem", null);
+        assertEquals(List.of(List.of(1), List.of(2), List.of(3)), rows);
+    }
+
+    @Test
+    void testNoNodeOrInvalidInputEmitsNothing() {
+        xpathNodes.eval(SAMPLE_XML, "//Missing", new String[]{"@Id"});
+        xpathNodes.eval(SAMPLE_XML, "//LineItem[", new String[]{"@Id"});
+        xpathNodes.eval("<root><unclosed>", "//LineItem", new String[]{"@Id"});
+        xpathNodes.eval(null, "//LineItem", new String[]{"@Id"});
+        xpathNodes.eval(SAMPLE_XML, null, new String[]{"@Id"});
+        xpathNodes.eval(SAMPLE_XML, " ", new String[]{"@Id"});
+        assertTrue(rows.isEmpty());
+    }
+
+    @Test
+    void testDocumentIsParsedOnceForSeveralCalls() throws Exception {
+        xpathNodes.eval(SAMPLE_XML, "//LineItem", new String[]{"@Id"});
+        xpathNodes.eval(SAMPLE_XML, "//Transaction", new String[]{"@CancelFlag"});
+        assertEquals(1, xpathNodes.engine().memoHits());
+        assertEquals(Arrays.asList(1, "false"), rows.get(3));
+    }
+
+    @Test
+    void testSimpleRelativePathsGiveXpathValues() throws Exception {
+        String xml = "<r xmlns:p=\"urn:p\"><Item p:Id=\"7\" Kind=\" \"><p:Sku>A<b>1</b></p:Sku><Sku>B</Sku>"
+                + "<Price Currency=\"EUR\">2</Price><Price>3</Price></Item><Item/></r>";
+        String[] paths = {"Sku", "p:Sku", "*[name()=\"p:Sku\"]", "*/b", "@Id", "@Kind", "@p", "Price/@Currency",
+                "*", "*/@Currency", "Missing", "@Missing"};
+        XPathEngine engine = xpathNodes.engine();
+        NodeList items = engine.nodes(engine.parse(xml), "//Item");
+        for (int n = 0; n < items.getLength(); n++) {
+            for (String path : paths) {
+                StreamingPath relative = StreamingPath.compileRelative(path);
+                String xpathValue = XPathEngine.firstValue(items.item(n).cloneNode(true), engine.compile(path));
+                if (relative != null) {
+                    Node match = relative.firstNode(items.item(n));
+                    assertEquals(xpathValue, match == null ? null : XPathEngine.value(match), path);
+                }
+            }
+        }
+        assertNull(StreamingPath.compileRelative("p:Sku"));
+        assertNull(StreamingPath.compileRelative(".."));
+        assertNull(StreamingPath.compileRelative("/r"));
+        assertNull(StreamingPath.compileRelative("Sku[1]"));
+    }
+
+    @Test
+    void testNamespaceStepsWithJobParameter() throws Exception {
+        Configuration conf = new Configuration();
+        conf.setString(XmlXpathFunction.NAMESPACES_PARAM, "pos=urn:pos");
+        xpathNodes.open(new FunctionContext(null, null, conf));
+        String xml = "<p:POSLog xmlns:p=\"urn:pos\"><p:LineItem Id=\"1\"><p:Sku>SKU-1</p:Sku></p:LineItem>"
+                + "<p:LineItem Id=\"2\"><Sku>other</Sku><p:Sku>SKU-2</p:Sku></p:LineItem></p:POSLog>";
+        xpathNodes.eval(xml, "/pos:POSLog/pos:LineItem", new String[]{"pos:Sku", "@Id", "pos:Sku/text()"});
+        assertEquals(List.of(
+                Arrays.asList(1, "SKU-1", "1", "SKU-1"),
+                Arrays.asList(2, "SKU-2", "2", "SKU-2")), rows);
+    }
+
+    @Test
+    void testToString() {
+        assertEquals("XPATH_NODES", xpathNodes.toString());
+    }
+}